@@ -0,0 +1,58 @@
+package com.queueless.backend.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.UUID;
+
+@Slf4j
+public abstract class AbstractBrokerFanout implements BrokerFanout {
+
+    /**
+     * What travels between nodes: the already converted payload plus where it was sent.
+     */
+    public record Envelope(String nodeId, String destination, String contentType, byte[] payload) {
+    }
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final MessageChannel brokerChannel;
+
+    protected AbstractBrokerFanout(MessageChannel brokerChannel) {
+        this.brokerChannel = brokerChannel;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void publish(String destination, byte[] payload, String contentType) {
+        try {
+            send(new Envelope(nodeId, destination, contentType, payload));
+        } catch (Exception e) {
+            log.error("Failed to fan out message for {}: {}", destination, e.getMessage());
+        }
+    }
+
+    protected abstract void send(Envelope envelope) throws Exception;
+
+    protected void deliverLocally(Envelope envelope) {
+        if (nodeId.equals(envelope.nodeId())) {
+            return; // our own message coming back
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(envelope.destination());
+        if (envelope.contentType() != null) {
+            accessor.setContentType(MimeTypeUtils.parseMimeType(envelope.contentType()));
+        }
+        accessor.setHeader(RELAYED_HEADER, Boolean.TRUE);
+        accessor.setLeaveMutable(false);
+        MessageHeaders headers = accessor.getMessageHeaders();
+        brokerChannel.send(MessageBuilder.createMessage(envelope.payload(), headers));
+    }
+}
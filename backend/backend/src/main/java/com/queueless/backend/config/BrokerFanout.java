@@ -0,0 +1,17 @@
+package com.queueless.backend.config;
+
+/**
+ * Carries broker messages between backend nodes when each node runs its own in-memory
+ * STOMP broker ({@code websocket.broker.mode=redis} or {@code local}). Messages received
+ * from other nodes are re-sent on the local broker channel, so topic subscribers and user
+ * destinations resolve against the sessions connected to this node.
+ */
+public interface BrokerFanout {
+
+    /**
+     * Header set on messages delivered from another node so they are not fanned out again.
+     */
+    String RELAYED_HEADER = "queuelessFanoutRelayed";
+
+    void publish(String destination, byte[] payload, String contentType);
+}
@@ -0,0 +1,70 @@
+package com.queueless.backend.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Broker channel interceptor that hands every outbound MESSAGE to the {@link BrokerFanout}.
+ * User destinations are fanned out unresolved ({@code /user/...}) so each node resolves them
+ * against its own sessions; the per-session copies a node makes locally are not forwarded.
+ */
+public class BrokerFanoutInterceptor implements ChannelInterceptor {
+
+    private static final List<String> FANOUT_PREFIXES = List.of("/topic/", "/queue/", "/user/");
+
+    // Resolved on first use: the fanout itself depends on the broker channel being built
+    private final Supplier<BrokerFanout> brokerFanoutSupplier;
+    private volatile BrokerFanout brokerFanout;
+
+    public BrokerFanoutInterceptor(Supplier<BrokerFanout> brokerFanoutSupplier) {
+        this.brokerFanoutSupplier = brokerFanoutSupplier;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || headers.containsKey(BrokerFanout.RELAYED_HEADER)
+                || !(message.getPayload() instanceof byte[] payload)
+                || isResolvedUserMessage(message)) {
+            return message;
+        }
+
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (destination != null && FANOUT_PREFIXES.stream().anyMatch(destination::startsWith)) {
+            Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+            fanout().publish(destination, payload, contentType != null ? contentType.toString() : null);
+        }
+        return message;
+    }
+
+    /**
+     * Whether this is a per-session copy of a user message. {@code UserDestinationMessageHandler}
+     * marks those with the {@code /user/...} destination as a native header.
+     */
+    private static boolean isResolvedUserMessage(Message<?> message) {
+        SimpMessageHeaderAccessor accessor =
+                MessageHeaderAccessor.getAccessor(message, SimpMessageHeaderAccessor.class);
+        if (accessor == null) {
+            accessor = SimpMessageHeaderAccessor.wrap(message);
+        }
+        return accessor.getFirstNativeHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION) != null;
+    }
+
+    private BrokerFanout fanout() {
+        BrokerFanout fanout = brokerFanout;
+        if (fanout == null) {
+            fanout = brokerFanoutSupplier.get();
+            brokerFanout = fanout;
+        }
+        return fanout;
+    }
+}
@@ -0,0 +1,35 @@
+package com.queueless.backend.config;
+
+import org.springframework.messaging.MessageChannel;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-process stand-in for {@link RedisBrokerFanout}: every fanout attached to the same
+ * {@link Hub} receives what the others publish. Used with {@code websocket.broker.mode=local}
+ * and in tests, where several broker channels can share one hub to act as separate nodes.
+ */
+public class LocalBrokerFanout extends AbstractBrokerFanout {
+
+    public static class Hub {
+        private final List<LocalBrokerFanout> members = new CopyOnWriteArrayList<>();
+
+        void deliver(Envelope envelope) {
+            members.forEach(member -> member.deliverLocally(envelope));
+        }
+    }
+
+    private final Hub hub;
+
+    public LocalBrokerFanout(MessageChannel brokerChannel, Hub hub) {
+        super(brokerChannel);
+        this.hub = hub;
+        hub.members.add(this);
+    }
+
+    @Override
+    protected void send(Envelope envelope) {
+        hub.deliver(envelope);
+    }
+}
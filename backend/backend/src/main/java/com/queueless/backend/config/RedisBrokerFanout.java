@@ -0,0 +1,41 @@
+package com.queueless.backend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.MessageChannel;
+
+/**
+ * Fans broker messages out over a Redis pub/sub channel shared by all backend nodes.
+ */
+@Slf4j
+public class RedisBrokerFanout extends AbstractBrokerFanout implements MessageListener {
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String channel;
+
+    public RedisBrokerFanout(MessageChannel brokerChannel, StringRedisTemplate redisTemplate,
+                             ObjectMapper objectMapper, String channel) {
+        super(brokerChannel);
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.channel = channel;
+    }
+
+    @Override
+    protected void send(Envelope envelope) throws Exception {
+        redisTemplate.convertAndSend(channel, objectMapper.writeValueAsString(envelope));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            deliverLocally(objectMapper.readValue(message.getBody(), Envelope.class));
+        } catch (Exception e) {
+            log.error("Failed to deliver fanned out message: {}", e.getMessage());
+        }
+    }
+}
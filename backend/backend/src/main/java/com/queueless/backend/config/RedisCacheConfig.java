@@ -5,21 +5,45 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
 import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.data.mongodb.core.geo.GeoJsonModule;
+import org.springframework.data.redis.cache.CacheStatisticsCollector;
+import org.springframework.data.redis.cache.RedisCache;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
 
+/**
+ * With {@code spring.cache.type=redis} every cache is a {@link TwoTierCache}: a Caffeine tier
+ * per node in front of Redis. The local tier is sized by {@code cache.local.spec.<name>}
+ * (a Caffeine spec, default {@code cache.local.default-spec}) and the Redis TTL by
+ * {@code cache.redis.ttl-seconds.<name>}. Other cache types keep Spring Boot's cache manager.
+ */
 @Configuration
 @EnableCaching
 public class RedisCacheConfig {
 
+    @Value("${cache.local.default-spec:maximumSize=10000,expireAfterWrite=30s}")
+    private String defaultLocalSpec = "maximumSize=10000,expireAfterWrite=30s";
+
+    @Value("${cache.invalidation-channel:queueless:cache-invalidation}")
+    private String invalidationChannel = "queueless:cache-invalidation";
+
     @Bean
     public RedisCacheConfiguration cacheConfiguration() {
         // Allow polymorphic deserialization for any non‑final type
@@ -43,4 +67,40 @@ public class RedisCacheConfig {
                 .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(
                         new GenericJackson2JsonRedisSerializer(objectMapper)));
     }
+
+    @Bean
+    @ConditionalOnProperty(name = "spring.cache.type", havingValue = "redis")
+    public TwoTierCacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                            RedisCacheConfiguration cacheConfiguration,
+                                            StringRedisTemplate redisTemplate,
+                                            ObjectMapper objectMapper,
+                                            MeterRegistry meterRegistry,
+                                            Environment environment) {
+        RedisCacheWriter cacheWriter = RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory)
+                .withStatisticsCollector(CacheStatisticsCollector.create());
+        RedisCacheManager redisCacheManager = new RedisCacheManager(cacheWriter, cacheConfiguration) {
+            @Override
+            protected RedisCache getMissingCache(String name) {
+                Long ttlSeconds = environment.getProperty("cache.redis.ttl-seconds." + name, Long.class);
+                return createRedisCache(name, ttlSeconds != null
+                        ? cacheConfiguration.entryTtl(Duration.ofSeconds(ttlSeconds))
+                        : cacheConfiguration);
+            }
+        };
+        redisCacheManager.afterPropertiesSet();
+
+        return new TwoTierCacheManager(redisCacheManager,
+                name -> environment.getProperty("cache.local.spec." + name, defaultLocalSpec),
+                redisTemplate, objectMapper, invalidationChannel, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "spring.cache.type", havingValue = "redis")
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                            TwoTierCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(invalidationChannel));
+        return container;
+    }
 }
\ No newline at end of file
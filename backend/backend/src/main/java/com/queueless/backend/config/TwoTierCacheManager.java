@@ -0,0 +1,132 @@
+package com.queueless.backend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.metrics.cache.RedisCacheMetrics;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Builds a {@link TwoTierCache} per cache name over the given Redis cache manager, with the
+ * local tier sized from {@code localSpecs} (a Caffeine spec per cache name). Local copies on
+ * other nodes are dropped through a Redis pub/sub channel; every node listens on it and
+ * ignores its own messages. Both tiers report their gets and hit ratio to Micrometer.
+ */
+@Slf4j
+public class TwoTierCacheManager implements CacheManager, MessageListener {
+
+    /**
+     * What travels between nodes: which key changed, or {@code null} for the whole cache.
+     */
+    public record Invalidation(String nodeId, String cache, String key) {
+    }
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final CacheManager remote;
+    private final Function<String, String> localSpecs;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String channel;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+
+    public TwoTierCacheManager(CacheManager remote, Function<String, String> localSpecs,
+                               StringRedisTemplate redisTemplate, ObjectMapper objectMapper, String channel,
+                               MeterRegistry meterRegistry) {
+        this.remote = remote;
+        this.localSpecs = localSpecs;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.channel = channel;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    private TwoTierCache createCache(String name) {
+        Cache remoteCache = remote.getCache(name);
+        if (remoteCache == null) {
+            throw new IllegalStateException("No Redis cache named " + name);
+        }
+        String spec = localSpecs.apply(name);
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> local = Caffeine.from(spec).recordStats().build();
+        bindMetrics(name, local, remoteCache);
+        log.info("Cache {} created with local tier [{}]", name, spec);
+        return new TwoTierCache(name, local, remoteCache, this::publish);
+    }
+
+    private void bindMetrics(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> local, Cache remoteCache) {
+        if (meterRegistry == null) {
+            return;
+        }
+        CaffeineCacheMetrics.monitor(meterRegistry, local, name, "tier", "local");
+        Gauge.builder("cache.hit.ratio", local, cache -> cache.stats().hitRate())
+                .tags("cache", name, "tier", "local")
+                .register(meterRegistry);
+        if (remoteCache instanceof RedisCache redisCache) {
+            new RedisCacheMetrics(redisCache, Tags.of("tier", "redis")).bindTo(meterRegistry);
+            Gauge.builder("cache.hit.ratio", redisCache, cache -> hitRatio(cache.getStatistics()))
+                    .tags("cache", name, "tier", "redis")
+                    .register(meterRegistry);
+        }
+    }
+
+    private static double hitRatio(CacheStatistics statistics) {
+        long gets = statistics.getHits() + statistics.getMisses();
+        return gets == 0 ? 1.0 : (double) statistics.getHits() / gets;
+    }
+
+    void publish(String cache, String key) {
+        try {
+            redisTemplate.convertAndSend(channel, objectMapper.writeValueAsString(new Invalidation(nodeId, cache, key)));
+        } catch (Exception e) {
+            // Other nodes keep their copy until the local TTL runs out
+            log.error("Failed to publish cache invalidation for {}::{}: {}", cache, key, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Invalidation invalidation = objectMapper.readValue(message.getBody(), Invalidation.class);
+            if (nodeId.equals(invalidation.nodeId())) {
+                return; // our own message coming back
+            }
+            TwoTierCache cache = caches.get(invalidation.cache());
+            if (cache != null) {
+                cache.evictLocal(invalidation.key());
+            }
+        } catch (Exception e) {
+            log.error("Failed to apply cache invalidation: {}", e.getMessage());
+        }
+    }
+}
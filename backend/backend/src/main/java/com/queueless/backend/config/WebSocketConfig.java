@@ -3,6 +3,7 @@ package com.queueless.backend.config;
 import com.queueless.backend.security.StompJwtChannelInterceptor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.ChannelRegistration;
@@ -20,13 +21,50 @@ import java.util.List;
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final StompJwtChannelInterceptor stompJwtChannelInterceptor;
+    private final ObjectProvider<BrokerFanout> brokerFanout;
 
     @Value("${websocket.allowed-origins:https://localhost:5173}")
     private List<String> allowedOrigins;
 
+    // simple: in-memory broker, single node
+    // relay:  external STOMP broker (e.g. ActiveMQ Artemis) shared by all nodes
+    // redis:  in-memory broker per node, messages fanned out over Redis pub/sub
+    // local:  like redis, but over an in-process hub (tests / single node)
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${websocket.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${websocket.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${websocket.broker.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${websocket.broker.relay.passcode:guest}")
+    private String relayPasscode;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue");
+        switch (brokerMode.toLowerCase()) {
+            case "relay" -> config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode)
+                    // Let convertAndSendToUser reach sessions connected to other nodes
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    .setUserRegistryBroadcast("/topic/simp-user-registry");
+            case "redis", "local" -> {
+                config.enableSimpleBroker("/topic", "/queue");
+                config.configureBrokerChannel().interceptors(new BrokerFanoutInterceptor(brokerFanout::getObject));
+            }
+            default -> config.enableSimpleBroker("/topic", "/queue");
+        }
+        log.info("WebSocket broker mode: {}", brokerMode);
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
     }
@@ -0,0 +1,48 @@
+package com.queueless.backend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.MessageChannel;
+
+/**
+ * Cross-node fan-out for the in-memory STOMP broker, see {@link WebSocketConfig}.
+ */
+@Configuration
+public class WebSocketFanoutConfig {
+
+    @Value("${websocket.broker.redis-channel:queueless:ws-fanout}")
+    private String redisChannel;
+
+    @Bean
+    @ConditionalOnProperty(name = "websocket.broker.mode", havingValue = "redis")
+    public RedisBrokerFanout redisBrokerFanout(@Lazy @Qualifier("brokerChannel") MessageChannel brokerChannel,
+                                               StringRedisTemplate redisTemplate,
+                                               ObjectMapper objectMapper) {
+        return new RedisBrokerFanout(brokerChannel, redisTemplate, objectMapper, redisChannel);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "websocket.broker.mode", havingValue = "redis")
+    public RedisMessageListenerContainer brokerFanoutListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       RedisBrokerFanout redisBrokerFanout) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(redisBrokerFanout, new ChannelTopic(redisChannel));
+        return container;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "websocket.broker.mode", havingValue = "local")
+    public LocalBrokerFanout localBrokerFanout(@Lazy @Qualifier("brokerChannel") MessageChannel brokerChannel) {
+        return new LocalBrokerFanout(brokerChannel, new LocalBrokerFanout.Hub());
+    }
+}
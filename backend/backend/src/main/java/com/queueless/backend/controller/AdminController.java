@@ -11,6 +11,7 @@ import com.queueless.backend.repository.UserRepository;
 import com.queueless.backend.service.AdminService;
 import com.queueless.backend.security.annotations.AdminOnly;
 import com.queueless.backend.service.AlertConfigService;
+import com.queueless.backend.service.ExportJobService;
 import com.queueless.backend.service.ExportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -54,6 +55,7 @@ public class AdminController {
     private final QueueRepository queueRepository;
     private final ExportService exportService;
     private final AlertConfigService alertConfigService;
+    private final ExportJobService exportJobService;
 
     @GetMapping("/payments")
     @AdminOnly
@@ -240,6 +242,26 @@ public class AdminController {
         }
     }
 
+    @PostMapping("/report/jobs")
+    @AdminOnly
+    @Operation(summary = "Start a background admin report export", description = "Queues the admin report as PDF or Excel and returns its job. Progress is sent to /user/queue/export-jobs.")
+    @ApiResponse(responseCode = "202", description = "Export job accepted")
+    @ApiResponse(responseCode = "400", description = "Invalid format")
+    @ApiResponse(responseCode = "503", description = "Too many exports in progress")
+    public ResponseEntity<ExportJob> startAdminReportExport(@RequestParam(defaultValue = "pdf") String format) {
+        String adminId = SecurityContextHolder.getContext().getAuthentication().getName();
+        boolean excel = "excel".equalsIgnoreCase(format);
+        if (!excel && !"pdf".equalsIgnoreCase(format)) {
+            return ResponseEntity.badRequest().build();
+        }
+        String filename = "admin-report-" + LocalDate.now() + (excel ? ".xlsx" : ".pdf");
+        ExportJob job = exportJobService.submit(adminId, filename, excel ? "excel" : "pdf", null, "admin", out -> {
+            AdminReportDTO report = adminService.getAdminReport(adminId);
+            out.write(excel ? exportService.exportAdminReportToExcel(report) : exportService.exportAdminReportToPdf(report));
+        });
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
     @PostMapping("/alert-config")
     @AdminOnly
     @Operation(summary = "Create or update alert configuration")
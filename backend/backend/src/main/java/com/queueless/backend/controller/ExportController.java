@@ -1,8 +1,9 @@
 package com.queueless.backend.controller;
 
+import com.queueless.backend.model.ExportJob;
 import com.queueless.backend.service.ExportCacheService;
+import com.queueless.backend.service.ExportJobService;
 import com.queueless.backend.service.ExportService;
-import com.queueless.backend.service.QueueService;
 import com.queueless.backend.exception.ResourceNotFoundException;
 import com.queueless.backend.security.annotations.AdminOrProviderOnly;
 import com.itextpdf.text.DocumentException;
@@ -13,13 +14,14 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.util.Date;
@@ -36,18 +38,18 @@ import java.util.stream.Collectors;
 public class ExportController {
 
     private final ExportService exportService;
-    private final QueueService queueService;
     private final ExportCacheService exportCacheService;
+    private final ExportJobService exportJobService;
 
     @GetMapping("/queue/{queueId}/pdf")
     @AdminOrProviderOnly
-    @Operation(summary = "Export queue to PDF", description = "Generates a PDF report for a queue. Report type can be 'tokens', 'statistics', or 'full'.")
+    @Operation(summary = "Export queue to PDF", description = "Streams a PDF report for a queue. Report type can be 'tokens', 'statistics', or 'full'.")
     @ApiResponse(responseCode = "200", description = "PDF generated",
             content = @Content(mediaType = "application/pdf"))
     @ApiResponse(responseCode = "400", description = "Invalid report type")
     @ApiResponse(responseCode = "404", description = "Queue not found")
     @ApiResponse(responseCode = "500", description = "Internal server error")
-    public ResponseEntity<ByteArrayResource> exportQueueToPdf(
+    public ResponseEntity<StreamingResponseBody> exportQueueToPdf(
             @Parameter(description = "Queue ID") @PathVariable String queueId,
             @Parameter(description = "Report type: tokens, statistics, full") @RequestParam(defaultValue = "tokens") String reportType,
             @Parameter(description = "Include user details in the report") @RequestParam(defaultValue = "false") Boolean includeUserDetails) {
@@ -55,26 +57,34 @@ public class ExportController {
         log.info("Received PDF export request for queueId: {} with reportType: {}", queueId, reportType);
 
         try {
-            var queue = queueService.getQueueById(queueId);
+            // Everything that can fail with a status code is checked before the response is committed
+            exportService.validateReportType(reportType);
+            var queue = exportService.getQueueForExport(queueId);
             log.debug("Found queue with ID: {} and ServiceName: {}", queue.getId(), queue.getServiceName());
 
-            byte[] pdfBytes = exportService.exportQueueToPdf(queue, reportType, includeUserDetails);
-            log.info("PDF file successfully generated for queueId: {}. File size: {} bytes", queueId, pdfBytes.length);
-
             String filename = String.format("queue-report-%s-%s.pdf",
                     queue.getServiceName().replaceAll("\\s+", "-"),
                     new Date().getTime());
 
+            StreamingResponseBody body = out -> {
+                try {
+                    exportService.streamQueueToPdf(queue, reportType, includeUserDetails, out);
+                    log.info("PDF file successfully streamed for queueId: {}", queueId);
+                } catch (DocumentException e) {
+                    log.error("Failed to generate PDF for queueId: {}. Error: {}", queueId, e.getMessage());
+                    throw new IOException("Failed to generate PDF", e);
+                }
+            };
+
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
                     .contentType(MediaType.APPLICATION_PDF)
-                    .contentLength(pdfBytes.length)
-                    .body(new ByteArrayResource(pdfBytes));
+                    .body(body);
 
         } catch (ResourceNotFoundException e) {
             log.warn("PDF export failed: Queue with ID {} not found.", queueId);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-        } catch (DocumentException | IllegalArgumentException e) {
+        } catch (IllegalArgumentException e) {
             log.error("Failed to generate PDF for queueId: {}. Error: {}", queueId, e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         } catch (Exception e) {
@@ -85,13 +95,13 @@ public class ExportController {
 
     @GetMapping("/queue/{queueId}/excel")
     @AdminOrProviderOnly
-    @Operation(summary = "Export queue to Excel", description = "Generates an Excel report for a queue. Report type can be 'tokens', 'statistics', or 'full'.")
+    @Operation(summary = "Export queue to Excel", description = "Streams an Excel report for a queue. Report type can be 'tokens', 'statistics', or 'full'.")
     @ApiResponse(responseCode = "200", description = "Excel generated",
             content = @Content(mediaType = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
     @ApiResponse(responseCode = "400", description = "Invalid report type")
     @ApiResponse(responseCode = "404", description = "Queue not found")
     @ApiResponse(responseCode = "500", description = "Internal server error")
-    public ResponseEntity<ByteArrayResource> exportQueueToExcel(
+    public ResponseEntity<StreamingResponseBody> exportQueueToExcel(
             @Parameter(description = "Queue ID") @PathVariable String queueId,
             @Parameter(description = "Report type: tokens, statistics, full") @RequestParam(defaultValue = "tokens") String reportType,
             @Parameter(description = "Include user details in the report") @RequestParam(defaultValue = "false") Boolean includeUserDetails) {
@@ -99,26 +109,28 @@ public class ExportController {
         log.info("Received Excel export request for queueId: {} with reportType: {}", queueId, reportType);
 
         try {
-            var queue = queueService.getQueueById(queueId);
+            exportService.validateReportType(reportType);
+            var queue = exportService.getQueueForExport(queueId);
             log.debug("Found queue with ID: {} and ServiceName: {}", queue.getId(), queue.getServiceName());
 
-            byte[] excelBytes = exportService.exportQueueToExcel(queue, reportType, includeUserDetails);
-            log.info("Excel file successfully generated for queueId: {}. File size: {} bytes", queueId, excelBytes.length);
-
             String filename = String.format("queue-report-%s-%s.xlsx",
                     queue.getServiceName().replaceAll("\\s+", "-"),
                     new Date().getTime());
 
+            StreamingResponseBody body = out -> {
+                exportService.streamQueueToExcel(queue, reportType, includeUserDetails, out);
+                log.info("Excel file successfully streamed for queueId: {}", queueId);
+            };
+
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
                     .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .contentLength(excelBytes.length)
-                    .body(new ByteArrayResource(excelBytes));
+                    .body(body);
 
         } catch (ResourceNotFoundException e) {
             log.warn("Excel export failed: Queue with ID {} not found.", queueId);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-        } catch (IllegalArgumentException | IOException e) {
+        } catch (IllegalArgumentException e) {
             log.error("Failed to generate Excel for queueId: {}. Error: {}", queueId, e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         } catch (Exception e) {
@@ -127,12 +139,73 @@ public class ExportController {
         }
     }
 
+    @PostMapping("/queue/{queueId}/jobs")
+    @AdminOrProviderOnly
+    @Operation(summary = "Start a background queue export", description = "Queues a PDF or Excel export and returns its job. Progress is sent to /user/queue/export-jobs and the file is downloaded from the job's downloadUrl once it completes.")
+    @ApiResponse(responseCode = "202", description = "Export job accepted")
+    @ApiResponse(responseCode = "400", description = "Invalid report type or format")
+    @ApiResponse(responseCode = "404", description = "Queue not found")
+    @ApiResponse(responseCode = "503", description = "Too many exports in progress")
+    public ResponseEntity<ExportJob> startQueueExport(
+            @Parameter(description = "Queue ID") @PathVariable String queueId,
+            @Parameter(description = "File format: pdf, excel") @RequestParam(defaultValue = "pdf") String format,
+            @Parameter(description = "Report type: tokens, statistics, full") @RequestParam(defaultValue = "tokens") String reportType,
+            @Parameter(description = "Include user details in the report") @RequestParam(defaultValue = "false") Boolean includeUserDetails,
+            Authentication authentication) {
+
+        log.info("Received export job request for queueId: {} ({} {})", queueId, reportType, format);
+
+        boolean excel = "excel".equalsIgnoreCase(format);
+        if (!excel && !"pdf".equalsIgnoreCase(format)) {
+            log.error("Invalid export format '{}' requested for queueId: {}", format, queueId);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        try {
+            exportService.validateReportType(reportType);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        var queue = exportService.getQueueForExport(queueId);
+
+        String filename = String.format("queue-report-%s-%s.%s",
+                queue.getServiceName().replaceAll("\\s+", "-"),
+                new Date().getTime(),
+                excel ? "xlsx" : "pdf");
+
+        ExportJob job = exportJobService.submit(authentication.getName(), filename, excel ? "excel" : "pdf",
+                queueId, reportType, out -> {
+                    if (excel) {
+                        exportService.streamQueueToExcel(queue, reportType, includeUserDetails, out);
+                    } else {
+                        exportService.streamQueueToPdf(queue, reportType, includeUserDetails, out);
+                    }
+                });
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    @AdminOrProviderOnly
+    @Operation(summary = "Get an export job", description = "Returns the status and progress of one of the caller's export jobs.")
+    @ApiResponse(responseCode = "200", description = "Export job")
+    @ApiResponse(responseCode = "404", description = "Export job not found")
+    public ResponseEntity<ExportJob> getExportJob(@PathVariable String jobId, Authentication authentication) {
+        return ResponseEntity.ok(exportJobService.getJob(jobId, authentication.getName()));
+    }
+
+    @GetMapping("/jobs")
+    @AdminOrProviderOnly
+    @Operation(summary = "List my export jobs", description = "Returns the caller's recent export jobs, newest first.")
+    @ApiResponse(responseCode = "200", description = "List of export jobs")
+    public ResponseEntity<List<ExportJob>> listExportJobs(Authentication authentication) {
+        return ResponseEntity.ok(exportJobService.getJobs(authentication.getName()));
+    }
+
     @GetMapping("/exports/{exportId}")
     @AdminOrProviderOnly
     @Operation(summary = "Download a previously exported file", description = "Retrieves a cached export file by its ID.")
     @ApiResponse(responseCode = "200", description = "File downloaded")
     @ApiResponse(responseCode = "404", description = "Export not found")
-    public ResponseEntity<ByteArrayResource> downloadExport(@PathVariable String exportId) {
+    public ResponseEntity<Resource> downloadExport(@PathVariable String exportId) {
         ExportCacheService.ExportEntry entry = exportCacheService.getExport(exportId);
         if (entry == null) {
             return ResponseEntity.notFound().build();
@@ -140,8 +213,8 @@ public class ExportController {
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + entry.getFilename())
                 .contentType(entry.getFormat().equals("pdf") ? MediaType.APPLICATION_PDF : MediaType.APPLICATION_OCTET_STREAM)
-                .contentLength(entry.getData().length)
-                .body(new ByteArrayResource(entry.getData()));
+                .contentLength(entry.getSize())
+                .body(entry.toResource());
     }
 
     @GetMapping("/exports")
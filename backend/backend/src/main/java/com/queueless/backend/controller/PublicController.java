@@ -38,10 +38,9 @@ public class PublicController {
         stats.put("totalUsers", userRepository.count());
         stats.put("totalPlaces", placeRepository.count());
         // For "queues served" we can use total completed tokens across all queues.
-        long totalQueuesServed = queueRepository.findAll().stream()
-                .flatMap(q -> q.getTokens().stream())
-                .filter(t -> "COMPLETED".equals(t.getStatus()))
-                .count();
+        long totalQueuesServed = queueRepository.findAllCounters().stream()
+                .mapToLong(q -> q.currentCounters().getCompleted())
+                .sum();
         stats.put("totalQueuesServed", totalQueuesServed);
         return ResponseEntity.ok(stats);
     }
@@ -1,10 +1,12 @@
 package com.queueless.backend.controller;
 
 import com.queueless.backend.dto.ConnectRequest;
+import com.queueless.backend.dto.QueueEventDTO;
 import com.queueless.backend.dto.ServeNextRequest;
 import com.queueless.backend.enums.TokenStatus;
 import com.queueless.backend.model.Queue;
 import com.queueless.backend.model.QueueToken;
+import com.queueless.backend.service.QueueEventLog;
 import com.queueless.backend.service.QueueService;
 import com.queueless.backend.security.annotations.Authenticated;
 import com.queueless.backend.security.annotations.AdminOrProviderOnly;
@@ -18,6 +20,7 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
+import java.util.List;
 import java.util.Optional;
 
 @Controller
@@ -27,6 +30,7 @@ public class QueueWebSocketController {
 
     private final SimpMessagingTemplate messagingTemplate;
     private final QueueService queueService;
+    private final QueueEventLog queueEventLog;
 
     @MessageMapping("/queue/connect")
     @Authenticated
@@ -34,6 +38,20 @@ public class QueueWebSocketController {
         log.info("🎯 Client connected and requesting queue for ID: {} | User: {}", request.getQueueId(), authentication.getName());
 
         try {
+            if (request.getLastSequence() != null) {
+                Optional<List<QueueEventDTO>> missed = queueEventLog.eventsSince(
+                        request.getQueueId(), request.getEpoch(), request.getLastSequence());
+                if (missed.isPresent()) {
+                    missed.get().forEach(event -> messagingTemplate.convertAndSendToUser(
+                            sessionId, "/topic/queues/" + request.getQueueId() + "/events", event));
+                    log.info("✅ Replayed {} events for queue {} after sequence {}",
+                            missed.get().size(), request.getQueueId(), request.getLastSequence());
+                    return;
+                }
+                sendSnapshotEvent(request.getQueueId(), sessionId);
+                return;
+            }
+
             Queue queue = queueService.getQueueById(request.getQueueId());
 
             if (queue != null) {
@@ -49,6 +67,34 @@ public class QueueWebSocketController {
         }
     }
 
+    @MessageMapping("/queue/resync")
+    @Authenticated
+    public void onResync(@Payload ConnectRequest request, @Header("simpSessionId") String sessionId, Authentication authentication) {
+        log.info("🔄 Resync requested for queue: {} | User: {}", request.getQueueId(), authentication.getName());
+        try {
+            sendSnapshotEvent(request.getQueueId(), sessionId);
+        } catch (Exception e) {
+            log.error("Error sending queue snapshot: {}", e.getMessage());
+            messagingTemplate.convertAndSendToUser(sessionId, "/topic/errors", "Error fetching queue: " + e.getMessage());
+        }
+    }
+
+    private void sendSnapshotEvent(String queueId, String sessionId) {
+        // Read the sequence first: events racing with the read are replayed on top and applied idempotently
+        String epoch = queueEventLog.epoch(queueId);
+        long sequence = queueEventLog.currentSequence(queueId);
+        Queue queue = queueService.getQueueById(queueId);
+        if (queue == null) {
+            messagingTemplate.convertAndSendToUser(sessionId, "/topic/errors", "Queue not found");
+            return;
+        }
+        QueueEventDTO snapshot = QueueEventDTO.snapshot(queue);
+        snapshot.setSequence(sequence);
+        snapshot.setEpoch(epoch);
+        messagingTemplate.convertAndSendToUser(sessionId, "/topic/queues/" + queueId + "/events", snapshot);
+        log.info("✅ Sent snapshot of queue {} at sequence {}", queueId, sequence);
+    }
+
     @MessageMapping("/queue/serve-next")
     @AdminOrProviderOnly
     public void serveNext(@Payload ServeNextRequest request, Authentication authentication) {
@@ -68,7 +114,7 @@ public class QueueWebSocketController {
                     log.info("⚠️ No tokens available for queue {}", updatedQueue.getId());
                 }
 
-                messagingTemplate.convertAndSend("/topic/queues/" + request.getQueueId(), updatedQueue);
+                // The queue topics are already updated by QueueService
                 messagingTemplate.convertAndSendToUser(authentication.getName(), "/queue/provider-updates", updatedQueue);
             } else {
                 log.warn("⚠️ Queue not found or no tokens to serve for ID: {}", request.getQueueId());
@@ -87,8 +133,7 @@ public class QueueWebSocketController {
             QueueToken token = queueService.addNewToken(request.getQueueId(), authentication.getName());
 
             if (token != null) {
-                Queue updatedQueue = queueService.getQueueById(request.getQueueId());
-                messagingTemplate.convertAndSend("/topic/queues/" + request.getQueueId(), updatedQueue);
+                // QueueService already published the TOKEN_ADDED event
                 log.info("✅ Token added to queue {}", request.getQueueId());
             } else {
                 log.warn("⚠️ Failed to add token to queue: {}", request.getQueueId());
@@ -120,9 +165,8 @@ public class QueueWebSocketController {
         try {
             Queue queue = queueService.getQueueById(queueId);
             if (queue != null) {
+                // setQueueActiveStatus publishes the QUEUE_STATUS event
                 Queue updatedQueue = queueService.setQueueActiveStatus(queueId, !queue.getIsActive());
-                messagingTemplate.convertAndSend("/topic/queues/" + queueId, updatedQueue);
-                messagingTemplate.convertAndSend("/topic/places/" + queue.getPlaceId() + "/queues", updatedQueue);
                 log.info("✅ Queue {} status changed to {}", queueId, updatedQueue.getIsActive() ? "ACTIVE" : "INACTIVE");
             }
         } catch (Exception e) {
@@ -41,7 +41,7 @@ public class SearchController {
             @Valid @RequestBody SearchRequestDTO request,
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size,
-            @Parameter(description = "Sort field") @RequestParam(defaultValue = "name") String sortBy,
+            @Parameter(description = "Sort field; 'relevance' keeps the best text matches first") @RequestParam(defaultValue = "name") String sortBy,
             @Parameter(description = "Sort direction (asc/desc)") @RequestParam(defaultValue = "asc") String sortDirection) {
 
         log.info("Comprehensive search request: query={}, page={}, size={}", request.getQuery(), page, size);
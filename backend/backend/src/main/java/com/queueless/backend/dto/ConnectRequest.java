@@ -15,4 +15,15 @@ public class ConnectRequest {
     @NotBlank(message = "Queue ID is required")
     @Schema(description = "ID of the queue to connect to", example = "5f8d0d55b644a12a3c9a4f5b")
     private String queueId;
+
+    @Schema(description = "Last event sequence the client applied; when set, missed events are replayed instead of sending a full snapshot", example = "42")
+    private Long lastSequence;
+
+    @Schema(description = "Epoch of the events the last sequence belongs to; a different epoch means a full snapshot is sent",
+            example = "3f2b8c1e-7a4d-4e59-9b0c-2d6f1a8e5c47")
+    private String epoch;
+
+    public ConnectRequest(String queueId) {
+        this.queueId = queueId;
+    }
 }
\ No newline at end of file
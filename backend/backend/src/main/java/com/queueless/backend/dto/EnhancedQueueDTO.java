@@ -57,15 +57,7 @@ public class EnhancedQueueDTO {
         dto.setSupportsGroupToken(queue.getSupportsGroupToken());
         dto.setEmergencySupport(queue.getEmergencySupport());
 
-        // Calculate waiting tokens
-        if (queue.getTokens() != null) {
-            long waitingCount = queue.getTokens().stream()
-                    .filter(token -> "WAITING".equals(token.getStatus()))
-                    .count();
-            dto.setWaitingTokens((int) waitingCount);
-        } else {
-            dto.setWaitingTokens(0);
-        }
+        dto.setWaitingTokens(queue.currentCounters().getWaiting());
 
         return dto;
     }
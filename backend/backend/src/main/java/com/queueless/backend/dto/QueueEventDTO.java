@@ -0,0 +1,110 @@
+package com.queueless.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.queueless.backend.enums.QueueEventType;
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.model.QueueToken;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Incremental queue change broadcast on /topic/queues/{queueId}/events")
+public class QueueEventDTO {
+    @Schema(description = "Queue ID", example = "queue123")
+    private String queueId;
+
+    @Schema(description = "Per-queue sequence number, increases by one per event", example = "42")
+    private Long sequence;
+
+    @Schema(description = "Identifies the sequence numbering; sequences of different epochs are unrelated, e.g. after a restart",
+            example = "3f2b8c1e-7a4d-4e59-9b0c-2d6f1a8e5c47")
+    private String epoch;
+
+    @Schema(description = "Event type", example = "TOKEN_SERVED")
+    private QueueEventType type;
+
+    @Schema(description = "When the change happened")
+    private LocalDateTime timestamp;
+
+    @Schema(description = "Token affected by the change")
+    private TokenDelta token;
+
+    @Schema(description = "Token completed by a serve-next", example = "queue123-T-001")
+    private String previousTokenId;
+
+    @Schema(description = "Token IDs for bulk changes (new order on reorder, removed tokens on cleanup)")
+    private List<String> tokenIds;
+
+    @Schema(description = "Number of WAITING tokens after the change", example = "5")
+    private Integer waitingCount;
+
+    @Schema(description = "Estimated wait time in minutes after the change", example = "25")
+    private Integer estimatedWaitTime;
+
+    @Schema(description = "Whether the queue is accepting tokens", example = "true")
+    private Boolean isActive;
+
+    @Schema(description = "Full queue state, only sent with SNAPSHOT events")
+    private Queue queue;
+
+    public static QueueEventDTO of(Queue queue, QueueEventType type, QueueToken token) {
+        QueueEventDTO event = new QueueEventDTO();
+        event.setQueueId(queue.getId());
+        event.setType(type);
+        event.setTimestamp(LocalDateTime.now());
+        event.setToken(token != null ? TokenDelta.from(token) : null);
+        event.setWaitingCount(queue.currentCounters().getWaiting());
+        event.setEstimatedWaitTime(queue.getEstimatedWaitTime());
+        event.setIsActive(queue.getIsActive());
+        return event;
+    }
+
+    public static QueueEventDTO snapshot(Queue queue) {
+        QueueEventDTO event = of(queue, QueueEventType.SNAPSHOT, null);
+        event.setQueue(queue);
+        return event;
+    }
+
+    /**
+     * The token fields a client needs to patch its local copy; user details and
+     * group members are left out and can be fetched on demand.
+     */
+    @Data
+    @NoArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class TokenDelta {
+        private String tokenId;
+        private String userId;
+        private String userName;
+        private String status;
+        private Integer priority;
+        private Boolean isEmergency;
+        private Boolean isGroup;
+        private Integer groupSize;
+        private LocalDateTime issuedAt;
+        private LocalDateTime servedAt;
+        private LocalDateTime completedAt;
+
+        public static TokenDelta from(QueueToken token) {
+            TokenDelta delta = new TokenDelta();
+            delta.setTokenId(token.getTokenId());
+            delta.setUserId(token.getUserId());
+            delta.setUserName(token.getUserName());
+            delta.setStatus(token.getStatus());
+            delta.setPriority(token.getPriority());
+            delta.setIsEmergency(token.getIsEmergency());
+            delta.setIsGroup(token.getIsGroup());
+            delta.setGroupSize(token.getGroupSize());
+            delta.setIssuedAt(token.getIssuedAt());
+            delta.setServedAt(token.getServedAt());
+            delta.setCompletedAt(token.getCompletedAt());
+            return delta;
+        }
+    }
+}
@@ -15,6 +15,9 @@ public class QueueResetResponseDTO {
     @Schema(description = "URL to download the exported file (if preserveData was true)", example = "/export/exports/export-123456789")
     private String exportFileUrl;
 
+    @Schema(description = "Export job rendering the file at exportFileUrl; it can be downloaded once the job completes", example = "3f2b8c1e-9a4d-4e6f-8b7a-1c2d3e4f5a6b")
+    private String exportJobId;
+
     @Schema(description = "Number of tokens that were reset", example = "25")
     private Integer tokensReset;
 }
\ No newline at end of file
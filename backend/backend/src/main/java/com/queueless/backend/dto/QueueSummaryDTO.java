@@ -0,0 +1,42 @@
+package com.queueless.backend.dto;
+
+import com.queueless.backend.model.Queue;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Lightweight queue aggregate published on /topic/queues and /topic/places/{placeId}/queues")
+public class QueueSummaryDTO {
+    @Schema(description = "Queue ID", example = "queue123")
+    private String queueId;
+
+    @Schema(description = "Place ID", example = "place123")
+    private String placeId;
+
+    @Schema(description = "Service name", example = "General Consultation")
+    private String serviceName;
+
+    @Schema(description = "Number of WAITING tokens", example = "5")
+    private Integer waitingCount;
+
+    @Schema(description = "Estimated wait time in minutes", example = "25")
+    private Integer estimatedWaitTime;
+
+    @Schema(description = "Whether the queue is accepting tokens", example = "true")
+    private Boolean isActive;
+
+    @Schema(description = "When this summary was taken")
+    private LocalDateTime updatedAt;
+
+    public static QueueSummaryDTO from(Queue queue) {
+        int waiting = queue.currentCounters().getWaiting();
+        return new QueueSummaryDTO(queue.getId(), queue.getPlaceId(), queue.getServiceName(), waiting,
+                queue.getEstimatedWaitTime(), queue.getIsActive(), LocalDateTime.now());
+    }
+}
@@ -0,0 +1,8 @@
+package com.queueless.backend.enums;
+
+public enum ExportJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,6 @@
+package com.queueless.backend.enums;
+
+public enum NotificationChannel {
+    EMAIL,
+    PUSH
+}
@@ -0,0 +1,8 @@
+package com.queueless.backend.enums;
+
+public enum NotificationStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    FAILED
+}
@@ -0,0 +1,15 @@
+package com.queueless.backend.enums;
+
+public enum QueueEventType {
+    TOKEN_ADDED,
+    TOKEN_SERVED,
+    TOKEN_COMPLETED,
+    TOKEN_CANCELLED,
+    TOKENS_REMOVED,
+    EMERGENCY_REQUESTED,
+    EMERGENCY_REJECTED,
+    QUEUE_REORDERED,
+    QUEUE_RESET,
+    QUEUE_STATUS,
+    SNAPSHOT
+}
@@ -0,0 +1,7 @@
+package com.queueless.backend.enums;
+
+public enum RollupGranularity {
+    HOUR,
+    DAY,
+    TOTAL
+}
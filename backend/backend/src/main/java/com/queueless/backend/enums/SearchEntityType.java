@@ -0,0 +1,7 @@
+package com.queueless.backend.enums;
+
+public enum SearchEntityType {
+    PLACE,
+    SERVICE,
+    QUEUE
+}
@@ -0,0 +1,118 @@
+package com.queueless.backend.model;
+
+import com.queueless.backend.enums.RollupGranularity;
+import com.queueless.backend.enums.RollupScope;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+
+/**
+ * Pre-aggregated token figures for one queue, place or provider over one hour, one day,
+ * or all time. Buckets are only ever updated with {@code $inc} upserts, so the id is
+ * derived from scope, scope id, granularity and bucket start. The one-off backfill writes
+ * to its own documents of the same bucket (id suffixed with {@code :backfill}); readers sum
+ * all documents of a bucket.
+ */
+@Document(collection = "analytics_rollups")
+@CompoundIndex(name = "scope_bucket_idx", def = "{'scope': 1, 'granularity': 1, 'scopeId': 1, 'bucket': 1}")
+@Data
+@NoArgsConstructor
+public class AnalyticsRollup {
+
+    // Bucket start of the TOTAL granularity
+    public static final LocalDateTime ALL_TIME = LocalDate.EPOCH.atStartOfDay();
+
+    private static final DateTimeFormatter BUCKET_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHH");
+
+    @Id
+    private String id;
+
+    @Field("scope")
+    private RollupScope scope;
+
+    @Field("scopeId")
+    private String scopeId;
+
+    @Field("granularity")
+    private RollupGranularity granularity;
+
+    @Field("bucket")
+    private LocalDateTime bucket;
+
+    @Field("served")
+    private long served;
+
+    @Field("cancelled")
+    private long cancelled;
+
+    @Field("waitMinutesSum")
+    private long waitMinutesSum;
+
+    @Field("waitCount")
+    private long waitCount;
+
+    @Field("serviceMinutesSum")
+    private long serviceMinutesSum;
+
+    @Field("serviceCount")
+    private long serviceCount;
+
+    // Hourly waiting-count snapshots, one sample per queue
+    @Field("waitingSum")
+    private long waitingSum;
+
+    @Field("waitingSamples")
+    private long waitingSamples;
+
+    public static LocalDateTime bucketOf(RollupGranularity granularity, LocalDateTime time) {
+        return switch (granularity) {
+            case HOUR -> time.truncatedTo(ChronoUnit.HOURS);
+            case DAY -> time.toLocalDate().atStartOfDay();
+            case TOTAL -> ALL_TIME;
+        };
+    }
+
+    public static String idFor(RollupScope scope, String scopeId, RollupGranularity granularity, LocalDateTime bucket) {
+        return scope + ":" + scopeId + ":" + granularity + ":" + bucket.format(BUCKET_FORMAT);
+    }
+
+    public static AnalyticsRollup sum(Collection<AnalyticsRollup> rollups) {
+        AnalyticsRollup total = new AnalyticsRollup();
+        rollups.forEach(total::add);
+        return total;
+    }
+
+    public void add(AnalyticsRollup other) {
+        served += other.served;
+        cancelled += other.cancelled;
+        waitMinutesSum += other.waitMinutesSum;
+        waitCount += other.waitCount;
+        serviceMinutesSum += other.serviceMinutesSum;
+        serviceCount += other.serviceCount;
+        waitingSum += other.waitingSum;
+        waitingSamples += other.waitingSamples;
+    }
+
+    public double averageWaitMinutes() {
+        return waitCount > 0 ? (double) waitMinutesSum / waitCount : 0.0;
+    }
+
+    public double averageWaitingCount() {
+        return waitingSamples > 0 ? (double) waitingSum / waitingSamples : 0.0;
+    }
+
+    // Share of finished tokens that were cancelled, in percent
+    public double cancellationRate() {
+        long finished = served + cancelled;
+        return finished > 0 ? (double) cancelled / finished * 100 : 0.0;
+    }
+}
@@ -0,0 +1,56 @@
+package com.queueless.backend.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.queueless.backend.enums.ExportJobStatus;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * An export rendered in the background by ExportJobService. Jobs are stored in
+ * {@code export_jobs}, so their status can be read on any instance and after a restart;
+ * the finished file is stored in the export cache under {@link #exportId} and downloaded
+ * from {@link #downloadUrl}.
+ */
+@Document(collection = "export_jobs")
+@CompoundIndexes({
+        @CompoundIndex(name = "owner_created_idx", def = "{'ownerId': 1, 'createdAt': -1}"),
+        @CompoundIndex(name = "status_lease_idx", def = "{'status': 1, 'leaseUntil': 1}")
+})
+@Data
+@NoArgsConstructor
+public class ExportJob {
+    @Id
+    private String id;
+    private String ownerId;
+    private String queueId;
+    private String reportType;
+    private String format;
+    private String filename;
+    private ExportJobStatus status;
+    // 0-100
+    private int progress;
+    private String exportId;
+    private String downloadUrl;
+    private String error;
+    private LocalDateTime createdAt;
+    @Indexed
+    private LocalDateTime finishedAt;
+
+    // A QUEUED or RUNNING job past this has lost its worker
+    @JsonIgnore
+    private LocalDateTime leaseUntil;
+
+    // For a reset export: the queue as it was, without its tokens (see ExportSnapshotToken),
+    // so another worker can render it again if this one dies
+    @JsonIgnore
+    private Queue snapshot;
+    @JsonIgnore
+    private Boolean includeUserDetails;
+}
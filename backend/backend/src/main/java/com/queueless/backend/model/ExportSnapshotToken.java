@@ -0,0 +1,37 @@
+package com.queueless.backend.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * A token of the queue snapshot an {@link ExportJob} renders, stored one per document so a
+ * reset export survives a restart however many tokens the queue held. Removed once the job
+ * has finished.
+ */
+@Document(collection = "export_snapshot_tokens")
+@CompoundIndex(name = "job_seq_idx", def = "{'jobId': 1, 'seq': 1}")
+@Data
+@NoArgsConstructor
+public class ExportSnapshotToken {
+    @Id
+    private String id;
+
+    private String jobId;
+
+    // Position of the token in the snapshot
+    private int seq;
+
+    private QueueToken token;
+
+    public static ExportSnapshotToken of(String jobId, int seq, QueueToken token) {
+        ExportSnapshotToken entry = new ExportSnapshotToken();
+        entry.setId(jobId + ":" + seq);
+        entry.setJobId(jobId);
+        entry.setSeq(seq);
+        entry.setToken(token);
+        return entry;
+    }
+}
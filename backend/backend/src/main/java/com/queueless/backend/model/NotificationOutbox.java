@@ -0,0 +1,68 @@
+package com.queueless.backend.model;
+
+import com.queueless.backend.enums.NotificationChannel;
+import com.queueless.backend.enums.NotificationStatus;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An email or push notification waiting to be sent, or already handled. The message is
+ * rendered when it is queued, so a sender only delivers it. The unique {@code dedupKey}
+ * keeps a notification from being queued twice; finished entries expire after 7 days.
+ */
+@Document(collection = "notification_outbox")
+@CompoundIndex(name = "channel_due_idx", def = "{'channel': 1, 'status': 1, 'nextAttemptAt': 1}")
+@Data
+@NoArgsConstructor
+public class NotificationOutbox {
+    @Id
+    private String id;
+
+    @Indexed(unique = true)
+    private String dedupKey;
+
+    private NotificationChannel channel;
+    private List<String> recipients;     // one email address, or the user's FCM tokens
+    private String subject;              // email subject or push title
+    private String body;                 // email HTML or push text
+    private Map<String, String> data;    // push data payload
+
+    private NotificationStatus status;
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime leaseUntil;    // a SENDING entry past this is picked up again
+    private String lastError;
+    private LocalDateTime createdAt;
+
+    @Indexed(expireAfter = "7d")
+    private LocalDateTime finishedAt;
+
+    public static NotificationOutbox email(String key, String toEmail, String subject, String html) {
+        return of(NotificationChannel.EMAIL, key, List.of(toEmail), subject, html, null);
+    }
+
+    public static NotificationOutbox push(String key, List<String> fcmTokens, String title, String body,
+                                          Map<String, String> data) {
+        return of(NotificationChannel.PUSH, key, List.copyOf(fcmTokens), title, body, data);
+    }
+
+    private static NotificationOutbox of(NotificationChannel channel, String key, List<String> recipients,
+                                         String subject, String body, Map<String, String> data) {
+        NotificationOutbox notification = new NotificationOutbox();
+        notification.setDedupKey(channel.name().toLowerCase() + ":" + key);
+        notification.setChannel(channel);
+        notification.setRecipients(recipients);
+        notification.setSubject(subject);
+        notification.setBody(body);
+        notification.setData(data);
+        return notification;
+    }
+}
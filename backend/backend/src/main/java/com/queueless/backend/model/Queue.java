@@ -19,7 +19,8 @@ import java.util.Map;
         @CompoundIndex(name = "place_id_index", def = "{'placeId': 1}"),
         @CompoundIndex(name = "service_id_index", def = "{'serviceId': 1}"),
         @CompoundIndex(name = "active_status_index", def = "{'isActive': 1}"),
-        @CompoundIndex(name = "tokens_userId_idx", def = "{'tokens.userId': 1}")
+        @CompoundIndex(name = "tokens_userId_idx", def = "{'tokens.userId': 1}"),
+        @CompoundIndex(name = "tokens_issuedAt_idx", def = "{'tokens.issuedAt': 1}")
 })
 @Data
 @NoArgsConstructor
@@ -69,6 +70,10 @@ public class Queue {
     @Field("statistics")
     private QueueStatistics statistics;
 
+    // Maintained on every write; null on documents written before counters existed
+    @Field("counters")
+    private TokenCounters counters;
+
     @Field("supportsGroupToken")
     private Boolean supportsGroupToken = false;
 
@@ -97,6 +102,88 @@ public class Queue {
         this.statistics = new QueueStatistics();
     }
 
+    /**
+     * Stored token counters, or a recount of {@link #tokens} when the document has none yet.
+     */
+    public TokenCounters currentCounters() {
+        return counters != null ? counters : TokenCounters.of(tokens);
+    }
+
+    /**
+     * Token counts by status. {@code completed} and {@code cancelled} also include the
+     * tokens already moved to the history collection, which are tracked separately in
+     * the archived fields so that a recount of the live tokens can add them back.
+     */
+    @Data
+    @NoArgsConstructor
+    public static class TokenCounters {
+        @Field("waiting")
+        private int waiting;
+
+        @Field("inService")
+        private int inService;
+
+        @Field("completed")
+        private int completed;
+
+        @Field("cancelled")
+        private int cancelled;
+
+        @Field("archivedCompleted")
+        private int archivedCompleted;
+
+        @Field("archivedCancelled")
+        private int archivedCancelled;
+
+        public TokenCounters(int waiting, int inService, int completed, int cancelled) {
+            this.waiting = waiting;
+            this.inService = inService;
+            this.completed = completed;
+            this.cancelled = cancelled;
+        }
+
+        public static TokenCounters of(List<QueueToken> tokens) {
+            return of(tokens, null);
+        }
+
+        /**
+         * Recount of the live tokens, keeping the archived totals of {@code previous}.
+         */
+        public static TokenCounters of(List<QueueToken> tokens, TokenCounters previous) {
+            TokenCounters counters = new TokenCounters();
+            if (previous != null) {
+                counters.archivedCompleted = previous.archivedCompleted;
+                counters.archivedCancelled = previous.archivedCancelled;
+                counters.completed = previous.archivedCompleted;
+                counters.cancelled = previous.archivedCancelled;
+            }
+            if (tokens != null) {
+                for (QueueToken token : tokens) {
+                    String status = token.getStatus();
+                    if ("WAITING".equals(status)) counters.waiting++;
+                    else if ("IN_SERVICE".equals(status)) counters.inService++;
+                    else if ("COMPLETED".equals(status)) counters.completed++;
+                    else if ("CANCELLED".equals(status)) counters.cancelled++;
+                }
+            }
+            return counters;
+        }
+
+        /**
+         * Counter field for a token status, or {@code null} for statuses that are not counted.
+         */
+        public static String fieldFor(String status) {
+            if (status == null) return null;
+            return switch (status) {
+                case "WAITING" -> "waiting";
+                case "IN_SERVICE" -> "inService";
+                case "COMPLETED" -> "completed";
+                case "CANCELLED" -> "cancelled";
+                default -> null;
+            };
+        }
+    }
+
     @Data
     @NoArgsConstructor
     public static class QueueStatistics {
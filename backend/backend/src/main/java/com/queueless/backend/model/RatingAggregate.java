@@ -0,0 +1,75 @@
+package com.queueless.backend.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * Running rating sums and counts of one place or provider, stored in {@code place_ratings}
+ * and {@code provider_ratings} under the place or provider id. Each submitted feedback is
+ * added with {@code $inc}; RatingAggregateService can recompute them from the feedbacks.
+ */
+@Data
+@NoArgsConstructor
+public class RatingAggregate {
+    @Id
+    private String id;
+
+    @Field("ratingSum")
+    private long ratingSum;
+
+    @Field("ratingCount")
+    private long ratingCount;
+
+    @Field("staffRatingSum")
+    private long staffRatingSum;
+
+    @Field("staffRatingCount")
+    private long staffRatingCount;
+
+    @Field("serviceRatingSum")
+    private long serviceRatingSum;
+
+    @Field("serviceRatingCount")
+    private long serviceRatingCount;
+
+    @Field("waitTimeRatingSum")
+    private long waitTimeRatingSum;
+
+    @Field("waitTimeRatingCount")
+    private long waitTimeRatingCount;
+
+    // Every feedback, with or without a rating; also tells a rebuild whether a $inc landed meanwhile
+    @Field("feedbackCount")
+    private long feedbackCount;
+
+    @Field("updatedAt")
+    private LocalDateTime updatedAt;
+
+    public RatingAggregate(String id) {
+        this.id = id;
+    }
+
+    public double averageRating() {
+        return average(ratingSum, ratingCount);
+    }
+
+    public double averageStaffRating() {
+        return average(staffRatingSum, staffRatingCount);
+    }
+
+    public double averageServiceRating() {
+        return average(serviceRatingSum, serviceRatingCount);
+    }
+
+    public double averageWaitTimeRating() {
+        return average(waitTimeRatingSum, waitTimeRatingCount);
+    }
+
+    private static double average(long sum, long count) {
+        return count > 0 ? (double) sum / count : 0.0;
+    }
+}
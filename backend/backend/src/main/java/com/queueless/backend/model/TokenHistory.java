@@ -0,0 +1,151 @@
+package com.queueless.backend.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Append-only record of a token that left the live queue. Records are partitioned by
+ * month into {@code token_history_yyyyMM} collections (see TokenHistoryService); the
+ * collection named here only carries the index definitions.
+ * <p>
+ * Token ids restart after a queue reset, so the id also includes the issue time.
+ */
+@Document(collection = "token_history")
+@CompoundIndexes({
+        @CompoundIndex(name = "user_closed_idx", def = "{'userId': 1, 'closedAt': -1}"),
+        @CompoundIndex(name = "provider_closed_idx", def = "{'providerId': 1, 'closedAt': -1}"),
+        @CompoundIndex(name = "place_closed_idx", def = "{'placeId': 1, 'closedAt': -1}"),
+        @CompoundIndex(name = "queue_closed_idx", def = "{'queueId': 1, 'closedAt': -1}")
+})
+@Data
+@NoArgsConstructor
+public class TokenHistory {
+    @Id
+    private String id;
+
+    @Field("tokenId")
+    private String tokenId;
+
+    @Field("queueId")
+    private String queueId;
+
+    @Field("placeId")
+    private String placeId;
+
+    @Field("providerId")
+    private String providerId;
+
+    @Field("serviceId")
+    private String serviceId;
+
+    @Field("serviceName")
+    private String serviceName;
+
+    @Field("userId")
+    private String userId;
+
+    @Field("userName")
+    private String userName;
+
+    @Field("status")
+    private String status;
+
+    @Field("priority")
+    private Integer priority;
+
+    @Field("isEmergency")
+    private Boolean isEmergency;
+
+    @Field("isGroup")
+    private Boolean isGroup;
+
+    @Field("groupSize")
+    private Integer groupSize;
+
+    @Field("issuedAt")
+    private LocalDateTime issuedAt;
+
+    @Field("servedAt")
+    private LocalDateTime servedAt;
+
+    @Field("completedAt")
+    private LocalDateTime completedAt;
+
+    // completedAt, or issuedAt for tokens removed before they finished; decides the partition
+    @Field("closedAt")
+    private LocalDateTime closedAt;
+
+    @Field("waitMinutes")
+    private Long waitMinutes;
+
+    @Field("serviceDurationMinutes")
+    private Long serviceDurationMinutes;
+
+    @Field("cancellationReason")
+    private String cancellationReason;
+
+    @Field("archivedAt")
+    private LocalDateTime archivedAt;
+
+    public static TokenHistory from(Queue queue, QueueToken token) {
+        TokenHistory history = new TokenHistory();
+        history.setId(idFor(token));
+        history.setTokenId(token.getTokenId());
+        history.setQueueId(queue.getId());
+        history.setPlaceId(queue.getPlaceId());
+        history.setProviderId(queue.getProviderId());
+        history.setServiceId(queue.getServiceId());
+        history.setServiceName(queue.getServiceName());
+        history.setUserId(token.getUserId());
+        history.setUserName(token.getUserName());
+        history.setStatus(token.getStatus());
+        history.setPriority(token.getPriority());
+        history.setIsEmergency(token.getIsEmergency());
+        history.setIsGroup(token.getIsGroup());
+        history.setGroupSize(token.getGroupSize());
+        history.setIssuedAt(token.getIssuedAt());
+        history.setServedAt(token.getServedAt());
+        history.setCompletedAt(token.getCompletedAt());
+        history.setClosedAt(token.getCompletedAt() != null ? token.getCompletedAt()
+                : token.getIssuedAt() != null ? token.getIssuedAt() : LocalDateTime.now());
+        if (token.getIssuedAt() != null && token.getServedAt() != null) {
+            history.setWaitMinutes(Duration.between(token.getIssuedAt(), token.getServedAt()).toMinutes());
+        }
+        history.setServiceDurationMinutes(token.getServiceDurationMinutes());
+        history.setCancellationReason(token.getCancellationReason());
+        history.setArchivedAt(LocalDateTime.now());
+        return history;
+    }
+
+    /**
+     * The token as it was in the queue, for readers that mix archived and live tokens.
+     * User details are not archived.
+     */
+    public QueueToken toToken() {
+        QueueToken token = new QueueToken(tokenId, userId, userName, status, issuedAt);
+        token.setPriority(priority);
+        token.setIsEmergency(isEmergency);
+        token.setIsGroup(isGroup);
+        token.setGroupSize(groupSize);
+        token.setServedAt(servedAt);
+        token.setCompletedAt(completedAt);
+        token.setServiceDurationMinutes(serviceDurationMinutes);
+        token.setCancellationReason(cancellationReason);
+        token.setNotificationSent(true);
+        return token;
+    }
+
+    public static String idFor(QueueToken token) {
+        long issued = token.getIssuedAt() != null ? token.getIssuedAt().toEpochSecond(ZoneOffset.UTC) : 0;
+        return token.getTokenId() + "@" + issued;
+    }
+}
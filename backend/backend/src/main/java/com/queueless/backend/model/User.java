@@ -8,6 +8,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
@@ -16,6 +17,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Document("users")
+@CompoundIndex(name = "admin_role_idx", def = "{'adminId': 1, 'role': 1}")
 @Data
 @Builder
 @NoArgsConstructor
@@ -43,6 +45,7 @@ public class User {
     private UserPreferences preferences;
     private List<String> ownedPlaceIds;
 
+    @Indexed(sparse = true)
     @Field("activeTokenId")
     private String activeTokenId;
 
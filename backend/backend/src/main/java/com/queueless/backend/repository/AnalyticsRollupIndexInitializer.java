@@ -0,0 +1,38 @@
+package com.queueless.backend.repository;
+
+import com.queueless.backend.model.AnalyticsRollup;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the indexes declared on {@link AnalyticsRollup}. Automatic index creation is off, and
+ * the analytics endpoints would otherwise scan every rollup bucket instead of reading the
+ * few of one scope through {@code scope_bucket_idx}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AnalyticsRollupIndexInitializer {
+
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexOperations indexOps = mongoTemplate.indexOps(AnalyticsRollup.class);
+        IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+        resolver.resolveIndexFor(AnalyticsRollup.class).forEach(index -> {
+            try {
+                indexOps.ensureIndex(index);
+            } catch (Exception e) {
+                log.error("Failed to ensure index {} on analytics_rollups: {}", index.getIndexKeys(), e.getMessage());
+            }
+        });
+        log.debug("Ensured indexes on analytics_rollups");
+    }
+}
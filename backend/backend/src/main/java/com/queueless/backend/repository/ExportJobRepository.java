@@ -0,0 +1,12 @@
+package com.queueless.backend.repository;
+
+import com.queueless.backend.model.ExportJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ExportJobRepository extends MongoRepository<ExportJob, String> {
+    List<ExportJob> findByOwnerIdOrderByCreatedAtDesc(String ownerId);
+    List<ExportJob> findByFinishedAtBefore(LocalDateTime cutoff);
+}
@@ -0,0 +1,8 @@
+package com.queueless.backend.repository;
+
+import com.queueless.backend.model.NotificationOutbox;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface NotificationOutboxRepository extends MongoRepository<NotificationOutbox, String>,
+        NotificationOutboxRepositoryCustom {
+}
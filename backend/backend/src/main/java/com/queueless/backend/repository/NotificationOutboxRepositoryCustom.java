@@ -0,0 +1,26 @@
+package com.queueless.backend.repository;
+
+import com.queueless.backend.enums.NotificationChannel;
+import com.queueless.backend.model.NotificationOutbox;
+
+import java.time.LocalDateTime;
+
+/**
+ * Hands out due outbox entries so that each one goes to a single worker, across instances.
+ */
+public interface NotificationOutboxRepositoryCustom {
+
+    /**
+     * Marks the next due entry of {@code channel} as SENDING until {@code leaseUntil} and counts
+     * the attempt. Due means PENDING with {@code nextAttemptAt} reached, or SENDING with an
+     * expired lease (its worker died). Returns {@code null} if nothing is due.
+     */
+    NotificationOutbox claimNext(NotificationChannel channel, LocalDateTime now, LocalDateTime leaseUntil);
+
+    /**
+     * Writes the outcome of a delivery (status, attempt times, last error) and drops the lease,
+     * but only while the entry still holds the lease {@code claimedLease} it was claimed with.
+     * Returns {@code false} if the lease ran out and another worker claimed the entry since.
+     */
+    boolean completeClaim(NotificationOutbox notification, LocalDateTime claimedLease);
+}
@@ -0,0 +1,56 @@
+package com.queueless.backend.repository;
+
+import com.queueless.backend.enums.NotificationChannel;
+import com.queueless.backend.enums.NotificationStatus;
+import com.queueless.backend.model.NotificationOutbox;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+
+@RequiredArgsConstructor
+public class NotificationOutboxRepositoryCustomImpl implements NotificationOutboxRepositoryCustom {
+
+    private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public NotificationOutbox claimNext(NotificationChannel channel, LocalDateTime now, LocalDateTime leaseUntil) {
+        Criteria due = new Criteria().orOperator(
+                Criteria.where("status").is(NotificationStatus.PENDING).and("nextAttemptAt").lte(now),
+                Criteria.where("status").is(NotificationStatus.SENDING).and("leaseUntil").lt(now));
+        Query query = new Query(Criteria.where("channel").is(channel).andOperator(due))
+                .with(Sort.by("nextAttemptAt"));
+        Update update = new Update()
+                .set("status", NotificationStatus.SENDING)
+                .set("leaseUntil", leaseUntil)
+                .inc("attempts", 1);
+        return mongoTemplate.findAndModify(query, update, RETURN_NEW, NotificationOutbox.class);
+    }
+
+    @Override
+    public boolean completeClaim(NotificationOutbox notification, LocalDateTime claimedLease) {
+        Query query = new Query(Criteria.where("_id").is(notification.getId()).and("leaseUntil").is(claimedLease));
+        Update update = new Update()
+                .set("status", notification.getStatus())
+                .set("nextAttemptAt", notification.getNextAttemptAt())
+                .unset("leaseUntil");
+        setOrUnset(update, "lastError", notification.getLastError());
+        setOrUnset(update, "finishedAt", notification.getFinishedAt());
+        return mongoTemplate.updateFirst(query, update, NotificationOutbox.class).getModifiedCount() > 0;
+    }
+
+    private static void setOrUnset(Update update, String field, Object value) {
+        if (value != null) {
+            update.set(field, value);
+        } else {
+            update.unset(field);
+        }
+    }
+}
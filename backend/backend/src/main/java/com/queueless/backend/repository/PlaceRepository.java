@@ -14,29 +14,6 @@ public interface PlaceRepository extends MongoRepository<Place, String> {
     @Query("{ 'location' : { $near : { $geometry : { type : 'Point', coordinates: [?0, ?1] }, $maxDistance: ?2 } } }")
     List<Place> findByLocationNear(Double longitude, Double latitude, Double maxDistance);
 
-
-    // Search by multiple criteria with location
-    @Query("{"
-            + "'$and': ["
-            + "  { 'name': { '$regex': ?0, '$options': 'i' } },"
-            + "  { 'type': { '$in': ?1 } },"
-            + "  { 'rating': { '$gte': ?2 } },"
-            + "  { 'isActive': true },"
-            + "  { 'location': {"
-            + "    '$near': {"
-            + "      '$geometry': {"
-            + "        'type': 'Point',"
-            + "        'coordinates': [?3, ?4]"
-            + "      },"
-            + "      '$maxDistance': ?5"
-            + "    }"
-            + "  } }"
-            + "]"
-            + "}")
-    List<Place> searchNearbyWithFilters(String name, List<String> types, Double minRating,
-                                        Double longitude, Double latitude, Double maxDistance);
-
-
     // Get distinct types for filter options
     @Query(value = "{}", fields = "{ 'type' : 1 }")
     List<Place> findDistinctTypes();
@@ -0,0 +1,20 @@
+package com.queueless.backend.repository;
+
+import com.queueless.backend.model.Queue;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recounts {@link Queue.TokenCounters} whenever a whole queue document is written, so
+ * the counters always match the tokens stored with them. Targeted updates in
+ * {@link QueueRepositoryCustomImpl} keep them in step with {@code $inc} instead.
+ */
+@Component
+public class QueueCountersCallback implements BeforeConvertCallback<Queue> {
+
+    @Override
+    public Queue onBeforeConvert(Queue queue, String collection) {
+        queue.setCounters(Queue.TokenCounters.of(queue.getTokens(), queue.getCounters()));
+        return queue;
+    }
+}
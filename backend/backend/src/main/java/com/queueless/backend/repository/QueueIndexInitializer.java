@@ -0,0 +1,38 @@
+package com.queueless.backend.repository;
+
+import com.queueless.backend.model.Queue;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the indexes declared on {@link Queue}. Automatic index creation is off, and the
+ * lookups by token user ({@code tokens_userId_idx}) and the expired token cleanup
+ * ({@code tokens_issuedAt_idx}) would otherwise scan every queue with all its tokens.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QueueIndexInitializer {
+
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Queue.class);
+        IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+        resolver.resolveIndexFor(Queue.class).forEach(index -> {
+            try {
+                indexOps.ensureIndex(index);
+            } catch (Exception e) {
+                log.error("Failed to ensure index {} on queues: {}", index.getIndexKeys(), e.getMessage());
+            }
+        });
+        log.debug("Ensured indexes on queues");
+    }
+}
@@ -2,12 +2,38 @@ package com.queueless.backend.repository;
 
 import com.queueless.backend.model.Queue;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface QueueRepository extends MongoRepository<Queue, String> {
+public interface QueueRepository extends MongoRepository<Queue, String>, QueueRepositoryCustom {
     List<Queue> findByProviderId(String providerId);
     List<Queue> findByPlaceId(String placeId);
     List<Queue> findByServiceId(String serviceId);
     List<Queue> findByIsActive(boolean isActive);
     List<Queue> findByPlaceIdIn(List<String> placeIds);
-}
\ No newline at end of file
+    List<Queue> findByTokensIssuedAtBefore(LocalDateTime cutoff);
+    List<Queue> findByTokensUserId(String userId);
+
+    // Counters only, without the token arrays
+    @Query(value = "{}", fields = "{ 'counters': 1, 'placeId': 1, 'providerId': 1, 'serviceName': 1, 'isActive': 1 }")
+    List<Queue> findAllCounters();
+
+    @Query(value = "{ 'providerId': { $in: ?0 } }", fields = "{ 'counters': 1, 'placeId': 1, 'providerId': 1, 'serviceName': 1, 'isActive': 1 }")
+    List<Queue> findCountersByProviderIdIn(Collection<String> providerIds);
+
+    @Query(value = "{ 'placeId': { $in: ?0 } }", fields = "{ 'counters': 1, 'placeId': 1, 'providerId': 1, 'serviceName': 1, 'isActive': 1 }")
+    List<Queue> findCountersByPlaceIdIn(Collection<String> placeIds);
+
+    // Everything but the token arrays, for exports that stream the tokens separately
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'tokens': 0, 'pendingEmergencyTokens': 0 }")
+    Optional<Queue> findWithoutTokensById(String queueId);
+
+    Stream<Queue> streamAllBy();
+
+    Stream<Queue> streamByTokensCompletedAtBefore(LocalDateTime cutoff);
+}
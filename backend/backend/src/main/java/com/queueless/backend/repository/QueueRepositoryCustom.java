@@ -0,0 +1,110 @@
+package com.queueless.backend.repository;
+
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.model.QueueToken;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Single-round-trip queue updates built on Mongo update operators instead of
+ * saving the whole queue document. Each method returns the updated queue, or
+ * {@code null} when its guard did not match (queue missing or state changed).
+ */
+public interface QueueRepositoryCustom {
+
+    /**
+     * Atomically increments {@code tokenCounter} and returns the new value.
+     */
+    Integer incrementTokenCounter(String queueId);
+
+    /**
+     * Pushes a token onto {@code tokens} unless the same user already holds a
+     * WAITING or IN_SERVICE token in the queue.
+     */
+    Queue appendToken(String queueId, QueueToken token);
+
+    Queue appendPendingEmergencyToken(String queueId, QueueToken token);
+
+    /**
+     * Compare-and-swap serve-next: moves {@code nextTokenId} from WAITING to IN_SERVICE and,
+     * when given, {@code previousTokenId} from IN_SERVICE to COMPLETED. Matches only if both
+     * tokens are still in the state they were read in.
+     */
+    Queue serveNextToken(String queueId, String previousTokenId, String nextTokenId, LocalDateTime now);
+
+    /**
+     * Replaces one embedded token in place, matched by its token id, if it still has
+     * {@code previousStatus}. The token counters move with the status change.
+     */
+    Queue replaceToken(String queueId, QueueToken token, String previousStatus);
+
+    void updateEstimatedWaitTime(String queueId, int estimatedWaitTime);
+
+    Queue setActive(String queueId, boolean active);
+
+    Queue updateTotalServed(String queueId, int totalServed);
+
+    /**
+     * Moves a pending emergency token into {@code tokens}, if it is still pending.
+     */
+    Queue approvePendingEmergencyToken(String queueId, QueueToken token);
+
+    /**
+     * Drops a pending emergency token, if it is still pending.
+     */
+    Queue removePendingEmergencyToken(String queueId, String tokenId);
+
+    /**
+     * Pulls the given tokens out of {@code tokens}. Matches only if each of them still has
+     * the status it was read with; the counters move down accordingly.
+     */
+    Queue removeTokens(String queueId, Collection<QueueToken> tokens);
+
+    /**
+     * Replaces the whole token list. Matches only if the queue still holds exactly
+     * {@code current} (same token ids in the same states); the counters move by the
+     * difference between the two lists.
+     */
+    Queue replaceTokens(String queueId, List<QueueToken> current, List<QueueToken> tokens);
+
+    /**
+     * Clears the tokens, the token counter and all counters for a new period starting at
+     * {@code startTime}. Returns the queue as it was <em>before</em> the update, so the
+     * caller can release exactly the tokens that were cleared.
+     */
+    Queue resetTokens(String queueId, LocalDateTime startTime);
+
+    /**
+     * Sets {@code notificationSent} on the given tokens without rewriting the rest of the queue.
+     */
+    void markTokensNotified(String queueId, Collection<String> tokenIds);
+
+    /**
+     * Overwrites the stored counters with {@code expected}, provided they still read as
+     * {@code current} (missing fields count as zero). Returns whether the document was updated.
+     */
+    boolean repairCounters(String queueId, Queue.TokenCounters expected, Queue.TokenCounters current);
+
+    /**
+     * Pulls the given tokens out of {@code tokens} if they are COMPLETED or CANCELLED and
+     * returns the queue as it was <em>before</em> the update, so the caller can tell
+     * which of them were actually removed.
+     */
+    Queue pullTerminalTokens(String queueId, Collection<String> tokenIds);
+
+    /**
+     * Moves pulled tokens into the archived part of the counters; the completed and
+     * cancelled totals stay the same. A queue without stored counters gets a full recount
+     * instead, so it never ends up with only the archived fields.
+     */
+    void addArchivedCounts(String queueId, int completed, int cancelled);
+
+    /**
+     * Streams the tokens of one queue through a cursor, without loading the queue document.
+     * The stream must be closed.
+     */
+    Stream<QueueToken> streamTokens(String queueId);
+}
@@ -0,0 +1,322 @@
+package com.queueless.backend.repository;
+
+import com.queueless.backend.enums.TokenStatus;
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.model.QueueToken;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor
+public class QueueRepositoryCustomImpl implements QueueRepositoryCustom {
+
+    private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+    private static final String COUNTERS = "counters.";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Integer incrementTokenCounter(String queueId) {
+        Query query = new Query(Criteria.where("_id").is(queueId));
+        query.fields().include("tokenCounter");
+        Queue queue = mongoTemplate.findAndModify(query, new Update().inc("tokenCounter", 1), RETURN_NEW, Queue.class);
+        return queue != null ? queue.getTokenCounter() : null;
+    }
+
+    @Override
+    public Queue appendToken(String queueId, QueueToken token) {
+        Query query = new Query(Criteria.where("_id").is(queueId)
+                .and("tokens").not().elemMatch(Criteria.where("userId").is(token.getUserId())
+                        .and("status").in(TokenStatus.WAITING.toString(), TokenStatus.IN_SERVICE.toString())));
+        Update update = new Update().push("tokens", token);
+        incrementCounter(update, token.getStatus(), 1);
+        return updateCounters(queueId, query, update);
+    }
+
+    @Override
+    public Queue appendPendingEmergencyToken(String queueId, QueueToken token) {
+        Query query = new Query(Criteria.where("_id").is(queueId));
+        return mongoTemplate.findAndModify(query, new Update().push("pendingEmergencyTokens", token), RETURN_NEW, Queue.class);
+    }
+
+    @Override
+    public Queue serveNextToken(String queueId, String previousTokenId, String nextTokenId, LocalDateTime now) {
+        Criteria nextStillWaiting = Criteria.where("tokens").elemMatch(
+                Criteria.where("tokenId").is(nextTokenId).and("status").is(TokenStatus.WAITING.toString()));
+        Criteria previousStillInService = previousTokenId != null
+                ? Criteria.where("tokens").elemMatch(
+                        Criteria.where("tokenId").is(previousTokenId).and("status").is(TokenStatus.IN_SERVICE.toString()))
+                : Criteria.where("tokens.status").ne(TokenStatus.IN_SERVICE.toString());
+
+        Query query = new Query(new Criteria().andOperator(
+                Criteria.where("_id").is(queueId), nextStillWaiting, previousStillInService));
+
+        Update update = new Update()
+                .set("tokens.$[next].status", TokenStatus.IN_SERVICE.toString())
+                .set("tokens.$[next].servedAt", now)
+                .filterArray(Criteria.where("next.tokenId").is(nextTokenId));
+        // Net counter change: one less waiting, and either one more in service or one more completed
+        update.inc(COUNTERS + "waiting", -1);
+        if (previousTokenId != null) {
+            update.set("tokens.$[prev].status", TokenStatus.COMPLETED.toString())
+                    .set("tokens.$[prev].completedAt", now)
+                    .filterArray(Criteria.where("prev.tokenId").is(previousTokenId))
+                    .inc(COUNTERS + "completed", 1);
+        } else {
+            update.inc(COUNTERS + "inService", 1);
+        }
+
+        return updateCounters(queueId, query, update);
+    }
+
+    @Override
+    public Queue replaceToken(String queueId, QueueToken token, String previousStatus) {
+        Query query = new Query(Criteria.where("_id").is(queueId).and("tokens").elemMatch(
+                Criteria.where("tokenId").is(token.getTokenId()).and("status").is(previousStatus)));
+        Update update = new Update().set("tokens.$", token);
+        if (!Objects.equals(previousStatus, token.getStatus())) {
+            incrementCounter(update, previousStatus, -1);
+            incrementCounter(update, token.getStatus(), 1);
+        }
+        return updateCounters(queueId, query, update);
+    }
+
+    /**
+     * Runs an update that moves the counters, only on a queue whose counters are stored: {@code $inc}
+     * on a missing or null subdocument would leave only the moved fields, which read as zeros for the
+     * rest. A queue written before the counters existed gets a full recount first.
+     */
+    private Queue updateCounters(String queueId, Query query, Update update) {
+        query.addCriteria(Criteria.where("counters").type(JsonSchemaObject.Type.OBJECT));
+        Queue queue = mongoTemplate.findAndModify(query, update, RETURN_NEW, Queue.class);
+        if (queue == null && backfillCounters(queueId)) {
+            queue = mongoTemplate.findAndModify(query, update, RETURN_NEW, Queue.class);
+        }
+        return queue;
+    }
+
+    /**
+     * Stores a recount of the tokens on a queue without counters. Returns whether it did.
+     */
+    private boolean backfillCounters(String queueId) {
+        Query tokensQuery = new Query(Criteria.where("_id").is(queueId).and("counters").is(null));
+        tokensQuery.fields().include("tokens");
+        Queue queue = mongoTemplate.findOne(tokensQuery, Queue.class);
+        if (queue == null) {
+            return false;
+        }
+        Query stillMissing = new Query(Criteria.where("_id").is(queueId).and("counters").is(null));
+        return mongoTemplate.updateFirst(stillMissing,
+                new Update().set("counters", Queue.TokenCounters.of(queue.getTokens())), Queue.class)
+                .getMatchedCount() > 0;
+    }
+
+    @Override
+    public void updateEstimatedWaitTime(String queueId, int estimatedWaitTime) {
+        Query query = new Query(Criteria.where("_id").is(queueId));
+        mongoTemplate.updateFirst(query, new Update().set("estimatedWaitTime", estimatedWaitTime), Queue.class);
+    }
+
+    @Override
+    public Queue setActive(String queueId, boolean active) {
+        Query query = new Query(Criteria.where("_id").is(queueId));
+        return mongoTemplate.findAndModify(query, new Update().set("isActive", active), RETURN_NEW, Queue.class);
+    }
+
+    @Override
+    public Queue updateTotalServed(String queueId, int totalServed) {
+        Query query = new Query(Criteria.where("_id").is(queueId));
+        return mongoTemplate.findAndModify(query, new Update().set("statistics.totalServed", totalServed),
+                RETURN_NEW, Queue.class);
+    }
+
+    @Override
+    public Queue approvePendingEmergencyToken(String queueId, QueueToken token) {
+        Query query = new Query(Criteria.where("_id").is(queueId)
+                .and("pendingEmergencyTokens.tokenId").is(token.getTokenId()));
+        Update update = new Update()
+                .pull("pendingEmergencyTokens", new Document("tokenId", token.getTokenId()))
+                .push("tokens", token);
+        incrementCounter(update, token.getStatus(), 1);
+        return updateCounters(queueId, query, update);
+    }
+
+    @Override
+    public Queue removePendingEmergencyToken(String queueId, String tokenId) {
+        Query query = new Query(Criteria.where("_id").is(queueId).and("pendingEmergencyTokens.tokenId").is(tokenId));
+        Update update = new Update().pull("pendingEmergencyTokens", new Document("tokenId", tokenId));
+        return mongoTemplate.findAndModify(query, update, RETURN_NEW, Queue.class);
+    }
+
+    @Override
+    public Queue removeTokens(String queueId, Collection<QueueToken> tokens) {
+        Query query = new Query(new Criteria().andOperator(
+                Criteria.where("_id").is(queueId), tokensInReadState(tokens)));
+        Update update = new Update().pull("tokens", new Document("tokenId",
+                new Document("$in", tokens.stream().map(QueueToken::getTokenId).toList())));
+        incrementCounters(update, tokens, List.of());
+        return updateCounters(queueId, query, update);
+    }
+
+    @Override
+    public Queue replaceTokens(String queueId, List<QueueToken> current, List<QueueToken> tokens) {
+        Query query = new Query(new Criteria().andOperator(
+                Criteria.where("_id").is(queueId), Criteria.where("tokens").size(current.size()),
+                tokensInReadState(current)));
+        Update update = new Update().set("tokens", tokens);
+        incrementCounters(update, current, tokens);
+        return updateCounters(queueId, query, update);
+    }
+
+    @Override
+    public Queue resetTokens(String queueId, LocalDateTime startTime) {
+        Query query = new Query(Criteria.where("_id").is(queueId));
+        Update update = new Update()
+                .set("tokens", List.of())
+                .set("tokenCounter", 0)
+                .set("currentPosition", 0)
+                .set("startTime", startTime)
+                .set("statistics.dailyUsersServed", 0)
+                .set("counters", new Queue.TokenCounters());
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(false), Queue.class);
+    }
+
+    /**
+     * Matches a queue in which every given token is still present with the status it was read with.
+     */
+    private static Criteria tokensInReadState(Collection<QueueToken> tokens) {
+        if (tokens.isEmpty()) {
+            return new Criteria();
+        }
+        return new Criteria().andOperator(tokens.stream()
+                .map(token -> Criteria.where("tokens").elemMatch(
+                        Criteria.where("tokenId").is(token.getTokenId()).and("status").is(token.getStatus())))
+                .toList());
+    }
+
+    @Override
+    public void markTokensNotified(String queueId, Collection<String> tokenIds) {
+        Query query = new Query(Criteria.where("_id").is(queueId));
+        Update update = new Update()
+                .set("tokens.$[notified].notificationSent", true)
+                .filterArray(Criteria.where("notified.tokenId").in(tokenIds));
+        mongoTemplate.updateFirst(query, update, Queue.class);
+    }
+
+    @Override
+    public boolean repairCounters(String queueId, Queue.TokenCounters expected, Queue.TokenCounters current) {
+        // Only if nothing moved the counters since they were read; otherwise the next run retries
+        Query query = new Query(new Criteria().andOperator(Criteria.where("_id").is(queueId), countersEqual(current)));
+        return mongoTemplate.updateFirst(query, new Update().set("counters", expected), Queue.class)
+                .getModifiedCount() > 0;
+    }
+
+    /**
+     * Matches stored counters that read back as {@code current}. Compared field by field, since
+     * legacy or partial subdocuments lack fields that read as zero and never equal a whole one.
+     */
+    private static Criteria countersEqual(Queue.TokenCounters current) {
+        if (current == null) {
+            return Criteria.where("counters").is(null);
+        }
+        return new Criteria().andOperator(
+                counterEquals("waiting", current.getWaiting()),
+                counterEquals("inService", current.getInService()),
+                counterEquals("completed", current.getCompleted()),
+                counterEquals("cancelled", current.getCancelled()),
+                counterEquals("archivedCompleted", current.getArchivedCompleted()),
+                counterEquals("archivedCancelled", current.getArchivedCancelled()));
+    }
+
+    private static Criteria counterEquals(String field, int value) {
+        Criteria criteria = Criteria.where(COUNTERS + field);
+        // A missing field reads as zero
+        return value == 0 ? criteria.in(0, null) : criteria.is(value);
+    }
+
+    @Override
+    public Queue pullTerminalTokens(String queueId, Collection<String> tokenIds) {
+        Query query = new Query(Criteria.where("_id").is(queueId));
+        Update update = new Update().pull("tokens", new Document("tokenId", new Document("$in", tokenIds))
+                .append("status", new Document("$in",
+                        List.of(TokenStatus.COMPLETED.toString(), TokenStatus.CANCELLED.toString()))));
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(false), Queue.class);
+    }
+
+    @Override
+    public void addArchivedCounts(String queueId, int completed, int cancelled) {
+        // $inc on a missing or null subdocument would leave only the archived fields, which read as a queue with no tokens
+        Query query = new Query(Criteria.where("_id").is(queueId).and("counters").type(JsonSchemaObject.Type.OBJECT));
+        Update update = new Update()
+                .inc(COUNTERS + "archivedCompleted", completed)
+                .inc(COUNTERS + "archivedCancelled", cancelled);
+        if (mongoTemplate.updateFirst(query, update, Queue.class).getMatchedCount() > 0) {
+            return;
+        }
+
+        Query tokensQuery = new Query(Criteria.where("_id").is(queueId));
+        tokensQuery.fields().include("tokens");
+        Queue queue = mongoTemplate.findOne(tokensQuery, Queue.class);
+        if (queue == null) {
+            return;
+        }
+        Queue.TokenCounters archived = new Queue.TokenCounters();
+        archived.setArchivedCompleted(completed);
+        archived.setArchivedCancelled(cancelled);
+        Query stillMissing = new Query(Criteria.where("_id").is(queueId).and("counters").is(null));
+        mongoTemplate.updateFirst(stillMissing,
+                new Update().set("counters", Queue.TokenCounters.of(queue.getTokens(), archived)), Queue.class);
+    }
+
+    @Override
+    public Stream<QueueToken> streamTokens(String queueId) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("_id").is(queueId)),
+                Aggregation.unwind("tokens"),
+                Aggregation.replaceRoot("tokens"));
+        return mongoTemplate.aggregateStream(aggregation, Queue.class, QueueToken.class);
+    }
+
+    /**
+     * Counter changes for replacing {@code removed} with {@code added}; a single {@code $inc} per field,
+     * since a second one on the same field would replace the first.
+     */
+    private static void incrementCounters(Update update, Collection<QueueToken> removed, Collection<QueueToken> added) {
+        Map<String, Integer> deltas = new HashMap<>();
+        removed.forEach(token -> addDelta(deltas, token.getStatus(), -1));
+        added.forEach(token -> addDelta(deltas, token.getStatus(), 1));
+        deltas.forEach((field, delta) -> {
+            if (delta != 0) {
+                update.inc(COUNTERS + field, delta);
+            }
+        });
+    }
+
+    private static void addDelta(Map<String, Integer> deltas, String status, int delta) {
+        String field = Queue.TokenCounters.fieldFor(status);
+        if (field != null) {
+            deltas.merge(field, delta, Integer::sum);
+        }
+    }
+
+    private static void incrementCounter(Update update, String status, int delta) {
+        String field = Queue.TokenCounters.fieldFor(status);
+        if (field != null) {
+            update.inc(COUNTERS + field, delta);
+        }
+    }
+}
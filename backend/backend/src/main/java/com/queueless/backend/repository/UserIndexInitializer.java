@@ -0,0 +1,39 @@
+package com.queueless.backend.repository;
+
+import com.queueless.backend.model.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the indexes declared on {@link User}. Automatic index creation is off, and the
+ * admin dashboard ({@code admin_role_idx}) and the bulk token release ({@code activeTokenId})
+ * would otherwise scan the whole users collection.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserIndexInitializer {
+
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexOperations indexOps = mongoTemplate.indexOps(User.class);
+        IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+        // One failing index (e.g. unique email over existing duplicates) does not block the others
+        resolver.resolveIndexFor(User.class).forEach(index -> {
+            try {
+                indexOps.ensureIndex(index);
+            } catch (Exception e) {
+                log.error("Failed to ensure index {} on users: {}", index.getIndexKeys(), e.getMessage());
+            }
+        });
+        log.debug("Ensured indexes on users");
+    }
+}
@@ -1,11 +1,17 @@
 package com.queueless.backend.repository;
 
+import com.queueless.backend.enums.Role;
 import com.queueless.backend.model.User;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import java.util.List;
 import java.util.Optional;
 
-public interface UserRepository extends MongoRepository<User, String> {
+public interface UserRepository extends MongoRepository<User, String>, UserRepositoryCustom {
     Optional<User> findByEmail(String email);
 
     boolean existsByEmail(String email);
+
+    List<User> findByAdminIdAndRole(String adminId, Role role);
+
+    long countByAdminIdAndRole(String adminId, Role role);
 }
\ No newline at end of file
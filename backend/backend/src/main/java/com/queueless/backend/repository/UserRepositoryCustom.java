@@ -0,0 +1,33 @@
+package com.queueless.backend.repository;
+
+import com.queueless.backend.model.User;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Conditional updates of a user's queue state, so the one-active-token rule is checked and
+ * applied in the same round trip.
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Sets {@code activeTokenId} and {@code lastQueueJoinTime} if the user has no active token.
+     * Returns the user with only {@code name} loaded, or {@code null} if the user does not
+     * exist or already holds a token.
+     */
+    User claimActiveToken(String userId, String tokenId, LocalDateTime joinedAt);
+
+    /**
+     * Clears {@code activeTokenId} if it is still {@code tokenId}; undoes a claim whose join failed.
+     * Returns whether the user was updated.
+     */
+    boolean releaseActiveToken(String userId, String tokenId);
+
+    /**
+     * Clears {@code activeTokenId} and {@code lastQueueJoinTime} of every user whose active token
+     * is one of {@code tokenIds}, in one update per batch of ids.
+     * Users already holding a newer token are left alone. Returns the number of users updated.
+     */
+    long releaseActiveTokens(Collection<String> tokenIds);
+}
@@ -0,0 +1,61 @@
+package com.queueless.backend.repository;
+
+import com.queueless.backend.model.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    // Keeps each $in well under the 16 MB command limit
+    static final int RELEASE_BATCH_SIZE = 1000;
+
+    private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public User claimActiveToken(String userId, String tokenId, LocalDateTime joinedAt) {
+        // is(null) also matches users that never had the field
+        Query query = new Query(Criteria.where("_id").is(userId).and("activeTokenId").is(null));
+        query.fields().include("name");
+        Update update = new Update()
+                .set("activeTokenId", tokenId)
+                .set("lastQueueJoinTime", joinedAt);
+        return mongoTemplate.findAndModify(query, update, RETURN_NEW, User.class);
+    }
+
+    @Override
+    public boolean releaseActiveToken(String userId, String tokenId) {
+        Query query = new Query(Criteria.where("_id").is(userId).and("activeTokenId").is(tokenId));
+        return mongoTemplate.updateFirst(query, clearActiveToken(), User.class).getModifiedCount() > 0;
+    }
+
+    @Override
+    public long releaseActiveTokens(Collection<String> tokenIds) {
+        List<String> ids = new ArrayList<>(tokenIds);
+        long modified = 0;
+        for (int from = 0; from < ids.size(); from += RELEASE_BATCH_SIZE) {
+            List<String> batch = ids.subList(from, Math.min(ids.size(), from + RELEASE_BATCH_SIZE));
+            Query query = new Query(Criteria.where("activeTokenId").in(batch));
+            modified += mongoTemplate.updateMulti(query, clearActiveToken(), User.class).getModifiedCount();
+        }
+        return modified;
+    }
+
+    // Unset rather than null, so released users drop out of the sparse activeTokenId index
+    private static Update clearActiveToken() {
+        return new Update()
+                .unset("activeTokenId")
+                .unset("lastQueueJoinTime");
+    }
+}
@@ -2,6 +2,7 @@
 package com.queueless.backend.scheduler;
 
 import com.queueless.backend.model.AlertConfig;
+import com.queueless.backend.model.NotificationOutbox;
 import com.queueless.backend.model.Place;
 import com.queueless.backend.model.Queue;
 import com.queueless.backend.model.User;
@@ -10,6 +11,7 @@ import com.queueless.backend.repository.PlaceRepository;
 import com.queueless.backend.repository.QueueRepository;
 import com.queueless.backend.repository.UserRepository;
 import com.queueless.backend.service.EmailService;
+import com.queueless.backend.service.NotificationDispatcher;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -23,18 +25,23 @@ import java.util.List;
 @RequiredArgsConstructor
 public class AlertScheduler {
 
+    private static final long CHECK_INTERVAL_MS = 300000;
+
     private final AlertConfigRepository alertConfigRepository;
     private final PlaceRepository placeRepository;
     private final QueueRepository queueRepository;
     private final UserRepository userRepository;
     private final EmailService emailService;
+    private final NotificationDispatcher notificationDispatcher;
 
     @Value("${app.frontend-url:https://localhost:5173}")
     private String appBaseUrl;
 
-    @Scheduled(fixedRate = 300000) // every 5 minutes
+    @Scheduled(fixedRate = CHECK_INTERVAL_MS) // every 5 minutes
     public void checkThresholds() {
         log.info("Checking queue thresholds for alerts...");
+        // One alert per config and interval, even if several instances run this check
+        long interval = System.currentTimeMillis() / CHECK_INTERVAL_MS;
         List<AlertConfig> allConfigs = alertConfigRepository.findAll();
 
         for (AlertConfig config : allConfigs) {
@@ -74,8 +81,10 @@ public class AlertScheduler {
 
                 if (!queueSummaries.isEmpty()) {
                     // Get appBaseUrl from configuration (inject @Value)
-                    emailService.sendAlertEmail(config.getNotificationEmail(), adminName, config.getThresholdWaitTime(), queueSummaries, appBaseUrl);
-                    log.info("Alert sent to {}", config.getNotificationEmail());
+                    String html = emailService.renderAlertEmail(adminName, config.getThresholdWaitTime(), queueSummaries, appBaseUrl);
+                    notificationDispatcher.enqueue(NotificationOutbox.email("alert:" + config.getId() + ":" + interval,
+                            config.getNotificationEmail(), EmailService.ALERT_SUBJECT, html));
+                    log.info("Alert queued for {}", config.getNotificationEmail());
                 }
             } catch (Exception e) {
                 log.error("Error processing alert for admin {}: {}", config.getAdminId(), e.getMessage());
@@ -46,9 +46,7 @@ public class BestTimeNotificationScheduler {
 
     private void processQueue(Queue queue) {
         // Get current waiting count
-        long waitingCount = queue.getTokens().stream()
-                .filter(t -> "WAITING".equals(t.getStatus()))
-                .count();
+        long waitingCount = queue.currentCounters().getWaiting();
 
         // If waiting count is above threshold, nothing to do
         if (waitingCount >= BEST_TIME_THRESHOLD) {
@@ -0,0 +1,25 @@
+package com.queueless.backend.scheduler;
+
+import com.queueless.backend.service.ExportCacheService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExportCacheSweepScheduler {
+
+    private final ExportCacheService exportCacheService;
+
+    // Drops exports older than export.cache.ttl-minutes, in memory and on disk
+    @Scheduled(fixedDelayString = "${export.cache.sweep-interval-ms:600000}")
+    public void sweepExpiredExports() {
+        try {
+            exportCacheService.evictExpired();
+        } catch (Exception e) {
+            log.error("Failed to sweep expired exports: {}", e.getMessage(), e);
+        }
+    }
+}
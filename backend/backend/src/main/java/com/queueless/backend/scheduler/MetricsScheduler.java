@@ -13,9 +13,10 @@ public class MetricsScheduler {
 
     private final QueueMetricsService queueMetricsService;
 
-    @Scheduled(fixedDelay = 15000) // update every 15 seconds
-    public void updateQueueMetrics() {
-        log.debug("Updating queue metrics");
-        queueMetricsService.updateAllMetrics();
+    // Gauges follow every transition; this only catches up on other instances and deleted queues
+    @Scheduled(fixedDelayString = "${metrics.queue.reconcile-interval-ms:300000}")
+    public void reconcileQueueMetrics() {
+        log.debug("Reconciling queue metrics");
+        queueMetricsService.reconcile();
     }
-}
\ No newline at end of file
+}
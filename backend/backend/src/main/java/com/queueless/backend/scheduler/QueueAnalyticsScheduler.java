@@ -4,12 +4,15 @@ import com.queueless.backend.model.Queue;
 import com.queueless.backend.model.QueueHourlyStats;
 import com.queueless.backend.repository.QueueHourlyStatsRepository;
 import com.queueless.backend.repository.QueueRepository;
+import com.queueless.backend.service.AnalyticsRollupService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Slf4j
@@ -19,33 +22,39 @@ public class QueueAnalyticsScheduler {
 
     private final QueueRepository queueRepository;
     private final QueueHourlyStatsRepository statsRepository;
+    private final AnalyticsRollupService analyticsRollupService;
+
+    @Value("${queue.rollups.hourly-retention-days:90}")
+    private long hourlyRetentionDays = 90;
 
     @Scheduled(cron = "0 0 * * * *") // every hour at minute 0
     public void snapshotQueueWaitCounts() {
         log.info("Taking hourly snapshot of queue waiting counts...");
         LocalDateTime hourStart = LocalDateTime.now().withMinute(0).withSecond(0).withNano(0);
-        List<Queue> allQueues = queueRepository.findAll();
-
-        for (Queue queue : allQueues) {
-            try {
-                long waitingCount = queue.getTokens().stream()
-                        .filter(token -> "WAITING".equals(token.getStatus()))
-                        .count();
-
-                QueueHourlyStats stats = new QueueHourlyStats();
-                stats.setQueueId(queue.getId());
-                stats.setHour(hourStart);
-                stats.setWaitingCount((int) waitingCount);
-                statsRepository.save(stats);
-                log.debug("Snapshot saved for queue {}: {} waiting", queue.getId(), waitingCount);
-            } catch (Exception e) {
-                log.error("Failed to snapshot queue {}: {}", queue.getId(), e.getMessage(), e);
-            }
+
+        // The stored counters are enough, no need to load the token arrays
+        List<Queue> queues = queueRepository.findAllCounters();
+
+        List<QueueHourlyStats> snapshots = new ArrayList<>(queues.size());
+        for (Queue queue : queues) {
+            QueueHourlyStats stats = new QueueHourlyStats();
+            stats.setQueueId(queue.getId());
+            stats.setHour(hourStart);
+            stats.setWaitingCount(queue.currentCounters().getWaiting());
+            snapshots.add(stats);
+        }
+        try {
+            statsRepository.saveAll(snapshots);
+            analyticsRollupService.recordWaitingSnapshot(queues, hourStart);
+            log.debug("Saved {} hourly snapshots", snapshots.size());
+        } catch (Exception e) {
+            log.error("Failed to save hourly snapshots: {}", e.getMessage(), e);
         }
 
         // Delete stats older than 60 days
         LocalDateTime cutoff = LocalDateTime.now().minusDays(60);
         statsRepository.deleteByHourBefore(cutoff);
+        analyticsRollupService.deleteHourlyBefore(LocalDateTime.now().minusDays(hourlyRetentionDays));
         log.info("Hourly snapshot completed. Deleted old records.");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,48 @@
+package com.queueless.backend.scheduler;
+
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.repository.QueueRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Recounts the tokens of every queue and repairs stored counters that drifted, e.g. after
+ * a failed write or a manual edit. The first run also fills in counters on queue
+ * documents written before they existed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QueueCounterScheduler {
+
+    private final QueueRepository queueRepository;
+
+    @Scheduled(fixedDelayString = "${queue.counters.verify-interval-ms:600000}")
+    public void verifyCounters() {
+        int checked = 0;
+        int repaired = 0;
+        try (Stream<Queue> queues = queueRepository.streamAllBy()) {
+            Iterator<Queue> iterator = queues.iterator();
+            while (iterator.hasNext()) {
+                Queue queue = iterator.next();
+                checked++;
+                Queue.TokenCounters expected = Queue.TokenCounters.of(queue.getTokens(), queue.getCounters());
+                if (expected.equals(queue.getCounters())) {
+                    continue;
+                }
+                if (queueRepository.repairCounters(queue.getId(), expected, queue.getCounters())) {
+                    repaired++;
+                    log.warn("Repaired token counters of queue {}: {} -> {}", queue.getId(), queue.getCounters(), expected);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Token counter verification failed: {}", e.getMessage(), e);
+        }
+        log.info("Verified token counters of {} queues, repaired {}", checked, repaired);
+    }
+}
@@ -0,0 +1,25 @@
+package com.queueless.backend.scheduler;
+
+import com.queueless.backend.service.RatingAggregateService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RatingAggregateScheduler {
+
+    private final RatingAggregateService ratingAggregateService;
+
+    // Rebuilds the running rating sums from the feedbacks, correcting any drift
+    @Scheduled(cron = "${feedback.ratings.recompute-cron:0 30 3 * * *}")
+    public void recomputeRatings() {
+        try {
+            ratingAggregateService.recomputeAll();
+        } catch (Exception e) {
+            log.error("Failed to recompute rating aggregates: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.queueless.backend.scheduler;
+
+import com.queueless.backend.service.SearchIndexService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SearchIndexScheduler {
+
+    private final SearchIndexService searchIndexService;
+
+    // Reloads the search index so writes made on other instances become searchable here too
+    @Scheduled(fixedDelayString = "${search.index.rebuild-interval-ms:900000}",
+            initialDelayString = "${search.index.rebuild-interval-ms:900000}")
+    public void rebuildIndex() {
+        try {
+            searchIndexService.rebuild();
+        } catch (Exception e) {
+            log.error("Failed to rebuild search index: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.queueless.backend.scheduler;
+
+import com.queueless.backend.enums.TokenStatus;
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.model.QueueToken;
+import com.queueless.backend.repository.QueueRepository;
+import com.queueless.backend.service.QueueCacheEvictor;
+import com.queueless.backend.service.TokenHistoryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Moves finished tokens out of the live queue documents into the token history. Queues
+ * holding tokens that completed more than {@code queue.history.archive-after-minutes} ago
+ * are streamed one at a time; their tokens are written to the history first and only
+ * then pulled from the queue, so a crash in between leaves a duplicate, never a loss.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TokenArchiveScheduler {
+
+    private static final Set<String> TERMINAL_STATUSES =
+            Set.of(TokenStatus.COMPLETED.toString(), TokenStatus.CANCELLED.toString());
+
+    private final QueueRepository queueRepository;
+    private final TokenHistoryService tokenHistoryService;
+    private final QueueCacheEvictor queueCacheEvictor;
+
+    @Value("${queue.history.archive-after-minutes:60}")
+    private long archiveAfterMinutes = 60;
+
+    @Scheduled(fixedDelayString = "${queue.history.archive-interval-ms:300000}")
+    public void archiveFinishedTokens() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(archiveAfterMinutes);
+        int queues = 0;
+        int archived = 0;
+        try (Stream<Queue> stream = queueRepository.streamByTokensCompletedAtBefore(cutoff)) {
+            Iterator<Queue> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                Queue queue = iterator.next();
+                try {
+                    int count = archiveQueue(queue, cutoff);
+                    if (count > 0) {
+                        queues++;
+                        archived += count;
+                    }
+                } catch (Exception e) {
+                    log.error("Failed to archive tokens of queue {}: {}", queue.getId(), e.getMessage(), e);
+                }
+            }
+        }
+        if (archived > 0) {
+            log.info("Archived {} finished tokens from {} queues", archived, queues);
+        }
+    }
+
+    private int archiveQueue(Queue queue, LocalDateTime cutoff) {
+        List<QueueToken> finished = queue.getTokens().stream()
+                .filter(t -> TERMINAL_STATUSES.contains(t.getStatus()))
+                .filter(t -> t.getCompletedAt() != null && t.getCompletedAt().isBefore(cutoff))
+                .toList();
+        if (finished.isEmpty() || !tokenHistoryService.archive(queue, finished)) {
+            return 0;
+        }
+
+        Set<String> tokenIds = finished.stream().map(QueueToken::getTokenId).collect(Collectors.toSet());
+        Queue before = queueRepository.pullTerminalTokens(queue.getId(), tokenIds);
+        if (before == null) {
+            return 0;
+        }
+        // Count what the pull really removed, the document may have changed since it was streamed
+        List<QueueToken> pulled = before.getTokens().stream()
+                .filter(t -> tokenIds.contains(t.getTokenId()) && TERMINAL_STATUSES.contains(t.getStatus()))
+                .toList();
+        int completed = (int) pulled.stream()
+                .filter(t -> TokenStatus.COMPLETED.toString().equals(t.getStatus()))
+                .count();
+        queueRepository.addArchivedCounts(queue.getId(), completed, pulled.size() - completed);
+        queueCacheEvictor.evict(queue);
+        return pulled.size();
+    }
+}
@@ -1,5 +1,6 @@
 package com.queueless.backend.scheduler;
 
+import com.queueless.backend.model.NotificationOutbox;
 import com.queueless.backend.model.NotificationPreference;
 import com.queueless.backend.model.Queue;
 import com.queueless.backend.model.QueueToken;
@@ -7,9 +8,11 @@ import com.queueless.backend.model.Service;
 import com.queueless.backend.model.User;
 import com.queueless.backend.repository.QueueRepository;
 import com.queueless.backend.repository.UserRepository;
+import com.queueless.backend.service.DirtyQueueTracker;
 import com.queueless.backend.service.EmailService;
-import com.queueless.backend.service.FcmService;
+import com.queueless.backend.service.NotificationDispatcher;
 import com.queueless.backend.service.NotificationPreferenceService;
+import com.queueless.backend.service.QueueTokenIndex;
 import com.queueless.backend.service.ServiceService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -17,6 +20,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -31,8 +35,10 @@ public class TokenNotificationScheduler {
     private final UserRepository userRepository;
     private final ServiceService serviceService;
     private final EmailService emailService;
-    private final FcmService fcmService;
+    private final NotificationDispatcher notificationDispatcher;
     private final NotificationPreferenceService notificationPreferenceService;
+    private final QueueTokenIndex queueTokenIndex;
+    private final DirtyQueueTracker dirtyQueueTracker;
 
     @Value("${app.frontend-url:https://localhost:5173}")
     private String appFrontendUrl;
@@ -42,10 +48,11 @@ public class TokenNotificationScheduler {
 
     @Scheduled(fixedRate = 60000) // every minute
     public void checkUpcomingTokens() {
-        log.info("Checking for upcoming tokens to notify...");
-        List<Queue> allQueues = queueRepository.findAll();
+        // Positions only move when a queue changes, so unchanged queues have nothing new to notify
+        List<Queue> changedQueues = dirtyQueueTracker.loadChangedQueues(DirtyQueueTracker.TOKEN_NOTIFICATIONS);
+        log.debug("Checking {} changed queues for upcoming tokens to notify...", changedQueues.size());
 
-        for (Queue queue : allQueues) {
+        for (Queue queue : changedQueues) {
             try {
                 processQueue(queue);
             } catch (Exception e) {
@@ -61,22 +68,15 @@ public class TokenNotificationScheduler {
         int avgServiceTime = service != null && service.getAverageServiceTime() != null
                 ? service.getAverageServiceTime() : 5;
 
-        List<QueueToken> waitingTokens = queue.getTokens().stream()
-                .filter(t -> "WAITING".equals(t.getStatus()))
-                .sorted((t1, t2) -> {
-                    if (!t1.getPriority().equals(t2.getPriority())) {
-                        return t2.getPriority() - t1.getPriority();
-                    }
-                    return t1.getIssuedAt().compareTo(t2.getIssuedAt());
-                })
-                .toList();
+        // Serving order comes from the live index instead of sorting the token list
+        List<QueueToken> waitingTokens = queueTokenIndex.waitingInOrder(queue);
 
         // Fetch all notification preferences for this queue (to avoid per-user DB calls)
         Map<String, NotificationPreference> preferenceMap = notificationPreferenceService.getPreferencesForQueue(queue.getId())
                 .stream()
                 .collect(Collectors.toMap(NotificationPreference::getUserId, Function.identity()));
 
-        boolean anyTokenNotified = false;
+        List<String> notifiedTokenIds = new ArrayList<>();
         for (int i = 0; i < waitingTokens.size(); i++) {
             QueueToken token = waitingTokens.get(i);
             if (Boolean.TRUE.equals(token.getNotificationSent())) continue;
@@ -107,41 +107,46 @@ public class TokenNotificationScheduler {
             }
 
             if (shouldNotify) {
-                // Send email if enabled (global preference)
+                // Only queued here; NotificationDispatcher sends them so a slow channel cannot stall this loop
+                String dedupKey = "upcoming:" + queue.getId() + ":" + token.getTokenId() + ":" + token.getIssuedAt();
+
+                // Queue email if enabled (global preference)
                 if (user.getPreferences() != null && Boolean.TRUE.equals(user.getPreferences().getEmailNotifications())) {
                     try {
-                        emailService.sendUpcomingTokenEmail(
-                                user.getEmail(),
+                        String html = emailService.renderUpcomingTokenEmail(
                                 token.getTokenId(),
                                 queue.getServiceName(),
                                 estimatedMinutes,
                                 queue.getId(),
                                 appFrontendUrl
                         );
-                        log.info("Sent email notification for token {} to {}", token.getTokenId(), user.getEmail());
+                        notificationDispatcher.enqueue(NotificationOutbox.email(
+                                dedupKey, user.getEmail(), EmailService.UPCOMING_TOKEN_SUBJECT, html));
+                        log.info("Queued email notification for token {} to {}", token.getTokenId(), user.getEmail());
                     } catch (Exception e) {
-                        log.error("Failed to send email for token {}: {}", token.getTokenId(), e.getMessage());
+                        log.error("Failed to queue email for token {}: {}", token.getTokenId(), e.getMessage());
                     }
                 }
 
-                // Send push notifications if enabled
+                // Queue push notifications if enabled
                 if (user.getPreferences() != null && Boolean.TRUE.equals(user.getPreferences().getPushNotifications())
                         && user.getFcmTokens() != null && !user.getFcmTokens().isEmpty()) {
 
                     String title = "Your turn is coming up!";
                     String body = String.format("Token %s for %s is about to be served (approx. %d min).",
                             token.getTokenId(), queue.getServiceName(), estimatedMinutes);
-                    fcmService.sendMulticast(user.getFcmTokens(), title, body, queue.getId());
-                    log.info("Sent push notifications for token {} to {} devices", token.getTokenId(), user.getFcmTokens().size());
+                    notificationDispatcher.enqueue(NotificationOutbox.push(
+                            dedupKey, user.getFcmTokens(), title, body, Map.of("queueId", queue.getId())));
+                    log.info("Queued push notifications for token {} to {} devices", token.getTokenId(), user.getFcmTokens().size());
                 }
 
                 token.setNotificationSent(true);
-                anyTokenNotified = true;
+                notifiedTokenIds.add(token.getTokenId());
             }
         }
 
-        if (anyTokenNotified) {
-            queueRepository.save(queue);
+        if (!notifiedTokenIds.isEmpty()) {
+            queueRepository.markTokensNotified(queue.getId(), notifiedTokenIds);
         }
     }
 }
\ No newline at end of file
@@ -6,12 +6,10 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Collection;
 import java.util.Map;
 
 @Slf4j
@@ -34,13 +32,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             if (authHeader != null && authHeader.startsWith("Bearer ")) {
                 String token = authHeader.substring(7);
 
-                if (jwtProvider.validateToken(token)) {
-                    String userId = jwtProvider.getUserIdFromToken(token);
-                    String email = jwtProvider.getEmailFromToken(token);
-                    Collection<GrantedAuthority> authorities = jwtProvider.getAuthoritiesFromToken(token);
+                JwtPrincipal principal = jwtProvider.authenticate(token);
+                if (principal != null) {
+                    String userId = principal.userId();
+                    String email = principal.email();
 
                     UsernamePasswordAuthenticationToken authentication =
-                            new UsernamePasswordAuthenticationToken(userId, null, authorities);
+                            new UsernamePasswordAuthenticationToken(userId, null, principal.authorities());
 
                     // Store additional details using Map.of (Java 9+)
                     authentication.setDetails(Map.of(
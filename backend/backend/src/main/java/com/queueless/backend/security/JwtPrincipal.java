@@ -0,0 +1,19 @@
+package com.queueless.backend.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The verified claims of a JWT that authentication needs, read from the token once.
+ */
+public record JwtPrincipal(String userId, String email, String role, List<GrantedAuthority> authorities,
+                           Instant expiresAt) {
+
+    public static JwtPrincipal of(String userId, String email, String role, Instant expiresAt) {
+        return new JwtPrincipal(userId, email, role,
+                List.of(new SimpleGrantedAuthority("ROLE_" + role)), expiresAt);
+    }
+}
@@ -1,15 +1,22 @@
 package com.queueless.backend.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.queueless.backend.model.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 
 @Slf4j
@@ -22,8 +29,25 @@ public class JwtTokenProvider {
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    @Value("${jwt.cache.enabled:true}")
+    private boolean cacheEnabled = true;
+
+    // Verified tokens kept; roughly the number of clients active within a token lifetime
+    @Value("${jwt.cache.max-size:10000}")
+    private long cacheMaxSize = 10000;
+
+    private Key signingKey;
+    private JwtParser parser;
+    private Cache<String, JwtPrincipal> principals;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        principals = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .build();
     }
 
     public String generateToken(User user) {
@@ -41,44 +65,32 @@ public class JwtTokenProvider {
                 .setClaims(claims)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public String getEmailFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.get("email", String.class);
-    }
-
-    public String getRoleFromToken(String token) {
-        return (String) Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .get("role");
-    }
-
-    public String getUserIdFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getSubject();
-    }
+    /**
+     * Verifies the token and returns its principal, or {@code null} if it does not verify.
+     * Verified tokens are cached by hash until they expire, so a client sending the same
+     * token on every call only pays for the signature check once.
+     *
+     * @throws RuntimeException if the token is expired, malformed or empty
+     */
+    public JwtPrincipal authenticate(String token) {
+        String key = cacheEnabled && token != null ? hash(token) : null;
+        if (key != null) {
+            JwtPrincipal cached = principals.getIfPresent(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
 
-    public boolean validateToken(String token) {
+        JwtPrincipal principal;
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Date expiration = claims.getExpiration();
+            principal = JwtPrincipal.of(claims.getSubject(), claims.get("email", String.class),
+                    claims.get("role", String.class), expiration != null ? expiration.toInstant() : null);
         } catch (ExpiredJwtException e) {
             log.error("JWT token is expired: {}", e.getMessage());
             throw new RuntimeException("JWT token is expired");
@@ -93,12 +105,46 @@ public class JwtTokenProvider {
             throw new RuntimeException("JWT token is invalid");
         } catch (Exception e) {
             log.error("JWT validation error: {}", e.getMessage());
-            return false;
+            return null;
+        }
+
+        // Tokens without an expiry are not cached, there is nothing to evict them by
+        if (key != null && principal.expiresAt() != null) {
+            principals.put(key, principal);
         }
+        return principal;
     }
 
-    public Collection<GrantedAuthority> getAuthoritiesFromToken(String token) {
-        String role = getRoleFromToken(token);
-        return Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role));
+    public boolean validateToken(String token) {
+        return authenticate(token) != null;
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Keeps each principal until its token's {@code exp}.
+     */
+    private static final class UntilTokenExpiry implements Expiry<String, JwtPrincipal> {
+        @Override
+        public long expireAfterCreate(String key, JwtPrincipal principal, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), principal.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, principal, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
-}
\ No newline at end of file
+}
@@ -11,11 +11,9 @@ import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
-import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -40,16 +38,16 @@ public class StompJwtChannelInterceptor implements ChannelInterceptor {
                 String header = authHeaders.get(0);
                 String token = header.startsWith("Bearer ") ? header.substring(7) : header;
 
-                if (!jwtProvider.validateToken(token)) {
+                JwtPrincipal principal = jwtProvider.authenticate(token);
+                if (principal == null) {
                     throw new BadCredentialsException("Invalid token");
                 }
 
-                String userId = jwtProvider.getUserIdFromToken(token);
-                String email = jwtProvider.getEmailFromToken(token);
-                Collection<GrantedAuthority> authorities = jwtProvider.getAuthoritiesFromToken(token);
+                String userId = principal.userId();
+                String email = principal.email();
 
                 UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(userId, null, authorities);
+                        new UsernamePasswordAuthenticationToken(userId, null, principal.authorities());
 
                 authentication.setDetails(Map.of("userId", userId, "email", email));
 
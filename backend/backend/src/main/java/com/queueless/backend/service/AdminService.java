@@ -2,7 +2,8 @@ package com.queueless.backend.service;
 
 import com.queueless.backend.dto.*;
 import com.queueless.backend.enums.Role;
-import com.queueless.backend.enums.TokenStatus;
+import com.queueless.backend.enums.RollupGranularity;
+import com.queueless.backend.enums.RollupScope;
 import com.queueless.backend.exception.AccessDeniedException;
 import com.queueless.backend.exception.ResourceNotFoundException;
 import com.queueless.backend.model.*;
@@ -13,7 +14,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -28,12 +28,13 @@ public class AdminService {
     private final QueueRepository queueRepository;
     private final UserRepository userRepository;
     private final PaymentRepository paymentRepository;
-    private final QueueHourlyStatsRepository statsRepository;
-    private final FeedbackRepository feedbackRepository;
     private final TokenRepository tokenRepository;
     private final PlaceService placeService;
     private final PasswordResetService passwordResetService;
     private final PasswordResetTokenService passwordResetTokenService;
+    private final AnalyticsRollupService analyticsRollupService;
+    private final RatingAggregateService ratingAggregateService;
+    private final TokenHistoryService tokenHistoryService;
 
     public Map<String, Object> getDashboardStats(String adminId) {
         log.info("Fetching dashboard stats for admin: {}", adminId);
@@ -54,12 +55,8 @@ public class AdminService {
         stats.put("activeQueues", queues.stream().filter(Queue::getIsActive).count());
 
         // Calculate total tokens served today
-        long tokensServedToday = queues.stream()
-                .flatMap(queue -> queue.getTokens().stream())
-                .filter(token -> "COMPLETED".equals(token.getStatus()))
-                .filter(token -> token.getCompletedAt() != null &&
-                        token.getCompletedAt().toLocalDate().equals(LocalDate.now()))
-                .count();
+        long tokensServedToday = AnalyticsRollup.sum(analyticsRollupService.byScopeId(
+                RollupScope.PLACE, placeIds, RollupGranularity.DAY, LocalDateTime.now()).values()).getServed();
         stats.put("tokensServedToday", tokensServedToday);
         log.debug("Tokens served today: {}", tokensServedToday);
 
@@ -74,9 +71,7 @@ public class AdminService {
         log.debug("Active users: {}", activeUsers);
 
         // Get provider count for this admin
-        long providerCount = userRepository.findAll().stream()
-                .filter(user -> adminId.equals(user.getAdminId()) && "PROVIDER".equals(user.getRole().name()))
-                .count();
+        long providerCount = userRepository.countByAdminIdAndRole(adminId, Role.PROVIDER);
         stats.put("providerCount", providerCount);
         log.debug("Provider count: {}", providerCount);
 
@@ -89,21 +84,25 @@ public class AdminService {
 
 
     private List<Map<String, Object>> getRecentActivity(List<Queue> queues) {
-        return queues.stream()
-                .flatMap(queue -> queue.getTokens().stream())
-                .filter(token -> token.getCompletedAt() != null &&
-                        token.getCompletedAt().isAfter(LocalDateTime.now().minusHours(24)))
+        LocalDateTime since = LocalDateTime.now().minusHours(24);
+        // Tokens finished more than queue.history.archive-after-minutes ago are only in the history
+        Map<String, TokenHistory> completed = new HashMap<>();
+        tokenHistoryService.findCompletedSince(queues.stream().map(Queue::getId).toList(), since, 10)
+                .forEach(history -> completed.put(history.getId(), history));
+        for (Queue queue : queues) {
+            queue.getTokens().stream()
+                    .filter(token -> token.getCompletedAt() != null && token.getCompletedAt().isAfter(since))
+                    .forEach(token -> completed.put(TokenHistory.idFor(token), TokenHistory.from(queue, token)));
+        }
+
+        return completed.values().stream()
                 .sorted((t1, t2) -> t2.getCompletedAt().compareTo(t1.getCompletedAt()))
                 .limit(10)
                 .map(token -> {
                     Map<String, Object> activity = new HashMap<>();
                     activity.put("tokenId", token.getTokenId());
                     activity.put("completedAt", token.getCompletedAt());
-                    activity.put("queueId", queues.stream()
-                            .filter(q -> q.getTokens().contains(token))
-                            .findFirst()
-                            .map(Queue::getId)
-                            .orElse("Unknown"));
+                    activity.put("queueId", token.getQueueId() != null ? token.getQueueId() : "Unknown");
                     return activity;
                 })
                 .collect(Collectors.toList());
@@ -135,12 +134,10 @@ public class AdminService {
             dto.setPlaceName(placeNames.get(queue.getPlaceId()));
             dto.setProviderName(providerNames.get(queue.getProviderId()));
             dto.setIsActive(queue.getIsActive());
-            dto.setWaitingTokens((int) queue.getTokens().stream()
-                    .filter(t -> "WAITING".equals(t.getStatus())).count());
-            dto.setInServiceTokens((int) queue.getTokens().stream()
-                    .filter(t -> "IN_SERVICE".equals(t.getStatus())).count());
-            dto.setCompletedTokens((int) queue.getTokens().stream()
-                    .filter(t -> "COMPLETED".equals(t.getStatus())).count());
+            Queue.TokenCounters counters = queue.currentCounters();
+            dto.setWaitingTokens(counters.getWaiting());
+            dto.setInServiceTokens(counters.getInService());
+            dto.setCompletedTokens(counters.getCompleted());
             dto.setEstimatedWaitTime(queue.getEstimatedWaitTime());
             return dto;
         }).collect(Collectors.toList());
@@ -185,18 +182,9 @@ public class AdminService {
         List<Place> adminPlaces = placeRepository.findByAdminId(adminId);
         List<String> placeIds = adminPlaces.stream().map(Place::getId).toList();
 
-        // Get all queues for those places
-        List<Queue> queues = queueRepository.findByPlaceIdIn(placeIds);
-
-        // Collect all completed tokens
-        Map<LocalDate, Long> dailyCounts = queues.stream()
-                .flatMap(q -> q.getTokens().stream())
-                .filter(t -> TokenStatus.COMPLETED.toString().equals(t.getStatus()))
-                .filter(t -> t.getCompletedAt() != null && t.getCompletedAt().isAfter(start))
-                .collect(Collectors.groupingBy(
-                        t -> t.getCompletedAt().toLocalDate(),
-                        Collectors.counting()
-                ));
+        // Daily rollups summed across those places
+        Map<LocalDateTime, AnalyticsRollup> daily = analyticsRollupService.byBucket(
+                RollupScope.PLACE, placeIds, RollupGranularity.DAY, start);
 
         // Build ordered map of dates and counts
         List<String> dates = new ArrayList<>();
@@ -204,7 +192,8 @@ public class AdminService {
         for (int i = days-1; i >= 0; i--) {
             LocalDate date = LocalDate.now().minusDays(i);
             dates.add(date.toString());
-            counts.add(dailyCounts.getOrDefault(date, 0L));
+            AnalyticsRollup bucket = daily.get(date.atStartOfDay());
+            counts.add(bucket != null ? bucket.getServed() : 0L);
         }
 
         Map<String, Object> result = new HashMap<>();
@@ -221,18 +210,14 @@ public class AdminService {
         List<Place> adminPlaces = placeRepository.findByAdminId(adminId);
         List<String> placeIds = adminPlaces.stream().map(Place::getId).toList();
 
-        // Get all queues for those places
-        List<Queue> queues = queueRepository.findByPlaceIdIn(placeIds);
-        List<String> queueIds = queues.stream().map(Queue::getId).toList();
-
-        // Fetch hourly stats for all those queues
-        List<QueueHourlyStats> stats = statsRepository.findByQueueIdInAndHourBetween(queueIds, thirtyDaysAgo, LocalDateTime.now());
-
-        // Group by hour and calculate average waiting count
-        Map<Integer, Double> avgByHour = stats.stream()
+        // Hourly waiting snapshots summed across those places, then per hour of day
+        Map<Integer, Double> avgByHour = analyticsRollupService.byBucket(
+                        RollupScope.PLACE, placeIds, RollupGranularity.HOUR, thirtyDaysAgo).entrySet().stream()
                 .collect(Collectors.groupingBy(
-                        s -> s.getHour().getHour(),
-                        Collectors.averagingInt(QueueHourlyStats::getWaitingCount)
+                        e -> e.getKey().getHour(),
+                        Collectors.collectingAndThen(
+                                Collectors.mapping(Map.Entry::getValue, Collectors.toList()),
+                                buckets -> AnalyticsRollup.sum(buckets).averageWaitingCount())
                 ));
 
         // Fill missing hours (0-23) with 0.0
@@ -243,49 +228,40 @@ public class AdminService {
         return result;
     }
 
-    private Double getAverageRatingForProvider(String providerId) {
-        List<Feedback> feedbacks = feedbackRepository.findByProviderId(providerId);
-        if (feedbacks.isEmpty()) return 0.0;
-        return feedbacks.stream()
-                .filter(f -> f.getRating() != null)
-                .mapToDouble(Feedback::getRating)
-                .average()
-                .orElse(0.0);
+    // All-time and today's rollups of the given providers
+    private Map<String, AnalyticsRollup> providerTotals(List<String> providerIds) {
+        return analyticsRollupService.byScopeId(
+                RollupScope.PROVIDER, providerIds, RollupGranularity.TOTAL, AnalyticsRollup.ALL_TIME);
     }
 
-    private Double getCancellationRateForProvider(String providerId) {
-        List<Queue> queues = queueRepository.findByProviderId(providerId);
-        long totalCancelled = queues.stream()
-                .flatMap(q -> q.getTokens().stream())
-                .filter(t -> "CANCELLED".equals(t.getStatus()))
-                .count();
-        long totalServed = queues.stream()
-                .flatMap(q -> q.getTokens().stream())
-                .filter(t -> "COMPLETED".equals(t.getStatus()))
-                .count();
-        long total = totalCancelled + totalServed;
-        if (total == 0) return 0.0;
-        return (double) totalCancelled / total * 100;
+    private Map<String, AnalyticsRollup> providerToday(List<String> providerIds) {
+        return analyticsRollupService.byScopeId(
+                RollupScope.PROVIDER, providerIds, RollupGranularity.DAY, LocalDateTime.now());
     }
 
     public List<ProviderPerformanceDTO> getProvidersWithQueues(String adminId) {
         log.info("Fetching providers with queues for admin: {}", adminId);
-        List<User> providers = userRepository.findAll().stream()
-                .filter(user -> adminId.equals(user.getAdminId()) && "PROVIDER".equals(user.getRole().name()))
-                .collect(Collectors.toList());
+        List<User> providers = userRepository.findByAdminIdAndRole(adminId, Role.PROVIDER);
+        if (providers.isEmpty()) {
+            return List.of();
+        }
+
+        // One query per collection for all providers instead of several per provider
+        List<String> providerIds = providers.stream().map(User::getId).toList();
+        Map<String, List<Queue>> queuesByProvider = queueRepository.findCountersByProviderIdIn(providerIds).stream()
+                .collect(Collectors.groupingBy(Queue::getProviderId));
+        Map<String, RatingAggregate> ratings = ratingAggregateService.forProviders(providerIds);
+        Map<String, AnalyticsRollup> totals = providerTotals(providerIds);
+        Map<String, AnalyticsRollup> today = providerToday(providerIds);
 
         return providers.stream().map(provider -> {
-            List<Queue> providerQueues = queueRepository.findByProviderId(provider.getId());
+            List<Queue> providerQueues = queuesByProvider.getOrDefault(provider.getId(), List.of());
             int totalQueues = providerQueues.size();
             int activeQueues = (int) providerQueues.stream().filter(Queue::getIsActive).count();
-            long tokensServedToday = providerQueues.stream()
-                    .flatMap(queue -> queue.getTokens().stream())
-                    .filter(token -> "COMPLETED".equals(token.getStatus()))
-                    .filter(token -> token.getCompletedAt() != null &&
-                            token.getCompletedAt().toLocalDate().equals(LocalDate.now()))
-                    .count();
-            double avgRating = getAverageRatingForProvider(provider.getId());
-            double cancellationRate = getCancellationRateForProvider(provider.getId());
+            long tokensServedToday = today.getOrDefault(provider.getId(), new AnalyticsRollup()).getServed();
+            RatingAggregate rating = ratings.get(provider.getId());
+            double avgRating = rating != null ? rating.averageRating() : 0.0;
+            double cancellationRate = totals.getOrDefault(provider.getId(), new AnalyticsRollup()).cancellationRate();
 
             return new ProviderPerformanceDTO(provider, totalQueues, activeQueues,
                     tokensServedToday, avgRating, cancellationRate);
@@ -295,81 +271,83 @@ public class AdminService {
     public List<PlaceWithQueueDTO> getPlacesWithQueueStats(String adminId) {
         log.info("Fetching places with queue stats for admin: {}", adminId);
         List<Place> adminPlaces = placeRepository.findByAdminId(adminId);
+        Map<String, List<Queue>> queuesByPlace = queuesByPlace(adminPlaces);
 
         return adminPlaces.stream().map(place -> {
-            List<Queue> queues = queueRepository.findByPlaceId(place.getId());
+            List<Queue> queues = queuesByPlace.getOrDefault(place.getId(), List.of());
             int waiting = 0;
             int inService = 0;
             for (Queue queue : queues) {
-                waiting += (int) queue.getTokens().stream()
-                        .filter(t -> "WAITING".equals(t.getStatus())).count();
-                inService += (int) queue.getTokens().stream()
-                        .filter(t -> "IN_SERVICE".equals(t.getStatus())).count();
+                Queue.TokenCounters counters = queue.currentCounters();
+                waiting += counters.getWaiting();
+                inService += counters.getInService();
             }
             return new PlaceWithQueueDTO(place, waiting, inService);
         }).collect(Collectors.toList());
     }
 
+    // Counters of all queues of the given places, without the token arrays
+    private Map<String, List<Queue>> queuesByPlace(List<Place> places) {
+        if (places.isEmpty()) {
+            return Map.of();
+        }
+        List<String> placeIds = places.stream().map(Place::getId).toList();
+        return queueRepository.findCountersByPlaceIdIn(placeIds).stream()
+                .collect(Collectors.groupingBy(Queue::getPlaceId));
+    }
+
     public AdminReportDTO getAdminReport(String adminId) {
         log.info("Generating admin report for admin: {}", adminId);
         User admin = userRepository.findById(adminId)
                 .orElseThrow(() -> new RuntimeException("Admin not found"));
 
         List<Place> adminPlaces = placeRepository.findByAdminId(adminId);
+        List<String> placeIds = adminPlaces.stream().map(Place::getId).toList();
+        Map<String, AnalyticsRollup> placeTotals = analyticsRollupService.byScopeId(
+                RollupScope.PLACE, placeIds, RollupGranularity.TOTAL, AnalyticsRollup.ALL_TIME);
+        Map<String, AnalyticsRollup> placeToday = analyticsRollupService.byScopeId(
+                RollupScope.PLACE, placeIds, RollupGranularity.DAY, LocalDateTime.now());
+        Map<String, List<Queue>> queuesByPlace = queuesByPlace(adminPlaces);
+        Map<String, RatingAggregate> ratings = ratingAggregateService.forPlaces(placeIds);
         List<AdminReportDTO.PlaceSummaryDTO> placeSummaries = new ArrayList<>();
         AdminReportDTO.GlobalSummaryDTO.GlobalSummaryDTOBuilder globalBuilder = AdminReportDTO.GlobalSummaryDTO.builder();
 
         long totalServedToday = 0;
         long totalServedAllTime = 0;
         double totalRatingSum = 0;
-        int ratingCount = 0;
+        long ratingCount = 0;
         double totalWaitTimeSum = 0;
-        int waitTimeCount = 0;
+        long waitTimeCount = 0;
 
         for (Place place : adminPlaces) {
-            List<Queue> queues = queueRepository.findByPlaceId(place.getId());
+            List<Queue> queues = queuesByPlace.getOrDefault(place.getId(), List.of());
             int totalQueues = queues.size();
             int activeQueues = (int) queues.stream().filter(Queue::getIsActive).count();
 
-            long servedToday = 0;
             long servedAllTime = 0;
-            double waitTimeSum = 0;
-            int waitTimeTokens = 0;
             long activeTokens = 0;
 
+            // Served today and wait times (completed tokens only) come from the rollups
+            long servedToday = placeToday.getOrDefault(place.getId(), new AnalyticsRollup()).getServed();
+            AnalyticsRollup total = placeTotals.getOrDefault(place.getId(), new AnalyticsRollup());
+            long waitTimeSum = total.getWaitMinutesSum();
+            long waitTimeTokens = total.getWaitCount();
+
             for (Queue queue : queues) {
-                // Tokens served today
-                servedToday += queue.getTokens().stream()
-                        .filter(t -> "COMPLETED".equals(t.getStatus()))
-                        .filter(t -> t.getCompletedAt() != null && t.getCompletedAt().toLocalDate().equals(LocalDate.now()))
-                        .count();
                 // Tokens served all time
-                servedAllTime += queue.getTokens().stream()
-                        .filter(t -> "COMPLETED".equals(t.getStatus()))
-                        .count();
-                // Wait time average per token (only for completed)
-                for (QueueToken token : queue.getTokens()) {
-                    if ("COMPLETED".equals(token.getStatus()) && token.getServedAt() != null && token.getIssuedAt() != null) {
-                        long wait = Duration.between(token.getIssuedAt(), token.getServedAt()).toMinutes();
-                        waitTimeSum += wait;
-                        waitTimeTokens++;
-                    }
-                }
+                Queue.TokenCounters counters = queue.currentCounters();
+                servedAllTime += counters.getCompleted();
                 // Active tokens
-                activeTokens += queue.getTokens().stream()
-                        .filter(t -> "WAITING".equals(t.getStatus()) || "IN_SERVICE".equals(t.getStatus()))
-                        .count();
+                activeTokens += counters.getWaiting() + counters.getInService();
             }
 
             // Average rating for this place
-            List<Feedback> feedbacks = feedbackRepository.findByPlaceId(place.getId());
-            double avgRating = feedbacks.stream()
-                    .filter(f -> f.getRating() != null)
-                    .mapToDouble(Feedback::getRating)
-                    .average()
-                    .orElse(0.0);
-            totalRatingSum += avgRating * feedbacks.size(); // weighted sum
-            ratingCount += feedbacks.size();
+            RatingAggregate rating = ratings.get(place.getId());
+            double avgRating = rating != null ? rating.averageRating() : 0.0;
+            if (rating != null) {
+                totalRatingSum += avgRating * rating.getRatingCount(); // weighted sum
+                ratingCount += rating.getRatingCount();
+            }
 
             placeSummaries.add(AdminReportDTO.PlaceSummaryDTO.builder()
                     .placeId(place.getId())
@@ -502,24 +480,21 @@ public class AdminService {
         }
 
         // Build statistics
-        List<Queue> queues = queueRepository.findByProviderId(providerId);
+        List<Queue> queues = queueRepository.findCountersByProviderIdIn(List.of(providerId));
         int totalQueues = queues.size();
         int activeQueues = (int) queues.stream().filter(Queue::getIsActive).count();
 
-        long tokensServedToday = queues.stream()
-                .flatMap(q -> q.getTokens().stream())
-                .filter(t -> "COMPLETED".equals(t.getStatus()))
-                .filter(t -> t.getCompletedAt() != null &&
-                        t.getCompletedAt().toLocalDate().equals(LocalDate.now()))
-                .count();
+        long tokensServedToday = providerToday(List.of(providerId))
+                .getOrDefault(providerId, new AnalyticsRollup()).getServed();
 
         long tokensServedTotal = queues.stream()
-                .flatMap(q -> q.getTokens().stream())
-                .filter(t -> "COMPLETED".equals(t.getStatus()))
-                .count();
+                .mapToLong(q -> q.currentCounters().getCompleted())
+                .sum();
 
-        double avgRating = getAverageRatingForProvider(providerId);
-        double cancellationRate = getCancellationRateForProvider(providerId);
+        RatingAggregate rating = ratingAggregateService.forProviders(List.of(providerId)).get(providerId);
+        double avgRating = rating != null ? rating.averageRating() : 0.0;
+        double cancellationRate = providerTotals(List.of(providerId))
+                .getOrDefault(providerId, new AnalyticsRollup()).cancellationRate();
 
         // Get managed places with details
         List<Place> managedPlaces = placeService.getPlacesByIds(
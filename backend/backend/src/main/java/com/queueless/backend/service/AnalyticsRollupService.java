@@ -0,0 +1,363 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.enums.RollupGranularity;
+import com.queueless.backend.enums.RollupScope;
+import com.queueless.backend.enums.TokenStatus;
+import com.queueless.backend.model.AnalyticsRollup;
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.model.QueueHourlyStats;
+import com.queueless.backend.model.QueueToken;
+import com.queueless.backend.model.TokenHistory;
+import com.queueless.backend.repository.QueueRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Maintains the analytics rollups: per queue, place and provider, one bucket per hour,
+ * per day and for all time. Finished tokens and the hourly waiting snapshots are added
+ * with {@code $inc} upserts as they happen, so the analytics endpoints read a handful of
+ * bucket documents instead of grouping every token on each request.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AnalyticsRollupService {
+
+    private static final String BACKFILL_MARKER = "backfill";
+    // Set on the rollup documents written by the backfill, which are kept apart from the live ones
+    private static final String BACKFILL_FIELD = "backfill";
+    private static final int BATCH_SIZE = 1000;
+    private static final Set<String> TERMINAL_STATUSES =
+            Set.of(TokenStatus.COMPLETED.toString(), TokenStatus.CANCELLED.toString());
+
+    private enum BackfillState {PENDING, RUNNING, DONE}
+
+    // A marker without a state was written by an earlier version and counts as done
+    private static final List<String> UNFINISHED = List.of(BackfillState.PENDING.name(), BackfillState.RUNNING.name());
+
+    private final MongoTemplate mongoTemplate;
+    private final TokenHistoryService tokenHistoryService;
+    private final QueueRepository queueRepository;
+
+    @Value("${queue.rollups.backfill-on-startup:true}")
+    private boolean backfillOnStartup = true;
+
+    // Renewed after every batch; an instance that stops renewing is taken over after this
+    @Value("${queue.rollups.backfill-lease-minutes:10}")
+    private long backfillLeaseMinutes = 10;
+
+    // Candidate backfill cutoff; the earliest start of all instances is used
+    private final LocalDateTime startedAt = LocalDateTime.now();
+
+    /**
+     * Adds a token that just became COMPLETED or CANCELLED. Failures are logged only.
+     */
+    public void recordFinished(Queue queue, QueueToken token) {
+        try {
+            Batch batch = new Batch(false, null);
+            batch.addFinished(TokenHistory.from(queue, token));
+            batch.execute();
+        } catch (Exception e) {
+            log.error("Failed to update rollups for token {}: {}", token.getTokenId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Adds one waiting-count sample per queue to the hour starting at {@code hour}.
+     */
+    public void recordWaitingSnapshot(Collection<Queue> queues, LocalDateTime hour) {
+        Batch batch = new Batch(false, null);
+        for (Queue queue : queues) {
+            batch.addWaitingSample(queue.getId(), queue.getPlaceId(), queue.getProviderId(),
+                    hour, queue.currentCounters().getWaiting());
+        }
+        batch.execute();
+    }
+
+    /**
+     * Buckets of the given scopes from {@code from} on, summed across the scope ids and keyed by bucket start.
+     */
+    public Map<LocalDateTime, AnalyticsRollup> byBucket(RollupScope scope, Collection<String> scopeIds,
+                                                        RollupGranularity granularity, LocalDateTime from) {
+        return find(scope, scopeIds, granularity, from).stream()
+                .collect(Collectors.groupingBy(AnalyticsRollup::getBucket, TreeMap::new,
+                        Collectors.collectingAndThen(Collectors.toList(), AnalyticsRollup::sum)));
+    }
+
+    /**
+     * Buckets of the given scopes from {@code from} on, summed per scope id.
+     */
+    public Map<String, AnalyticsRollup> byScopeId(RollupScope scope, Collection<String> scopeIds,
+                                                  RollupGranularity granularity, LocalDateTime from) {
+        return find(scope, scopeIds, granularity, from).stream()
+                .collect(Collectors.groupingBy(AnalyticsRollup::getScopeId,
+                        Collectors.collectingAndThen(Collectors.toList(), AnalyticsRollup::sum)));
+    }
+
+    public void deleteHourlyBefore(LocalDateTime cutoff) {
+        Query query = new Query(Criteria.where("granularity").is(RollupGranularity.HOUR)
+                .and("bucket").lt(cutoff));
+        long deleted = mongoTemplate.remove(query, AnalyticsRollup.class).getDeletedCount();
+        log.debug("Deleted {} hourly rollups before {}", deleted, cutoff);
+    }
+
+    /**
+     * Registers this instance's start as a candidate backfill cutoff. Runs before the instance
+     * records any finished token, so the earliest start among the instances (the stored
+     * cutoff) is never after a token some instance counted live.
+     */
+    @PostConstruct
+    void registerBackfillCutoff() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        Query query = new Query(Criteria.where("_id").is(BACKFILL_MARKER).and("state").in(UNFINISHED));
+        Update update = new Update()
+                .min("cutoff", toDate(startedAt))
+                .setOnInsert("state", BackfillState.PENDING.name());
+        try {
+            mongoTemplate.upsert(query, update, rollupCollection());
+        } catch (DuplicateKeyException e) {
+            // Already backfilled
+        } catch (Exception e) {
+            log.warn("Could not register analytics backfill cutoff: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Fills the rollups from the token history, the finished tokens still embedded in the
+     * queues and the hourly snapshots, everything before the cutoff stored in the marker.
+     * One instance at a time holds a lease on the marker; a backfill that did not finish is
+     * taken over once the lease runs out. It writes to separate rollup documents that each
+     * attempt clears first, so a retry does not count anything twice.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        String owner = UUID.randomUUID().toString();
+        Document marker = claimBackfill(owner);
+        if (marker == null) {
+            log.debug("Analytics rollups already backfilled or being backfilled");
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.ofInstant(marker.getDate("cutoff").toInstant(), ZoneId.systemDefault());
+        try {
+            long count = backfillBefore(cutoff, owner);
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(BACKFILL_MARKER).and("owner").is(owner)),
+                    new Update().set("state", BackfillState.DONE.name()).set("finishedAt", new Date()).unset("leaseUntil"),
+                    rollupCollection());
+            log.info("Backfilled analytics rollups from {} finished tokens", count);
+        } catch (Exception e) {
+            // The lease runs out and the next instance to start retries from scratch
+            log.error("Analytics rollup backfill failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private long backfillBefore(LocalDateTime cutoff, String owner) {
+        log.info("Backfilling analytics rollups before {}...", cutoff);
+        mongoTemplate.remove(new Query(Criteria.where(BACKFILL_FIELD).is(true)), AnalyticsRollup.class);
+        Map<String, Queue> queues = queueRepository.findAllCounters().stream()
+                .collect(Collectors.toMap(Queue::getId, Function.identity()));
+        Batch batch = new Batch(true, () -> renewBackfillLease(owner));
+        long[] count = {0};
+
+        // Finished tokens the archiver has not moved yet; those recorded in the history too are skipped below
+        Set<String> embeddedIds = new HashSet<>();
+        try (Stream<Queue> stream = queueRepository.streamAllBy()) {
+            stream.forEach(queue -> {
+                for (QueueToken token : queue.getTokens() != null ? queue.getTokens() : List.<QueueToken>of()) {
+                    if (!TERMINAL_STATUSES.contains(token.getStatus())) continue;
+                    TokenHistory history = TokenHistory.from(queue, token);
+                    if (history.getClosedAt().isBefore(cutoff) && embeddedIds.add(history.getId())) {
+                        batch.addFinished(history);
+                        count[0]++;
+                        batch.executeIfFull();
+                    }
+                }
+            });
+        }
+        tokenHistoryService.forEachClosedBefore(cutoff, history -> {
+            if (embeddedIds.contains(history.getId())) return;
+            batch.addFinished(history);
+            count[0]++;
+            batch.executeIfFull();
+        });
+        try (Stream<QueueHourlyStats> stats = mongoTemplate.stream(
+                new Query(Criteria.where("hour").lt(cutoff)), QueueHourlyStats.class)) {
+            stats.forEach(stat -> {
+                Queue queue = queues.get(stat.getQueueId());
+                batch.addWaitingSample(stat.getQueueId(), queue != null ? queue.getPlaceId() : null,
+                        queue != null ? queue.getProviderId() : null, stat.getHour(), stat.getWaitingCount());
+                batch.executeIfFull();
+            });
+        }
+        batch.execute();
+        return count[0];
+    }
+
+    // Takes the marker if no backfill finished and no other instance holds a live lease
+    private Document claimBackfill(String owner) {
+        Date now = new Date();
+        Query query = new Query(new Criteria().andOperator(
+                Criteria.where("_id").is(BACKFILL_MARKER),
+                Criteria.where("state").in(UNFINISHED),
+                new Criteria().orOperator(
+                        Criteria.where("leaseUntil").exists(false),
+                        Criteria.where("leaseUntil").lt(now))));
+        Update update = new Update()
+                .set("state", BackfillState.RUNNING.name())
+                .set("owner", owner)
+                .set("leaseUntil", leaseUntil());
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true),
+                Document.class, rollupCollection());
+    }
+
+    private void renewBackfillLease(String owner) {
+        Query query = new Query(Criteria.where("_id").is(BACKFILL_MARKER).and("owner").is(owner));
+        if (mongoTemplate.updateFirst(query, new Update().set("leaseUntil", leaseUntil()), rollupCollection())
+                .getMatchedCount() == 0) {
+            throw new IllegalStateException("Analytics backfill lease was taken over by another instance");
+        }
+    }
+
+    private Date leaseUntil() {
+        return new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(backfillLeaseMinutes));
+    }
+
+    private String rollupCollection() {
+        return mongoTemplate.getCollectionName(AnalyticsRollup.class);
+    }
+
+    private static Date toDate(LocalDateTime dateTime) {
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private List<AnalyticsRollup> find(RollupScope scope, Collection<String> scopeIds,
+                                       RollupGranularity granularity, LocalDateTime from) {
+        if (scopeIds.isEmpty()) {
+            return List.of();
+        }
+        Query query = new Query(Criteria.where("scope").is(scope)
+                .and("granularity").is(granularity)
+                .and("scopeId").in(scopeIds)
+                .and("bucket").gte(AnalyticsRollup.bucketOf(granularity, from)));
+        return mongoTemplate.find(query, AnalyticsRollup.class);
+    }
+
+    /**
+     * Collects {@code $inc} upserts and writes them in unordered bulk operations. A backfill
+     * batch writes to the backfill documents and runs {@code afterWrite} after each write.
+     */
+    private final class Batch {
+        private final boolean backfill;
+        private final Runnable afterWrite;
+        private BulkOperations bulk;
+        private int size;
+
+        Batch(boolean backfill, Runnable afterWrite) {
+            this.backfill = backfill;
+            this.afterWrite = afterWrite;
+        }
+
+        void addFinished(TokenHistory token) {
+            Map<String, Long> increments = new LinkedHashMap<>();
+            if (TokenStatus.COMPLETED.toString().equals(token.getStatus())) {
+                increments.put("served", 1L);
+                if (token.getWaitMinutes() != null) {
+                    increments.put("waitMinutesSum", token.getWaitMinutes());
+                    increments.put("waitCount", 1L);
+                }
+                if (token.getServiceDurationMinutes() != null) {
+                    increments.put("serviceMinutesSum", token.getServiceDurationMinutes());
+                    increments.put("serviceCount", 1L);
+                }
+            } else if (TokenStatus.CANCELLED.toString().equals(token.getStatus())) {
+                increments.put("cancelled", 1L);
+            } else {
+                return;
+            }
+            add(token.getQueueId(), token.getPlaceId(), token.getProviderId(), token.getClosedAt(),
+                    EnumSet.allOf(RollupGranularity.class), increments);
+        }
+
+        void addWaitingSample(String queueId, String placeId, String providerId, LocalDateTime hour, long waiting) {
+            add(queueId, placeId, providerId, hour, EnumSet.of(RollupGranularity.HOUR),
+                    Map.of("waitingSum", waiting, "waitingSamples", 1L));
+        }
+
+        private void add(String queueId, String placeId, String providerId, LocalDateTime at,
+                         Set<RollupGranularity> granularities, Map<String, Long> increments) {
+            Map<RollupScope, String> scopes = new EnumMap<>(RollupScope.class);
+            scopes.put(RollupScope.QUEUE, queueId);
+            scopes.put(RollupScope.PLACE, placeId);
+            scopes.put(RollupScope.PROVIDER, providerId);
+            scopes.forEach((scope, scopeId) -> {
+                if (scopeId == null) return;
+                for (RollupGranularity granularity : granularities) {
+                    LocalDateTime bucket = AnalyticsRollup.bucketOf(granularity, at);
+                    Update update = new Update()
+                            .setOnInsert("scope", scope)
+                            .setOnInsert("scopeId", scopeId)
+                            .setOnInsert("granularity", granularity)
+                            .setOnInsert("bucket", bucket);
+                    increments.forEach(update::inc);
+                    String id = AnalyticsRollup.idFor(scope, scopeId, granularity, bucket);
+                    if (backfill) {
+                        update.setOnInsert(BACKFILL_FIELD, true);
+                        id += ":" + BACKFILL_FIELD;
+                    }
+                    Query query = new Query(Criteria.where("_id").is(id));
+                    bulk().upsert(query, update);
+                    size++;
+                }
+            });
+        }
+
+        private BulkOperations bulk() {
+            if (bulk == null) {
+                bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AnalyticsRollup.class);
+            }
+            return bulk;
+        }
+
+        void executeIfFull() {
+            if (size >= BATCH_SIZE) {
+                execute();
+            }
+        }
+
+        void execute() {
+            if (bulk != null && size > 0) {
+                bulk.execute();
+                if (afterWrite != null) {
+                    afterWrite.run();
+                }
+            }
+            bulk = null;
+            size = 0;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.queueless.backend.service;
 
 import com.queueless.backend.model.AuditLog;
-import com.queueless.backend.repository.AuditLogRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
@@ -16,7 +15,7 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class AuditLogService {
 
-    private final AuditLogRepository auditLogRepository;
+    private final AuditLogWriter auditLogWriter;
 
     public void logEvent(String action, String description, Map<String, Object> details) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -34,7 +33,8 @@ public class AuditLogService {
         logEntry.setDetails(details);
         logEntry.setTimestamp(LocalDateTime.now());
 
-        auditLogRepository.save(logEntry);
-        log.debug("Audit log saved: {} - {}", action, description);
+        // Buffered and written in batches; the caller does not wait for Mongo
+        auditLogWriter.write(logEntry);
+        log.debug("Audit log queued: {} - {}", action, description);
     }
 }
\ No newline at end of file
@@ -0,0 +1,278 @@
+package com.queueless.backend.service;
+
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.TimeSeriesGranularity;
+import com.mongodb.client.model.TimeSeriesOptions;
+import com.queueless.backend.model.AuditLog;
+import com.queueless.backend.repository.AuditLogRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes audit entries off the request thread. {@link #write} puts the entry in a bounded,
+ * lock-free buffer and returns; one drainer thread inserts the buffer in batches of
+ * {@code audit.writer.batch-size}, or whatever has gathered once {@code audit.writer.flush-interval-ms}
+ * has passed. What is still buffered on shutdown is written before the context closes.
+ * <p>
+ * A full buffer is handled by {@code audit.writer.overflow-policy}: {@code DROP} the new entry,
+ * {@code SAMPLE} (keep one in {@code audit.writer.sample-rate} once the buffer is three quarters
+ * full, drop when it is full), or {@code BLOCK} the caller for up to {@code audit.writer.block-timeout-ms}
+ * and drop after that. Every outcome is counted in {@code audit.log.entries}. With
+ * {@code audit.writer.async=false} each entry is saved on the caller's thread.
+ */
+@Slf4j
+@Component
+public class AuditLogWriter {
+
+    public enum OverflowPolicy {DROP, SAMPLE, BLOCK}
+
+    public enum CollectionMode {PLAIN, CAPPED, TIMESERIES}
+
+    private final AuditLogRepository auditLogRepository;
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${audit.writer.async:true}")
+    private boolean async = true;
+
+    @Value("${audit.writer.capacity:10000}")
+    private int capacity = 10000;
+
+    @Value("${audit.writer.batch-size:200}")
+    private int batchSize = 200;
+
+    @Value("${audit.writer.flush-interval-ms:1000}")
+    private long flushIntervalMs = 1000;
+
+    @Value("${audit.writer.overflow-policy:DROP}")
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+    @Value("${audit.writer.sample-rate:10}")
+    private int sampleRate = 10;
+
+    @Value("${audit.writer.block-timeout-ms:50}")
+    private long blockTimeoutMs = 50;
+
+    // Only applied when audit_logs does not exist yet; an existing collection is left as it is
+    @Value("${audit.collection.mode:PLAIN}")
+    private CollectionMode collectionMode = CollectionMode.PLAIN;
+
+    @Value("${audit.collection.capped-max-bytes:1073741824}")
+    private long cappedMaxBytes = 1073741824L;
+
+    @Value("${audit.collection.expire-after-days:90}")
+    private long expireAfterDays = 90;
+
+    private final Queue<AuditLog> buffer = new ConcurrentLinkedQueue<>();
+    // Slots taken in the buffer; reserved before an offer and released after a poll
+    private final AtomicInteger buffered = new AtomicInteger();
+    private final AtomicLong sampleSequence = new AtomicLong();
+
+    private final Counter accepted;
+    private final Counter dropped;
+    private final Counter sampledOut;
+    private final Counter blocked;
+    private final Counter written;
+    private final Counter failed;
+
+    private volatile boolean running;
+    private volatile Thread drainer;
+
+    public AuditLogWriter(AuditLogRepository auditLogRepository, MongoTemplate mongoTemplate,
+                          MeterRegistry meterRegistry) {
+        this.auditLogRepository = auditLogRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.accepted = outcome(meterRegistry, "buffered");
+        this.dropped = outcome(meterRegistry, "dropped");
+        this.sampledOut = outcome(meterRegistry, "sampled_out");
+        this.blocked = outcome(meterRegistry, "blocked");
+        this.written = outcome(meterRegistry, "written");
+        this.failed = outcome(meterRegistry, "failed");
+        Gauge.builder("audit.log.buffer.size", buffered, AtomicInteger::get)
+                .description("Audit entries waiting to be written")
+                .register(meterRegistry);
+    }
+
+    private static Counter outcome(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("audit.log.entries")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        prepareCollection();
+        if (!async) {
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::drainLoop, "audit-log-writer");
+        thread.setDaemon(true);
+        drainer = thread;
+        thread.start();
+        log.info("Audit log writer started: capacity {}, batch size {}, overflow policy {}",
+                capacity, batchSize, overflowPolicy);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        Thread thread = drainer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        int remaining = flush();
+        if (remaining > 0) {
+            log.info("Flushed {} audit entries on shutdown", remaining);
+        }
+    }
+
+    public void write(AuditLog entry) {
+        if (!async) {
+            insert(List.of(entry));
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.SAMPLE && buffered.get() >= capacity - capacity / 4
+                && sampleSequence.getAndIncrement() % sampleRate != 0) {
+            sampledOut.increment();
+            return;
+        }
+        if (tryReserve() || (overflowPolicy == OverflowPolicy.BLOCK && awaitSpace())) {
+            buffer.offer(entry);
+            accepted.increment();
+            if (buffered.get() >= batchSize) {
+                wakeDrainer();
+            }
+            return;
+        }
+        dropped.increment();
+        log.debug("Audit buffer full, dropped {}", entry.getAction());
+    }
+
+    /**
+     * Writes everything buffered so far on the calling thread and returns how many entries
+     * were written.
+     */
+    public int flush() {
+        int total = 0;
+        List<AuditLog> batch;
+        while (!(batch = pollBatch()).isEmpty()) {
+            total += insert(batch);
+        }
+        return total;
+    }
+
+    int buffered() {
+        return buffered.get();
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (buffered.get() < batchSize) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+            }
+            try {
+                flush();
+            } catch (Exception e) {
+                log.error("Audit log drainer failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private boolean tryReserve() {
+        int current;
+        do {
+            current = buffered.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!buffered.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private boolean awaitSpace() {
+        blocked.increment();
+        wakeDrainer();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        while (System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            if (tryReserve()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void wakeDrainer() {
+        Thread thread = drainer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private List<AuditLog> pollBatch() {
+        List<AuditLog> batch = new ArrayList<>(Math.min(batchSize, Math.max(buffered.get(), 1)));
+        AuditLog entry;
+        while (batch.size() < batchSize && (entry = buffer.poll()) != null) {
+            buffered.decrementAndGet();
+            batch.add(entry);
+        }
+        return batch;
+    }
+
+    private int insert(List<AuditLog> batch) {
+        try {
+            auditLogRepository.insert(batch);
+            written.increment(batch.size());
+            return batch.size();
+        } catch (Exception e) {
+            // Audit entries are best effort; the queue operation they describe already happened
+            failed.increment(batch.size());
+            log.error("Failed to write {} audit entries: {}", batch.size(), e.getMessage());
+            return 0;
+        }
+    }
+
+    private void prepareCollection() {
+        if (collectionMode == CollectionMode.PLAIN || mongoTemplate.collectionExists(AuditLog.class)) {
+            return;
+        }
+        String collection = mongoTemplate.getCollectionName(AuditLog.class);
+        CreateCollectionOptions options = new CreateCollectionOptions();
+        if (collectionMode == CollectionMode.CAPPED) {
+            options.capped(true).sizeInBytes(cappedMaxBytes);
+        } else {
+            options.timeSeriesOptions(new TimeSeriesOptions("timestamp")
+                            .metaField("userId")
+                            .granularity(TimeSeriesGranularity.SECONDS))
+                    .expireAfter(expireAfterDays, TimeUnit.DAYS);
+        }
+        try {
+            mongoTemplate.getDb().createCollection(collection, options);
+            log.info("Created {} as a {} collection", collection, collectionMode.name().toLowerCase());
+        } catch (Exception e) {
+            // Another instance created it first
+            log.warn("Could not create {} collection: {}", collection, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.repository.QueueRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Set of queues changed since each scheduled job last looked at them, so the periodic jobs
+ * load only those queues instead of scanning the whole collection.
+ * <p>
+ * QueueService marks a queue on every broadcast mutation, and {@link QueueChangeStreamListener}
+ * can also mark writes made by other instances. Every consumer drains its own set. The first
+ * drain of a consumer, a set that overflowed {@code queue.dirty-tracking.max-pending}, and
+ * every {@code queue.dirty-tracking.full-scan-minutes} report "unknown" instead, which makes
+ * the job fall back to one full scan.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DirtyQueueTracker {
+
+    public static final String WAIT_TIMES = "waitTimes";
+    public static final String TOKEN_NOTIFICATIONS = "tokenNotifications";
+
+    private final QueueRepository queueRepository;
+
+    @Value("${queue.dirty-tracking.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${queue.dirty-tracking.full-scan-minutes:10}")
+    private long fullScanMinutes = 10;
+
+    @Value("${queue.dirty-tracking.max-pending:10000}")
+    private int maxPending = 10000;
+
+    private final Map<String, PendingSet> consumers = new ConcurrentHashMap<>();
+
+    public void markDirty(String queueId) {
+        if (queueId == null) {
+            return;
+        }
+        for (PendingSet pending : consumers.values()) {
+            if (pending.queueIds.size() >= maxPending) {
+                pending.overflowed = true;
+            } else {
+                pending.queueIds.add(queueId);
+            }
+        }
+    }
+
+    /**
+     * Queue ids changed since the previous drain by {@code consumer}, or empty when the
+     * caller has to scan every queue.
+     */
+    public Optional<Set<String>> drain(String consumer) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        PendingSet pending = consumers.computeIfAbsent(consumer, k -> new PendingSet());
+        long now = System.currentTimeMillis();
+        if (pending.overflowed || now - pending.lastFullScan > fullScanMinutes * 60_000) {
+            // Marks landing after this point are picked up again by the next drain
+            pending.overflowed = false;
+            pending.queueIds.clear();
+            pending.lastFullScan = now;
+            log.debug("Full queue scan for {}", consumer);
+            return Optional.empty();
+        }
+
+        Set<String> drained = new HashSet<>();
+        Iterator<String> iterator = pending.queueIds.iterator();
+        while (iterator.hasNext()) {
+            drained.add(iterator.next());
+            iterator.remove();
+        }
+        return Optional.of(drained);
+    }
+
+    /**
+     * Loads the queues {@code consumer} has to look at: the changed ones, or all of them.
+     */
+    public List<Queue> loadChangedQueues(String consumer) {
+        Optional<Set<String>> changed = drain(consumer);
+        if (changed.isEmpty()) {
+            return queueRepository.findAll();
+        }
+        if (changed.get().isEmpty()) {
+            return List.of();
+        }
+        return queueRepository.findAllById(changed.get());
+    }
+
+    private static final class PendingSet {
+        private final Set<String> queueIds = ConcurrentHashMap.newKeySet();
+        private volatile boolean overflowed;
+        private volatile long lastFullScan;
+    }
+}
@@ -0,0 +1,27 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.enums.NotificationChannel;
+import com.queueless.backend.model.NotificationOutbox;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "notifications.senders.enabled", havingValue = "true", matchIfMissing = true)
+public class EmailNotificationSender implements NotificationSender {
+
+    private final EmailService emailService;
+
+    @Override
+    public NotificationChannel channel() {
+        return NotificationChannel.EMAIL;
+    }
+
+    @Override
+    public void send(NotificationOutbox notification) throws Exception {
+        for (String toEmail : notification.getRecipients()) {
+            emailService.sendHtml(toEmail, notification.getSubject(), notification.getBody());
+        }
+    }
+}
@@ -53,58 +53,47 @@ public class EmailService {
         }
     }
 
-    public void sendUpcomingTokenEmail(String toEmail, String tokenId, String serviceName, int minutes, String queueId, String appBaseUrl) {
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setTo(toEmail);
-            helper.setSubject("QueueLess – Your turn is coming up!");
-
-            String liveTrackingLink = appBaseUrl + "/customer/queue/" + queueId;
-            String htmlTemplate = loadHtmlTemplate("templates/upcoming-token-template.html");
-            String processedHtml = htmlTemplate
-                    .replace("{{TOKEN_ID}}", tokenId)
-                    .replace("{{SERVICE_NAME}}", serviceName)
-                    .replace("{{MINUTES}}", String.valueOf(minutes))
-                    .replace("{{LIVE_TRACKING_LINK}}", liveTrackingLink)
-                    .replace("{{APP_URL}}", appBaseUrl);
-
-            helper.setText(processedHtml, true);
-            mailSender.send(message);
-            log.info("Upcoming token email sent to {}", toEmail);
-        } catch (Exception e) {
-            log.error("Failed to send upcoming token email to {}", toEmail, e);
-        }
+    public static final String UPCOMING_TOKEN_SUBJECT = "QueueLess – Your turn is coming up!";
+    public static final String ALERT_SUBJECT = "QueueLess Alert – Queue threshold exceeded";
+
+    public String renderUpcomingTokenEmail(String tokenId, String serviceName, int minutes, String queueId, String appBaseUrl) throws Exception {
+        String liveTrackingLink = appBaseUrl + "/customer/queue/" + queueId;
+        String htmlTemplate = loadHtmlTemplate("templates/upcoming-token-template.html");
+        return htmlTemplate
+                .replace("{{TOKEN_ID}}", tokenId)
+                .replace("{{SERVICE_NAME}}", serviceName)
+                .replace("{{MINUTES}}", String.valueOf(minutes))
+                .replace("{{LIVE_TRACKING_LINK}}", liveTrackingLink)
+                .replace("{{APP_URL}}", appBaseUrl);
     }
 
-    public void sendAlertEmail(String toEmail, String adminName, int threshold, List<String> queueSummaries, String appBaseUrl) {
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setTo(toEmail);
-            helper.setSubject("QueueLess Alert – Queue threshold exceeded");
-
-            // Build the list of queues as HTML
-            StringBuilder queuesHtml = new StringBuilder();
-            for (String summary : queueSummaries) {
-                queuesHtml.append(summary);
-            }
+    public String renderAlertEmail(String adminName, int threshold, List<String> queueSummaries, String appBaseUrl) throws Exception {
+        // Build the list of queues as HTML
+        StringBuilder queuesHtml = new StringBuilder();
+        for (String summary : queueSummaries) {
+            queuesHtml.append(summary);
+        }
 
-            String htmlTemplate = loadHtmlTemplate("templates/alert-template.html");
-            String processedHtml = htmlTemplate
-                    .replace("{{ADMIN_NAME}}", adminName)
-                    .replace("{{THRESHOLD}}", String.valueOf(threshold))
-                    .replace("{{QUEUES_LIST}}", queuesHtml.toString())
-                    .replace("{{APP_URL}}", appBaseUrl);
+        String htmlTemplate = loadHtmlTemplate("templates/alert-template.html");
+        return htmlTemplate
+                .replace("{{ADMIN_NAME}}", adminName)
+                .replace("{{THRESHOLD}}", String.valueOf(threshold))
+                .replace("{{QUEUES_LIST}}", queuesHtml.toString())
+                .replace("{{APP_URL}}", appBaseUrl);
+    }
 
-            helper.setText(processedHtml, true);
-            mailSender.send(message);
-            log.info("Alert email sent to {}", toEmail);
-        } catch (Exception e) {
-            log.error("Failed to send alert email to {}", toEmail, e);
-        }
+    /**
+     * Sends an already rendered email. Failures are thrown so the notification outbox can retry.
+     */
+    public void sendHtml(String toEmail, String subject, String html) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+
+        helper.setTo(toEmail);
+        helper.setSubject(subject);
+        helper.setText(html, true);
+        mailSender.send(message);
+        log.info("Email '{}' sent to {}", subject, toEmail);
     }
 
     public void sendVerificationOtpEmail(String toEmail, String otp) {
@@ -1,21 +1,88 @@
 package com.queueless.backend.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.*;
+import java.util.stream.Stream;
 
+/**
+ * Generated exports kept for later download. Small files live in an in-memory LRU; files
+ * above {@code export.cache.memory-entry-max-bytes}, and small ones pushed out of memory,
+ * are written under {@code export.cache.dir}. Both tiers are bounded in bytes and evict
+ * the least recently used entries first, and entries expire after
+ * {@code export.cache.ttl-minutes} (swept by ExportCacheSweepScheduler).
+ * <p>
+ * With {@code export.cache.redis-index.enabled} every export goes to disk and its metadata
+ * is indexed in Redis, so any instance sharing the export directory can serve it and
+ * exports survive a restart.
+ */
 @Slf4j
 @Service
 public class ExportCacheService {
-    private final Map<String, ExportEntry> exportCache = new ConcurrentHashMap<>();
+
+    private static final String REDIS_KEY_PREFIX = "queueless:export:";
+    private static final String REDIS_INDEX_KEY = "queueless:exports";
+
+    private final ObjectProvider<StringRedisTemplate> redisTemplate;
+
+    @Value("${export.cache.memory-max-bytes:33554432}")
+    private long memoryMaxBytes = 32L * 1024 * 1024;
+
+    @Value("${export.cache.memory-entry-max-bytes:1048576}")
+    private long memoryEntryMaxBytes = 1024 * 1024;
+
+    @Value("${export.cache.disk-max-bytes:536870912}")
+    private long diskMaxBytes = 512L * 1024 * 1024;
+
+    @Value("${export.cache.ttl-minutes:1440}")
+    private long ttlMinutes = 1440;
+
+    @Value("${export.cache.dir:${java.io.tmpdir}/queueless-exports}")
+    private String directory = System.getProperty("java.io.tmpdir") + "/queueless-exports";
+
+    @Value("${export.cache.redis-index.enabled:false}")
+    private boolean redisIndexEnabled = false;
+
+    // Access-ordered, so iteration starts at the least recently used export
+    private final LinkedHashMap<String, ExportEntry> exportCache = new LinkedHashMap<>(16, 0.75f, true);
+    private volatile long memoryBytes;
+    private volatile long diskBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter spills;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
 
     @Data
     public static class ExportEntry {
+        // null once the export is on disk
         private byte[] data;
+        private Path file;
+        private long size;
         private String filename;
         private LocalDateTime createdAt;
         private String queueId;
@@ -24,29 +91,340 @@ public class ExportCacheService {
 
         public ExportEntry(byte[] data, String filename, String queueId, String reportType, String format) {
             this.data = data;
+            this.size = data.length;
             this.filename = filename;
             this.createdAt = LocalDateTime.now();
             this.queueId = queueId;
             this.reportType = reportType;
             this.format = format;
         }
+
+        public ExportEntry(Path file, long size, String filename, String queueId, String reportType, String format) {
+            this.file = file;
+            this.size = size;
+            this.filename = filename;
+            this.createdAt = LocalDateTime.now();
+            this.queueId = queueId;
+            this.reportType = reportType;
+            this.format = format;
+        }
+
+        public byte[] getData() {
+            if (data != null) {
+                return data;
+            }
+            try {
+                return Files.readAllBytes(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * The export as a response body; disk entries are streamed from the file.
+         */
+        public Resource toResource() {
+            return data != null ? new ByteArrayResource(data) : new FileSystemResource(file);
+        }
+
+        boolean inMemory() {
+            return data != null;
+        }
+    }
+
+    public ExportCacheService() {
+        this(new SimpleMeterRegistry(), null);
+    }
+
+    @Autowired
+    public ExportCacheService(MeterRegistry meterRegistry, ObjectProvider<StringRedisTemplate> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+        this.hits = Counter.builder("export.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("export.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.spills = Counter.builder("export.cache.spills").register(meterRegistry);
+        this.sizeEvictions = Counter.builder("export.cache.evictions").tag("reason", "size").register(meterRegistry);
+        this.expiredEvictions = Counter.builder("export.cache.evictions").tag("reason", "expired").register(meterRegistry);
+        Gauge.builder("export.cache.bytes", this, cache -> cache.memoryBytes).tag("tier", "memory").register(meterRegistry);
+        Gauge.builder("export.cache.bytes", this, cache -> cache.diskBytes).tag("tier", "disk").register(meterRegistry);
+        Gauge.builder("export.cache.entries", this, ExportCacheService::size).register(meterRegistry);
     }
 
     public void saveExport(String exportId, byte[] data, String filename, String queueId, String reportType, String format) {
-        exportCache.put(exportId, new ExportEntry(data, filename, queueId, reportType, format));
-        log.debug("Saved export: {} (queue: {}, format: {})", exportId, queueId, format);
+        ExportEntry entry = new ExportEntry(data, filename, queueId, reportType, format);
+        if (redisIndexEnabled || data.length > memoryEntryMaxBytes) {
+            // Large files are written before taking the lock
+            writeToDisk(entry);
+        }
+        store(exportId, entry);
+    }
+
+    /**
+     * Stores an export already written to {@code file}, a path from {@link #newExportFile}.
+     * The cache takes over the file and deletes it when the export is evicted.
+     */
+    public void saveExportFile(String exportId, Path file, String filename, String queueId, String reportType,
+                               String format) throws IOException {
+        store(exportId, new ExportEntry(file, Files.size(file), filename, queueId, reportType, format));
+    }
+
+    /**
+     * A new, not yet created file under {@code export.cache.dir} for an export to be written
+     * to and then passed to {@link #saveExportFile}.
+     */
+    public Path newExportFile() throws IOException {
+        Path dir = Files.createDirectories(Paths.get(directory));
+        // Export ids contain caller input, so the file gets its own name
+        return dir.resolve(UUID.randomUUID() + ".export");
+    }
+
+    private void store(String exportId, ExportEntry entry) {
+        synchronized (this) {
+            ExportEntry previous = exportCache.put(exportId, entry);
+            if (previous != null) {
+                release(previous);
+            }
+            account(entry, 1);
+            enforceLimits();
+        }
+        if (redisIndexEnabled && !entry.inMemory()) {
+            index(exportId, entry);
+        }
+        log.debug("Saved export: {} (queue: {}, format: {}, {} bytes, {})", exportId, entry.getQueueId(),
+                entry.getFormat(), entry.getSize(), entry.inMemory() ? "memory" : "disk");
     }
 
     public ExportEntry getExport(String exportId) {
-        return exportCache.get(exportId);
+        ExportEntry entry;
+        synchronized (this) {
+            entry = exportCache.get(exportId);
+            if (entry != null && (isExpired(entry) || !isAvailable(entry))) {
+                exportCache.remove(exportId);
+                release(entry);
+                expiredEvictions.increment();
+                entry = null;
+            }
+        }
+        if (entry == null && redisIndexEnabled) {
+            entry = loadFromIndex(exportId);
+        }
+        (entry != null ? hits : misses).increment();
+        return entry;
     }
 
     public void removeExport(String exportId) {
-        exportCache.remove(exportId);
+        ExportEntry removed;
+        synchronized (this) {
+            removed = exportCache.remove(exportId);
+            if (removed != null) {
+                release(removed);
+            }
+        }
+        if (redisIndexEnabled) {
+            unindex(exportId, removed != null ? removed : loadFromIndex(exportId));
+        }
         log.debug("Removed export: {}", exportId);
     }
 
+    /**
+     * A snapshot of the stored exports, including those indexed in Redis by other instances.
+     */
     public Map<String, ExportEntry> getAllExports() {
-        return exportCache;
+        Map<String, ExportEntry> all;
+        synchronized (this) {
+            all = new LinkedHashMap<>();
+            for (Map.Entry<String, ExportEntry> e : exportCache.entrySet()) {
+                if (!isExpired(e.getValue())) {
+                    all.put(e.getKey(), e.getValue());
+                }
+            }
+        }
+        if (redisIndexEnabled) {
+            Set<String> ids = redis().opsForSet().members(REDIS_INDEX_KEY);
+            if (ids != null) {
+                for (String id : ids) {
+                    if (!all.containsKey(id)) {
+                        ExportEntry entry = loadFromIndex(id);
+                        if (entry != null) {
+                            all.put(id, entry);
+                        } else {
+                            // The metadata expired in Redis
+                            redis().opsForSet().remove(REDIS_INDEX_KEY, id);
+                        }
+                    }
+                }
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Drops expired exports and deletes export files older than the TTL that no instance
+     * references any more (e.g. left over from before a restart).
+     */
+    public void evictExpired() {
+        int evicted = 0;
+        synchronized (this) {
+            Iterator<ExportEntry> iterator = exportCache.values().iterator();
+            while (iterator.hasNext()) {
+                ExportEntry entry = iterator.next();
+                if (isExpired(entry)) {
+                    iterator.remove();
+                    release(entry);
+                    expiredEvictions.increment();
+                    evicted++;
+                }
+            }
+        }
+
+        Path dir = Paths.get(directory);
+        if (Files.isDirectory(dir)) {
+            FileTime cutoff = FileTime.from(Instant.now().minus(Duration.ofMinutes(ttlMinutes)));
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : files.toList()) {
+                    if (Files.getLastModifiedTime(file).compareTo(cutoff) < 0) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Failed to clean export directory {}: {}", dir, e.getMessage());
+            }
+        }
+        if (evicted > 0) {
+            log.info("Evicted {} expired exports", evicted);
+        }
+    }
+
+    synchronized int size() {
+        return exportCache.size();
+    }
+
+    private boolean isExpired(ExportEntry entry) {
+        return entry.getCreatedAt().isBefore(LocalDateTime.now().minusMinutes(ttlMinutes));
+    }
+
+    private boolean isAvailable(ExportEntry entry) {
+        return entry.inMemory() || Files.exists(entry.getFile());
+    }
+
+    /**
+     * Spills least recently used in-memory exports to disk while memory is over its limit,
+     * then drops least recently used disk exports while the disk is over its limit.
+     */
+    private void enforceLimits() {
+        Iterator<ExportEntry> iterator = exportCache.values().iterator();
+        while (memoryBytes > memoryMaxBytes && iterator.hasNext()) {
+            ExportEntry entry = iterator.next();
+            if (!entry.inMemory()) {
+                continue;
+            }
+            account(entry, -1);
+            if (writeToDisk(entry)) {
+                spills.increment();
+                account(entry, 1);
+            } else {
+                iterator.remove();
+                sizeEvictions.increment();
+            }
+        }
+
+        iterator = exportCache.values().iterator();
+        while (diskBytes > diskMaxBytes && iterator.hasNext()) {
+            ExportEntry entry = iterator.next();
+            if (!entry.inMemory()) {
+                iterator.remove();
+                release(entry);
+                sizeEvictions.increment();
+            }
+        }
+    }
+
+    private boolean writeToDisk(ExportEntry entry) {
+        try {
+            Path file = newExportFile();
+            Files.write(file, entry.getData(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            entry.setFile(file);
+            entry.setData(null);
+            return true;
+        } catch (IOException e) {
+            log.warn("Failed to write export to {}: {}", directory, e.getMessage());
+            return false;
+        }
+    }
+
+    private void account(ExportEntry entry, int sign) {
+        if (entry.inMemory()) {
+            memoryBytes += sign * entry.getSize();
+        } else {
+            diskBytes += sign * entry.getSize();
+        }
+    }
+
+    private void release(ExportEntry entry) {
+        account(entry, -1);
+        if (!entry.inMemory()) {
+            try {
+                Files.deleteIfExists(entry.getFile());
+            } catch (IOException e) {
+                log.warn("Failed to delete export file {}: {}", entry.getFile(), e.getMessage());
+            }
+        }
+    }
+
+    // ==================== REDIS INDEX ====================
+
+    private StringRedisTemplate redis() {
+        return redisTemplate.getObject();
+    }
+
+    private void index(String exportId, ExportEntry entry) {
+        String key = REDIS_KEY_PREFIX + exportId;
+        Map<String, String> fields = new HashMap<>();
+        fields.put("file", entry.getFile().toString());
+        fields.put("size", String.valueOf(entry.getSize()));
+        fields.put("filename", entry.getFilename());
+        fields.put("createdAt", entry.getCreatedAt().toString());
+        fields.put("queueId", Objects.toString(entry.getQueueId(), ""));
+        fields.put("reportType", Objects.toString(entry.getReportType(), ""));
+        fields.put("format", Objects.toString(entry.getFormat(), ""));
+        try {
+            redis().opsForHash().putAll(key, fields);
+            redis().expire(key, Duration.ofMinutes(ttlMinutes));
+            redis().opsForSet().add(REDIS_INDEX_KEY, exportId);
+        } catch (Exception e) {
+            log.warn("Failed to index export {} in Redis: {}", exportId, e.getMessage());
+        }
+    }
+
+    private void unindex(String exportId, ExportEntry entry) {
+        try {
+            redis().delete(REDIS_KEY_PREFIX + exportId);
+            redis().opsForSet().remove(REDIS_INDEX_KEY, exportId);
+            if (entry != null && !entry.inMemory()) {
+                Files.deleteIfExists(entry.getFile());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to remove export {} from Redis index: {}", exportId, e.getMessage());
+        }
+    }
+
+    private ExportEntry loadFromIndex(String exportId) {
+        try {
+            Map<Object, Object> fields = redis().opsForHash().entries(REDIS_KEY_PREFIX + exportId);
+            if (fields.isEmpty()) {
+                return null;
+            }
+            Path file = Paths.get((String) fields.get("file"));
+            if (!Files.exists(file)) {
+                return null;
+            }
+            ExportEntry entry = new ExportEntry(file, Long.parseLong((String) fields.get("size")),
+                    (String) fields.get("filename"), (String) fields.get("queueId"), (String) fields.get("reportType"),
+                    (String) fields.get("format"));
+            entry.setCreatedAt(LocalDateTime.parse((String) fields.get("createdAt")));
+            return entry;
+        } catch (Exception e) {
+            log.warn("Failed to read export {} from Redis index: {}", exportId, e.getMessage());
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
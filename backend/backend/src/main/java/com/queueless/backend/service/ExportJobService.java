@@ -0,0 +1,351 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.enums.ExportJobStatus;
+import com.queueless.backend.exception.ExportBusyException;
+import com.queueless.backend.exception.ResourceNotFoundException;
+import com.queueless.backend.model.ExportJob;
+import com.queueless.backend.model.ExportSnapshotToken;
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.model.QueueToken;
+import com.queueless.backend.repository.ExportJobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders exports off the request thread. Jobs run on a fixed-size pool with a bounded
+ * backlog; a submit beyond that is rejected with {@link ExportBusyException} instead of
+ * queueing without limit. A job streams its file to {@code export.cache.dir} and hands it to
+ * {@link ExportCacheService}; every state change is stored in {@code export_jobs} and sent to
+ * the owner on {@code /user/queue/export-jobs}.
+ * <p>
+ * A running job holds a lease of {@code export.jobs.lease-minutes}. A reset export is stored
+ * with its queue snapshot before the queue is cleared, so when its worker dies another one
+ * renders it again once the lease runs out; other interrupted jobs are marked FAILED and can
+ * simply be requested again.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExportJobService {
+
+    private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+
+    private final ExportCacheService exportCacheService;
+    private final ExportService exportService;
+    private final ExportJobRepository exportJobRepository;
+    private final MongoTemplate mongoTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    // Exports rendered at the same time
+    @Value("${export.jobs.concurrency:2}")
+    private int concurrency = 2;
+
+    // Jobs waiting for a free worker before submits are rejected
+    @Value("${export.jobs.queue-capacity:20}")
+    private int queueCapacity = 20;
+
+    // How long finished jobs stay visible to the status endpoints
+    @Value("${export.jobs.retention-minutes:60}")
+    private long retentionMinutes = 60;
+
+    // How long a job may wait and render before it counts as interrupted
+    @Value("${export.jobs.lease-minutes:30}")
+    private long leaseMinutes = 30;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Writes the export file to {@code out}; runs on an export worker.
+     */
+    @FunctionalInterface
+    public interface ExportTask {
+        void render(OutputStream out) throws Exception;
+    }
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threads = new AtomicInteger();
+        executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "export-job-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void stop() {
+        if (executor != null) {
+            // Interrupted jobs are failed, or rendered again, after their lease
+            executor.shutdownNow();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+        for (Class<?> type : List.of(ExportJob.class, ExportSnapshotToken.class)) {
+            try {
+                IndexOperations indexOps = mongoTemplate.indexOps(type);
+                for (IndexDefinition index : resolver.resolveIndexFor(type)) {
+                    // The snapshot is an embedded copy of a queue; the queue's own indexes do not apply
+                    if (index.getIndexKeys().keySet().stream().noneMatch(key -> key.startsWith("snapshot."))) {
+                        indexOps.ensureIndex(index);
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Failed to ensure indexes for {}: {}", type.getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Queues an export and returns its job straight away.
+     *
+     * @throws ExportBusyException if all workers are busy and the backlog is full
+     */
+    public ExportJob submit(String ownerId, String filename, String format, String queueId, String reportType, ExportTask task) {
+        ExportJob job = newJob(ownerId, filename, format, queueId, reportType);
+        exportJobRepository.save(job);
+        execute(job, task);
+        return job;
+    }
+
+    /**
+     * Queues the PDF report of a queue about to be reset. The snapshot, tokens included, is
+     * stored before this returns, so the queue can be cleared straight after.
+     *
+     * @throws ExportBusyException if all workers are busy and the backlog is full
+     */
+    public ExportJob submitQueueSnapshot(String ownerId, String filename, Queue snapshot, String reportType,
+                                         Boolean includeUserDetails) {
+        ExportJob job = newJob(ownerId, filename, "pdf", snapshot.getId(), reportType);
+        job.setIncludeUserDetails(includeUserDetails);
+        List<QueueToken> tokens = snapshot.getTokens() != null ? snapshot.getTokens() : List.of();
+        List<ExportSnapshotToken> entries = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            entries.add(ExportSnapshotToken.of(job.getId(), i, tokens.get(i)));
+        }
+        snapshot.setTokens(new ArrayList<>());
+        job.setSnapshot(snapshot);
+        // Tokens first, so a stored job always has its complete snapshot
+        if (!entries.isEmpty()) {
+            mongoTemplate.insert(entries, ExportSnapshotToken.class);
+        }
+        exportJobRepository.save(job);
+        try {
+            execute(job, out -> renderSnapshot(job, out));
+        } catch (ExportBusyException e) {
+            removeSnapshot(job);
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Returns a job of {@code ownerId}; other users' jobs are reported as not found.
+     */
+    public ExportJob getJob(String jobId, String ownerId) {
+        return exportJobRepository.findById(jobId)
+                .filter(job -> Objects.equals(job.getOwnerId(), ownerId))
+                .orElseThrow(() -> new ResourceNotFoundException("Export job not found: " + jobId));
+    }
+
+    public List<ExportJob> getJobs(String ownerId) {
+        return exportJobRepository.findByOwnerIdOrderByCreatedAtDesc(ownerId);
+    }
+
+    /**
+     * Takes over jobs whose worker died: a reset export is rendered again from its snapshot,
+     * any other job is marked FAILED. Also drops jobs finished more than
+     * {@code export.jobs.retention-minutes} ago.
+     */
+    @Scheduled(fixedDelayString = "${export.jobs.recovery-interval-ms:60000}")
+    public void recoverInterrupted() {
+        pruneFinished();
+        ExportJob job;
+        while ((job = claimInterrupted()) != null) {
+            if (job.getSnapshot() == null) {
+                log.warn("Export job {} was interrupted", job.getId());
+                fail(job, "Export was interrupted, please try again");
+                continue;
+            }
+            ExportJob resumed = job;
+            log.info("Rendering interrupted reset export job {} again", resumed.getId());
+            try {
+                executor.execute(() -> run(resumed, out -> renderSnapshot(resumed, out)));
+            } catch (RejectedExecutionException e) {
+                // No worker free; leave the lease expired so the next run tries again
+                mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(resumed.getId())),
+                        new Update().set("leaseUntil", LocalDateTime.now()), ExportJob.class);
+                return;
+            }
+        }
+    }
+
+    private ExportJob newJob(String ownerId, String filename, String format, String queueId, String reportType) {
+        ExportJob job = new ExportJob();
+        job.setId(UUID.randomUUID().toString());
+        job.setOwnerId(ownerId);
+        job.setFilename(filename);
+        job.setFormat(format);
+        job.setQueueId(queueId);
+        job.setReportType(reportType);
+        job.setExportId("export-" + System.currentTimeMillis() + "-" + (queueId != null ? queueId : job.getId()));
+        job.setDownloadUrl("/export/exports/" + job.getExportId());
+        job.setStatus(ExportJobStatus.QUEUED);
+        job.setCreatedAt(LocalDateTime.now());
+        job.setLeaseUntil(job.getCreatedAt().plusMinutes(leaseMinutes));
+        return job;
+    }
+
+    private void execute(ExportJob job, ExportTask task) {
+        try {
+            executor.execute(() -> run(job, task));
+        } catch (RejectedExecutionException e) {
+            exportJobRepository.deleteById(job.getId());
+            log.warn("Export job rejected for {}: {} running, {} waiting", job.getOwnerId(),
+                    executor.getActiveCount(), executor.getQueue().size());
+            throw new ExportBusyException("Too many exports in progress, please try again shortly");
+        }
+        log.info("Export job {} queued for {} ({} {})", job.getId(), job.getOwnerId(), job.getReportType(), job.getFormat());
+        publish(job);
+    }
+
+    private void run(ExportJob job, ExportTask task) {
+        job.setLeaseUntil(LocalDateTime.now().plusMinutes(leaseMinutes));
+        update(job, ExportJobStatus.RUNNING, 10);
+        Path file = null;
+        boolean interrupted = false;
+        try {
+            file = exportCacheService.newExportFile();
+            try (OutputStream out = new BufferedOutputStream(
+                    Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))) {
+                task.render(out);
+            }
+            update(job, ExportJobStatus.RUNNING, 90);
+            long size = Files.size(file);
+            exportCacheService.saveExportFile(job.getExportId(), file, job.getFilename(), job.getQueueId(),
+                    job.getReportType(), job.getFormat());
+            // The cache owns the file now
+            file = null;
+            job.setFinishedAt(LocalDateTime.now());
+            job.setLeaseUntil(null);
+            update(job, ExportJobStatus.COMPLETED, 100);
+            log.info("Export job {} completed ({} bytes)", job.getId(), size);
+        } catch (Exception e) {
+            if (job.getSnapshot() != null && executor.isShutdown()) {
+                // Stopped by a shutdown, not by the export; another worker renders it after the lease
+                interrupted = true;
+                log.warn("Reset export job {} interrupted by shutdown", job.getId());
+            } else {
+                log.error("Export job {} failed", job.getId(), e);
+                fail(job, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            }
+        } finally {
+            deleteQuietly(file);
+        }
+        if (job.getSnapshot() != null && !interrupted) {
+            removeSnapshot(job);
+        }
+    }
+
+    private void renderSnapshot(ExportJob job, OutputStream out) throws Exception {
+        Query tokens = new Query(Criteria.where("jobId").is(job.getId())).with(Sort.by("seq"));
+        exportService.streamQueueToPdf(job.getSnapshot(), job.getReportType(), job.getIncludeUserDetails(),
+                () -> mongoTemplate.stream(tokens, ExportSnapshotToken.class).map(ExportSnapshotToken::getToken), out);
+    }
+
+    private ExportJob claimInterrupted() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(Criteria.where("status").in(ExportJobStatus.QUEUED, ExportJobStatus.RUNNING)
+                .and("leaseUntil").lt(now));
+        Update update = new Update().set("leaseUntil", now.plusMinutes(leaseMinutes));
+        return mongoTemplate.findAndModify(query, update, RETURN_NEW, ExportJob.class);
+    }
+
+    private void fail(ExportJob job, String error) {
+        job.setError(error);
+        job.setFinishedAt(LocalDateTime.now());
+        job.setLeaseUntil(null);
+        update(job, ExportJobStatus.FAILED, job.getProgress());
+    }
+
+    private void update(ExportJob job, ExportJobStatus status, int progress) {
+        job.setStatus(status);
+        job.setProgress(progress);
+        try {
+            exportJobRepository.save(job);
+        } catch (Exception e) {
+            log.warn("Failed to store export job {}: {}", job.getId(), e.getMessage());
+        }
+        publish(job);
+    }
+
+    private void publish(ExportJob job) {
+        try {
+            messagingTemplate.convertAndSendToUser(job.getOwnerId(), "/queue/export-jobs", job);
+        } catch (Exception e) {
+            log.warn("Failed to send export job update {}: {}", job.getId(), e.getMessage());
+        }
+    }
+
+    private void removeSnapshot(ExportJob job) {
+        try {
+            mongoTemplate.remove(new Query(Criteria.where("jobId").is(job.getId())), ExportSnapshotToken.class);
+        } catch (Exception e) {
+            log.warn("Failed to remove the snapshot of export job {}: {}", job.getId(), e.getMessage());
+        }
+    }
+
+    private void pruneFinished() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        List<ExportJob> finished = exportJobRepository.findByFinishedAtBefore(cutoff);
+        if (!finished.isEmpty()) {
+            exportJobRepository.deleteAll(finished);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (Exception e) {
+            log.warn("Failed to delete export file {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -3,23 +3,35 @@ package com.queueless.backend.service;
 import com.itextpdf.text.*;
 import com.itextpdf.text.pdf.*;
 import com.queueless.backend.dto.AdminReportDTO;
+import com.queueless.backend.exception.ResourceNotFoundException;
 import com.queueless.backend.model.Queue;
 import com.queueless.backend.model.QueueToken;
-import com.queueless.backend.enums.TokenStatus;
+import com.queueless.backend.model.TokenHistory;
+import com.queueless.backend.repository.QueueRepository;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import com.queueless.backend.dto.AdminReportDTO.PlaceSummaryDTO;
 import org.apache.poi.ss.usermodel.*;
 import com.itextpdf.text.*;
@@ -27,11 +39,17 @@ import com.itextpdf.text.pdf.*;
 /**
  * Enhanced service class for exporting queue data to PDF and Excel formats.
  * Produces professional, well-structured reports with comprehensive statistics.
+ * Documents are written straight to an output stream: Excel through SXSSF with a bounded
+ * row window and PDF tables flushed in chunks, so the stream* methods can export large
+ * queues with tokens read from a cursor in constant memory.
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class ExportService {
 
+    private static final List<String> REPORT_TYPES = List.of("tokens", "statistics", "full");
+
     // Font definitions for PDF
     private static final com.itextpdf.text.Font PDF_TITLE_FONT = new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.HELVETICA, 18, com.itextpdf.text.Font.BOLD, BaseColor.DARK_GRAY);
     private static final com.itextpdf.text.Font PDF_HEADER_FONT = new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.HELVETICA, 12, com.itextpdf.text.Font.BOLD, BaseColor.WHITE);
@@ -44,10 +62,95 @@ public class ExportService {
     private static final BaseColor HEADER_BG_COLOR = new BaseColor(79, 129, 189);
     private static final BaseColor SUBHEADER_BG_COLOR = new BaseColor(220, 230, 241);
 
+    private final QueueRepository queueRepository;
+    private final TokenHistoryService tokenHistoryService;
+
+    // Rows kept in memory per Excel sheet; older rows are flushed to a temp file
+    @Value("${export.excel.row-window:100}")
+    private int excelRowWindow = 100;
+
+    // Token rows after which a PDF table is written out and its rows released
+    @Value("${export.pdf.flush-rows:500}")
+    private int pdfFlushRows = 500;
+
     /**
-     * Exports queue data to a professionally formatted PDF document.
+     * Exports queue data to a professionally formatted PDF document. Only the tokens in
+     * {@code queue} are included; see {@link TokenHistoryService#findArchivedTokens}.
      */
     public byte[] exportQueueToPdf(Queue queue, String reportType, Boolean includeUserDetails) throws DocumentException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeQueuePdf(queue, reportType, includeUserDetails, () -> queue.getTokens().stream(), outputStream);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Exports queue data to a professionally formatted Excel document. Only the tokens in
+     * {@code queue} are included; see {@link TokenHistoryService#findArchivedTokens}.
+     */
+    public byte[] exportQueueToExcel(Queue queue, String reportType, Boolean includeUserDetails) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeQueueExcel(queue, reportType, includeUserDetails, () -> queue.getTokens().stream(), outputStream);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Writes the PDF report of a queue loaded with {@link #getQueueForExport} to {@code out},
+     * reading its tokens, and those already archived, through cursors.
+     */
+    public void streamQueueToPdf(Queue queue, String reportType, Boolean includeUserDetails, OutputStream out) throws DocumentException {
+        writeQueuePdf(queue, reportType, includeUserDetails, withArchivedTokens(queue), out);
+    }
+
+    /**
+     * Writes the Excel report of a queue loaded with {@link #getQueueForExport} to {@code out},
+     * reading its tokens, and those already archived, through cursors.
+     */
+    public void streamQueueToExcel(Queue queue, String reportType, Boolean includeUserDetails, OutputStream out) throws IOException {
+        writeQueueExcel(queue, reportType, includeUserDetails, withArchivedTokens(queue), out);
+    }
+
+    /**
+     * Writes the PDF report of {@code queue} to {@code out} with the tokens {@code tokens}
+     * supplies, for a queue that no longer holds them, such as the snapshot of a reset queue.
+     */
+    public void streamQueueToPdf(Queue queue, String reportType, Boolean includeUserDetails,
+                                 Supplier<Stream<QueueToken>> tokens, OutputStream out) throws DocumentException {
+        writeQueuePdf(queue, reportType, includeUserDetails, tokens, out);
+    }
+
+    // Finished tokens leave the queue document after queue.history.archive-after-minutes
+    private Supplier<Stream<QueueToken>> withArchivedTokens(Queue queue) {
+        return () -> {
+            Set<String> liveIds = new HashSet<>();
+            Stream<QueueToken> live = queueRepository.streamTokens(queue.getId())
+                    .peek(token -> liveIds.add(TokenHistory.idFor(token)));
+            // The history is only queried once the live tokens are read, so liveIds is complete
+            return Stream.concat(live, Stream.of(queue)
+                    .flatMap(q -> tokenHistoryService.streamArchivedTokens(q, liveIds)));
+        };
+    }
+
+    /**
+     * Loads a queue without its tokens, for the stream* exports.
+     */
+    public Queue getQueueForExport(String queueId) {
+        return queueRepository.findWithoutTokensById(queueId)
+                .orElseThrow(() -> new ResourceNotFoundException("Queue not found with id: " + queueId));
+    }
+
+    /**
+     * Rejects unknown report types before a streamed export commits the response.
+     */
+    public void validateReportType(String reportType) {
+        String type = reportType != null ? reportType.toLowerCase() : "";
+        if (!REPORT_TYPES.contains(type)) {
+            log.error("Invalid report type '{}' requested for export", reportType);
+            throw new IllegalArgumentException("Invalid report type: " + reportType);
+        }
+    }
+
+    private void writeQueuePdf(Queue queue, String reportType, Boolean includeUserDetails,
+                               Supplier<Stream<QueueToken>> tokens, OutputStream out) throws DocumentException {
         // 1. Validate Queue first to prevent NPE in logs
         if (queue == null) {
             log.error("Attempted PDF export with a null Queue object.");
@@ -55,48 +158,52 @@ public class ExportService {
         }
 
         // 2. Validate Report Type outside try-catch so it doesn't get wrapped
-        String type = reportType != null ? reportType.toLowerCase() : "";
-        if (!List.of("tokens", "statistics", "full").contains(type)) {
-            log.error("Invalid report type '{}' requested for PDF export", reportType);
-            throw new IllegalArgumentException("Invalid report type: " + reportType);
-        }
+        validateReportType(reportType);
+        String type = reportType.toLowerCase();
 
         log.info("Starting PDF export for Queue ID: {} with report type: {}", queue.getId(), reportType);
 
         Document document = new Document(PageSize.A4.rotate());
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
 
         try {
-            PdfWriter writer = PdfWriter.getInstance(document, outputStream);
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            // The caller owns the stream
+            writer.setCloseStream(false);
             HeaderFooter event = new HeaderFooter(queue.getServiceName());
             writer.setPageEvent(event);
 
             document.open();
             addTitleSection(document, queue);
-            addSummarySection(document, queue);
 
+            // The totals are gathered while the rows are written, so the summary follows them
+            TokenStats stats = new TokenStats();
             switch (type) {
-                case "tokens": addTokensSection(document, queue, includeUserDetails); break;
-                case "statistics": addStatisticsSection(document, queue); break;
+                case "tokens":
+                    addTokensSection(document, tokens, stats, includeUserDetails);
+                    addSummarySection(document, queue, stats);
+                    break;
+                case "statistics":
+                    stats = TokenStats.of(tokens);
+                    addSummarySection(document, queue, stats);
+                    addStatisticsSection(document, queue, stats);
+                    break;
                 case "full":
-                    addTokensSection(document, queue, includeUserDetails);
+                    addTokensSection(document, tokens, stats, includeUserDetails);
+                    addSummarySection(document, queue, stats);
                     document.newPage();
-                    addStatisticsSection(document, queue);
+                    addStatisticsSection(document, queue, stats);
                     break;
             }
 
             document.close();
-            return outputStream.toByteArray();
         } catch (Exception e) {
             log.error("Error during PDF generation for Queue ID: {}", queue.getId(), e);
             throw new DocumentException("Failed to generate PDF: " + e.getMessage(), e);
         }
     }
 
-    /**
-     * Exports queue data to a professionally formatted Excel document.
-     */
-    public byte[] exportQueueToExcel(Queue queue, String reportType, Boolean includeUserDetails) throws IOException {
+    private void writeQueueExcel(Queue queue, String reportType, Boolean includeUserDetails,
+                                 Supplier<Stream<QueueToken>> tokens, OutputStream out) throws IOException {
         // 1. Validate Queue first
         if (queue == null) {
             log.error("Attempted Excel export with a null Queue object.");
@@ -104,28 +211,23 @@ public class ExportService {
         }
 
         // 2. Validate Report Type outside try-catch
-        String type = reportType != null ? reportType.toLowerCase() : "";
-        if (!List.of("tokens", "statistics", "full").contains(type)) {
-            log.error("Invalid report type '{}' requested for Excel export", reportType);
-            throw new IllegalArgumentException("Invalid report type: " + reportType);
-        }
+        validateReportType(reportType);
+        String type = reportType.toLowerCase();
 
         log.info("Starting Excel export for Queue ID: {} with report type: {}", queue.getId(), reportType);
 
-        try (Workbook workbook = new XSSFWorkbook();
-             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-
-            switch (type) {
-                case "tokens": createTokensSheet(workbook, queue, includeUserDetails); break;
-                case "statistics": createStatisticsSheet(workbook, queue); break;
-                case "full":
-                    createTokensSheet(workbook, queue, includeUserDetails);
-                    createStatisticsSheet(workbook, queue);
-                    break;
-            }
-
-            workbook.write(outputStream);
-            return outputStream.toByteArray();
+        try {
+            writeWorkbook(out, workbook -> {
+                switch (type) {
+                    case "tokens": createTokensSheet(workbook, queue, tokens, new TokenStats(), includeUserDetails); break;
+                    case "statistics": createStatisticsSheet(workbook, queue, TokenStats.of(tokens)); break;
+                    case "full":
+                        TokenStats stats = new TokenStats();
+                        createTokensSheet(workbook, queue, tokens, stats, includeUserDetails);
+                        createStatisticsSheet(workbook, queue, stats);
+                        break;
+                }
+            });
         } catch (Exception e) {
             log.error("Error during Excel generation for Queue ID: {}", queue.getId(), e);
             throw new IOException("Failed to generate Excel: " + e.getMessage(), e);
@@ -169,13 +271,13 @@ public class ExportService {
         table.addCell(valueCell);
     }
 
-    private void addSummarySection(Document document, Queue queue) throws DocumentException {
+    private void addSummarySection(Document document, Queue queue, TokenStats stats) throws DocumentException {
         // Calculate statistics
-        List<QueueToken> tokens = queue.getTokens();
-        long totalTokens = tokens.size();
-        long waitingCount = tokens.stream().filter(t -> t.getStatus().equals(TokenStatus.WAITING.toString())).count();
-        long inServiceCount = tokens.stream().filter(t -> t.getStatus().equals(TokenStatus.IN_SERVICE.toString())).count();
-        long completedCount = tokens.stream().filter(t -> t.getStatus().equals(TokenStatus.COMPLETED.toString())).count();
+        Queue.TokenCounters counters = queue.currentCounters();
+        long totalTokens = stats.total;
+        long waitingCount = counters.getWaiting();
+        long inServiceCount = counters.getInService();
+        long completedCount = counters.getCompleted();
 
         Paragraph summaryHeader = new Paragraph("Summary Statistics", PDF_SUBHEADER_FONT);
         summaryHeader.setSpacingAfter(10);
@@ -209,20 +311,22 @@ public class ExportService {
         table.addCell(cell);
     }
 
-    private void addTokensSection(Document document, Queue queue, Boolean includeUserDetails) throws DocumentException {
+    /**
+     * Writes the token table, adding every row to {@code stats} as it goes.
+     */
+    private void addTokensSection(Document document, Supplier<Stream<QueueToken>> tokens, TokenStats stats,
+                                  Boolean includeUserDetails) throws DocumentException {
         Paragraph tokensHeader = new Paragraph("Token Details", PDF_SUBHEADER_FONT);
         tokensHeader.setSpacingAfter(10);
         document.add(tokensHeader);
 
-        if (queue.getTokens().isEmpty()) {
-            document.add(new Paragraph("No tokens found in this queue.", PDF_NORMAL_FONT));
-            return;
-        }
-
         // Create tokens table
         int columnCount = includeUserDetails ? 9 : 6;
         PdfPTable table = new PdfPTable(columnCount);
         table.setWidthPercentage(100);
+        // Written out in chunks below, with the header repeated on every page
+        table.setComplete(false);
+        table.setHeaderRows(1);
 
         // Table headers
         String[] headers = {"Token ID", "User ID", "Status", "Issue Time", "Service Time", "Complete Time"};
@@ -243,10 +347,24 @@ public class ExportService {
         }
 
         // Table data
-        for (QueueToken token : queue.getTokens()) {
-            addTokenRow(table, token, includeUserDetails);
+        try (Stream<QueueToken> stream = tokens.get()) {
+            Iterator<QueueToken> iterator = stream.iterator();
+            int rows = 0;
+            while (iterator.hasNext()) {
+                QueueToken token = iterator.next();
+                stats.add(token);
+                addTokenRow(table, token, includeUserDetails);
+                if (++rows % pdfFlushRows == 0) {
+                    document.add(table);
+                }
+            }
         }
 
+        if (stats.total == 0) {
+            document.add(new Paragraph("No tokens found in this queue.", PDF_NORMAL_FONT));
+            return;
+        }
+        table.setComplete(true);
         document.add(table);
     }
 
@@ -276,25 +394,20 @@ public class ExportService {
         return cell;
     }
 
-    private void addStatisticsSection(Document document, Queue queue) throws DocumentException {
+    private void addStatisticsSection(Document document, Queue queue, TokenStats stats) throws DocumentException {
         Paragraph statsHeader = new Paragraph("Detailed Statistics", PDF_SUBHEADER_FONT);
         statsHeader.setSpacingAfter(10);
         document.add(statsHeader);
 
-        // Calculate detailed statistics
-        List<QueueToken> tokens = queue.getTokens();
-        Map<String, Long> statusCounts = tokens.stream()
-                .collect(Collectors.groupingBy(QueueToken::getStatus, Collectors.counting()));
-
-        long avgWaitTime = calculateAverageWaitTime(tokens);
+        long avgWaitTime = stats.averageWaitMinutes();
 
         PdfPTable statsTable = new PdfPTable(2);
         statsTable.setWidthPercentage(50);
         statsTable.setHorizontalAlignment(Element.ALIGN_LEFT);
 
-        addStatRow(statsTable, "Total Tokens", String.valueOf(tokens.size()));
+        addStatRow(statsTable, "Total Tokens", String.valueOf(stats.total));
 
-        for (Map.Entry<String, Long> entry : statusCounts.entrySet()) {
+        for (Map.Entry<String, Long> entry : stats.statusCounts.entrySet()) {
             addStatRow(statsTable, entry.getKey() + " Tokens", String.valueOf(entry.getValue()));
         }
 
@@ -316,25 +429,45 @@ public class ExportService {
         table.addCell(valueCell);
     }
 
-    private long calculateAverageWaitTime(List<QueueToken> tokens) {
-        long totalWaitTime = 0;
-        int count = 0;
+    /**
+     * Token totals of a report, gathered while the rows are written, or in a pass of their own
+     * when the report has no rows.
+     */
+    private static final class TokenStats {
+        private long total;
+        private final Map<String, Long> statusCounts = new HashMap<>();
+        private long totalWaitTime;
+        private int waitCount;
+
+        static TokenStats of(Supplier<Stream<QueueToken>> tokens) {
+            TokenStats stats = new TokenStats();
+            try (Stream<QueueToken> stream = tokens.get()) {
+                stream.forEach(stats::add);
+            }
+            return stats;
+        }
 
-        for (QueueToken token : tokens) {
+        private void add(QueueToken token) {
+            total++;
+            statusCounts.merge(token.getStatus(), 1L, Long::sum);
             if (token.getServedAt() != null && token.getIssuedAt() != null) {
-                long waitTime = java.time.Duration.between(token.getIssuedAt(), token.getServedAt()).toMinutes();
-                totalWaitTime += waitTime;
-                count++;
+                totalWaitTime += java.time.Duration.between(token.getIssuedAt(), token.getServedAt()).toMinutes();
+                waitCount++;
             }
         }
 
-        return count > 0 ? totalWaitTime / count : 0;
+        long averageWaitMinutes() {
+            return waitCount > 0 ? totalWaitTime / waitCount : 0;
+        }
     }
 
     // ==================== EXCEL HELPER METHODS ====================
 
-    private void createTokensSheet(Workbook workbook, Queue queue, Boolean includeUserDetails) {
-        Sheet sheet = workbook.createSheet("Token Details");
+    private void createTokensSheet(SXSSFWorkbook workbook, Queue queue, Supplier<Stream<QueueToken>> tokens,
+                                   TokenStats stats, Boolean includeUserDetails) {
+        SXSSFSheet sheet = workbook.createSheet("Token Details");
+        // Column widths are measured as rows leave the window
+        sheet.trackAllColumnsForAutoSizing();
 
         // Create header style
         CellStyle headerStyle = createHeaderStyle(workbook);
@@ -370,26 +503,12 @@ public class ExportService {
 
         // Add data rows
         int rowNum = 4;
-        for (QueueToken token : queue.getTokens()) {
-            Row row = sheet.createRow(rowNum++);
-
-            row.createCell(0).setCellValue(token.getTokenId());
-            row.createCell(1).setCellValue(token.getUserId());
-            row.createCell(2).setCellValue(token.getStatus());
-            row.createCell(3).setCellValue(formatDate(token.getIssuedAt()));
-            row.createCell(4).setCellValue(formatDate(token.getServedAt()));
-            row.createCell(5).setCellValue(formatDate(token.getCompletedAt()));
-
-            if (includeUserDetails) {
-                if (token.getUserDetails() != null) {
-                    row.createCell(6).setCellValue(token.getUserDetails().getPurpose());
-                    row.createCell(7).setCellValue(token.getUserDetails().getCondition());
-                    row.createCell(8).setCellValue(token.getUserDetails().getNotes());
-                } else {
-                    row.createCell(6).setCellValue("");
-                    row.createCell(7).setCellValue("");
-                    row.createCell(8).setCellValue("");
-                }
+        try (Stream<QueueToken> stream = tokens.get()) {
+            Iterator<QueueToken> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                QueueToken token = iterator.next();
+                stats.add(token);
+                fillTokenRow(sheet.createRow(rowNum++), token, includeUserDetails);
             }
         }
 
@@ -399,8 +518,30 @@ public class ExportService {
         }
     }
 
-    private void createStatisticsSheet(Workbook workbook, Queue queue) {
-        Sheet sheet = workbook.createSheet("Statistics");
+    private void fillTokenRow(Row row, QueueToken token, Boolean includeUserDetails) {
+        row.createCell(0).setCellValue(token.getTokenId());
+        row.createCell(1).setCellValue(token.getUserId());
+        row.createCell(2).setCellValue(token.getStatus());
+        row.createCell(3).setCellValue(formatDate(token.getIssuedAt()));
+        row.createCell(4).setCellValue(formatDate(token.getServedAt()));
+        row.createCell(5).setCellValue(formatDate(token.getCompletedAt()));
+
+        if (includeUserDetails) {
+            if (token.getUserDetails() != null) {
+                row.createCell(6).setCellValue(token.getUserDetails().getPurpose());
+                row.createCell(7).setCellValue(token.getUserDetails().getCondition());
+                row.createCell(8).setCellValue(token.getUserDetails().getNotes());
+            } else {
+                row.createCell(6).setCellValue("");
+                row.createCell(7).setCellValue("");
+                row.createCell(8).setCellValue("");
+            }
+        }
+    }
+
+    private void createStatisticsSheet(SXSSFWorkbook workbook, Queue queue, TokenStats stats) {
+        SXSSFSheet sheet = workbook.createSheet("Statistics");
+        sheet.trackAllColumnsForAutoSizing();
 
         // Create styles
         CellStyle headerStyle = createHeaderStyle(workbook);
@@ -421,18 +562,13 @@ public class ExportService {
         summaryHeaderRow.getCell(0).setCellStyle(headerStyle);
         summaryHeaderRow.getCell(1).setCellStyle(headerStyle);
 
-        // Calculate statistics
-        List<QueueToken> tokens = queue.getTokens();
-        Map<String, Long> statusCounts = tokens.stream()
-                .collect(Collectors.groupingBy(QueueToken::getStatus, Collectors.counting()));
-
-        long avgWaitTime = calculateAverageWaitTime(tokens);
+        long avgWaitTime = stats.averageWaitMinutes();
 
         // Add summary data
         int rowNum = 3;
-        addStatRow(sheet, rowNum++, "Total Tokens", String.valueOf(tokens.size()), boldStyle);
+        addStatRow(sheet, rowNum++, "Total Tokens", String.valueOf(stats.total), boldStyle);
 
-        for (Map.Entry<String, Long> entry : statusCounts.entrySet()) {
+        for (Map.Entry<String, Long> entry : stats.statusCounts.entrySet()) {
             addStatRow(sheet, rowNum++, entry.getKey() + " Tokens", String.valueOf(entry.getValue()), null);
         }
 
@@ -631,8 +767,10 @@ public class ExportService {
 
     public byte[] exportAdminReportToExcel(AdminReportDTO report) throws IOException {
         log.info("Generating admin report Excel for admin: {}", report.getAdminEmail());
-        try (Workbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            Sheet sheet = workbook.createSheet("Admin Report");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeWorkbook(out, workbook -> {
+            SXSSFSheet sheet = workbook.createSheet("Admin Report");
+            sheet.trackAllColumnsForAutoSizing();
 
             // Title style
             CellStyle titleStyle = workbook.createCellStyle();
@@ -726,9 +864,22 @@ public class ExportService {
             for (int i = 0; i < headers.length; i++) {
                 sheet.autoSizeColumn(i);
             }
+        });
+        return out.toByteArray();
+    }
 
+    /**
+     * Fills a streaming workbook and writes it to {@code out}, removing its temp files afterwards.
+     */
+    private void writeWorkbook(OutputStream out, Consumer<SXSSFWorkbook> content) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(excelRowWindow);
+        workbook.setCompressTempFiles(true);
+        try {
+            content.accept(workbook);
             workbook.write(out);
-            return out.toByteArray();
+        } finally {
+            workbook.dispose();
+            workbook.close();
         }
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
@@ -45,21 +46,32 @@ public class FcmService {
     }
 
     public void sendMulticast(List<String> tokens, String title, String body, String queueId) {
-        MulticastMessage message = MulticastMessage.builder()
-                .addAllTokens(tokens)
-                .setNotification(Notification.builder()
-                        .setTitle(title)
-                        .setBody(body)
-                        .build())
-                .putData("queueId", queueId)
-                .build();
         try {
-            BatchResponse response = FirebaseMessaging.getInstance().sendEachForMulticast(message);
-            log.info("Successfully sent multicast: {} success, {} failure",
-                    response.getSuccessCount(), response.getFailureCount());
+            deliverMulticast(tokens, title, body, Map.of("queueId", queueId));
             // Optionally handle failed tokens (remove from user's list)
         } catch (FirebaseMessagingException e) {
             log.error("Failed to send multicast message: {}", e.getMessage());
         }
     }
+
+    /**
+     * Sends one notification to every device token and throws if the request itself fails,
+     * so the notification outbox can retry it.
+     */
+    public BatchResponse deliverMulticast(List<String> tokens, String title, String body, Map<String, String> data)
+            throws FirebaseMessagingException {
+        MulticastMessage.Builder message = MulticastMessage.builder()
+                .addAllTokens(tokens)
+                .setNotification(Notification.builder()
+                        .setTitle(title)
+                        .setBody(body)
+                        .build());
+        if (data != null) {
+            message.putAllData(data);
+        }
+        BatchResponse response = FirebaseMessaging.getInstance().sendEachForMulticast(message.build());
+        log.info("Successfully sent multicast: {} success, {} failure",
+                response.getSuccessCount(), response.getFailureCount());
+        return response;
+    }
 }
\ No newline at end of file
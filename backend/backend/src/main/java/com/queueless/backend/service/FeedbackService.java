@@ -1,13 +1,10 @@
 package com.queueless.backend.service;
 
 import com.queueless.backend.model.Feedback;
-import com.queueless.backend.model.Place;
 import com.queueless.backend.model.Queue;
-import com.queueless.backend.model.User;
+import com.queueless.backend.model.RatingAggregate;
 import com.queueless.backend.repository.FeedbackRepository;
-import com.queueless.backend.repository.PlaceRepository;
 import com.queueless.backend.repository.QueueRepository;
-import com.queueless.backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
@@ -22,9 +19,8 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class FeedbackService {
     private final FeedbackRepository feedbackRepository;
-    private final PlaceRepository placeRepository;
-    private final UserRepository userRepository;
     private final QueueRepository queueRepository;
+    private final RatingAggregateService ratingAggregateService;
 
     public Feedback submitFeedback(Feedback feedback) {
         log.info("Attempting to submit feedback for token: {}", feedback.getTokenId());
@@ -45,15 +41,10 @@ public class FeedbackService {
             Feedback savedFeedback = feedbackRepository.save(feedback);
             log.info("Feedback successfully saved with ID: {}", savedFeedback.getId());
 
-            // Update place ratings
-            log.debug("Triggering update of place ratings for place ID: {}", feedback.getPlaceId());
-            updatePlaceRatings(feedback.getPlaceId());
-
-            // Update provider ratings if provider exists
-            if (feedback.getProviderId() != null) {
-                log.debug("Triggering update of provider ratings for provider ID: {}", feedback.getProviderId());
-                updateProviderRatings(feedback.getProviderId());
-            }
+            // Add the ratings to the place and provider aggregates
+            log.debug("Updating rating aggregates for place ID: {} and provider ID: {}",
+                    feedback.getPlaceId(), feedback.getProviderId());
+            ratingAggregateService.add(savedFeedback);
 
             log.info("Feedback submission process completed for token: {}", feedback.getTokenId());
             return savedFeedback;
@@ -88,109 +79,19 @@ public class FeedbackService {
     }
 
     public Double getAverageRatingForPlace(String placeId) {
-        log.info("Calculating average rating for place ID: {}", placeId);
-        List<Feedback> feedbacks = feedbackRepository.findByPlaceId(placeId);
-        if (feedbacks.isEmpty()) {
-            log.info("No feedbacks found for place ID {}. Returning 0.0.", placeId);
-            return 0.0;
-        }
-        double averageRating = feedbacks.stream()
-                .filter(feedback -> feedback.getRating() != null)
-                .mapToDouble(Feedback::getRating)
-                .average()
-                .orElse(0.0);
-        log.info("Calculated average rating for place {}: {}", placeId, averageRating);
+        log.info("Fetching average rating for place ID: {}", placeId);
+        double averageRating = ratingAggregateService.forPlace(placeId).averageRating();
+        log.info("Average rating for place {}: {}", placeId, averageRating);
         return averageRating;
     }
 
     public Double getAverageRatingForProvider(String providerId) {
-        log.info("Calculating average rating for provider ID: {}", providerId);
-        List<Feedback> feedbacks = feedbackRepository.findByProviderId(providerId);
-        if (feedbacks.isEmpty()) {
-            log.info("No feedbacks found for provider ID {}. Returning 0.0.", providerId);
-            return 0.0;
-        }
-        double averageRating = feedbacks.stream()
-                .filter(feedback -> feedback.getRating() != null)
-                .mapToDouble(Feedback::getRating)
-                .average()
-                .orElse(0.0);
-        log.info("Calculated average rating for provider {}: {}", providerId, averageRating);
+        log.info("Fetching average rating for provider ID: {}", providerId);
+        double averageRating = ratingAggregateService.forProvider(providerId).averageRating();
+        log.info("Average rating for provider {}: {}", providerId, averageRating);
         return averageRating;
     }
 
-    private void updatePlaceRatings(String placeId) {
-        log.debug("Starting update of place ratings for place ID: {}", placeId);
-        List<Feedback> feedbacks = feedbackRepository.findByPlaceId(placeId);
-        if (feedbacks.isEmpty()) {
-            log.debug("No feedbacks to update ratings for place ID {}. Skipping.", placeId);
-            return;
-        }
-        log.debug("Found {} feedbacks for place ID {}. Calculating new ratings.", feedbacks.size(), placeId);
-
-        double averageRating = feedbacks.stream()
-                .filter(f -> f.getRating() != null)
-                .mapToDouble(Feedback::getRating)
-                .average()
-                .orElse(0.0);
-
-        long totalRatings = feedbacks.size();
-
-        double staffRating = feedbacks.stream()
-                .filter(f -> f.getStaffRating() != null)
-                .mapToDouble(Feedback::getStaffRating)
-                .average()
-                .orElse(0.0);
-
-        double serviceRating = feedbacks.stream()
-                .filter(f -> f.getServiceRating() != null)
-                .mapToDouble(Feedback::getServiceRating)
-                .average()
-                .orElse(0.0);
-
-        double waitTimeRating = feedbacks.stream()
-                .filter(f -> f.getWaitTimeRating() != null)
-                .mapToDouble(Feedback::getWaitTimeRating)
-                .average()
-                .orElse(0.0);
-
-        Optional<Place> placeOpt = placeRepository.findById(placeId);
-        if (placeOpt.isPresent()) {
-            Place place = placeOpt.get();
-            place.setRating(averageRating);
-            place.setTotalRatings((int) totalRatings);
-            placeRepository.save(place);
-            log.info("Updated ratings for place {}. New overall rating: {}", placeId, averageRating);
-        } else {
-            log.warn("Place with ID {} not found while trying to update ratings. Data might be inconsistent.", placeId);
-        }
-    }
-
-    private void updateProviderRatings(String providerId) {
-        log.debug("Starting update of provider ratings for provider ID: {}", providerId);
-        List<Feedback> feedbacks = feedbackRepository.findByProviderId(providerId);
-        if (feedbacks.isEmpty()) {
-            log.debug("No feedbacks to update ratings for provider ID {}. Skipping.", providerId);
-            return;
-        }
-        log.debug("Found {} feedbacks for provider ID {}. Calculating new average rating.", feedbacks.size(), providerId);
-
-        double averageRating = feedbacks.stream()
-                .filter(f -> f.getRating() != null)
-                .mapToDouble(Feedback::getRating)
-                .average()
-                .orElse(0.0);
-
-        Optional<User> userOpt = userRepository.findById(providerId);
-        if (userOpt.isPresent()) {
-            User provider = userOpt.get();
-            log.info("Provider {} would have average rating: {}. (Note: This is a log-only update, user entity does not have a rating field).", providerId, averageRating);
-            // The original code doesn't save the rating, so this log entry is an observation.
-        } else {
-            log.warn("Provider with ID {} not found while trying to update ratings. Data might be inconsistent.", providerId);
-        }
-    }
-
     public boolean hasUserProvidedFeedbackForToken(String userId, String tokenId) {
         log.info("Checking if user {} has provided feedback for token {}", userId, tokenId);
         boolean hasFeedback = feedbackRepository.findByTokenId(tokenId)
@@ -201,26 +102,15 @@ public class FeedbackService {
     }
 
     public Map<String, Double> getAllAverageRatingsForPlace(String placeId) {
-        log.info("Calculating detailed average ratings for place ID: {}", placeId);
-        List<Feedback> feedbacks = feedbackRepository.findByPlaceId(placeId);
-        if (feedbacks.isEmpty()) {
-            log.info("No feedbacks found for place ID {}. Returning all ratings as 0.0.", placeId);
-            return Map.of(
-                    "overall", 0.0,
-                    "staff", 0.0,
-                    "service", 0.0,
-                    "waitTime", 0.0
-            );
-        }
-        log.debug("Found {} feedbacks. Calculating detailed ratings.", feedbacks.size());
+        log.info("Fetching detailed average ratings for place ID: {}", placeId);
+        RatingAggregate ratings = ratingAggregateService.forPlace(placeId);
 
-        // Calculate averages for each category
-        double overall = feedbacks.stream().filter(f -> f.getRating() != null).mapToDouble(Feedback::getRating).average().orElse(0.0);
-        double staff = feedbacks.stream().filter(f -> f.getStaffRating() != null).mapToDouble(Feedback::getStaffRating).average().orElse(0.0);
-        double service = feedbacks.stream().filter(f -> f.getServiceRating() != null).mapToDouble(Feedback::getServiceRating).average().orElse(0.0);
-        double waitTime = feedbacks.stream().filter(f -> f.getWaitTimeRating() != null).mapToDouble(Feedback::getWaitTimeRating).average().orElse(0.0);
+        double overall = ratings.averageRating();
+        double staff = ratings.averageStaffRating();
+        double service = ratings.averageServiceRating();
+        double waitTime = ratings.averageWaitTimeRating();
 
-        log.info("Detailed ratings for place {} calculated: overall={}, staff={}, service={}, waitTime={}",
+        log.info("Detailed ratings for place {}: overall={}, staff={}, service={}, waitTime={}",
                 placeId, overall, staff, service, waitTime);
         return Map.of(
                 "overall", overall,
@@ -0,0 +1,167 @@
+package com.queueless.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.queueless.backend.model.Place;
+import com.queueless.backend.repository.PlaceRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Geohash-tiled cache for nearby place queries. The radius is rounded up to a bucket and
+ * the point to the geohash cell sized for that bucket; the tile holds every place within
+ * the bucket radius of any point in the cell (the radius plus the cell's half-diagonal
+ * around its center). Any query in the same cell and bucket is then answered from that
+ * tile by filtering on the exact distance and sorting, so nearby clients and map pans
+ * share one {@code $near} query.
+ *
+ * Place writes clear the tiles; they are rare next to nearby reads. Tiles also expire, which
+ * bounds staleness from writes on other instances and from rating updates.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NearbyPlaceCache {
+
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    // The radius MongoDB uses for spherical distances, so tiles agree with $near
+    private static final double EARTH_RADIUS_METERS = 6_378_100;
+
+    // Radius buckets in km; larger radii are queried directly
+    private static final double[] RADIUS_BUCKETS = {1, 2, 5, 10, 20, 50};
+
+    private final PlaceRepository placeRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${places.nearby-cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${places.nearby-cache.max-tiles:5000}")
+    private long maxTiles = 5000;
+
+    @Value("${places.nearby-cache.ttl-seconds:300}")
+    private long ttlSeconds = 300;
+
+    private Cache<String, List<Place>> tiles;
+
+    record Tile(String key, double longitude, double latitude, double reachMeters) {
+    }
+
+    @PostConstruct
+    void init() {
+        tiles = Caffeine.newBuilder()
+                .maximumSize(maxTiles)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, tiles, "places.nearby");
+    }
+
+    /**
+     * Places within {@code radiusKm} of the point, nearest first.
+     */
+    public List<Place> findNearby(double longitude, double latitude, double radiusKm) {
+        double bucket = bucketFor(radiusKm);
+        if (!enabled || bucket < 0) {
+            return placeRepository.findByLocationNear(longitude, latitude, radiusKm * 1000);
+        }
+
+        Tile tile = tileFor(longitude, latitude, bucket);
+        List<Place> candidates = tiles.get(tile.key(), key -> {
+            log.debug("Loading nearby tile {} ({} m around {}, {})", key, Math.round(tile.reachMeters()),
+                    tile.longitude(), tile.latitude());
+            return List.copyOf(placeRepository.findByLocationNear(tile.longitude(), tile.latitude(), tile.reachMeters()));
+        });
+
+        double radiusMeters = radiusKm * 1000;
+        return candidates.stream()
+                .filter(place -> place.getLocation() != null)
+                .filter(place -> distanceMeters(longitude, latitude, place) <= radiusMeters)
+                .sorted(Comparator.comparingDouble(place -> distanceMeters(longitude, latitude, place)))
+                .toList();
+    }
+
+    /**
+     * Drops every tile; called after a place is created, moved, edited or deleted.
+     */
+    public void invalidateAll() {
+        if (tiles != null) {
+            tiles.invalidateAll();
+        }
+    }
+
+    static double bucketFor(double radiusKm) {
+        for (double bucket : RADIUS_BUCKETS) {
+            if (radiusKm <= bucket) {
+                return bucket;
+            }
+        }
+        return -1;
+    }
+
+    static Tile tileFor(double longitude, double latitude, double bucketKm) {
+        // Cells about as wide as the bucket keep the tile's extra area small
+        int precision = bucketKm <= 1 ? 6 : bucketKm <= 10 ? 5 : 4;
+
+        double minLon = -180, maxLon = 180, minLat = -90, maxLat = 90;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean lonBit = true;
+        int bits = 0;
+        int ch = 0;
+        while (hash.length() < precision) {
+            if (lonBit) {
+                double mid = (minLon + maxLon) / 2;
+                if (longitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLon = mid;
+                } else {
+                    ch <<= 1;
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch <<= 1;
+                    maxLat = mid;
+                }
+            }
+            lonBit = !lonBit;
+            if (++bits == 5) {
+                hash.append(BASE32.charAt(ch));
+                bits = 0;
+                ch = 0;
+            }
+        }
+
+        double centerLon = (minLon + maxLon) / 2;
+        double centerLat = (minLat + maxLat) / 2;
+        // The cell is widest on the side nearer the equator
+        double halfDiagonal = Math.max(haversine(centerLon, centerLat, maxLon, maxLat),
+                haversine(centerLon, centerLat, maxLon, minLat));
+        return new Tile((int) bucketKm + ":" + hash, centerLon, centerLat, bucketKm * 1000 + halfDiagonal);
+    }
+
+    static double distanceMeters(double longitude, double latitude, Place place) {
+        return haversine(longitude, latitude, place.getLocation().getX(), place.getLocation().getY());
+    }
+
+    private static double haversine(double lon1, double lat1, double lon2, double lat2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
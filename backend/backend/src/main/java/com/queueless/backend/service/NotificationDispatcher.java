@@ -0,0 +1,192 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.enums.NotificationChannel;
+import com.queueless.backend.enums.NotificationStatus;
+import com.queueless.backend.model.NotificationOutbox;
+import com.queueless.backend.repository.NotificationOutboxRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends notifications through the {@code notification_outbox} collection. Schedulers only
+ * {@link #enqueue} a rendered message; a poller claims due entries and delivers each on its
+ * own virtual thread, with at most {@code notifications.outbox.concurrency.<channel>} deliveries
+ * per channel in flight, so a slow SMTP server does not hold up push messages or the schedulers.
+ * <p>
+ * A failed delivery is retried with exponential backoff (from {@code backoff-initial-ms} up to
+ * {@code backoff-max-ms}) until {@code max-attempts}, then marked FAILED. An entry whose worker
+ * died is picked up again once its {@code lease-seconds} run out.
+ */
+@Slf4j
+@Service
+public class NotificationDispatcher {
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final MongoTemplate mongoTemplate;
+    private final Map<NotificationChannel, NotificationSender> senders = new EnumMap<>(NotificationChannel.class);
+    private final Map<NotificationChannel, Semaphore> permits = new EnumMap<>(NotificationChannel.class);
+
+    @Value("${notifications.outbox.concurrency.email:4}")
+    private int emailConcurrency = 4;
+
+    @Value("${notifications.outbox.concurrency.push:16}")
+    private int pushConcurrency = 16;
+
+    @Value("${notifications.outbox.max-attempts:5}")
+    private int maxAttempts = 5;
+
+    @Value("${notifications.outbox.backoff-initial-ms:30000}")
+    private long backoffInitialMs = 30000;
+
+    @Value("${notifications.outbox.backoff-max-ms:1800000}")
+    private long backoffMaxMs = 1800000;
+
+    @Value("${notifications.outbox.lease-seconds:120}")
+    private long leaseSeconds = 120;
+
+    private Executor executor;
+
+    public NotificationDispatcher(NotificationOutboxRepository outboxRepository, MongoTemplate mongoTemplate,
+                                  ObjectProvider<NotificationSender> senders) {
+        this.outboxRepository = outboxRepository;
+        this.mongoTemplate = mongoTemplate;
+        senders.orderedStream().forEach(sender -> this.senders.put(sender.channel(), sender));
+    }
+
+    @PostConstruct
+    void start() {
+        permits.put(NotificationChannel.EMAIL, new Semaphore(emailConcurrency));
+        permits.put(NotificationChannel.PUSH, new Semaphore(pushConcurrency));
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        ensureIndexes();
+        log.info("Notification dispatcher started with senders for {}", senders.keySet());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (executor instanceof ExecutorService executorService) {
+            // Entries still sending are picked up again after their lease
+            executorService.shutdown();
+            executorService.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Stores a notification for delivery. Returns {@code false} if one with the same dedup key
+     * was queued before.
+     */
+    public boolean enqueue(NotificationOutbox notification) {
+        LocalDateTime now = LocalDateTime.now();
+        notification.setStatus(NotificationStatus.PENDING);
+        notification.setAttempts(0);
+        notification.setNextAttemptAt(now);
+        notification.setCreatedAt(now);
+        try {
+            outboxRepository.insert(notification);
+            return true;
+        } catch (DuplicateKeyException e) {
+            log.debug("Notification {} already queued", notification.getDedupKey());
+            return false;
+        }
+    }
+
+    /**
+     * Claims due entries while a channel has free permits and hands each to a worker.
+     */
+    @Scheduled(fixedDelayString = "${notifications.outbox.poll-interval-ms:1000}")
+    public void dispatchPending() {
+        for (NotificationSender sender : senders.values()) {
+            Semaphore channelPermits = permits.get(sender.channel());
+            while (channelPermits.tryAcquire()) {
+                NotificationOutbox notification;
+                try {
+                    LocalDateTime now = LocalDateTime.now();
+                    notification = outboxRepository.claimNext(sender.channel(), now, now.plusSeconds(leaseSeconds));
+                } catch (Exception e) {
+                    channelPermits.release();
+                    log.error("Failed to claim {} notifications: {}", sender.channel(), e.getMessage());
+                    break;
+                }
+                if (notification == null) {
+                    channelPermits.release();
+                    break;
+                }
+                try {
+                    executor.execute(() -> {
+                        try {
+                            deliver(sender, notification);
+                        } finally {
+                            channelPermits.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // Shutting down; the claimed entry is picked up again after its lease
+                    channelPermits.release();
+                    log.debug("Dispatcher stopped, leaving notification {} to its lease", notification.getDedupKey());
+                    return;
+                }
+            }
+        }
+    }
+
+    void deliver(NotificationSender sender, NotificationOutbox notification) {
+        LocalDateTime claimedLease = notification.getLeaseUntil();
+        try {
+            sender.send(notification);
+            notification.setStatus(NotificationStatus.SENT);
+            notification.setFinishedAt(LocalDateTime.now());
+            notification.setLastError(null);
+        } catch (Exception e) {
+            notification.setLastError(e.getMessage());
+            if (notification.getAttempts() >= maxAttempts) {
+                notification.setStatus(NotificationStatus.FAILED);
+                notification.setFinishedAt(LocalDateTime.now());
+                log.error("Giving up on notification {} after {} attempts: {}",
+                        notification.getDedupKey(), notification.getAttempts(), e.getMessage());
+            } else {
+                notification.setStatus(NotificationStatus.PENDING);
+                notification.setNextAttemptAt(LocalDateTime.now().plusNanos(
+                        TimeUnit.MILLISECONDS.toNanos(backoffMs(notification.getAttempts()))));
+                log.warn("Notification {} failed (attempt {}), retrying at {}: {}", notification.getDedupKey(),
+                        notification.getAttempts(), notification.getNextAttemptAt(), e.getMessage());
+            }
+        }
+        notification.setLeaseUntil(null);
+        if (!outboxRepository.completeClaim(notification, claimedLease)) {
+            // The send outlasted the lease and another worker owns the entry now
+            log.warn("Lease on notification {} expired before its outcome ({}) was stored",
+                    notification.getDedupKey(), notification.getStatus());
+        }
+    }
+
+    long backoffMs(int attempts) {
+        // attempts is at least 1 here: it is counted when the entry is claimed
+        int doublings = Math.min(Math.max(attempts - 1, 0), 30);
+        return Math.min(backoffMaxMs, backoffInitialMs << doublings);
+    }
+
+    private void ensureIndexes() {
+        IndexOperations indexOps = mongoTemplate.indexOps(NotificationOutbox.class);
+        IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+        resolver.resolveIndexFor(NotificationOutbox.class).forEach(indexOps::ensureIndex);
+    }
+}
@@ -17,6 +17,7 @@ public class NotificationPreferenceService {
     private final NotificationPreferenceRepository preferenceRepository;
     private final QueueService queueService;
     private final UserService userService;
+    private final DirtyQueueTracker dirtyQueueTracker;
 
     public NotificationPreference getPreference(String userId, String queueId) {
         return preferenceRepository.findByUserIdAndQueueId(userId, queueId)
@@ -49,7 +50,10 @@ public class NotificationPreferenceService {
         }
         preference.setUpdatedAt(LocalDateTime.now());
 
-        return preferenceRepository.save(preference);
+        NotificationPreference saved = preferenceRepository.save(preference);
+        // A new threshold can make a waiting token due without the queue itself changing
+        dirtyQueueTracker.markDirty(queueId);
+        return saved;
     }
 
     public void deletePreference(String userId, String queueId) {
@@ -0,0 +1,16 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.enums.NotificationChannel;
+import com.queueless.backend.model.NotificationOutbox;
+
+/**
+ * Delivers outbox entries of one channel. A thrown exception makes
+ * {@link NotificationDispatcher} retry the entry later; tests can register their own
+ * senders with {@code notifications.senders.enabled=false}.
+ */
+public interface NotificationSender {
+
+    NotificationChannel channel();
+
+    void send(NotificationOutbox notification) throws Exception;
+}
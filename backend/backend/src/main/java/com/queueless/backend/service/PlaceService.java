@@ -1,6 +1,7 @@
 package com.queueless.backend.service;
 
 import com.queueless.backend.dto.PlaceDTO;
+import com.queueless.backend.enums.SearchEntityType;
 import com.queueless.backend.model.Place;
 import com.queueless.backend.repository.PlaceRepository;
 import lombok.RequiredArgsConstructor;
@@ -24,6 +25,8 @@ public class PlaceService {
 
     private final PlaceRepository placeRepository;
     private final AuditLogService auditLogService;
+    private final SearchIndexService searchIndexService;
+    private final NearbyPlaceCache nearbyPlaceCache;
 
     @CacheEvict(value = {"places", "placesByAdmin"}, allEntries = true)
     public Place createPlace(PlaceDTO placeDTO) {
@@ -54,6 +57,8 @@ public class PlaceService {
         place.setIsActive(placeDTO.getIsActive() != null ? placeDTO.getIsActive() : true);
 
         Place savedPlace = placeRepository.save(place); // save first
+        searchIndexService.indexPlace(savedPlace);
+        nearbyPlaceCache.invalidateAll();
 
         Map<String, Object> details = new HashMap<>();
         details.put("placeId", savedPlace.getId());
@@ -97,8 +102,7 @@ public class PlaceService {
 
     public List<Place> getNearbyPlaces(double longitude, double latitude, double radius) {
         log.debug("Searching nearby places [lon={}, lat={}, radius={}km]", longitude, latitude, radius);
-        double maxDistance = radius * 1000;
-        List<Place> places = placeRepository.findByLocationNear(longitude, latitude, maxDistance);
+        List<Place> places = nearbyPlaceCache.findNearby(longitude, latitude, radius);
         log.info("Found {} nearby places", places.size());
         return places;
     }
@@ -123,6 +127,8 @@ public class PlaceService {
         if (placeDTO.getIsActive() != null) place.setIsActive(placeDTO.getIsActive());
 
         Place updated = placeRepository.save(place);
+        searchIndexService.indexPlace(updated);
+        nearbyPlaceCache.invalidateAll();
         log.info("Place updated successfully with ID: {}", id);
         return updated;
     }
@@ -132,6 +138,8 @@ public class PlaceService {
         log.warn("Deleting place with ID: {}", id);
         Place place = getPlaceById(id);
         placeRepository.delete(place);
+        searchIndexService.remove(SearchEntityType.PLACE, id);
+        nearbyPlaceCache.invalidateAll();
         log.info("Place deleted successfully with ID: {}", id);
     }
 
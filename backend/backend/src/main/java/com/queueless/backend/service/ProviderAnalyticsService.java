@@ -1,10 +1,8 @@
 package com.queueless.backend.service;
 
-import com.queueless.backend.enums.TokenStatus;
-import com.queueless.backend.model.Queue;
-import com.queueless.backend.model.QueueHourlyStats;
-import com.queueless.backend.repository.QueueHourlyStatsRepository;
-import com.queueless.backend.repository.QueueRepository;
+import com.queueless.backend.enums.RollupGranularity;
+import com.queueless.backend.enums.RollupScope;
+import com.queueless.backend.model.AnalyticsRollup;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -19,30 +17,21 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ProviderAnalyticsService {
 
-    private final QueueRepository queueRepository;
-    private final QueueHourlyStatsRepository statsRepository;
+    private final AnalyticsRollupService analyticsRollupService;
 
     public Map<String, Object> getTokensOverTime(String providerId, int days) {
         log.info("Fetching token volume over last {} days for provider: {}", days, providerId);
         LocalDateTime start = LocalDateTime.now().minusDays(days).withHour(0).withMinute(0).withSecond(0);
 
-        List<Queue> queues = queueRepository.findByProviderId(providerId);
-
-        Map<LocalDate, Long> dailyCounts = queues.stream()
-                .flatMap(q -> q.getTokens().stream())
-                .filter(t -> TokenStatus.COMPLETED.toString().equals(t.getStatus()))
-                .filter(t -> t.getCompletedAt() != null && t.getCompletedAt().isAfter(start))
-                .collect(Collectors.groupingBy(
-                        t -> t.getCompletedAt().toLocalDate(),
-                        Collectors.counting()
-                ));
+        Map<LocalDateTime, AnalyticsRollup> daily = dailyRollups(providerId, start);
 
         List<String> dates = new ArrayList<>();
         List<Long> counts = new ArrayList<>();
         for (int i = days - 1; i >= 0; i--) {
             LocalDate date = LocalDate.now().minusDays(i);
             dates.add(date.toString());
-            counts.add(dailyCounts.getOrDefault(date, 0L));
+            AnalyticsRollup bucket = daily.get(date.atStartOfDay());
+            counts.add(bucket != null ? bucket.getServed() : 0L);
         }
 
         Map<String, Object> result = new HashMap<>();
@@ -55,15 +44,13 @@ public class ProviderAnalyticsService {
         log.info("Fetching busiest hours for provider: {}", providerId);
         LocalDateTime thirtyDaysAgo = LocalDateTime.now().minusDays(30);
 
-        List<Queue> queues = queueRepository.findByProviderId(providerId);
-        List<String> queueIds = queues.stream().map(Queue::getId).toList();
-
-        List<QueueHourlyStats> stats = statsRepository.findByQueueIdInAndHourBetween(queueIds, thirtyDaysAgo, LocalDateTime.now());
-
-        Map<Integer, Double> avgByHour = stats.stream()
+        Map<Integer, Double> avgByHour = analyticsRollupService.byBucket(
+                        RollupScope.PROVIDER, List.of(providerId), RollupGranularity.HOUR, thirtyDaysAgo).entrySet().stream()
                 .collect(Collectors.groupingBy(
-                        s -> s.getHour().getHour(),
-                        Collectors.averagingInt(QueueHourlyStats::getWaitingCount)
+                        e -> e.getKey().getHour(),
+                        Collectors.collectingAndThen(
+                                Collectors.mapping(Map.Entry::getValue, Collectors.toList()),
+                                buckets -> AnalyticsRollup.sum(buckets).averageWaitingCount())
                 ));
 
         Map<Integer, Double> result = new LinkedHashMap<>();
@@ -77,28 +64,15 @@ public class ProviderAnalyticsService {
         log.info("Fetching average wait time trend over last {} days for provider: {}", days, providerId);
         LocalDateTime start = LocalDateTime.now().minusDays(days).withHour(0).withMinute(0).withSecond(0);
 
-        List<Queue> queues = queueRepository.findByProviderId(providerId);
-
-        Map<LocalDate, List<Long>> dailyWaitTimes = new HashMap<>();
-        queues.stream()
-                .flatMap(q -> q.getTokens().stream())
-                .filter(t -> TokenStatus.COMPLETED.toString().equals(t.getStatus()))
-                .filter(t -> t.getServedAt() != null && t.getIssuedAt() != null)
-                .filter(t -> t.getServedAt().isAfter(start))
-                .forEach(t -> {
-                    LocalDate date = t.getServedAt().toLocalDate();
-                    long waitMinutes = java.time.Duration.between(t.getIssuedAt(), t.getServedAt()).toMinutes();
-                    dailyWaitTimes.computeIfAbsent(date, k -> new ArrayList<>()).add(waitMinutes);
-                });
+        Map<LocalDateTime, AnalyticsRollup> daily = dailyRollups(providerId, start);
 
         List<String> dates = new ArrayList<>();
         List<Double> averages = new ArrayList<>();
         for (int i = days - 1; i >= 0; i--) {
             LocalDate date = LocalDate.now().minusDays(i);
             dates.add(date.toString());
-            List<Long> waits = dailyWaitTimes.get(date);
-            double avg = (waits == null || waits.isEmpty()) ? 0.0 : waits.stream().mapToLong(v -> v).average().orElse(0.0);
-            averages.add(avg);
+            AnalyticsRollup bucket = daily.get(date.atStartOfDay());
+            averages.add(bucket != null ? bucket.averageWaitMinutes() : 0.0);
         }
 
         Map<String, Object> result = new HashMap<>();
@@ -106,4 +80,8 @@ public class ProviderAnalyticsService {
         result.put("averages", averages);
         return result;
     }
-}
\ No newline at end of file
+
+    private Map<LocalDateTime, AnalyticsRollup> dailyRollups(String providerId, LocalDateTime start) {
+        return analyticsRollupService.byBucket(RollupScope.PROVIDER, List.of(providerId), RollupGranularity.DAY, start);
+    }
+}
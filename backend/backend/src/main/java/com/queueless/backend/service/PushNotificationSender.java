@@ -0,0 +1,31 @@
+package com.queueless.backend.service;
+
+import com.google.firebase.messaging.BatchResponse;
+import com.queueless.backend.enums.NotificationChannel;
+import com.queueless.backend.model.NotificationOutbox;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "notifications.senders.enabled", havingValue = "true", matchIfMissing = true)
+public class PushNotificationSender implements NotificationSender {
+
+    private final FcmService fcmService;
+
+    @Override
+    public NotificationChannel channel() {
+        return NotificationChannel.PUSH;
+    }
+
+    @Override
+    public void send(NotificationOutbox notification) throws Exception {
+        BatchResponse response = fcmService.deliverMulticast(notification.getRecipients(),
+                notification.getSubject(), notification.getBody(), notification.getData());
+        // Some stale device tokens are normal; retry only when no device got it
+        if (response.getSuccessCount() == 0 && response.getFailureCount() > 0) {
+            throw new IllegalStateException("Push failed for all " + response.getFailureCount() + " devices");
+        }
+    }
+}
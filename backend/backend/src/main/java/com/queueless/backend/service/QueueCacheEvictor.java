@@ -0,0 +1,40 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.model.Queue;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evicts the cache entries a queue write makes stale: {@code queues::{queueId}} and
+ * {@code queuesByPlace::{placeId}}. Entries of other queues are left alone.
+ */
+@Component
+@RequiredArgsConstructor
+public class QueueCacheEvictor {
+
+    static final String QUEUES = "queues";
+    static final String QUEUES_BY_PLACE = "queuesByPlace";
+
+    private final CacheManager cacheManager;
+
+    public void evict(Queue queue) {
+        evict(queue.getId(), queue.getPlaceId());
+    }
+
+    public void evict(String queueId, String placeId) {
+        evict(QUEUES, queueId);
+        evict(QUEUES_BY_PLACE, placeId);
+    }
+
+    private void evict(String cacheName, String key) {
+        if (key == null) {
+            return;
+        }
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.queueless.backend.service;
+
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.queueless.backend.model.Queue;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Marks queues dirty from a MongoDB change stream on the {@code queues} collection, so
+ * writes made by other instances (or outside QueueService) reach the scheduled jobs of
+ * this one. Change streams need a replica set, hence the opt-in property.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "queue.dirty-tracking.change-stream.enabled", havingValue = "true")
+public class QueueChangeStreamListener {
+
+    private static final long RETRY_DELAY_MS = 5000;
+
+    private final MongoTemplate mongoTemplate;
+    private final DirtyQueueTracker dirtyQueueTracker;
+
+    private volatile boolean running;
+    private volatile MongoCursor<ChangeStreamDocument<Document>> cursor;
+    private Thread worker;
+    private BsonDocument resumeToken;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        worker = Thread.ofPlatform().daemon().name("queue-change-stream").start(this::watch);
+        log.info("Watching the queues collection for dirty-queue tracking");
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        MongoCursor<ChangeStreamDocument<Document>> current = cursor;
+        if (current != null) {
+            current.close();
+        }
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void watch() {
+        while (running) {
+            try {
+                ChangeStreamIterable<Document> stream = mongoTemplate
+                        .getCollection(mongoTemplate.getCollectionName(Queue.class))
+                        .watch();
+                if (resumeToken != null) {
+                    stream = stream.resumeAfter(resumeToken);
+                }
+                try (MongoCursor<ChangeStreamDocument<Document>> changes = stream.iterator()) {
+                    cursor = changes;
+                    while (running && changes.hasNext()) {
+                        ChangeStreamDocument<Document> change = changes.next();
+                        resumeToken = change.getResumeToken();
+                        dirtyQueueTracker.markDirty(queueId(change.getDocumentKey()));
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                // Start from "now" again; the tracker's periodic full scan covers the gap
+                resumeToken = null;
+                log.warn("Queue change stream failed, retrying in {} ms: {}", RETRY_DELAY_MS, e.getMessage());
+                try {
+                    Thread.sleep(RETRY_DELAY_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private String queueId(BsonDocument documentKey) {
+        BsonValue id = documentKey != null ? documentKey.get("_id") : null;
+        if (id == null) {
+            return null;
+        }
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : null;
+    }
+}
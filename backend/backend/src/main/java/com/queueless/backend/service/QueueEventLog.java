@@ -0,0 +1,99 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.dto.QueueEventDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Assigns per-queue sequence numbers to queue events and keeps the most recent ones so a
+ * reconnecting client can catch up from its last seen sequence instead of reloading the queue.
+ * Sequences live in memory and restart from one with the JVM, so every event carries this
+ * instance's epoch; a resume from another epoch (or beyond the retained history) falls back to
+ * a snapshot. This is only correct while one JVM publishes every queue's events; the multi-node
+ * broker modes use {@link RedisQueueEventLog} instead.
+ */
+@Component
+@ConditionalOnExpression("!'${websocket.broker.mode:simple}'.matches('redis|relay')")
+public class QueueEventLog {
+
+    @Value("${websocket.events.history-size:256}")
+    protected int historySize = 256;
+
+    private final Map<String, History> histories = new ConcurrentHashMap<>();
+    private final String epoch = UUID.randomUUID().toString();
+
+    /**
+     * Sequences the event and hands it to {@code sender} while still holding the queue's
+     * lock, so events of one queue are published in sequence order.
+     */
+    public QueueEventDTO append(QueueEventDTO event, Consumer<QueueEventDTO> sender) {
+        History history = histories.computeIfAbsent(event.getQueueId(), id -> new History());
+        synchronized (history) {
+            event.setSequence(++history.sequence);
+            event.setEpoch(epoch);
+            history.events.addLast(event);
+            while (history.events.size() > historySize) {
+                history.events.removeFirst();
+            }
+            sender.accept(event);
+        }
+        return event;
+    }
+
+    /**
+     * Events after {@code lastSequence} of {@code epoch}, or empty if the sequence belongs to
+     * another epoch or the events are no longer retained, and the client has to take a snapshot.
+     */
+    public Optional<List<QueueEventDTO>> eventsSince(String queueId, String epoch, long lastSequence) {
+        if (epoch == null || !epoch.equals(epoch(queueId))) {
+            return Optional.empty();
+        }
+        History history = histories.get(queueId);
+        if (history == null) {
+            return lastSequence == 0 ? Optional.of(List.of()) : Optional.empty();
+        }
+        synchronized (history) {
+            if (lastSequence > history.sequence) {
+                return Optional.empty();
+            }
+            QueueEventDTO oldest = history.events.peekFirst();
+            if (oldest != null && oldest.getSequence() > lastSequence + 1) {
+                return Optional.empty();
+            }
+            List<QueueEventDTO> missed = new ArrayList<>();
+            for (QueueEventDTO event : history.events) {
+                if (event.getSequence() > lastSequence) {
+                    missed.add(event);
+                }
+            }
+            return Optional.of(missed);
+        }
+    }
+
+    /**
+     * Epoch that the sequences of the queue's events belong to.
+     */
+    public String epoch(String queueId) {
+        return epoch;
+    }
+
+    public long currentSequence(String queueId) {
+        History history = histories.get(queueId);
+        if (history == null) {
+            return 0;
+        }
+        synchronized (history) {
+            return history.sequence;
+        }
+    }
+
+    private static final class History {
+        private long sequence;
+        private final Deque<QueueEventDTO> events = new ArrayDeque<>();
+    }
+}
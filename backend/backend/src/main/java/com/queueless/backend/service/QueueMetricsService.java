@@ -1,17 +1,32 @@
 package com.queueless.backend.service;
 
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.model.QueueToken;
 import com.queueless.backend.repository.QueueRepository;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Per-queue Micrometer meters. Gauges are backed by values that QueueService sets from the
+ * stored token counters on every transition, so a scrape never touches the tokens; the
+ * wait and service times are recorded once per token when it is served / completed.
+ * {@link #reconcile()} refreshes the gauges from a counters-only read (picking up writes
+ * made by other instances) and removes the meters of queues that no longer exist.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class QueueMetricsService {
@@ -19,64 +34,110 @@ public class QueueMetricsService {
     private final QueueRepository queueRepository;
     private final MeterRegistry meterRegistry;
 
-    private final Map<String, AtomicLong> waitingTokensGauges = new HashMap<>();
-    private final Map<String, AtomicLong> inServiceTokensGauges = new HashMap<>();
-    private final Map<String, AtomicLong> totalServedGauges = new HashMap<>();
+    private final Map<String, QueueMeters> metersByQueue = new ConcurrentHashMap<>();
 
     @PostConstruct
     public void init() {
         // Register initial metrics
-        updateAllMetrics();
+        reconcile();
     }
 
-    public void updateAllMetrics() {
-        queueRepository.findAll().forEach(queue -> {
-            String queueId = queue.getId();
-            String placeId = queue.getPlaceId();
-            String serviceName = queue.getServiceName();
+    public void updateQueue(Queue queue) {
+        metersFor(queue).update(queue.currentCounters());
+    }
 
-            Tags tags = Tags.of(
-                    "queueId", queueId,
-                    "placeId", placeId,
-                    "service", serviceName
-            );
+    /**
+     * Records the join-to-serve latency of a token that just moved to IN_SERVICE.
+     */
+    public void recordServed(Queue queue, QueueToken token) {
+        if (token.getIssuedAt() == null || token.getServedAt() == null) {
+            return;
+        }
+        Duration waited = Duration.between(token.getIssuedAt(), token.getServedAt());
+        if (!waited.isNegative()) {
+            metersFor(queue).waitTime.record(waited);
+        }
+    }
 
-            long waiting = queue.getTokens().stream()
-                    .filter(t -> "WAITING".equals(t.getStatus()))
-                    .count();
-            long inService = queue.getTokens().stream()
-                    .filter(t -> "IN_SERVICE".equals(t.getStatus()))
-                    .count();
-            long totalServed = queue.getTokens().stream()
-                    .filter(t -> "COMPLETED".equals(t.getStatus()))
-                    .count();
+    /**
+     * Records how long a token that just completed spent in service.
+     */
+    public void recordCompleted(Queue queue, QueueToken token) {
+        if (token.getServedAt() == null || token.getCompletedAt() == null) {
+            return;
+        }
+        Duration served = Duration.between(token.getServedAt(), token.getCompletedAt());
+        if (!served.isNegative()) {
+            metersFor(queue).serviceDuration.record(served.toMillis() / 1000.0);
+        }
+    }
+
+    public void removeQueue(String queueId) {
+        QueueMeters removed = metersByQueue.remove(queueId);
+        if (removed != null) {
+            removed.registered.forEach(meterRegistry::remove);
+            log.debug("Removed meters of queue {}", queueId);
+        }
+    }
+
+    public void reconcile() {
+        Set<String> existing = new HashSet<>();
+        for (Queue queue : queueRepository.findAllCounters()) {
+            existing.add(queue.getId());
+            updateQueue(queue);
+        }
+        List<String> deleted = metersByQueue.keySet().stream()
+                .filter(queueId -> !existing.contains(queueId))
+                .toList();
+        deleted.forEach(this::removeQueue);
+    }
+
+    private QueueMeters metersFor(Queue queue) {
+        return metersByQueue.computeIfAbsent(queue.getId(), queueId -> new QueueMeters(Tags.of(
+                "queueId", queueId,
+                "placeId", Objects.toString(queue.getPlaceId(), "unknown"),
+                "service", Objects.toString(queue.getServiceName(), "unknown")
+        )));
+    }
 
-            waitingTokensGauges.computeIfAbsent(queueId, k -> {
-                AtomicLong value = new AtomicLong(waiting);
-                Gauge.builder("queue.waiting.tokens", value, AtomicLong::get)
-                        .tags(tags)
-                        .description("Number of waiting tokens in the queue")
-                        .register(meterRegistry);
-                return value;
-            }).set(waiting);
+    private final class QueueMeters {
+        private final AtomicLong waiting = new AtomicLong();
+        private final AtomicLong inService = new AtomicLong();
+        private final AtomicLong totalServed = new AtomicLong();
+        private final Timer waitTime;
+        private final DistributionSummary serviceDuration;
+        private final List<Meter> registered = new ArrayList<>();
 
-            inServiceTokensGauges.computeIfAbsent(queueId, k -> {
-                AtomicLong value = new AtomicLong(inService);
-                Gauge.builder("queue.in.service.tokens", value, AtomicLong::get)
-                        .tags(tags)
-                        .description("Number of tokens currently being served")
-                        .register(meterRegistry);
-                return value;
-            }).set(inService);
+        QueueMeters(Tags tags) {
+            registered.add(Gauge.builder("queue.waiting.tokens", waiting, AtomicLong::get)
+                    .tags(tags)
+                    .description("Number of waiting tokens in the queue")
+                    .register(meterRegistry));
+            registered.add(Gauge.builder("queue.in.service.tokens", inService, AtomicLong::get)
+                    .tags(tags)
+                    .description("Number of tokens currently being served")
+                    .register(meterRegistry));
+            registered.add(Gauge.builder("queue.total.served", totalServed, AtomicLong::get)
+                    .tags(tags)
+                    .description("Total tokens served by this queue")
+                    .register(meterRegistry));
+            waitTime = Timer.builder("queue.wait.time")
+                    .tags(tags)
+                    .description("Time from joining the queue to being served")
+                    .register(meterRegistry);
+            registered.add(waitTime);
+            serviceDuration = DistributionSummary.builder("queue.service.duration")
+                    .tags(tags)
+                    .baseUnit("seconds")
+                    .description("Time a token spent in service")
+                    .register(meterRegistry);
+            registered.add(serviceDuration);
+        }
 
-            totalServedGauges.computeIfAbsent(queueId, k -> {
-                AtomicLong value = new AtomicLong(totalServed);
-                Gauge.builder("queue.total.served", value, AtomicLong::get)
-                        .tags(tags)
-                        .description("Total tokens served by this queue")
-                        .register(meterRegistry);
-                return value;
-            }).set(totalServed);
-        });
+        void update(Queue.TokenCounters counters) {
+            waiting.set(counters.getWaiting());
+            inService.set(counters.getInService());
+            totalServed.set(counters.getCompleted());
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package com.queueless.backend.service;
 
 import com.queueless.backend.dto.*;
+import com.queueless.backend.enums.QueueEventType;
 import com.queueless.backend.enums.Role;
 import com.queueless.backend.enums.TokenStatus;
 import com.queueless.backend.exception.*;
@@ -10,6 +11,7 @@ import com.queueless.backend.repository.*;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
@@ -24,17 +26,82 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class QueueService {
 
+    private static final String ALREADY_IN_A_QUEUE =
+            "You can only join one queue at a time. Please complete or cancel your current queue participation.";
+
     private final QueueRepository queueRepository;
     private final SimpMessagingTemplate messagingTemplate;
     private final UserRepository userRepository;
     private final PlaceService placeService;
     private final ServiceService serviceService;
     private final FeedbackRepository feedbackRepository;
-    private final ExportService exportService;
-    private final ExportCacheService exportCacheService;
+    private final ExportJobService exportJobService;
     private final QueueHourlyStatsRepository statsRepository;
     private final AuditLogService auditLogService;
     private final NotificationPreferenceRepository notificationPreferenceRepository;
+    private final QueueTokenIndex queueTokenIndex;
+    private final QueueEventLog queueEventLog;
+    private final QueueSummaryPublisher queueSummaryPublisher;
+    private final DirtyQueueTracker dirtyQueueTracker;
+    private final QueueMetricsService queueMetricsService;
+    private final TokenHistoryService tokenHistoryService;
+    private final AnalyticsRollupService analyticsRollupService;
+    private final SearchIndexService searchIndexService;
+    private final QueueCacheEvictor queueCacheEvictor;
+
+    // "document" saves the whole queue; "atomic" uses targeted update operators
+    @Value("${queue.engine.mode:document}")
+    private String engineMode = "document";
+
+    @Value("${queue.engine.serve-next-max-attempts:5}")
+    private int serveNextMaxAttempts = 5;
+
+    // Full Queue snapshots on /topic/queues/{id}, kept for clients that do not apply events yet
+    @Value("${websocket.snapshots.enabled:true}")
+    private boolean snapshotBroadcastEnabled = true;
+
+    private boolean isAtomicEngine() {
+        return "atomic".equalsIgnoreCase(engineMode);
+    }
+
+    private String allocateTokenId(Queue queue, String prefix) {
+        int nextToken;
+        if (isAtomicEngine()) {
+            Integer counter = queueRepository.incrementTokenCounter(queue.getId());
+            if (counter == null) {
+                throw new ResourceNotFoundException("Queue not found with id " + queue.getId());
+            }
+            nextToken = counter;
+        } else {
+            nextToken = queue.getTokenCounter() + 1;
+        }
+        queue.setTokenCounter(nextToken);
+        // Globally unique token ID: queueId + prefix + counter
+        return queue.getId() + prefix + String.format("%03d", nextToken);
+    }
+
+    private Queue saveNewToken(Queue queue, QueueToken token) {
+        if (isAtomicEngine()) {
+            Queue updatedQueue = queueRepository.appendToken(queue.getId(), token);
+            if (updatedQueue == null) {
+                throw new UserAlreadyInQueueException("User already has an active token in this queue");
+            }
+            return updatedQueue;
+        }
+        queue.getTokens().add(token);
+        return queueRepository.save(queue);
+    }
+
+    private Queue saveTokenChange(Queue queue, QueueToken token, String previousStatus) {
+        if (isAtomicEngine()) {
+            Queue updatedQueue = queueRepository.replaceToken(queue.getId(), token, previousStatus);
+            if (updatedQueue == null) {
+                throw new ResourceNotFoundException("Token not found with id " + token.getTokenId());
+            }
+            return updatedQueue;
+        }
+        return queueRepository.save(queue);
+    }
 
     private User getUserOrThrow(String userId) {
         return userRepository.findById(userId)
@@ -51,8 +118,31 @@ public class QueueService {
         return user.getActiveTokenId() == null;
     }
 
-    private boolean hasActiveQueueParticipation(String userId) {
-        return !canUserJoinQueue(userId);
+    /**
+     * Takes the user's single active-token slot for {@code tokenId} in one conditional update,
+     * so two concurrent joins cannot both get past the check. Returns the user with its name.
+     */
+    private User claimActiveToken(String userId, String tokenId, String alreadyActiveMessage) {
+        User user = userRepository.claimActiveToken(userId, tokenId, LocalDateTime.now());
+        if (user == null) {
+            if (!userRepository.existsById(userId)) {
+                throw new RuntimeException("User not found with id: " + userId);
+            }
+            throw new UserAlreadyInQueueException(alreadyActiveMessage);
+        }
+        return user;
+    }
+
+    /**
+     * Saves a token whose user slot was claimed; the claim is released if the save fails.
+     */
+    private Queue saveClaimedToken(Queue queue, QueueToken token) {
+        try {
+            return saveNewToken(queue, token);
+        } catch (RuntimeException e) {
+            userRepository.releaseActiveToken(token.getUserId(), token.getTokenId());
+            throw e;
+        }
     }
 
     private Queue getQueueOrThrow(String queueId) {
@@ -63,7 +153,6 @@ public class QueueService {
                 });
     }
 
-    @CacheEvict(value = {"queues", "queuesByPlace"}, allEntries = true)
     public QueueToken addNewTokenWithDetails(String queueId, String userId, TokenRequestDTO tokenRequest) {
         Queue queue = getQueueOrThrow(queueId);
 
@@ -72,10 +161,6 @@ public class QueueService {
             throw new QueueInactiveException("Provider is on break. Queue temporarily unavailable.");
         }
 
-        if (hasActiveQueueParticipation(userId)) {
-            throw new UserAlreadyInQueueException("You can only join one queue at a time. Please complete or cancel your current queue participation.");
-        }
-
         boolean hasActiveToken = queue.getTokens().stream()
                 .anyMatch(token -> token.getUserId().equals(userId) &&
                         (TokenStatus.WAITING.toString().equals(token.getStatus()) ||
@@ -85,22 +170,15 @@ public class QueueService {
             throw new UserAlreadyInQueueException("User already has an active token in this queue");
         }
 
-        long waitingAndInServiceTokens = queue.getTokens().stream()
-                .filter(token -> TokenStatus.WAITING.toString().equals(token.getStatus()) ||
-                        TokenStatus.IN_SERVICE.toString().equals(token.getStatus()))
-                .count();
+        Queue.TokenCounters counters = queue.currentCounters();
+        long waitingAndInServiceTokens = counters.getWaiting() + counters.getInService();
 
         if (queue.getMaxCapacity() != null && waitingAndInServiceTokens >= queue.getMaxCapacity()) {
             throw new IllegalStateException("Queue has reached its maximum capacity. Please try again later.");
         }
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        int nextToken = queue.getTokenCounter() + 1;
-        queue.setTokenCounter(nextToken);
-        // Globally unique token ID: queueId + "-T-" + counter
-        String tokenId = queueId + "-T-" + String.format("%03d", nextToken);
+        String tokenId = allocateTokenId(queue, "-T-");
+        User user = claimActiveToken(userId, tokenId, ALREADY_IN_A_QUEUE);
 
         UserQueueDetails userDetails = new UserQueueDetails();
         userDetails.setPurpose(tokenRequest.getPurpose());
@@ -114,13 +192,10 @@ public class QueueService {
         QueueToken token = new QueueToken(tokenId, userId, user.getName(), TokenStatus.WAITING.toString(), LocalDateTime.now());
         token.setUserDetails(userDetails);
 
-        queue.getTokens().add(token);
-        user.setActiveTokenId(tokenId);
-        user.setLastQueueJoinTime(LocalDateTime.now());
-        userRepository.save(user);
+        Queue updatedQueue = saveClaimedToken(queue, token);
 
-        Queue updatedQueue = queueRepository.save(queue);
-        broadcastQueueUpdate(queueId, updatedQueue);
+        queueTokenIndex.onTokenWaiting(updatedQueue, token);
+        broadcastQueueUpdate(updatedQueue, QueueEventType.TOKEN_ADDED, token);
 
         log.debug("Token {} with user details added to queueId={}", tokenId, queueId);
         return token;
@@ -175,7 +250,6 @@ public class QueueService {
         return response;
     }
 
-    @CacheEvict(value = {"queues", "queuesByPlace"}, allEntries = true)
     public QueueResetResponseDTO resetQueueWithOptions(String queueId, QueueResetRequestDTO resetRequest, String requesterId) {
         Queue queue = getQueueOrThrow(queueId);
 
@@ -192,52 +266,52 @@ public class QueueService {
         QueueResetResponseDTO response = new QueueResetResponseDTO();
 
         if (resetRequest.getPreserveData() != null && resetRequest.getPreserveData()) {
-            try {
-                byte[] exportData = exportService.exportQueueToPdf(queue,
-                        resetRequest.getReportType() != null ? resetRequest.getReportType() : "full",
-                        resetRequest.getIncludeUserDetails());
-
-                String exportId = "export-" + System.currentTimeMillis() + "-" + queueId;
-                String filename = String.format("queue-reset-%s-%s.%s",
-                        queue.getServiceName().replaceAll("\\s+", "-"),
-                        System.currentTimeMillis(),
-                        resetRequest.getReportType() != null && resetRequest.getReportType().equals("excel") ? "xlsx" : "pdf"
-                );
-                exportCacheService.saveExport(exportId, exportData, filename, queueId, resetRequest.getReportType(), "pdf");
-                log.info("Queue data exported for queue {} with ID {}", queueId, exportId);
-
-                response.setExportFileUrl("/export/exports/" + exportId);
-            } catch (Exception e) {
-                log.error("Failed to export queue data before reset: {}", e.getMessage());
-                throw new RuntimeException("Failed to export queue data: " + e.getMessage());
-            }
-        }
-
-        int tokensReset = queue.getTokens().size();
-
-        Set<String> affectedUserIds = queue.getTokens().stream()
-                .map(QueueToken::getUserId)
-                .collect(Collectors.toSet());
+            // Rendered by an export job from a copy of the tokens, stored before the queue is cleared,
+            // so the reset does not wait for it. If the job cannot be queued the reset is aborted
+            // rather than dropping the data.
+            Queue snapshot = exportSnapshot(queue);
+            String reportType = resetRequest.getReportType() != null ? resetRequest.getReportType() : "full";
+            Boolean includeUserDetails = resetRequest.getIncludeUserDetails();
+            String filename = String.format("queue-reset-%s-%s.%s",
+                    queue.getServiceName().replaceAll("\\s+", "-"),
+                    System.currentTimeMillis(),
+                    resetRequest.getReportType() != null && resetRequest.getReportType().equals("excel") ? "xlsx" : "pdf"
+            );
+            ExportJob job = exportJobService.submitQueueSnapshot(requesterId, filename, snapshot, reportType,
+                    includeUserDetails);
+            log.info("Queue data export for queue {} queued as job {}", queueId, job.getId());
 
-        queue.getTokens().clear();
-        queue.setTokenCounter(0);
-        queue.setCurrentPosition(0);
-        queue.setStartTime(LocalDateTime.now());
+            response.setExportFileUrl(job.getDownloadUrl());
+            response.setExportJobId(job.getId());
+        }
 
-        if (queue.getStatistics() != null) {
-            queue.getStatistics().setDailyUsersServed(0);
+        LocalDateTime startTime = LocalDateTime.now();
+        List<QueueToken> resetTokens;
+        if (isAtomicEngine()) {
+            // The queue as it was right before the reset: tokens added since it was read are cleared too
+            Queue before = queueRepository.resetTokens(queueId, startTime);
+            if (before == null) {
+                throw new ResourceNotFoundException("Queue not found with id " + queueId);
+            }
+            queue = before;
+            resetTokens = List.copyOf(queue.getTokens());
+            clearForReset(queue, startTime);
+        } else {
+            resetTokens = List.copyOf(queue.getTokens());
+            clearForReset(queue, startTime);
+            queueRepository.save(queue);
         }
 
-        queueRepository.save(queue);
-        broadcastQueueUpdate(queueId, queue);
+        int tokensReset = resetTokens.size();
+        List<String> resetTokenIds = resetTokens.stream()
+                .map(QueueToken::getTokenId)
+                .toList();
 
-        affectedUserIds.forEach(userId -> {
-            userRepository.findById(userId).ifPresent(user -> {
-                user.setActiveTokenId(null);
-                user.setLastQueueJoinTime(null);
-                userRepository.save(user);
-            });
-        });
+        queueTokenIndex.invalidate(queueId);
+        broadcastQueueUpdate(queue, QueueEventType.QUEUE_RESET, null);
+
+        // Only users whose active token was in this queue; one update instead of a read and write per user
+        userRepository.releaseActiveTokens(resetTokenIds);
 
         response.setSuccess(true);
         response.setMessage("Queue reset successfully");
@@ -249,7 +323,33 @@ public class QueueService {
         return response;
     }
 
-    @CacheEvict(value = {"queues", "queuesByPlace"}, allEntries = true)
+    private static void clearForReset(Queue queue, LocalDateTime startTime) {
+        queue.getTokens().clear();
+        queue.setTokenCounter(0);
+        queue.setCurrentPosition(0);
+        queue.setStartTime(startTime);
+        // The archived tokens belong to the period before the new start time, so their counts go too
+        queue.setCounters(new Queue.TokenCounters());
+
+        if (queue.getStatistics() != null) {
+            queue.getStatistics().setDailyUsersServed(0);
+        }
+    }
+
+    private Queue exportSnapshot(Queue queue) {
+        Queue snapshot = new Queue(queue.getProviderId(), queue.getServiceName(), queue.getPlaceId(), queue.getServiceId());
+        snapshot.setId(queue.getId());
+        snapshot.setIsActive(queue.getIsActive());
+        snapshot.setEstimatedWaitTime(queue.getEstimatedWaitTime());
+        snapshot.setStartTime(queue.getStartTime());
+        snapshot.setCounters(Queue.TokenCounters.of(queue.getTokens(), queue.getCounters()));
+        List<QueueToken> tokens = new ArrayList<>(queue.getTokens());
+        // Tokens that finished earlier since the last reset were already moved to the history
+        tokens.addAll(tokenHistoryService.findArchivedTokens(queue));
+        snapshot.setTokens(tokens);
+        return snapshot;
+    }
+
     public QueueToken addNewToken(String queueId, String userId) {
         Queue queue = getQueueOrThrow(queueId);
 
@@ -258,10 +358,6 @@ public class QueueService {
             throw new QueueInactiveException("Provider is on break. Queue temporarily unavailable.");
         }
 
-        if (hasActiveQueueParticipation(userId)) {
-            throw new UserAlreadyInQueueException("You can only join one queue at a time. Please complete or cancel your current queue participation.");
-        }
-
         boolean hasActiveToken = queue.getTokens().stream()
                 .anyMatch(token -> token.getUserId().equals(userId) &&
                         (TokenStatus.WAITING.toString().equals(token.getStatus()) ||
@@ -271,29 +367,21 @@ public class QueueService {
             throw new UserAlreadyInQueueException("User already has an active token in this queue");
         }
 
-        long waitingAndInServiceTokens = queue.getTokens().stream()
-                .filter(token -> TokenStatus.WAITING.toString().equals(token.getStatus()) ||
-                        TokenStatus.IN_SERVICE.toString().equals(token.getStatus()))
-                .count();
+        Queue.TokenCounters counters = queue.currentCounters();
+        long waitingAndInServiceTokens = counters.getWaiting() + counters.getInService();
 
         if (queue.getMaxCapacity() != null && waitingAndInServiceTokens >= queue.getMaxCapacity()) {
             throw new QueueFullException("Queue has reached its maximum capacity. Please try again later.");
         }
 
-        int nextToken = queue.getTokenCounter() + 1;
-        queue.setTokenCounter(nextToken);
-        String tokenId = queueId + "-T-" + String.format("%03d", nextToken);
+        String tokenId = allocateTokenId(queue, "-T-");
+        claimActiveToken(userId, tokenId, ALREADY_IN_A_QUEUE);
 
         QueueToken token = new QueueToken(tokenId, userId, TokenStatus.WAITING.toString(), LocalDateTime.now());
-        queue.getTokens().add(token);
+        Queue updatedQueue = saveClaimedToken(queue, token);
 
-        User user = getUserOrThrow(userId);
-        user.setActiveTokenId(tokenId);
-        user.setLastQueueJoinTime(LocalDateTime.now());
-        userRepository.save(user);
-
-        Queue updatedQueue = queueRepository.save(queue);
-        broadcastQueueUpdate(queueId, updatedQueue);
+        queueTokenIndex.onTokenWaiting(updatedQueue, token);
+        broadcastQueueUpdate(updatedQueue, QueueEventType.TOKEN_ADDED, token);
 
         log.debug("Token {} added to queueId={}", tokenId, queueId);
 
@@ -306,7 +394,6 @@ public class QueueService {
         return token;
     }
 
-    @CacheEvict(value = {"queues", "queuesByPlace"}, allEntries = true)
     public QueueToken addGroupToken(String queueId, String userId, List<QueueToken.GroupMember> groupMembers) {
         Queue queue = getQueueOrThrow(queueId);
 
@@ -328,10 +415,8 @@ public class QueueService {
             throw new UserAlreadyInQueueException("User already has an active token in this queue");
         }
 
-        long waitingAndInServiceTokens = queue.getTokens().stream()
-                .filter(token -> TokenStatus.WAITING.toString().equals(token.getStatus()) ||
-                        TokenStatus.IN_SERVICE.toString().equals(token.getStatus()))
-                .count();
+        Queue.TokenCounters counters = queue.currentCounters();
+        long waitingAndInServiceTokens = counters.getWaiting() + counters.getInService();
 
         if (queue.getMaxCapacity() != null && waitingAndInServiceTokens >= queue.getMaxCapacity()) {
             throw new IllegalStateException("Queue has reached its maximum capacity. Please try again later.");
@@ -341,23 +426,16 @@ public class QueueService {
             throw new IllegalArgumentException("Group must have at least 2 members");
         }
 
-        int nextToken = queue.getTokenCounter() + 1;
-        queue.setTokenCounter(nextToken);
-        String tokenId = queueId + "-G-" + String.format("%03d", nextToken);
-
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        String tokenId = allocateTokenId(queue, "-G-");
+        User user = claimActiveToken(userId, tokenId, ALREADY_IN_A_QUEUE);
 
         QueueToken token = new QueueToken(tokenId, userId, user.getName(), TokenStatus.WAITING.toString(),
                 LocalDateTime.now(), groupMembers, groupMembers.size());
 
-        queue.getTokens().add(token);
-        user.setActiveTokenId(tokenId);
-        user.setLastQueueJoinTime(LocalDateTime.now());
-        userRepository.save(user);
+        Queue updatedQueue = saveClaimedToken(queue, token);
 
-        Queue updatedQueue = queueRepository.save(queue);
-        broadcastQueueUpdate(queueId, updatedQueue);
+        queueTokenIndex.onTokenWaiting(updatedQueue, token);
+        broadcastQueueUpdate(updatedQueue, QueueEventType.TOKEN_ADDED, token);
 
         log.debug("Group token {} added to queueId={} with {} members", tokenId, queueId, groupMembers.size());
         Map<String, Object> details = new HashMap<>();
@@ -369,7 +447,6 @@ public class QueueService {
         return token;
     }
 
-    @CacheEvict(value = {"queues", "queuesByPlace"}, allEntries = true)
     public QueueToken addEmergencyToken(String queueId, String userId, String emergencyDetails) {
         Queue queue = getQueueOrThrow(queueId);
 
@@ -382,41 +459,45 @@ public class QueueService {
             throw new UnsupportedOperationException("This queue does not support emergency tokens");
         }
 
-        if (hasActiveQueueParticipation(userId)) {
-            throw new UserAlreadyInQueueException("You can only join one queue at a time");
-        }
-
-        long waitingAndInServiceTokens = queue.getTokens().stream()
-                .filter(token -> TokenStatus.WAITING.toString().equals(token.getStatus()) ||
-                        TokenStatus.IN_SERVICE.toString().equals(token.getStatus()))
-                .count();
+        Queue.TokenCounters counters = queue.currentCounters();
+        long waitingAndInServiceTokens = counters.getWaiting() + counters.getInService();
 
         if (queue.getMaxCapacity() != null && waitingAndInServiceTokens >= queue.getMaxCapacity()) {
             throw new IllegalStateException("Queue has reached its maximum capacity. Please try again later.");
         }
 
-        int nextToken = queue.getTokenCounter() + 1;
-        queue.setTokenCounter(nextToken);
-        String tokenId = queueId + "-E-" + String.format("%03d", nextToken);
-
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        String tokenId = allocateTokenId(queue, "-E-");
 
         QueueToken token;
+        Queue updatedQueue;
         if (queue.getAutoApproveEmergency()) {
+            User user = claimActiveToken(userId, tokenId, "You can only join one queue at a time");
             token = new QueueToken(tokenId, userId, user.getName(), TokenStatus.WAITING.toString(),
                     LocalDateTime.now(), emergencyDetails, queue.getEmergencyPriorityWeight());
-            queue.getTokens().add(token);
-            user.setActiveTokenId(tokenId);
-            user.setLastQueueJoinTime(LocalDateTime.now());
-            userRepository.save(user);
+            updatedQueue = saveClaimedToken(queue, token);
+            queueTokenIndex.onTokenWaiting(updatedQueue, token);
         } else {
+            // A pending token only takes the user's active slot once it is approved
+            User user = getUserOrThrow(userId);
+            if (user.getActiveTokenId() != null) {
+                throw new UserAlreadyInQueueException("You can only join one queue at a time");
+            }
             token = new QueueToken(tokenId, userId, user.getName(), TokenStatus.PENDING.toString(),
                     LocalDateTime.now(), emergencyDetails, queue.getEmergencyPriorityWeight());
-            queue.getPendingEmergencyTokens().add(token);
+            if (isAtomicEngine()) {
+                updatedQueue = queueRepository.appendPendingEmergencyToken(queueId, token);
+                if (updatedQueue == null) {
+                    throw new ResourceNotFoundException("Queue not found with id " + queueId);
+                }
+            } else {
+                queue.getPendingEmergencyTokens().add(token);
+                updatedQueue = queueRepository.save(queue);
+            }
         }
-        Queue updatedQueue = queueRepository.save(queue);
-        broadcastQueueUpdate(queueId, updatedQueue);
+        broadcastQueueUpdate(updatedQueue,
+                TokenStatus.WAITING.toString().equals(token.getStatus())
+                        ? QueueEventType.TOKEN_ADDED : QueueEventType.EMERGENCY_REQUESTED,
+                token);
 
         log.debug("Emergency token {} added to queueId={}", tokenId, queueId);
         Map<String, Object> details = new HashMap<>();
@@ -428,7 +509,6 @@ public class QueueService {
         return token;
     }
 
-    @CacheEvict(value = {"queues", "queuesByPlace"}, allEntries = true)
     public Queue approveEmergencyToken(String queueId, String tokenId, boolean approve, String reason) {
         Queue queue = getQueueOrThrow(queueId);
 
@@ -441,15 +521,23 @@ public class QueueService {
         }
 
         QueueToken token = pendingToken.get();
-
+        Queue updatedQueue;
         if (approve) {
+            // The user may have joined another queue while the request was pending
+            claimActiveToken(token.getUserId(), tokenId, "You can only join one queue at a time");
             token.setStatus(TokenStatus.WAITING.toString());
-            queue.getTokens().add(token);
+            try {
+                updatedQueue = savePendingDecision(queue, token, true);
+            } catch (RuntimeException e) {
+                userRepository.releaseActiveToken(token.getUserId(), tokenId);
+                throw e;
+            }
+        } else {
+            updatedQueue = savePendingDecision(queue, token, false);
+        }
 
-            User user = getUserOrThrow(token.getUserId());
-            user.setActiveTokenId(tokenId);
-            user.setLastQueueJoinTime(LocalDateTime.now());
-            userRepository.save(user);
+        if (approve) {
+            queueTokenIndex.onTokenWaiting(updatedQueue, token);
 
             messagingTemplate.convertAndSendToUser(
                     token.getUserId(),
@@ -474,27 +562,57 @@ public class QueueService {
             );
         }
 
-        queue.getPendingEmergencyTokens().removeIf(t -> t.getTokenId().equals(tokenId));
-
-        Queue updatedQueue = queueRepository.save(queue);
-        broadcastQueueUpdate(queueId, updatedQueue);
+        broadcastQueueUpdate(updatedQueue,
+                approve ? QueueEventType.TOKEN_ADDED : QueueEventType.EMERGENCY_REJECTED, token);
 
         return updatedQueue;
     }
 
+    private Queue savePendingDecision(Queue queue, QueueToken token, boolean approve) {
+        if (isAtomicEngine()) {
+            Queue updatedQueue = approve
+                    ? queueRepository.approvePendingEmergencyToken(queue.getId(), token)
+                    : queueRepository.removePendingEmergencyToken(queue.getId(), token.getTokenId());
+            if (updatedQueue == null) {
+                // Approved, rejected or cancelled concurrently
+                throw new ResourceNotFoundException("Pending emergency token not found");
+            }
+            return updatedQueue;
+        }
+        if (approve) {
+            queue.getTokens().add(token);
+        }
+        queue.getPendingEmergencyTokens().removeIf(t -> t.getTokenId().equals(token.getTokenId()));
+        return queueRepository.save(queue);
+    }
+
     public List<QueueToken> getPendingEmergencyTokens(String queueId) {
         Queue queue = getQueueOrThrow(queueId);
         return queue.getPendingEmergencyTokens();
     }
 
-    private void broadcastQueueUpdate(String queueId, Queue queue) {
-        messagingTemplate.convertAndSend("/topic/queues/" + queueId, queue);
-        messagingTemplate.convertAndSend("/topic/queues", queue);
-        messagingTemplate.convertAndSend("/topic/places/" + queue.getPlaceId() + "/queues", queue);
+    private void broadcastQueueUpdate(Queue queue, QueueEventType type, QueueToken token) {
+        broadcastQueueUpdate(queue, QueueEventDTO.of(queue, type, token));
+    }
+
+    private void broadcastQueueUpdate(Queue queue, QueueEventDTO event) {
+        // Only this queue's cache entries are stale; the rest of the cache stays warm
+        queueCacheEvictor.evict(queue);
+        dirtyQueueTracker.markDirty(queue.getId());
+        queueMetricsService.updateQueue(queue);
+        queueEventLog.append(event, sequenced ->
+                messagingTemplate.convertAndSend("/topic/queues/" + queue.getId() + "/events", sequenced));
+        // /topic/queues and the place topics only get coalesced summaries
+        queueSummaryPublisher.submit(queue);
+        if (snapshotBroadcastEnabled) {
+            messagingTemplate.convertAndSend("/topic/queues/" + queue.getId(), queue);
+        }
     }
 
-    @CacheEvict(value = {"queues", "queuesByPlace"}, allEntries = true)
     public Queue serveNextToken(String queueId) {
+        if (isAtomicEngine()) {
+            return serveNextTokenAtomically(queueId);
+        }
         Queue queue = getQueueOrThrow(queueId);
 
         // Complete previous in-service token, if any
@@ -507,17 +625,12 @@ public class QueueService {
             inServiceToken.setCompletedAt(LocalDateTime.now());
             log.info("Completed previous in-service token: {}", inServiceToken.getTokenId());
 
-            // ✅ Clear the user's active token
-            User user = getUserOrThrow(inServiceToken.getUserId());
-            user.setActiveTokenId(null);
-            user.setLastQueueJoinTime(null);
-            userRepository.save(user);
+            // ✅ Clear the user's active token, unless the user already holds a newer one
+            userRepository.releaseActiveToken(inServiceToken.getUserId(), inServiceToken.getTokenId());
         });
 
         // Find next waiting token (with highest priority)
-        Optional<QueueToken> nextToken = queue.getTokens().stream()
-                .filter(t -> TokenStatus.WAITING.toString().equals(t.getStatus()))
-                .max((t1, t2) -> Integer.compare(t1.getPriority(), t2.getPriority()));
+        Optional<QueueToken> nextToken = selectNextWaitingToken(queue);
 
         if (nextToken.isPresent()) {
             QueueToken token = nextToken.get();
@@ -525,7 +638,12 @@ public class QueueService {
             token.setServedAt(LocalDateTime.now());
 
             Queue updatedQueue = queueRepository.save(queue);
-            broadcastQueueUpdate(queueId, updatedQueue);
+            queueTokenIndex.onTokenLeftWaiting(queueId, token.getTokenId());
+            QueueEventDTO event = QueueEventDTO.of(updatedQueue, QueueEventType.TOKEN_SERVED, token);
+            previousInService.ifPresent(completed -> event.setPreviousTokenId(completed.getTokenId()));
+            broadcastQueueUpdate(updatedQueue, event);
+            previousInService.ifPresent(completed -> onTokenTransition(updatedQueue, completed));
+            onTokenTransition(updatedQueue, token);
             log.info("Token {} moved to IN_SERVICE", token.getTokenId());
 
             Map<String, Object> details = new HashMap<>();
@@ -541,6 +659,86 @@ public class QueueService {
         return queue;
     }
 
+    private Optional<QueueToken> selectNextWaitingToken(Queue queue) {
+        return queueTokenIndex.nextWaiting(queue);
+    }
+
+    // Per-token metrics, history and rollups; the queue-level gauges are refreshed by broadcastQueueUpdate
+    private void onTokenTransition(Queue queue, QueueToken token) {
+        if (TokenStatus.IN_SERVICE.toString().equals(token.getStatus())) {
+            queueMetricsService.recordServed(queue, token);
+        } else if (TokenStatus.COMPLETED.toString().equals(token.getStatus())) {
+            queueMetricsService.recordCompleted(queue, token);
+            tokenHistoryService.record(queue, token);
+            analyticsRollupService.recordFinished(queue, token);
+        } else if (TokenStatus.CANCELLED.toString().equals(token.getStatus())) {
+            tokenHistoryService.record(queue, token);
+            analyticsRollupService.recordFinished(queue, token);
+        }
+    }
+
+    private static boolean isFinished(String status) {
+        return TokenStatus.COMPLETED.toString().equals(status) || TokenStatus.CANCELLED.toString().equals(status);
+    }
+
+    /**
+     * Serve-next as a compare-and-swap on the embedded token states. The candidate tokens are
+     * read first, then switched in one update that only matches if they are still WAITING /
+     * IN_SERVICE; if another provider got there first the read is repeated.
+     */
+    private Queue serveNextTokenAtomically(String queueId) {
+        for (int attempt = 1; attempt <= serveNextMaxAttempts; attempt++) {
+            Queue queue = getQueueOrThrow(queueId);
+
+            Optional<QueueToken> previousInService = queue.getTokens().stream()
+                    .filter(t -> TokenStatus.IN_SERVICE.toString().equals(t.getStatus()))
+                    .findFirst();
+            Optional<QueueToken> nextToken = selectNextWaitingToken(queue);
+
+            if (nextToken.isEmpty()) {
+                log.info("No waiting tokens in queueId={}", queueId);
+                return queue;
+            }
+
+            String previousTokenId = previousInService.map(QueueToken::getTokenId).orElse(null);
+            String nextTokenId = nextToken.get().getTokenId();
+            Queue updatedQueue = queueRepository.serveNextToken(queueId, previousTokenId, nextTokenId, LocalDateTime.now());
+            if (updatedQueue == null) {
+                log.debug("Serve-next conflict on queueId={} (attempt {}), retrying", queueId, attempt);
+                continue;
+            }
+
+            previousInService.ifPresent(inServiceToken -> {
+                log.info("Completed previous in-service token: {}", inServiceToken.getTokenId());
+                userRepository.releaseActiveToken(inServiceToken.getUserId(), inServiceToken.getTokenId());
+            });
+
+            QueueEventDTO event = QueueEventDTO.of(updatedQueue, QueueEventType.TOKEN_SERVED, null);
+            event.setPreviousTokenId(previousTokenId);
+            updatedQueue.getTokens().stream()
+                    .filter(t -> t.getTokenId().equals(nextTokenId) || t.getTokenId().equals(previousTokenId))
+                    .forEach(t -> {
+                        onTokenTransition(updatedQueue, t);
+                        if (t.getTokenId().equals(nextTokenId)) {
+                            event.setToken(QueueEventDTO.TokenDelta.from(t));
+                        }
+                    });
+            queueTokenIndex.onTokenLeftWaiting(queueId, nextTokenId);
+            broadcastQueueUpdate(updatedQueue, event);
+            log.info("Token {} moved to IN_SERVICE", nextTokenId);
+
+            Map<String, Object> details = new HashMap<>();
+            details.put("queueId", queueId);
+            details.put("tokenId", nextTokenId);
+            auditLogService.logEvent("TOKEN_SERVED", "Token moved to IN_SERVICE", details);
+
+            return updatedQueue;
+        }
+
+        log.warn("Serve-next on queueId={} gave up after {} conflicting attempts", queueId, serveNextMaxAttempts);
+        throw new IllegalStateException("Queue is being updated concurrently. Please try again.");
+    }
+
     private void createFeedbackOpportunity(QueueToken token, Queue queue) {
         try {
             Optional<Feedback> existingFeedback = feedbackRepository.findByTokenId(token.getTokenId());
@@ -564,35 +762,46 @@ public class QueueService {
         }
     }
 
-    @CacheEvict(value = {"queues", "queuesByPlace"}, allEntries = true)
     public Queue setQueueActiveStatus(String queueId, boolean active) {
-        Queue queue = getQueueOrThrow(queueId);
-        queue.setIsActive(active);
-        Queue updatedQueue = queueRepository.save(queue);
-        broadcastQueueUpdate(queueId, updatedQueue);
+        Queue updatedQueue;
+        if (isAtomicEngine()) {
+            updatedQueue = queueRepository.setActive(queueId, active);
+            if (updatedQueue == null) {
+                throw new ResourceNotFoundException("Queue not found with id " + queueId);
+            }
+        } else {
+            Queue queue = getQueueOrThrow(queueId);
+            queue.setIsActive(active);
+            updatedQueue = queueRepository.save(queue);
+        }
+        broadcastQueueUpdate(updatedQueue, QueueEventType.QUEUE_STATUS, null);
         log.info("Queue {} active status changed to {}", queueId, active);
         return updatedQueue;
     }
 
     @Scheduled(fixedRate = 30000)
-    @CacheEvict(value = {"queues", "queuesByPlace"}, allEntries = true)
     public void updateAllQueueWaitTimes() {
-        log.info("🕐 Updating estimated wait times for all queues");
-        List<Queue> allQueues = queueRepository.findAll();
+        // The estimate only depends on the waiting tokens, so unchanged queues are skipped
+        List<Queue> changedQueues = dirtyQueueTracker.loadChangedQueues(DirtyQueueTracker.WAIT_TIMES);
+        log.debug("🕐 Updating estimated wait times for {} changed queues", changedQueues.size());
 
-        for (Queue queue : allQueues) {
+        for (Queue queue : changedQueues) {
             try {
-                int waitingTokens = (int) queue.getTokens().stream()
-                        .filter(t -> TokenStatus.WAITING.toString().equals(t.getStatus()))
-                        .count();
+                int waitingTokens = queue.currentCounters().getWaiting();
 
                 int estimatedWaitTime = waitingTokens * 5;
+                if (Objects.equals(queue.getEstimatedWaitTime(), estimatedWaitTime)) {
+                    continue;
+                }
                 queue.setEstimatedWaitTime(estimatedWaitTime);
+                // Targeted $set: never overwrites tokens changed since the queue was loaded
+                queueRepository.updateEstimatedWaitTime(queue.getId(), estimatedWaitTime);
 
-                queueRepository.save(queue);
-
+                // Only real changes are published; an unchanged estimate is not news to anyone
                 if (queue.getIsActive()) {
-                    broadcastQueueUpdate(queue.getId(), queue);
+                    broadcastQueueUpdate(queue, QueueEventType.QUEUE_STATUS, null);
+                } else {
+                    queueCacheEvictor.evict(queue);
                 }
             } catch (Exception e) {
                 log.error("Error updating wait time for queue {}: {}", queue.getId(), e.getMessage());
@@ -606,10 +815,12 @@ public class QueueService {
                 providerId, serviceName, placeId, serviceId);
 
         Queue newQueue = new Queue(providerId, serviceName, placeId, serviceId);
-        return queueRepository.save(newQueue);
+        Queue savedQueue = queueRepository.save(newQueue);
+        searchIndexService.indexQueue(savedQueue);
+        return savedQueue;
     }
 
-    @CacheEvict(value = {"queues", "queuesByPlace"}, allEntries = true)
+    @CacheEvict(value = "queuesByPlace", key = "#placeId")
     public Queue createNewQueue(String providerId, String serviceName, String placeId, String serviceId,
                                 Integer maxCapacity, Boolean supportsGroupToken, Boolean emergencySupport,
                                 Integer emergencyPriorityWeight, Boolean requiresEmergencyApproval,
@@ -647,6 +858,7 @@ public class QueueService {
         newQueue.setAutoApproveEmergency(autoApproveEmergency != null ? autoApproveEmergency : false);
 
         Queue savedQueue = queueRepository.save(newQueue); // save first
+        searchIndexService.indexQueue(savedQueue);
 
         Map<String, Object> details = new HashMap<>();
         details.put("queueId", savedQueue.getId());
@@ -659,6 +871,7 @@ public class QueueService {
         return savedQueue;
     }
 
+    @CacheEvict(value = "queuesByPlace", key = "#placeId")
     public Queue createNewQueue(String providerId, String serviceName, String placeId, String serviceId,
                                 Integer maxCapacity, Boolean supportsGroupToken, Boolean emergencySupport, Integer emergencyPriorityWeight) {
         log.info("Creating queue with advanced settings for providerId={}", providerId);
@@ -691,7 +904,9 @@ public class QueueService {
         newQueue.setEmergencySupport(emergencySupport != null ? emergencySupport : false);
         newQueue.setEmergencyPriorityWeight(emergencyPriorityWeight != null ? emergencyPriorityWeight : 10);
 
-        return queueRepository.save(newQueue);
+        Queue savedQueue = queueRepository.save(newQueue);
+        searchIndexService.indexQueue(savedQueue);
+        return savedQueue;
     }
 
     public List<Queue> getQueuesByProviderId(String providerId) {
@@ -725,7 +940,6 @@ public class QueueService {
         return queueRepository.findByIsActive(true);
     }
 
-    @CacheEvict(value = {"queues", "queuesByPlace"}, allEntries = true)
     public Queue completeToken(String queueId, String tokenId) {
         Queue queue = getQueueOrThrow(queueId);
 
@@ -737,6 +951,7 @@ public class QueueService {
                     return new ResourceNotFoundException("Token not found with id " + tokenId);
                 });
 
+        String previousStatus = token.getStatus();
         token.setStatus(TokenStatus.COMPLETED.toString());
         token.setCompletedAt(LocalDateTime.now());
 
@@ -745,13 +960,16 @@ public class QueueService {
             token.setServiceDurationMinutes(durationInMinutes);
         }
 
-        User user = getUserOrThrow(token.getUserId());
-        user.setActiveTokenId(null);
-        user.setLastQueueJoinTime(null);
-        userRepository.save(user);
+        // Only if the slot still holds this token; the user may have moved on to another queue
+        userRepository.releaseActiveToken(token.getUserId(), tokenId);
 
-        Queue updatedQueue = queueRepository.save(queue);
-        broadcastQueueUpdate(queueId, updatedQueue);
+        Queue updatedQueue = saveTokenChange(queue, token, previousStatus);
+        queueTokenIndex.onTokenLeftWaiting(queueId, tokenId);
+        broadcastQueueUpdate(updatedQueue, QueueEventType.TOKEN_COMPLETED, token);
+        // A token that had already finished was counted when it did
+        if (!isFinished(previousStatus)) {
+            onTokenTransition(updatedQueue, token);
+        }
 
         log.info("Token {} marked COMPLETED", tokenId);
 
@@ -763,39 +981,59 @@ public class QueueService {
     }
 
     @Scheduled(fixedRate = 3600000) // Run every hour
-    @CacheEvict(value = {"queues", "queuesByPlace"}, allEntries = true)
     public void cleanupExpiredTokens() {
         log.info("Cleaning up expired tokens (older than 24 hours)...");
-        List<Queue> allQueues = queueRepository.findAll();
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(24);
+        // Only queues that actually hold an expired token are loaded
+        List<Queue> expiredQueues = queueRepository.findByTokensIssuedAtBefore(cutoff);
+        List<String> expiredTokenIds = new ArrayList<>();
 
-        for (Queue queue : allQueues) {
+        for (Queue queue : expiredQueues) {
             boolean modified = false;
+            List<QueueToken> removedTokens = new ArrayList<>();
+            List<String> removedTokenIds = new ArrayList<>();
             Iterator<QueueToken> iterator = queue.getTokens().iterator();
 
             while (iterator.hasNext()) {
                 QueueToken token = iterator.next();
-                if (token.getIssuedAt().isBefore(LocalDateTime.now().minusHours(24))) {
-                    userRepository.findById(token.getUserId()).ifPresent(user -> {
-                        if (token.getTokenId().equals(user.getActiveTokenId())) {
-                            user.setActiveTokenId(null);
-                            user.setLastQueueJoinTime(null);
-                            userRepository.save(user);
-                        }
-                    });
+                if (token.getIssuedAt().isBefore(cutoff)) {
                     iterator.remove();
+                    removedTokens.add(token);
+                    removedTokenIds.add(token.getTokenId());
                     modified = true;
                     log.info("Removed expired token: {}", token.getTokenId());
                 }
             }
 
             if (modified) {
-                queueRepository.save(queue);
-                broadcastQueueUpdate(queue.getId(), queue);
+                // Keep a record of what expired; finished tokens are normally archived long before
+                tokenHistoryService.archive(queue, removedTokens);
+                Queue updatedQueue = queue;
+                if (isAtomicEngine()) {
+                    updatedQueue = queueRepository.removeTokens(queue.getId(), removedTokens);
+                    if (updatedQueue == null) {
+                        // One of them changed since the queue was loaded; the next run removes what is still expired
+                        log.info("Expired tokens of queue {} changed concurrently, skipped", queue.getId());
+                        continue;
+                    }
+                } else {
+                    queueRepository.save(queue);
+                }
+                queueTokenIndex.invalidate(queue.getId());
+                QueueEventDTO event = QueueEventDTO.of(updatedQueue, QueueEventType.TOKENS_REMOVED, null);
+                event.setTokenIds(removedTokenIds);
+                broadcastQueueUpdate(updatedQueue, event);
+                expiredTokenIds.addAll(removedTokenIds);
             }
         }
+
+        if (!expiredTokenIds.isEmpty()) {
+            // Frees users still holding an expired token, across all queues at once
+            long released = userRepository.releaseActiveTokens(expiredTokenIds);
+            log.info("Released {} users from expired tokens", released);
+        }
     }
 
-    @CacheEvict(value = {"queues", "queuesByPlace"}, allEntries = true)
     public Queue cancelToken(String queueId, String tokenId, String reason) {
         Queue queue = getQueueOrThrow(queueId);
 
@@ -804,17 +1042,18 @@ public class QueueService {
                 .filter(t -> t.getTokenId().equals(tokenId))
                 .findFirst();
 
+        QueueToken cancelledToken = null;
+        String previousStatus = null;
         if (tokenOpt.isPresent()) {
             QueueToken token = tokenOpt.get();
+            cancelledToken = token;
+            previousStatus = token.getStatus();
             token.setStatus(TokenStatus.CANCELLED.toString());
             token.setCancellationReason(reason);
             token.setCompletedAt(LocalDateTime.now());
 
-            // Clear user's active token
-            User user = getUserOrThrow(token.getUserId());
-            user.setActiveTokenId(null);
-            user.setLastQueueJoinTime(null);
-            userRepository.save(user);
+            // Clear user's active token, if it is still this one
+            userRepository.releaseActiveToken(token.getUserId(), tokenId);
 
             // Notify user
             messagingTemplate.convertAndSendToUser(
@@ -828,16 +1067,34 @@ public class QueueService {
             );
         } else {
             // Check pending emergency tokens
-            boolean removed = queue.getPendingEmergencyTokens().removeIf(t -> t.getTokenId().equals(tokenId));
-            if (!removed) {
+            Optional<QueueToken> pendingToken = queue.getPendingEmergencyTokens().stream()
+                    .filter(t -> t.getTokenId().equals(tokenId))
+                    .findFirst();
+            if (pendingToken.isEmpty()) {
                 log.error("Token not found for cancellation: {}", tokenId);
                 throw new ResourceNotFoundException("Token not found with id " + tokenId);
             }
+            cancelledToken = pendingToken.get();
             // For pending tokens, no user state to clear (they never became active)
         }
 
-        Queue updatedQueue = queueRepository.save(queue);
-        broadcastQueueUpdate(queueId, updatedQueue);
+        Queue updatedQueue;
+        if (tokenOpt.isPresent()) {
+            updatedQueue = saveTokenChange(queue, tokenOpt.get(), previousStatus);
+        } else if (isAtomicEngine()) {
+            updatedQueue = queueRepository.removePendingEmergencyToken(queueId, tokenId);
+            if (updatedQueue == null) {
+                throw new ResourceNotFoundException("Token not found with id " + tokenId);
+            }
+        } else {
+            queue.getPendingEmergencyTokens().remove(cancelledToken);
+            updatedQueue = queueRepository.save(queue);
+        }
+        queueTokenIndex.onTokenLeftWaiting(queueId, tokenId);
+        broadcastQueueUpdate(updatedQueue, QueueEventType.TOKEN_CANCELLED, cancelledToken);
+        if (tokenOpt.isPresent() && !isFinished(previousStatus)) {
+            onTokenTransition(updatedQueue, tokenOpt.get());
+        }
         log.info("Token {} cancelled", tokenId);
 
         // Fix: Use HashMap to allow null reason
@@ -852,15 +1109,26 @@ public class QueueService {
         return updatedQueue;
     }
 
-    @CacheEvict(value = {"queues", "queuesByPlace"}, allEntries = true)
     public Queue reorderQueue(String queueId, List<QueueToken> newTokens) {
         Queue queue = getQueueOrThrow(queueId);
-        queue.setTokens(newTokens);
         newTokens.stream()
                 .filter(t -> "WAITING".equals(t.getStatus()))
                 .forEach(t -> t.setNotificationSent(false));
-        Queue updatedQueue = queueRepository.save(queue);
-        broadcastQueueUpdate(queueId, updatedQueue);
+        Queue updatedQueue;
+        if (isAtomicEngine()) {
+            // Only applies to the token list the new order was made from
+            updatedQueue = queueRepository.replaceTokens(queueId, queue.getTokens(), newTokens);
+            if (updatedQueue == null) {
+                throw new IllegalStateException("Queue is being updated concurrently. Please try again.");
+            }
+        } else {
+            queue.setTokens(newTokens);
+            updatedQueue = queueRepository.save(queue);
+        }
+        queueTokenIndex.invalidate(queueId);
+        QueueEventDTO event = QueueEventDTO.of(updatedQueue, QueueEventType.QUEUE_REORDERED, null);
+        event.setTokenIds(updatedQueue.getTokens().stream().map(QueueToken::getTokenId).collect(Collectors.toList()));
+        broadcastQueueUpdate(updatedQueue, event);
 
         log.info("Queue reordered for queueId={}", queueId);
         return updatedQueue;
@@ -898,37 +1166,38 @@ public class QueueService {
 
             if (needsUpdate) {
                 queueRepository.save(queue);
+                queueCacheEvictor.evict(queue);
                 log.info("Fixed inconsistent token statuses for queue {}", queue.getId());
             }
         }
     }
 
-    @CacheEvict(value = {"queues", "queuesByPlace"}, allEntries = true) // <-- added
     public Queue updateQueueStatistics(String queueId) {
         Queue queue = getQueueOrThrow(queueId);
+        int totalServed = queue.currentCounters().getCompleted();
 
-        if (queue.getStatistics() == null) {
-            queue.setStatistics(new Queue.QueueStatistics());
+        Queue updatedQueue;
+        if (isAtomicEngine()) {
+            updatedQueue = queueRepository.updateTotalServed(queueId, totalServed);
+            if (updatedQueue == null) {
+                throw new ResourceNotFoundException("Queue not found with id " + queueId);
+            }
+        } else {
+            if (queue.getStatistics() == null) {
+                queue.setStatistics(new Queue.QueueStatistics());
+            }
+            queue.getStatistics().setTotalServed(totalServed);
+            updatedQueue = queueRepository.save(queue);
         }
-
-        queue.getStatistics().setTotalServed(
-                (int) queue.getTokens().stream()
-                        .filter(t -> TokenStatus.COMPLETED.toString().equals(t.getStatus()))
-                        .count()
-        );
-
-        Queue updatedQueue = queueRepository.save(queue);
-        broadcastQueueUpdate(queueId, updatedQueue);
+        broadcastQueueUpdate(updatedQueue, QueueEventType.QUEUE_STATUS, null);
 
         log.info("Updated statistics for queue {}", queueId);
         return updatedQueue;
     }
 
     public List<Queue> getQueuesByUserId(String userId) {
-        return queueRepository.findAll().stream()
-                .filter(queue -> queue.getTokens().stream()
-                        .anyMatch(token -> token.getUserId().equals(userId)))
-                .collect(Collectors.toList());
+        // The embedded tokens are authoritative; tokens_userId_idx avoids scanning every queue
+        return queueRepository.findByTokensUserId(userId);
     }
 
     public Integer calculateCurrentWaitTime(String queueId) {
@@ -938,9 +1207,7 @@ public class QueueService {
             return 0;
         }
 
-        long waitingTokens = queue.getTokens().stream()
-                .filter(t -> TokenStatus.WAITING.toString().equals(t.getStatus()))
-                .count();
+        long waitingTokens = queue.currentCounters().getWaiting();
 
         Service service = serviceService.getServiceById(queue.getServiceId());
         Integer averageServiceTime = service != null ? service.getAverageServiceTime() : 5;
@@ -1002,31 +1269,14 @@ public class QueueService {
             return new UserPositionDTO(queueId, userId, null, null, null, queue.getEstimatedWaitTime());
         }
 
-        // Compute position among waiting tokens (only WAITING tokens count)
-        List<QueueToken> waitingTokens = queue.getTokens().stream()
-                .filter(t -> TokenStatus.WAITING.toString().equals(t.getStatus()))
-                .sorted((t1, t2) -> {
-                    // Priority first, then issue time
-                    if (!t1.getPriority().equals(t2.getPriority())) {
-                        return t2.getPriority() - t1.getPriority();
-                    }
-                    return t1.getIssuedAt().compareTo(t2.getIssuedAt());
-                })
-                .collect(Collectors.toList());
-
-        int position = -1;
-        for (int i = 0; i < waitingTokens.size(); i++) {
-            if (waitingTokens.get(i).getTokenId().equals(userToken.getTokenId())) {
-                position = i + 1; // 1‑based
-                break;
-            }
-        }
+        // Position among waiting tokens (only WAITING tokens count), 1-based
+        Integer position = queueTokenIndex.positionOf(queue, userToken);
 
         return new UserPositionDTO(
                 queueId,
                 userId,
                 userToken.getTokenId(),
-                position > 0 ? position : null,
+                position,
                 userToken.getStatus(),
                 queue.getEstimatedWaitTime()
         );
@@ -0,0 +1,62 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.dto.QueueSummaryDTO;
+import com.queueless.backend.model.Queue;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Coalesces queue changes into per-queue summaries and publishes them once per window
+ * ({@code websocket.summary.window-ms}). However many times a queue changes inside a window,
+ * subscribers of {@code /topic/queues} and of its place topic get one summary for it.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QueueSummaryPublisher {
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final Map<String, QueueSummaryDTO> pending = new ConcurrentHashMap<>();
+
+    public void submit(Queue queue) {
+        // Latest state wins, earlier changes in the same window are dropped
+        pending.put(queue.getId(), QueueSummaryDTO.from(queue));
+    }
+
+    @Scheduled(fixedDelayString = "${websocket.summary.window-ms:2000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<QueueSummaryDTO> batch = new ArrayList<>(pending.size());
+        for (String queueId : new ArrayList<>(pending.keySet())) {
+            QueueSummaryDTO summary = pending.remove(queueId);
+            if (summary != null) {
+                batch.add(summary);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            messagingTemplate.convertAndSend("/topic/queues", batch);
+            Map<String, List<QueueSummaryDTO>> byPlace = batch.stream()
+                    .filter(summary -> summary.getPlaceId() != null)
+                    .collect(Collectors.groupingBy(QueueSummaryDTO::getPlaceId));
+            byPlace.forEach((placeId, summaries) ->
+                    messagingTemplate.convertAndSend("/topic/places/" + placeId + "/queues", summaries));
+            log.debug("Published {} queue summaries to {} places", batch.size(), byPlace.size());
+        } catch (Exception e) {
+            log.error("Failed to publish queue summaries: {}", e.getMessage());
+        }
+    }
+}
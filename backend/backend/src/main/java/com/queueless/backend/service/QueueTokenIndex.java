@@ -0,0 +1,316 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.enums.TokenStatus;
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.model.QueueToken;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Live serving order of the WAITING tokens of each queue, kept as an order-statistics tree
+ * (a size-augmented treap) keyed by priority (desc) and arrival in the token list (asc).
+ * Without a manual reorder the arrival order is the issue-time order.
+ * <p>
+ * QueueService updates it on every transition, so lookups need no sort over all tokens. An
+ * entry is rebuilt from the queue document when it is missing, older than
+ * {@code queue.index.ttl-seconds}, or the token counter moved on. Transitions made by other
+ * instances (serve, cancel, emergency approval) do not move the counter, so every lookup also
+ * checks the entry against the document it was given: it must hold exactly the document's
+ * WAITING tokens, otherwise it is rebuilt. Only a reorder made on another instance, which keeps
+ * the same tokens, goes unnoticed until the entry expires.
+ */
+@Slf4j
+@Component
+public class QueueTokenIndex {
+
+    @Value("${queue.index.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${queue.index.ttl-seconds:60}")
+    private long ttlSeconds = 60;
+
+    private final Map<String, QueueOrder> orders = new ConcurrentHashMap<>();
+
+    public Optional<QueueToken> nextWaiting(Queue queue) {
+        String tokenId = currentOrder(queue).first();
+        return tokenId != null ? Optional.of(findToken(queue, tokenId)) : Optional.empty();
+    }
+
+    /**
+     * 1-based position of a WAITING token, or {@code null} if it is not waiting.
+     */
+    public Integer positionOf(Queue queue, QueueToken token) {
+        if (!isWaiting(token)) {
+            return null;
+        }
+        int rank = currentOrder(queue).rank(token.getTokenId());
+        return rank > 0 ? rank : null;
+    }
+
+    public List<QueueToken> waitingInOrder(Queue queue) {
+        Map<String, QueueToken> byId = new HashMap<>();
+        queue.getTokens().forEach(t -> byId.put(t.getTokenId(), t));
+
+        List<String> tokenIds = currentOrder(queue).tokenIds();
+        List<QueueToken> waiting = new ArrayList<>(tokenIds.size());
+        tokenIds.forEach(tokenId -> waiting.add(byId.get(tokenId)));
+        return waiting;
+    }
+
+    public void onTokenWaiting(Queue queue, QueueToken token) {
+        QueueOrder order = orders.get(queue.getId());
+        if (order == null) {
+            return;
+        }
+        int counter = queue.getTokenCounter() != null ? queue.getTokenCounter() : 0;
+        synchronized (order) {
+            // A new join moves the counter by one; anything else means writes were missed
+            if (counter == order.stamp || counter == order.stamp + 1) {
+                order.add(token.getTokenId(), token.getPriority());
+                order.stamp = counter;
+                return;
+            }
+        }
+        invalidate(queue.getId());
+    }
+
+    public void onTokenLeftWaiting(String queueId, String tokenId) {
+        QueueOrder order = orders.get(queueId);
+        if (order != null) {
+            order.remove(tokenId);
+        }
+    }
+
+    public void invalidate(String queueId) {
+        orders.remove(queueId);
+    }
+
+    /**
+     * The order for {@code queue}, rebuilt from it unless it holds exactly its WAITING tokens.
+     */
+    private QueueOrder currentOrder(Queue queue) {
+        QueueOrder order = orderFor(queue);
+        Set<String> waiting = new HashSet<>();
+        for (QueueToken token : queue.getTokens()) {
+            if (isWaiting(token)) {
+                waiting.add(token.getTokenId());
+            }
+        }
+        if (order.holds(waiting)) {
+            return order;
+        }
+        // The index disagrees with the document, rebuild from what was just read
+        return rebuild(queue);
+    }
+
+    private QueueOrder orderFor(Queue queue) {
+        QueueOrder order = enabled ? orders.get(queue.getId()) : null;
+        int counter = queue.getTokenCounter() != null ? queue.getTokenCounter() : 0;
+        if (order == null || order.isExpired(ttlSeconds) || order.stamp != counter) {
+            order = rebuild(queue);
+        }
+        return order;
+    }
+
+    private QueueOrder rebuild(Queue queue) {
+        QueueOrder order = new QueueOrder(queue.getTokenCounter() != null ? queue.getTokenCounter() : 0);
+        for (QueueToken token : queue.getTokens()) {
+            if (isWaiting(token)) {
+                order.add(token.getTokenId(), token.getPriority());
+            }
+        }
+        if (enabled) {
+            orders.put(queue.getId(), order);
+        }
+        log.debug("Rebuilt token index for queue {} ({} waiting)", queue.getId(), order.size());
+        return order;
+    }
+
+    private QueueToken findToken(Queue queue, String tokenId) {
+        for (QueueToken token : queue.getTokens()) {
+            if (tokenId.equals(token.getTokenId())) {
+                return token;
+            }
+        }
+        return null;
+    }
+
+    private boolean isWaiting(QueueToken token) {
+        return token != null && TokenStatus.WAITING.toString().equals(token.getStatus());
+    }
+
+    private record Key(int priority, long sequence) implements Comparable<Key> {
+        @Override
+        public int compareTo(Key other) {
+            int byPriority = Integer.compare(other.priority, priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final class Node {
+        final Key key;
+        final String tokenId;
+        final int weight = ThreadLocalRandom.current().nextInt();
+        int size = 1;
+        Node left;
+        Node right;
+
+        Node(Key key, String tokenId) {
+            this.key = key;
+            this.tokenId = tokenId;
+        }
+    }
+
+    /**
+     * Treap over the waiting tokens of one queue; every node also stores its subtree size
+     * so that the rank of a key can be found on the way down.
+     */
+    private static final class QueueOrder {
+        private final Map<String, Key> keys = new HashMap<>();
+        private final long builtAt = System.currentTimeMillis();
+        private Node root;
+        private long nextSequence;
+        private volatile int stamp;
+
+        QueueOrder(int stamp) {
+            this.stamp = stamp;
+        }
+
+        boolean isExpired(long ttlSeconds) {
+            return System.currentTimeMillis() - builtAt > ttlSeconds * 1000;
+        }
+
+        synchronized int size() {
+            return keys.size();
+        }
+
+        synchronized boolean holds(Set<String> tokenIds) {
+            return keys.keySet().equals(tokenIds);
+        }
+
+        synchronized void add(String tokenId, Integer priority) {
+            if (keys.containsKey(tokenId)) {
+                return;
+            }
+            Key key = new Key(priority != null ? priority : 0, nextSequence++);
+            keys.put(tokenId, key);
+            Node[] parts = split(root, key);
+            root = merge(merge(parts[0], new Node(key, tokenId)), parts[1]);
+        }
+
+        synchronized void remove(String tokenId) {
+            Key key = keys.remove(tokenId);
+            if (key != null) {
+                root = erase(root, key);
+            }
+        }
+
+        synchronized String first() {
+            Node node = root;
+            if (node == null) {
+                return null;
+            }
+            while (node.left != null) {
+                node = node.left;
+            }
+            return node.tokenId;
+        }
+
+        synchronized int rank(String tokenId) {
+            Key key = keys.get(tokenId);
+            if (key == null) {
+                return 0;
+            }
+            int rank = 0;
+            Node node = root;
+            while (node != null) {
+                int cmp = key.compareTo(node.key);
+                if (cmp < 0) {
+                    node = node.left;
+                } else if (cmp > 0) {
+                    rank += size(node.left) + 1;
+                    node = node.right;
+                } else {
+                    return rank + size(node.left) + 1;
+                }
+            }
+            return 0;
+        }
+
+        synchronized List<String> tokenIds() {
+            List<String> ids = new ArrayList<>(keys.size());
+            Deque<Node> stack = new ArrayDeque<>();
+            Node node = root;
+            while (node != null || !stack.isEmpty()) {
+                while (node != null) {
+                    stack.push(node);
+                    node = node.left;
+                }
+                node = stack.pop();
+                ids.add(node.tokenId);
+                node = node.right;
+            }
+            return ids;
+        }
+
+        private static int size(Node node) {
+            return node != null ? node.size : 0;
+        }
+
+        private static void update(Node node) {
+            node.size = 1 + size(node.left) + size(node.right);
+        }
+
+        // Splits into keys strictly before {@code key} and the rest
+        private static Node[] split(Node node, Key key) {
+            if (node == null) {
+                return new Node[]{null, null};
+            }
+            if (node.key.compareTo(key) < 0) {
+                Node[] parts = split(node.right, key);
+                node.right = parts[0];
+                update(node);
+                return new Node[]{node, parts[1]};
+            }
+            Node[] parts = split(node.left, key);
+            node.left = parts[1];
+            update(node);
+            return new Node[]{parts[0], node};
+        }
+
+        private static Node merge(Node left, Node right) {
+            if (left == null) return right;
+            if (right == null) return left;
+            if (left.weight > right.weight) {
+                left.right = merge(left.right, right);
+                update(left);
+                return left;
+            }
+            right.left = merge(left, right.left);
+            update(right);
+            return right;
+        }
+
+        private static Node erase(Node node, Key key) {
+            if (node == null) {
+                return null;
+            }
+            int cmp = key.compareTo(node.key);
+            if (cmp == 0) {
+                return merge(node.left, node.right);
+            }
+            if (cmp < 0) {
+                node.left = erase(node.left, key);
+            } else {
+                node.right = erase(node.right, key);
+            }
+            update(node);
+            return node;
+        }
+    }
+}
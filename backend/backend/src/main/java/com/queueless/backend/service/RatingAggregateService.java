@@ -0,0 +1,253 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.model.Feedback;
+import com.queueless.backend.model.Place;
+import com.queueless.backend.model.RatingAggregate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Rating aggregates per place and per provider. A submitted feedback is added with one
+ * {@code $inc}, so reading an average is a single document lookup. Aggregates missing
+ * for older data are computed with a {@code $group} over the feedbacks on first use and
+ * only inserted if still absent, and {@link #recomputeAll()} rebuilds all of them the same
+ * way, replacing an aggregate only if no feedback was added to it since it was read.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RatingAggregateService {
+
+    public static final String PLACE_RATINGS = "place_ratings";
+    public static final String PROVIDER_RATINGS = "provider_ratings";
+
+    // Feedback rating fields; the aggregate keeps a <field>Sum and <field>Count for each
+    private static final List<String> DIMENSIONS = List.of("rating", "staffRating", "serviceRating", "waitTimeRating");
+    private static final int REBUILD_ATTEMPTS = 3;
+
+    private final MongoTemplate mongoTemplate;
+
+    private enum Target {
+        PLACE(PLACE_RATINGS, "placeId"),
+        PROVIDER(PROVIDER_RATINGS, "providerId");
+
+        private final String collection;
+        private final String feedbackField;
+
+        Target(String collection, String feedbackField) {
+            this.collection = collection;
+            this.feedbackField = feedbackField;
+        }
+    }
+
+    /**
+     * Adds a saved feedback to its place and provider aggregates and copies the new place
+     * average onto the place.
+     */
+    public void add(Feedback feedback) {
+        if (feedback.getPlaceId() != null) {
+            syncPlace(addTo(Target.PLACE, feedback.getPlaceId(), feedback));
+        }
+        if (feedback.getProviderId() != null) {
+            addTo(Target.PROVIDER, feedback.getProviderId(), feedback);
+        }
+    }
+
+    public RatingAggregate forPlace(String placeId) {
+        return load(Target.PLACE, List.of(placeId)).get(placeId);
+    }
+
+    public RatingAggregate forProvider(String providerId) {
+        return load(Target.PROVIDER, List.of(providerId)).get(providerId);
+    }
+
+    public Map<String, RatingAggregate> forPlaces(Collection<String> placeIds) {
+        return load(Target.PLACE, placeIds);
+    }
+
+    public Map<String, RatingAggregate> forProviders(Collection<String> providerIds) {
+        return load(Target.PROVIDER, providerIds);
+    }
+
+    /**
+     * Rebuilds every place and provider aggregate from the feedbacks.
+     */
+    public void recomputeAll() {
+        for (Target target : Target.values()) {
+            int count = 0;
+            try (Stream<RatingAggregate> results = mongoTemplate.aggregateStream(
+                    groupedBy(target, Criteria.where(target.feedbackField).ne(null)), Feedback.class, RatingAggregate.class)) {
+                Iterator<RatingAggregate> iterator = results.iterator();
+                while (iterator.hasNext()) {
+                    RatingAggregate aggregate = rebuild(target, iterator.next());
+                    if (aggregate != null && target == Target.PLACE) {
+                        syncPlace(aggregate);
+                    }
+                    count++;
+                }
+            }
+            log.info("Recomputed {} rating aggregates in {}", count, target.collection);
+        }
+    }
+
+    private RatingAggregate addTo(Target target, String id, Feedback feedback) {
+        Update update = new Update().set("updatedAt", LocalDateTime.now()).inc("feedbackCount", 1);
+        for (String field : DIMENSIONS) {
+            Integer value = ratingOf(feedback, field);
+            if (value != null) {
+                update.inc(field + "Sum", value).inc(field + "Count", 1);
+            }
+        }
+        RatingAggregate updated = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(id)), update,
+                FindAndModifyOptions.options().returnNew(true), RatingAggregate.class, target.collection);
+        if (updated == null) {
+            // No aggregate yet: build it from the feedbacks, which already include this one
+            updated = recompute(target, List.of(id)).get(id);
+        } else if (updated.getFeedbackCount() < updated.getRatingCount()) {
+            // Stored before feedbackCount was kept; rebuilt once so totalRatings starts from the real count
+            RatingAggregate rebuilt = rebuild(target, group(target, List.of(id)).getOrDefault(id, new RatingAggregate(id)));
+            updated = rebuilt != null ? rebuilt : updated;
+        }
+        return updated;
+    }
+
+    private Map<String, RatingAggregate> load(Target target, Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, RatingAggregate> aggregates = mongoTemplate.find(
+                        new Query(Criteria.where("_id").in(ids)), RatingAggregate.class, target.collection).stream()
+                .collect(Collectors.toMap(RatingAggregate::getId, Function.identity()));
+        List<String> missing = ids.stream().filter(id -> !aggregates.containsKey(id)).distinct().toList();
+        if (!missing.isEmpty()) {
+            aggregates.putAll(recompute(target, missing));
+        }
+        return aggregates;
+    }
+
+    // First-use build; an aggregate another request stored meanwhile (and any $inc on it) is kept
+    private Map<String, RatingAggregate> recompute(Target target, List<String> ids) {
+        Map<String, RatingAggregate> computed = group(target, ids);
+
+        Map<String, RatingAggregate> result = new HashMap<>();
+        for (String id : ids) {
+            // Places and providers without feedback get an empty aggregate, so the next read is a lookup too
+            RatingAggregate aggregate = computed.getOrDefault(id, new RatingAggregate(id));
+            if (!insertIfAbsent(target, aggregate)) {
+                RatingAggregate stored = mongoTemplate.findById(id, RatingAggregate.class, target.collection);
+                aggregate = stored != null ? stored : aggregate;
+            }
+            result.put(id, aggregate);
+        }
+        log.debug("Recomputed {} rating aggregates in {}", ids.size(), target.collection);
+        return result;
+    }
+
+    /**
+     * Stores a freshly grouped aggregate unless a feedback was added to the stored one between
+     * reading it and writing; then the group is run again. Returns what was stored, or
+     * {@code null} if it kept changing.
+     */
+    private RatingAggregate rebuild(Target target, RatingAggregate computed) {
+        String id = computed.getId();
+        for (int attempt = 1; attempt <= REBUILD_ATTEMPTS; attempt++) {
+            RatingAggregate current = mongoTemplate.findById(id, RatingAggregate.class, target.collection);
+            if (attempt > 1) {
+                // Grouped after reading current, so it covers every $inc current reflects
+                computed = group(target, List.of(id)).getOrDefault(id, new RatingAggregate(id));
+            }
+            if (current == null) {
+                if (insertIfAbsent(target, computed)) {
+                    return computed;
+                }
+                continue;
+            }
+            computed.setUpdatedAt(LocalDateTime.now());
+            Query unchanged = new Query(Criteria.where("_id").is(id)
+                    .and("feedbackCount").in(current.getFeedbackCount() == 0
+                            ? Arrays.asList(0L, null) : List.of(current.getFeedbackCount())));
+            if (mongoTemplate.updateFirst(unchanged, fieldsOf(computed, false), target.collection).getMatchedCount() > 0) {
+                return computed;
+            }
+        }
+        log.debug("Rating aggregate {} in {} kept changing, left for the next rebuild", id, target.collection);
+        return null;
+    }
+
+    private Map<String, RatingAggregate> group(Target target, List<String> ids) {
+        return mongoTemplate.aggregate(
+                        groupedBy(target, Criteria.where(target.feedbackField).in(ids)), Feedback.class, RatingAggregate.class)
+                .getMappedResults().stream()
+                .collect(Collectors.toMap(RatingAggregate::getId, Function.identity()));
+    }
+
+    private Aggregation groupedBy(Target target, Criteria match) {
+        Document group = new Document("_id", "$" + target.feedbackField)
+                .append("feedbackCount", new Document("$sum", 1));
+        for (String field : DIMENSIONS) {
+            group.append(field + "Sum", new Document("$sum", new Document("$ifNull", List.of("$" + field, 0))))
+                    .append(field + "Count", new Document("$sum", new Document("$cond",
+                            List.of(new Document("$gt", Arrays.asList("$" + field, null)), 1, 0))));
+        }
+        AggregationOperation groupStage = context -> new Document("$group", group);
+        return Aggregation.newAggregation(Aggregation.match(match), groupStage);
+    }
+
+    // Upsert that only writes when no aggregate is stored; returns whether this call inserted it
+    private boolean insertIfAbsent(Target target, RatingAggregate aggregate) {
+        aggregate.setUpdatedAt(LocalDateTime.now());
+        return mongoTemplate.upsert(new Query(Criteria.where("_id").is(aggregate.getId())),
+                fieldsOf(aggregate, true), target.collection).getUpsertedId() != null;
+    }
+
+    private static Update fieldsOf(RatingAggregate aggregate, boolean onInsert) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("ratingSum", aggregate.getRatingSum());
+        fields.put("ratingCount", aggregate.getRatingCount());
+        fields.put("staffRatingSum", aggregate.getStaffRatingSum());
+        fields.put("staffRatingCount", aggregate.getStaffRatingCount());
+        fields.put("serviceRatingSum", aggregate.getServiceRatingSum());
+        fields.put("serviceRatingCount", aggregate.getServiceRatingCount());
+        fields.put("waitTimeRatingSum", aggregate.getWaitTimeRatingSum());
+        fields.put("waitTimeRatingCount", aggregate.getWaitTimeRatingCount());
+        fields.put("feedbackCount", aggregate.getFeedbackCount());
+        fields.put("updatedAt", aggregate.getUpdatedAt());
+        Update update = new Update();
+        fields.forEach(onInsert ? update::setOnInsert : update::set);
+        return update;
+    }
+
+    // totalRatings counts every feedback of the place, as it did before the aggregates
+    private void syncPlace(RatingAggregate aggregate) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(aggregate.getId())),
+                new Update().set("rating", aggregate.averageRating())
+                        .set("totalRatings", (int) aggregate.getFeedbackCount()),
+                Place.class);
+    }
+
+    private static Integer ratingOf(Feedback feedback, String field) {
+        return switch (field) {
+            case "rating" -> feedback.getRating();
+            case "staffRating" -> feedback.getStaffRating();
+            case "serviceRating" -> feedback.getServiceRating();
+            case "waitTimeRating" -> feedback.getWaitTimeRating();
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,125 @@
+package com.queueless.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.queueless.backend.dto.QueueEventDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * {@link QueueEventLog} shared by every node of the redis and relay broker modes, where any
+ * node may publish events of the same queue. The sequence is a Redis {@code INCR} per queue and
+ * the retained events a sorted set scored by sequence, so events are numbered once across
+ * nodes and any node can replay them. A replay with a hole (an event numbered but not stored
+ * yet by another node) falls back to a snapshot like an expired one. The epoch is stored next
+ * to the sequence, so it survives node restarts and only changes if Redis lost the keys.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("'${websocket.broker.mode:simple}'.matches('redis|relay')")
+public class RedisQueueEventLog extends QueueEventLog {
+
+    static final String KEY_PREFIX = "queueless:queue-events:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    // Keeps this node's events of one queue in sequence order on the broker
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    public RedisQueueEventLog(StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public QueueEventDTO append(QueueEventDTO event, Consumer<QueueEventDTO> sender) {
+        String queueId = event.getQueueId();
+        synchronized (locks.computeIfAbsent(queueId, id -> new Object())) {
+            Long sequence = redisTemplate.opsForValue().increment(sequenceKey(queueId));
+            event.setSequence(sequence);
+            event.setEpoch(epoch(queueId));
+            try {
+                ZSetOperations<String, String> events = redisTemplate.opsForZSet();
+                events.add(eventsKey(queueId), objectMapper.writeValueAsString(event), sequence);
+                events.removeRange(eventsKey(queueId), 0, -historySize - 1);
+            } catch (Exception e) {
+                // Clients that miss this event take a snapshot instead of a replay
+                log.error("Failed to store event {} of queue {}: {}", sequence, queueId, e.getMessage());
+            }
+            sender.accept(event);
+        }
+        return event;
+    }
+
+    @Override
+    public Optional<List<QueueEventDTO>> eventsSince(String queueId, String epoch, long lastSequence) {
+        if (epoch == null || !epoch.equals(epoch(queueId))) {
+            return Optional.empty();
+        }
+        long current = currentSequence(queueId);
+        if (lastSequence > current) {
+            return Optional.empty();
+        }
+        if (lastSequence == current) {
+            return Optional.of(List.of());
+        }
+        Set<String> stored = redisTemplate.opsForZSet()
+                .rangeByScore(eventsKey(queueId), lastSequence + 1, current);
+        List<QueueEventDTO> missed = new ArrayList<>();
+        long expected = lastSequence + 1;
+        try {
+            for (String json : stored != null ? stored : Set.<String>of()) {
+                QueueEventDTO event = objectMapper.readValue(json, QueueEventDTO.class);
+                if (event.getSequence() != expected) {
+                    return Optional.empty();
+                }
+                missed.add(event);
+                expected++;
+            }
+        } catch (Exception e) {
+            log.error("Failed to read events of queue {}: {}", queueId, e.getMessage());
+            return Optional.empty();
+        }
+        return expected == current + 1 ? Optional.of(missed) : Optional.empty();
+    }
+
+    @Override
+    public String epoch(String queueId) {
+        String epoch = redisTemplate.opsForValue().get(epochKey(queueId));
+        if (epoch != null) {
+            return epoch;
+        }
+        // First event of the queue, or Redis lost the sequence: a new numbering starts
+        redisTemplate.opsForValue().setIfAbsent(epochKey(queueId), UUID.randomUUID().toString());
+        return redisTemplate.opsForValue().get(epochKey(queueId));
+    }
+
+    @Override
+    public long currentSequence(String queueId) {
+        String sequence = redisTemplate.opsForValue().get(sequenceKey(queueId));
+        return sequence != null ? Long.parseLong(sequence) : 0;
+    }
+
+    private static String sequenceKey(String queueId) {
+        return KEY_PREFIX + queueId + ":seq";
+    }
+
+    private static String epochKey(String queueId) {
+        return KEY_PREFIX + queueId + ":epoch";
+    }
+
+    private static String eventsKey(String queueId) {
+        return KEY_PREFIX + queueId + ":events";
+    }
+}
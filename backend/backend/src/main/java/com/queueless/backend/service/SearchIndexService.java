@@ -0,0 +1,269 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.enums.SearchEntityType;
+import com.queueless.backend.model.Place;
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.model.Service;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * In-memory prefix index over places, services and queues, used by SearchService instead
+ * of {@code $regex} scans. Names and descriptions are split into lowercase, accent-free
+ * terms kept in a sorted map, so each query term is a range scan over the terms it is a
+ * prefix of. Every query term has to match; entities are ranked by the field that matched
+ * (names above descriptions) and by how much of the indexed term the query covers.
+ *
+ * PlaceService, ServiceService and QueueService update it on their writes. {@link #rebuild()}
+ * reloads it from Mongo on startup and periodically, which also picks up writes made on
+ * other instances.
+ */
+@Slf4j
+@org.springframework.stereotype.Service
+@RequiredArgsConstructor
+public class SearchIndexService {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float TEXT_WEIGHT = 1f;
+    // Bonus for a query term equal to the indexed term rather than a prefix of it
+    private static final float EXACT_MATCH = 2f;
+
+    private final MongoTemplate mongoTemplate;
+
+    private volatile Map<SearchEntityType, TermIndex> indexes = emptyIndexes();
+    // Writes made while rebuild() loads, by type and id (empty for a removal), replayed onto
+    // the new index before it is swapped in so the older streamed copies do not win
+    private Map<SearchEntityType, Map<String, Optional<Map<String, Float>>>> changedDuringRebuild;
+    // Guards changedDuringRebuild and the swap, so no write falls between the replay and the swap
+    private final Object writeLock = new Object();
+
+    public void indexPlace(Place place) {
+        put(SearchEntityType.PLACE, place.getId(), termsOf(place));
+    }
+
+    public void indexService(Service service) {
+        put(SearchEntityType.SERVICE, service.getId(), termsOf(service));
+    }
+
+    public void indexQueue(Queue queue) {
+        put(SearchEntityType.QUEUE, queue.getId(), termsOf(queue));
+    }
+
+    public void remove(SearchEntityType type, String id) {
+        synchronized (writeLock) {
+            indexes.get(type).remove(id);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.get(type).put(id, Optional.empty());
+            }
+        }
+    }
+
+    /**
+     * Ids of the entities matching every term of {@code query}, best match first.
+     */
+    public List<String> search(SearchEntityType type, String query, int limit) {
+        List<String> queryTerms = tokenize(query).distinct().toList();
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        return indexes.get(type).search(queryTerms, limit);
+    }
+
+    public int size(SearchEntityType type) {
+        return indexes.get(type).size();
+    }
+
+    /**
+     * Loads all places, services and queue names from Mongo into a new index and swaps it in.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        Map<SearchEntityType, TermIndex> rebuilt = emptyIndexes();
+        synchronized (writeLock) {
+            changedDuringRebuild = new EnumMap<>(SearchEntityType.class);
+            for (SearchEntityType type : SearchEntityType.values()) {
+                changedDuringRebuild.put(type, new HashMap<>());
+            }
+        }
+        try {
+            load(Place.class, List.of("name", "type", "address", "description"),
+                    place -> rebuilt.get(SearchEntityType.PLACE).put(place.getId(), termsOf(place)));
+            load(Service.class, List.of("name", "description"),
+                    service -> rebuilt.get(SearchEntityType.SERVICE).put(service.getId(), termsOf(service)));
+            load(Queue.class, List.of("serviceName"),
+                    queue -> rebuilt.get(SearchEntityType.QUEUE).put(queue.getId(), termsOf(queue)));
+            synchronized (writeLock) {
+                changedDuringRebuild.forEach((type, changes) -> changes.forEach((id, terms) -> {
+                    if (terms.isPresent()) {
+                        rebuilt.get(type).put(id, terms.get());
+                    } else {
+                        rebuilt.get(type).remove(id);
+                    }
+                }));
+                indexes = rebuilt;
+            }
+        } finally {
+            synchronized (writeLock) {
+                changedDuringRebuild = null;
+            }
+        }
+        log.info("Search index rebuilt in {} ms: {} places, {} services, {} queues",
+                System.currentTimeMillis() - start, size(SearchEntityType.PLACE),
+                size(SearchEntityType.SERVICE), size(SearchEntityType.QUEUE));
+    }
+
+    private <T> void load(Class<T> type, List<String> fields, Consumer<T> indexer) {
+        Query query = new Query();
+        fields.forEach(field -> query.fields().include(field));
+        try (Stream<T> entities = mongoTemplate.stream(query, type)) {
+            entities.forEach(indexer);
+        }
+    }
+
+    private void put(SearchEntityType type, String id, Map<String, Float> terms) {
+        if (id == null) {
+            return;
+        }
+        synchronized (writeLock) {
+            indexes.get(type).put(id, terms);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.get(type).put(id, Optional.of(terms));
+            }
+        }
+    }
+
+    private static Map<String, Float> termsOf(Place place) {
+        Map<String, Float> terms = new HashMap<>();
+        addTerms(terms, place.getName(), NAME_WEIGHT);
+        addTerms(terms, place.getType(), TEXT_WEIGHT);
+        addTerms(terms, place.getAddress(), TEXT_WEIGHT);
+        addTerms(terms, place.getDescription(), TEXT_WEIGHT);
+        return terms;
+    }
+
+    private static Map<String, Float> termsOf(Service service) {
+        Map<String, Float> terms = new HashMap<>();
+        addTerms(terms, service.getName(), NAME_WEIGHT);
+        addTerms(terms, service.getDescription(), TEXT_WEIGHT);
+        return terms;
+    }
+
+    private static Map<String, Float> termsOf(Queue queue) {
+        Map<String, Float> terms = new HashMap<>();
+        addTerms(terms, queue.getServiceName(), NAME_WEIGHT);
+        return terms;
+    }
+
+    private static void addTerms(Map<String, Float> terms, String text, float weight) {
+        tokenize(text).forEach(term -> terms.merge(term, weight, Math::max));
+    }
+
+    static Stream<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Stream.empty();
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return NON_WORD.splitAsStream(folded.toLowerCase(Locale.ROOT)).filter(term -> !term.isEmpty());
+    }
+
+    private static Map<SearchEntityType, TermIndex> emptyIndexes() {
+        Map<SearchEntityType, TermIndex> indexes = new EnumMap<>(SearchEntityType.class);
+        for (SearchEntityType type : SearchEntityType.values()) {
+            indexes.put(type, new TermIndex());
+        }
+        return indexes;
+    }
+
+    /**
+     * Term to entity postings for one entity type, with each entity's terms so that an
+     * update can remove the old ones.
+     */
+    private static final class TermIndex {
+        private final ConcurrentSkipListMap<String, Map<String, Float>> postings = new ConcurrentSkipListMap<>();
+        private final Map<String, Map<String, Float>> termsById = new ConcurrentHashMap<>();
+
+        synchronized void put(String id, Map<String, Float> terms) {
+            remove(id);
+            termsById.put(id, terms);
+            terms.forEach((term, weight) ->
+                    postings.computeIfAbsent(term, t -> new ConcurrentHashMap<>()).put(id, weight));
+        }
+
+        synchronized void remove(String id) {
+            Map<String, Float> previous = termsById.remove(id);
+            if (previous == null) {
+                return;
+            }
+            for (String term : previous.keySet()) {
+                postings.computeIfPresent(term, (t, ids) -> {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+
+        int size() {
+            return termsById.size();
+        }
+
+        List<String> search(List<String> queryTerms, int limit) {
+            Map<String, Float> scores = null;
+            for (String queryTerm : queryTerms) {
+                Map<String, Float> termScores = new HashMap<>();
+                for (Map.Entry<String, Map<String, Float>> entry
+                        : postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, true).entrySet()) {
+                    String term = entry.getKey();
+                    float match = term.length() == queryTerm.length()
+                            ? EXACT_MATCH
+                            : (float) queryTerm.length() / term.length();
+                    entry.getValue().forEach((id, weight) -> termScores.merge(id, weight * match, Math::max));
+                }
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    scores.replaceAll((id, score) -> score + termScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+            return top(scores, limit);
+        }
+
+        private static List<String> top(Map<String, Float> scores, int limit) {
+            Comparator<Map.Entry<String, Float>> ranking = Map.Entry.<String, Float>comparingByValue()
+                    .thenComparing(Map.Entry.<String, Float>comparingByKey(Comparator.reverseOrder()));
+            // Min-heap of the best {@code limit} entries
+            PriorityQueue<Map.Entry<String, Float>> best = new PriorityQueue<>(Math.min(limit, scores.size()) + 1, ranking);
+            for (Map.Entry<String, Float> entry : scores.entrySet()) {
+                best.add(entry);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            List<String> ids = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                ids.add(best.poll().getKey());
+            }
+            Collections.reverse(ids);
+            return ids;
+        }
+    }
+}
@@ -1,213 +1,321 @@
 package com.queueless.backend.service;
 
 import com.queueless.backend.dto.*;
+import com.queueless.backend.enums.SearchEntityType;
 import com.queueless.backend.model.Place;
 import com.queueless.backend.model.Service;
 import com.queueless.backend.model.Queue;
 import com.queueless.backend.repository.PlaceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
 import org.springframework.data.mongodb.core.query.Criteria;
-import org.springframework.data.mongodb.core.query.Query;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+/**
+ * Each collection is searched with one aggregation whose {@code $facet} returns the page
+ * and the total count together. Queue pages join their place and service with
+ * {@code $lookup} and compute the current wait time in the pipeline. Services and queues
+ * are searched concurrently on virtual threads, after the places whose ids they are
+ * filtered by.
+ */
 @Slf4j
 @org.springframework.stereotype.Service
 @RequiredArgsConstructor
 public class SearchService {
 
+    // Sort key that keeps search index order
+    public static final String RELEVANCE = "relevance";
+
+    private static final String RANK = "_rank";
+    // Used when a queue's service has no average service time
+    private static final int DEFAULT_SERVICE_MINUTES = 5;
+
     private final PlaceRepository placeRepository;
-    private final PlaceService placeService;
-    private final QueueService queueService;
     private final MongoTemplate mongoTemplate;
+    private final SearchIndexService searchIndexService;
+    private final NearbyPlaceCache nearbyPlaceCache;
+
+    // Best index matches considered per entity type before filters and paging
+    @Value("${search.index.max-candidates:1000}")
+    private int maxCandidates = 1000;
 
     public SearchResultDTO comprehensiveSearch(SearchRequestDTO request, Pageable pageable) {
         log.info("Performing comprehensive search with filters: {}", request);
 
         SearchResultDTO result = new SearchResultDTO();
+        String query = request.getQuery() != null && !request.getQuery().isBlank() ? request.getQuery() : null;
+
+        // Places first: when they match, services and queues are filtered by their ids
+        List<String> placeIds = request.isSearchPlaces() ? searchPlaces(request, query, pageable, result) : List.of();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> services = request.isSearchServices()
+                    ? executor.submit(() -> searchServices(request, query, placeIds, pageable, result))
+                    : null;
+            Future<?> queues = request.isSearchQueues()
+                    ? executor.submit(() -> searchQueues(request, query, placeIds, pageable, result))
+                    : null;
+            await(services);
+            await(queues);
+        }
 
-        // 1. Initialize a list to hold all relevant place IDs.
-        List<String> placeIds = new ArrayList<>();
+        return result;
+    }
 
-        // 2. Search for places first if the flag is true or if a place-specific filter is used.
-        if (request.isSearchPlaces()) {
-            // Build criteria for places
-            List<Criteria> placeCriteriaList = new ArrayList<>();
+    private List<String> searchPlaces(SearchRequestDTO request, String query, Pageable pageable, SearchResultDTO result) {
+        List<Criteria> placeCriteriaList = new ArrayList<>();
 
-            if (request.getQuery() != null && !request.getQuery().isEmpty()) {
-                placeCriteriaList.add(Criteria.where("name").regex(request.getQuery(), "i"));
-            }
-            if (request.getPlaceType() != null && !request.getPlaceType().isEmpty()) {
-                placeCriteriaList.add(Criteria.where("type").is(request.getPlaceType()));
-            }
-            if (request.getMinRating() != null && request.getMinRating() > 0) {
-                placeCriteriaList.add(Criteria.where("rating").gte(request.getMinRating()));
-            }
-            if (request.getIsActive() != null) {
-                placeCriteriaList.add(Criteria.where("isActive").is(request.getIsActive()));
-            }
+        if (request.getPlaceType() != null && !request.getPlaceType().isEmpty()) {
+            placeCriteriaList.add(Criteria.where("type").is(request.getPlaceType()));
+        }
+        if (request.getMinRating() != null && request.getMinRating() > 0) {
+            placeCriteriaList.add(Criteria.where("rating").gte(request.getMinRating()));
+        }
+        if (request.getIsActive() != null) {
+            placeCriteriaList.add(Criteria.where("isActive").is(request.getIsActive()));
+        }
 
-            // Build the query for finding places (with pagination)
-            Query placeFindQuery = new Query();
-            if (!placeCriteriaList.isEmpty()) {
-                placeFindQuery.addCriteria(new Criteria().andOperator(placeCriteriaList.toArray(new Criteria[0])));
-            }
-            List<Place> places = mongoTemplate.find(placeFindQuery.with(pageable), Place.class);
+        Matches<Place> places = find(Place.class, placeCriteriaList,
+                query != null ? searchIndexService.search(SearchEntityType.PLACE, query, maxCandidates) : null,
+                pageable, List.of(), List.of(), doc -> mongoTemplate.getConverter().read(Place.class, doc));
 
-            // Build a separate query for counting (without pagination)
-            Query placeCountQuery = new Query();
-            if (!placeCriteriaList.isEmpty()) {
-                placeCountQuery.addCriteria(new Criteria().andOperator(placeCriteriaList.toArray(new Criteria[0])));
-            }
-            long totalPlaces = mongoTemplate.count(placeCountQuery, Place.class);
-
-            result.setPlaces(places.stream().map(PlaceDTO::fromEntity).collect(Collectors.toList()));
-            result.setTotalPlaces(totalPlaces);
-            int size = pageable.getPageSize();
-            result.setPlacesPage(pageable.getPageNumber());
-            result.setPlacesTotalPages((int) Math.ceil((double) totalPlaces / size));
-
-            // Collect place IDs for the next searches
-            placeIds = places.stream().map(Place::getId).collect(Collectors.toList());
-        }
-
-        // 3. Search Services
-        if (request.isSearchServices()) {
-            List<Criteria> serviceCriteriaList = new ArrayList<>();
-
-            // If a place search was performed, use the returned place IDs as a filter.
-            // Otherwise, search for services by name.
-            if (!placeIds.isEmpty()) {
-                serviceCriteriaList.add(Criteria.where("placeId").in(placeIds));
-            } else if (request.getQuery() != null && !request.getQuery().isEmpty()) {
-                // If no places were found/searched, search services by name and description
-                serviceCriteriaList.add(new Criteria().orOperator(
-                        Criteria.where("name").regex(request.getQuery(), "i"),
-                        Criteria.where("description").regex(request.getQuery(), "i")
-                ));
-            }
+        result.setPlaces(places.items().stream().map(PlaceDTO::fromEntity).collect(Collectors.toList()));
+        result.setTotalPlaces(places.total());
+        result.setPlacesPage(pageable.getPageNumber());
+        result.setPlacesTotalPages(totalPages(places.total(), pageable));
 
-            // Add other filters if they are present
-            if (request.getSupportsGroupToken() != null) {
-                serviceCriteriaList.add(Criteria.where("supportsGroupToken").is(request.getSupportsGroupToken()));
-            }
-            if (request.getEmergencySupport() != null) {
-                serviceCriteriaList.add(Criteria.where("emergencySupport").is(request.getEmergencySupport()));
-            }
-            if (request.getIsActive() != null) {
-                serviceCriteriaList.add(Criteria.where("isActive").is(request.getIsActive()));
-            }
+        return places.items().stream().map(Place::getId).collect(Collectors.toList());
+    }
 
-            // Build find query with pagination
-            Query serviceFindQuery = new Query();
-            if (!serviceCriteriaList.isEmpty()) {
-                serviceFindQuery.addCriteria(new Criteria().andOperator(serviceCriteriaList.toArray(new Criteria[0])));
-            }
-            List<Service> services = mongoTemplate.find(serviceFindQuery.with(pageable), Service.class);
+    private void searchServices(SearchRequestDTO request, String query, List<String> placeIds,
+                                Pageable pageable, SearchResultDTO result) {
+        List<Criteria> serviceCriteriaList = new ArrayList<>();
+        List<String> rankedServiceIds = null;
+
+        // If a place search was performed, use the returned place IDs as a filter.
+        // Otherwise, search for services by name and description.
+        if (!placeIds.isEmpty()) {
+            serviceCriteriaList.add(Criteria.where("placeId").in(placeIds));
+        } else if (query != null) {
+            rankedServiceIds = searchIndexService.search(SearchEntityType.SERVICE, query, maxCandidates);
+        }
 
-            // Build count query without pagination
-            Query serviceCountQuery = new Query();
-            if (!serviceCriteriaList.isEmpty()) {
-                serviceCountQuery.addCriteria(new Criteria().andOperator(serviceCriteriaList.toArray(new Criteria[0])));
-            }
-            long totalServices = mongoTemplate.count(serviceCountQuery, Service.class);
+        if (request.getSupportsGroupToken() != null) {
+            serviceCriteriaList.add(Criteria.where("supportsGroupToken").is(request.getSupportsGroupToken()));
+        }
+        if (request.getEmergencySupport() != null) {
+            serviceCriteriaList.add(Criteria.where("emergencySupport").is(request.getEmergencySupport()));
+        }
+        if (request.getIsActive() != null) {
+            serviceCriteriaList.add(Criteria.where("isActive").is(request.getIsActive()));
+        }
+
+        Matches<Service> services = find(Service.class, serviceCriteriaList, rankedServiceIds, pageable,
+                List.of(), List.of(), doc -> mongoTemplate.getConverter().read(Service.class, doc));
 
-            result.setServices(services.stream().map(ServiceDTO::fromEntity).collect(Collectors.toList()));
-            result.setTotalServices(totalServices);
-            int size = pageable.getPageSize();
-            result.setServicesPage(pageable.getPageNumber());
-            result.setServicesTotalPages((int) Math.ceil((double) totalServices / size));
+        result.setServices(services.items().stream().map(ServiceDTO::fromEntity).collect(Collectors.toList()));
+        result.setTotalServices(services.total());
+        result.setServicesPage(pageable.getPageNumber());
+        result.setServicesTotalPages(totalPages(services.total(), pageable));
+    }
+
+    private void searchQueues(SearchRequestDTO request, String query, List<String> placeIds,
+                              Pageable pageable, SearchResultDTO result) {
+        List<Criteria> queueCriteriaList = new ArrayList<>();
+        List<String> rankedQueueIds = null;
+
+        // If a place search was performed, use the returned place IDs as a filter.
+        // Otherwise, search for queues by serviceName.
+        if (!placeIds.isEmpty()) {
+            queueCriteriaList.add(Criteria.where("placeId").in(placeIds));
+        } else if (query != null) {
+            rankedQueueIds = searchIndexService.search(SearchEntityType.QUEUE, query, maxCandidates);
         }
 
-        // 4. Search Queues
-        if (request.isSearchQueues()) {
-            List<Criteria> queueCriteriaList = new ArrayList<>();
+        if (request.getMaxWaitTime() != null) {
+            queueCriteriaList.add(Criteria.where("estimatedWaitTime").lte(request.getMaxWaitTime()));
+        }
+        if (request.getSupportsGroupToken() != null) {
+            queueCriteriaList.add(Criteria.where("supportsGroupToken").is(request.getSupportsGroupToken()));
+        }
+        if (request.getEmergencySupport() != null) {
+            queueCriteriaList.add(Criteria.where("emergencySupport").is(request.getEmergencySupport()));
+        }
+        if (request.getIsActive() != null) {
+            queueCriteriaList.add(Criteria.where("isActive").is(request.getIsActive()));
+        }
 
-            // If a place search was performed, use the returned place IDs as a filter.
-            // Otherwise, search for queues by serviceName.
-            if (!placeIds.isEmpty()) {
-                queueCriteriaList.add(Criteria.where("placeId").in(placeIds));
-            } else if (request.getQuery() != null && !request.getQuery().isEmpty()) {
-                queueCriteriaList.add(Criteria.where("serviceName").regex(request.getQuery(), "i"));
-            }
+        Matches<EnhancedQueueDTO> queues = find(Queue.class, queueCriteriaList, rankedQueueIds, pageable,
+                queueShape(), queueLookups(), this::toEnhancedQueue);
 
-            // Add other filters if they are present
-            if (request.getMaxWaitTime() != null) {
-                queueCriteriaList.add(Criteria.where("estimatedWaitTime").lte(request.getMaxWaitTime()));
-            }
-            if (request.getSupportsGroupToken() != null) {
-                queueCriteriaList.add(Criteria.where("supportsGroupToken").is(request.getSupportsGroupToken()));
-            }
-            if (request.getEmergencySupport() != null) {
-                queueCriteriaList.add(Criteria.where("emergencySupport").is(request.getEmergencySupport()));
-            }
-            if (request.getIsActive() != null) {
-                queueCriteriaList.add(Criteria.where("isActive").is(request.getIsActive()));
-            }
+        result.setQueues(queues.items());
+        result.setTotalQueues(queues.total());
+        result.setQueuesPage(pageable.getPageNumber());
+        result.setQueuesTotalPages(totalPages(queues.total(), pageable));
+    }
+
+    private record Matches<T>(List<T> items, long total) {
+    }
 
-            // Build find query with pagination
-            Query queueFindQuery = new Query();
-            if (!queueCriteriaList.isEmpty()) {
-                queueFindQuery.addCriteria(new Criteria().andOperator(queueCriteriaList.toArray(new Criteria[0])));
+    /**
+     * One page of the documents matching {@code criteria} and their total, from a single
+     * aggregation. With {@code rankedIds} from the search index only those documents are
+     * considered, and they keep their relevance order unless the page asks for another sort.
+     *
+     * @param shape   stages applied to every match before paging
+     * @param lookups stages applied to the page only
+     */
+    private <T> Matches<T> find(Class<?> collection, List<Criteria> criteria, List<String> rankedIds,
+                                Pageable pageable, List<Document> shape, List<Document> lookups,
+                                Function<Document, T> reader) {
+        if (rankedIds != null) {
+            if (rankedIds.isEmpty()) {
+                return new Matches<>(List.of(), 0);
             }
-            List<Queue> queues = mongoTemplate.find(queueFindQuery.with(pageable), Queue.class);
+            criteria = new ArrayList<>(criteria);
+            criteria.add(Criteria.where("_id").in(rankedIds));
+        }
 
-            // Build count query without pagination
-            Query queueCountQuery = new Query();
-            if (!queueCriteriaList.isEmpty()) {
-                queueCountQuery.addCriteria(new Criteria().andOperator(queueCriteriaList.toArray(new Criteria[0])));
+        List<AggregationOperation> stages = new ArrayList<>();
+        if (!criteria.isEmpty()) {
+            stages.add(Aggregation.match(new Criteria().andOperator(criteria.toArray(new Criteria[0]))));
+        }
+        shape.forEach(stage -> stages.add(context -> stage));
+
+        List<Document> page = new ArrayList<>();
+        if (rankedIds != null && byRelevance(pageable)) {
+            stages.add(context -> new Document("$addFields", new Document(RANK,
+                    new Document("$indexOfArray", List.of(rankedIds, new Document("$toString", "$_id"))))));
+            page.add(new Document("$sort", new Document(RANK, 1)));
+        } else if (pageable.getSort().isSorted()) {
+            Document sort = new Document();
+            for (Sort.Order order : pageable.getSort()) {
+                sort.append(order.getProperty(), order.isAscending() ? 1 : -1);
             }
-            long totalQueues = mongoTemplate.count(queueCountQuery, Queue.class);
-
-            // Fetch place information for the found queues
-            List<String> queuePlaceIds = queues.stream()
-                    .map(Queue::getPlaceId)
-                    .distinct()
-                    .collect(Collectors.toList());
-
-            Map<String, Place> placeMap = placeService.getPlacesByIds(queuePlaceIds).stream()
-                    .collect(Collectors.toMap(Place::getId, Function.identity()));
-
-            List<EnhancedQueueDTO> enhancedQueues = queues.stream()
-                    .map(queue -> {
-                        EnhancedQueueDTO dto = EnhancedQueueDTO.fromQueue(queue);
-                        dto.setCurrentWaitTime(queueService.calculateCurrentWaitTime(queue.getId()));
-                        Place place = placeMap.get(queue.getPlaceId());
-                        if (place != null) {
-                            dto.setPlaceName(place.getName());
-                            dto.setPlaceAddress(place.getAddress());
-                            dto.setPlaceRating(place.getRating());
-                        }
-                        return dto;
-                    })
-                    .collect(Collectors.toList());
-
-            result.setQueues(enhancedQueues);
-            result.setTotalQueues(totalQueues);
-            int size = pageable.getPageSize();
-            result.setQueuesPage(pageable.getPageNumber());
-            result.setQueuesTotalPages((int) Math.ceil((double) totalQueues / size));
+            page.add(new Document("$sort", sort));
         }
+        page.add(new Document("$skip", pageable.getOffset()));
+        page.add(new Document("$limit", pageable.getPageSize()));
+        page.addAll(lookups);
 
-        return result;
+        stages.add(context -> new Document("$facet", new Document("items", page)
+                .append("total", List.of(new Document("$count", "count")))));
+
+        Document facets = mongoTemplate.aggregate(Aggregation.newAggregation(stages), collection, Document.class)
+                .getUniqueMappedResult();
+        if (facets == null) {
+            return new Matches<>(List.of(), 0);
+        }
+        List<Document> totals = facets.getList("total", Document.class, List.of());
+        long total = totals.isEmpty() ? 0 : ((Number) totals.get(0).get("count")).longValue();
+        List<T> items = facets.getList("items", Document.class, List.of()).stream().map(reader).toList();
+        return new Matches<>(items, total);
+    }
+
+    // Waiting count from the stored counters (or the tokens for queues without them yet); tokens are then dropped
+    private static List<Document> queueShape() {
+        Document waitingInTokens = new Document("$size", new Document("$filter", new Document()
+                .append("input", new Document("$ifNull", List.of("$tokens", List.of())))
+                .append("cond", new Document("$eq", List.of("$$this.status", "WAITING")))));
+        return List.of(
+                new Document("$addFields", new Document("waiting",
+                        new Document("$ifNull", List.of("$counters.waiting", waitingInTokens)))),
+                new Document("$project", new Document("tokens", 0).append("pendingEmergencyTokens", 0)));
+    }
+
+    // Place details and the service's average time for the page, joined on the string ids queues store
+    private static List<Document> queueLookups() {
+        return List.of(
+                lookupById("places", "$placeId", "place", new Document("name", 1).append("address", 1).append("rating", 1)),
+                lookupById("services", "$serviceId", "service", new Document("averageServiceTime", 1)),
+                new Document("$addFields", new Document()
+                        .append("place", new Document("$arrayElemAt", List.of("$place", 0)))
+                        .append("currentWaitTime", new Document("$multiply", List.of("$waiting",
+                                new Document("$ifNull", List.of(
+                                        new Document("$arrayElemAt", List.of("$service.averageServiceTime", 0)),
+                                        DEFAULT_SERVICE_MINUTES)))))));
+    }
+
+    private static Document lookupById(String from, String idField, String as, Document fields) {
+        Document objectId = new Document("$convert", new Document("input", "$$id")
+                .append("to", "objectId").append("onError", null).append("onNull", null));
+        return new Document("$lookup", new Document()
+                .append("from", from)
+                .append("let", new Document("id", idField))
+                .append("pipeline", List.of(
+                        new Document("$match", new Document("$expr", new Document("$eq", List.of("$_id", objectId)))),
+                        new Document("$project", fields)))
+                .append("as", as));
+    }
+
+    private EnhancedQueueDTO toEnhancedQueue(Document doc) {
+        EnhancedQueueDTO dto = EnhancedQueueDTO.fromQueue(mongoTemplate.getConverter().read(Queue.class, doc));
+        dto.setWaitingTokens(intValue(doc.get("waiting")));
+        dto.setCurrentWaitTime(intValue(doc.get("currentWaitTime")));
+        Document place = doc.get("place", Document.class);
+        if (place != null) {
+            dto.setPlaceName(place.getString("name"));
+            dto.setPlaceAddress(place.getString("address"));
+            dto.setPlaceRating(place.get("rating") instanceof Number rating ? rating.doubleValue() : null);
+        }
+        return dto;
+    }
+
+    private static Integer intValue(Object value) {
+        return value instanceof Number number ? number.intValue() : 0;
+    }
+
+    private static int totalPages(long total, Pageable pageable) {
+        return (int) Math.ceil((double) total / pageable.getPageSize());
+    }
+
+    private static boolean byRelevance(Pageable pageable) {
+        return pageable.getSort().isUnsorted() || pageable.getSort().getOrderFor(RELEVANCE) != null;
+    }
+
+    private static void await(Future<?> search) {
+        if (search == null) {
+            return;
+        }
+        try {
+            search.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Search interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
     }
 
     public List<Place> searchNearbyWithFilters(Double longitude, Double latitude, Double radius,
                                                SearchRequestDTO request) {
-        return placeRepository.searchNearbyWithFilters(
-                request.getQuery(),
-                request.getPlaceTypes(),
-                request.getMinRating(),
-                longitude,
-                latitude,
-                radius * 1000 // Convert km to meters
-        );
+        // Filtered from the cached tile, which is already limited to the radius and sorted by distance
+        String name = request.getQuery() != null ? request.getQuery().toLowerCase(Locale.ROOT) : "";
+        List<String> types = request.getPlaceTypes();
+        Double minRating = request.getMinRating();
+        return nearbyPlaceCache.findNearby(longitude, latitude, radius).stream()
+                .filter(place -> Boolean.TRUE.equals(place.getIsActive()))
+                .filter(place -> place.getName() != null && place.getName().toLowerCase(Locale.ROOT).contains(name))
+                .filter(place -> types == null || types.isEmpty() || types.contains(place.getType()))
+                .filter(place -> minRating == null || (place.getRating() != null && place.getRating() >= minRating))
+                .collect(Collectors.toList());
     }
 
     public List<String> getAvailablePlaceTypes() {
@@ -221,8 +329,8 @@ public class SearchService {
         SearchStatisticsDTO statistics = new SearchStatisticsDTO();
 
         Long placeCount = placeRepository.countByFilters(
-                request.getQuery(),
-                request.getPlaceType(),
+                literal(request.getQuery()),
+                literal(request.getPlaceType()),
                 request.getMinRating(),
                 request.getIsActive()
         );
@@ -230,4 +338,9 @@ public class SearchService {
 
         return statistics;
     }
+
+    // User input is matched literally, never as a regular expression
+    private static String literal(String text) {
+        return Pattern.quote(text != null ? text : "");
+    }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.queueless.backend.service;
 
 import com.queueless.backend.dto.ServiceDTO;
+import com.queueless.backend.enums.SearchEntityType;
 import com.queueless.backend.model.Service;
 import com.queueless.backend.repository.ServiceRepository;
 import lombok.RequiredArgsConstructor;
@@ -20,6 +21,7 @@ public class ServiceService {
 
     private final ServiceRepository serviceRepository;
     private final PlaceService placeService;
+    private final SearchIndexService searchIndexService;
 
     @CacheEvict(allEntries = true)
     public Service createService(ServiceDTO serviceDTO) {
@@ -35,6 +37,7 @@ public class ServiceService {
         service.setIsActive(serviceDTO.getIsActive());
 
         Service saved = serviceRepository.save(service);
+        searchIndexService.indexService(saved);
         log.info("Service saved with ID: {} – cache cleared for services and servicesByPlace", saved.getId());
         return saved;
     }
@@ -79,6 +82,7 @@ public class ServiceService {
         if (serviceDTO.getIsActive() != null) service.setIsActive(serviceDTO.getIsActive());
 
         Service updated = serviceRepository.save(service);
+        searchIndexService.indexService(updated);
         log.info("Service updated successfully with ID: {} – cache cleared", id);
         return updated;
     }
@@ -88,6 +92,7 @@ public class ServiceService {
         log.warn("Deleting service with ID: {} – will clear cache after deletion", id);
         Service service = getServiceById(id);
         serviceRepository.delete(service);
+        searchIndexService.remove(SearchEntityType.SERVICE, id);
         log.info("Service deleted successfully with ID: {} – cache cleared", id);
     }
 
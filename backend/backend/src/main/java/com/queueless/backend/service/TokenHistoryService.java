@@ -0,0 +1,253 @@
+package com.queueless.backend.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.queueless.backend.enums.TokenStatus;
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.model.QueueToken;
+import com.queueless.backend.model.TokenHistory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.UnionWithOperation;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Cold store for tokens that left the live queue, one {@code token_history_yyyyMM}
+ * collection per month of {@code closedAt}. Terminal tokens are recorded as they finish
+ * and again by the archiver before it pulls them out of the queue document; both writes
+ * use the same id, so repeats are ignored. History reads union the monthly collections
+ * that overlap the requested range, each filtered through its own indexes.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenHistoryService {
+
+    private static final String COLLECTION_PREFIX = "token_history_";
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+
+    private final Set<String> indexedCollections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Records a token that just reached a terminal state. Failures are logged only;
+     * the archiver writes the token again before removing it from the queue.
+     */
+    public void record(Queue queue, QueueToken token) {
+        if (token == null) return;
+        try {
+            archive(queue, List.of(token));
+        } catch (Exception e) {
+            log.error("Failed to record history of token {}: {}", token.getTokenId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the tokens to their monthly collections. Returns false if any write failed
+     * for another reason than the record already being there.
+     */
+    public boolean archive(Queue queue, Collection<QueueToken> tokens) {
+        Map<String, List<TokenHistory>> byCollection = tokens.stream()
+                .map(token -> TokenHistory.from(queue, token))
+                .collect(Collectors.groupingBy(history -> collectionFor(YearMonth.from(history.getClosedAt()))));
+
+        boolean complete = true;
+        for (Map.Entry<String, List<TokenHistory>> entry : byCollection.entrySet()) {
+            ensureIndexes(entry.getKey());
+            try {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TokenHistory.class, entry.getKey())
+                        .insert(entry.getValue())
+                        .execute();
+            } catch (BulkOperationException e) {
+                List<BulkWriteError> failures = e.getErrors().stream()
+                        .filter(error -> error.getCode() != DUPLICATE_KEY)
+                        .toList();
+                if (!failures.isEmpty()) {
+                    log.error("Failed to archive {} tokens of queue {} into {}: {}",
+                            failures.size(), queue.getId(), entry.getKey(), failures.get(0).getMessage());
+                    complete = false;
+                }
+            }
+        }
+        return complete;
+    }
+
+    public Map<LocalDate, Long> countCompletedPerDay(Criteria scope, LocalDateTime since) {
+        // closedAt equals completedAt for completed tokens and is what the scope indexes cover
+        Criteria match = new Criteria().andOperator(scope,
+                Criteria.where("closedAt").gt(toDate(since)),
+                Criteria.where("status").is(TokenStatus.COMPLETED.toString()),
+                Criteria.where("completedAt").gt(toDate(since)));
+
+        Map<LocalDate, Long> counts = new HashMap<>();
+        for (Document row : aggregate(since, match, List.of(
+                Aggregation.project().and(dayOf("completedAt")).as("day"),
+                Aggregation.group("day").count().as("count")))) {
+            counts.put(LocalDate.parse(row.getString("_id")), ((Number) row.get("count")).longValue());
+        }
+        return counts;
+    }
+
+
+    /**
+     * Completed and cancelled tokens of a user issued since {@code since}, newest first.
+     */
+    public List<TokenHistory> findForUser(String userId, LocalDateTime since, Pageable pageable) {
+        // A token closes after it is issued, so the closedAt bound lets user_closed_idx narrow the scan
+        Criteria match = Criteria.where("userId").is(userId)
+                .and("closedAt").gte(toDate(since))
+                .and("issuedAt").gte(toDate(since))
+                .and("status").in(TokenStatus.COMPLETED.toString(), TokenStatus.CANCELLED.toString());
+        return aggregate(since, match, List.of(
+                Aggregation.sort(Sort.by(Sort.Direction.DESC, "issuedAt")),
+                Aggregation.skip(pageable.getOffset()),
+                Aggregation.limit(pageable.getPageSize())), TokenHistory.class);
+    }
+
+    /**
+     * The latest tokens of the given queues completed after {@code since}, newest first.
+     */
+    public List<TokenHistory> findCompletedSince(Collection<String> queueIds, LocalDateTime since, int limit) {
+        if (queueIds.isEmpty()) {
+            return List.of();
+        }
+        Criteria match = Criteria.where("queueId").in(queueIds)
+                .and("closedAt").gt(toDate(since))
+                .and("status").is(TokenStatus.COMPLETED.toString());
+        return aggregate(since, match, List.of(
+                Aggregation.sort(Sort.by(Sort.Direction.DESC, "completedAt")),
+                Aggregation.limit(limit)), TokenHistory.class);
+    }
+
+    /**
+     * Finished tokens of {@code queue} issued since its last start or reset that were moved to
+     * the history, oldest month first. Records whose {@link TokenHistory#idFor} is in
+     * {@code liveIds} are skipped, as those tokens are still in the queue document.
+     * The caller closes the stream.
+     */
+    public Stream<QueueToken> streamArchivedTokens(Queue queue, Set<String> liveIds) {
+        LocalDateTime since = queue.getStartTime();
+        Criteria match = Criteria.where("queueId").is(queue.getId())
+                .and("status").in(TokenStatus.COMPLETED.toString(), TokenStatus.CANCELLED.toString());
+        if (since != null) {
+            match.and("closedAt").gte(since).and("issuedAt").gte(since);
+        }
+        Query query = new Query(match);
+        return monthlyCollections(since != null ? YearMonth.from(since) : null, YearMonth.now()).stream()
+                .flatMap(collection -> mongoTemplate.stream(query, TokenHistory.class, collection))
+                .filter(history -> !liveIds.contains(history.getId()))
+                .map(TokenHistory::toToken);
+    }
+
+    /**
+     * The archived tokens of {@link #streamArchivedTokens} for the queue as loaded, in memory.
+     */
+    public List<QueueToken> findArchivedTokens(Queue queue) {
+        Set<String> liveIds = queue.getTokens() != null
+                ? queue.getTokens().stream().map(TokenHistory::idFor).collect(Collectors.toSet())
+                : Set.of();
+        try (Stream<QueueToken> archived = streamArchivedTokens(queue, liveIds)) {
+            return archived.toList();
+        }
+    }
+
+    /**
+     * Streams every record closed before {@code until}, oldest month first.
+     */
+    public void forEachClosedBefore(LocalDateTime until, Consumer<TokenHistory> action) {
+        List<String> collections = monthlyCollections(null, YearMonth.from(until));
+        Query query = new Query(Criteria.where("closedAt").lt(until));
+        for (String collection : collections) {
+            try (Stream<TokenHistory> stream = mongoTemplate.stream(query, TokenHistory.class, collection)) {
+                stream.forEach(action);
+            }
+        }
+    }
+
+    // Existing monthly collections between the two months (open ended when null), oldest first
+    private List<String> monthlyCollections(YearMonth first, YearMonth last) {
+        return mongoTemplate.getCollectionNames().stream()
+                .filter(name -> name.matches(COLLECTION_PREFIX + "\\d{6}"))
+                .filter(name -> {
+                    YearMonth month = YearMonth.parse(name.substring(COLLECTION_PREFIX.length()), MONTH_FORMAT);
+                    return (first == null || !month.isBefore(first)) && (last == null || !month.isAfter(last));
+                })
+                .sorted()
+                .toList();
+    }
+
+    String collectionFor(YearMonth month) {
+        return COLLECTION_PREFIX + month.format(MONTH_FORMAT);
+    }
+
+    private List<Document> aggregate(LocalDateTime since, Criteria match, List<AggregationOperation> stages) {
+        return aggregate(since, match, stages, Document.class);
+    }
+
+    // Runs on the oldest month in range and unions the later ones, each pre-filtered by match
+    private <T> List<T> aggregate(LocalDateTime since, Criteria match, List<AggregationOperation> stages, Class<T> type) {
+        List<String> collections = new ArrayList<>();
+        for (YearMonth month = YearMonth.from(since); !month.isAfter(YearMonth.now()); month = month.plusMonths(1)) {
+            collections.add(collectionFor(month));
+        }
+        if (collections.isEmpty()) {
+            return List.of();
+        }
+
+        List<AggregationOperation> pipeline = new ArrayList<>();
+        pipeline.add(Aggregation.match(match));
+        for (String collection : collections.subList(1, collections.size())) {
+            pipeline.add(UnionWithOperation.unionWith(collection).pipeline(Aggregation.match(match)));
+        }
+        pipeline.addAll(stages);
+        return mongoTemplate.aggregate(Aggregation.newAggregation(pipeline), collections.get(0), type)
+                .getMappedResults();
+    }
+
+    // Stored the way LocalDateTime is written by the converter; nested $unionWith stages are not type-mapped
+    private Date toDate(LocalDateTime dateTime) {
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private DateOperators.DateToString dayOf(String field) {
+        return DateOperators.dateOf(field)
+                .withTimezone(DateOperators.Timezone.valueOf(ZoneId.systemDefault().getId()))
+                .toString("%Y-%m-%d");
+    }
+
+    private void ensureIndexes(String collection) {
+        if (indexedCollections.contains(collection)) {
+            return;
+        }
+        IndexOperations indexOps = mongoTemplate.indexOps(collection);
+        IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+        resolver.resolveIndexFor(TokenHistory.class).forEach(indexOps::ensureIndex);
+        indexedCollections.add(collection);
+        log.info("Ensured indexes on {}", collection);
+    }
+}
@@ -3,20 +3,13 @@ package com.queueless.backend.service;
 import com.queueless.backend.dto.PasswordChangeRequest;
 import com.queueless.backend.dto.UserProfileUpdateRequest;
 import com.queueless.backend.dto.UserTokenHistoryDTO;
-import com.queueless.backend.enums.TokenStatus;
 import com.queueless.backend.exception.ResourceNotFoundException;
 import com.queueless.backend.model.*;
-import com.queueless.backend.model.Queue;
 import com.queueless.backend.repository.FeedbackRepository;
-import com.queueless.backend.repository.QueueRepository;
 import com.queueless.backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.aggregation.Aggregation;
-import org.springframework.data.mongodb.core.aggregation.AggregationResults;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -34,10 +27,9 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
-    private final QueueRepository queueRepository;
     private final FeedbackRepository feedbackRepository;
     private final PlaceService placeService;
-    private final MongoTemplate mongoTemplate;
+    private final TokenHistoryService tokenHistoryService;
 
     public void updateUserProfile(String userId, UserProfileUpdateRequest request) {
         log.info("Attempting to update user profile for user ID: {}", userId);
@@ -176,17 +168,8 @@ public class UserService {
         log.info("Fetching token history for last {} days for user: {}", days, userId);
         LocalDateTime start = LocalDateTime.now().minusDays(days).withHour(0).withMinute(0).withSecond(0);
 
-        List<Queue> allQueues = queueRepository.findAll(); // inject QueueRepository
-
-        Map<LocalDate, Long> dailyCounts = allQueues.stream()
-                .flatMap(q -> q.getTokens().stream())
-                .filter(t -> userId.equals(t.getUserId()))
-                .filter(t -> TokenStatus.COMPLETED.toString().equals(t.getStatus()))
-                .filter(t -> t.getCompletedAt() != null && t.getCompletedAt().isAfter(start))
-                .collect(Collectors.groupingBy(
-                        t -> t.getCompletedAt().toLocalDate(),
-                        Collectors.counting()
-                ));
+        Map<LocalDate, Long> dailyCounts = tokenHistoryService.countCompletedPerDay(
+                Criteria.where("userId").is(userId), start);
 
         List<String> dates = new ArrayList<>();
         List<Long> counts = new ArrayList<>();
@@ -236,29 +219,22 @@ public class UserService {
     public List<UserTokenHistoryDTO> getUserTokenHistoryOptimized(String userId, int days, Pageable pageable) {
         LocalDateTime cutoff = LocalDateTime.now().minusDays(days);
 
-        // Aggregation pipeline
-        Aggregation agg = Aggregation.newAggregation(
-                Aggregation.unwind("tokens"),
-                Aggregation.match(Criteria.where("tokens.userId").is(userId)
-                        .and("tokens.issuedAt").gte(cutoff)
-                        .and("tokens.status").in(TokenStatus.COMPLETED.toString(), TokenStatus.CANCELLED.toString())),
-                Aggregation.sort(Sort.by(Sort.Direction.DESC, "tokens.issuedAt")),
-                Aggregation.skip(pageable.getOffset()),
-                Aggregation.limit(pageable.getPageSize()),
-                Aggregation.project()
-                        .and("tokens.tokenId").as("tokenId")
-                        .and("_id").as("queueId")
-                        .and("serviceName").as("serviceName")
-                        .and("placeId").as("placeId")
-                        .and("tokens.status").as("status")
-                        .and("tokens.issuedAt").as("issuedAt")
-                        .and("tokens.servedAt").as("servedAt")
-                        .and("tokens.completedAt").as("completedAt")
-                        .and("tokens.serviceDurationMinutes").as("serviceDurationMinutes")
-        );
-
-        AggregationResults<UserTokenHistoryDTO> results = mongoTemplate.aggregate(agg, "queues", UserTokenHistoryDTO.class);
-        List<UserTokenHistoryDTO> history = results.getMappedResults();
+        // Finished tokens live in the token history, not in the queue documents
+        List<UserTokenHistoryDTO> history = tokenHistoryService.findForUser(userId, cutoff, pageable).stream()
+                .map(entry -> {
+                    UserTokenHistoryDTO dto = new UserTokenHistoryDTO();
+                    dto.setTokenId(entry.getTokenId());
+                    dto.setQueueId(entry.getQueueId());
+                    dto.setServiceName(entry.getServiceName());
+                    dto.setPlaceId(entry.getPlaceId());
+                    dto.setStatus(entry.getStatus());
+                    dto.setIssuedAt(entry.getIssuedAt());
+                    dto.setServedAt(entry.getServedAt());
+                    dto.setCompletedAt(entry.getCompletedAt());
+                    dto.setServiceDurationMinutes(entry.getServiceDurationMinutes());
+                    return dto;
+                })
+                .collect(Collectors.toList());
 
         if (history.isEmpty()) {
             return history;
@@ -0,0 +1,80 @@
+package com.queueless.backend.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BrokerFanoutTest {
+
+    private final List<Message<?>> receivedOnA = new ArrayList<>();
+    private final List<Message<?>> receivedOnB = new ArrayList<>();
+    private ExecutorSubscribableChannel nodeA;
+    private ExecutorSubscribableChannel nodeB;
+
+    @BeforeEach
+    void setUp() {
+        // Two "nodes", each with its own broker channel, sharing one in-process hub
+        LocalBrokerFanout.Hub hub = new LocalBrokerFanout.Hub();
+        nodeA = new ExecutorSubscribableChannel();
+        nodeB = new ExecutorSubscribableChannel();
+        LocalBrokerFanout fanoutA = new LocalBrokerFanout(nodeA, hub);
+        LocalBrokerFanout fanoutB = new LocalBrokerFanout(nodeB, hub);
+        nodeA.addInterceptor(new BrokerFanoutInterceptor(() -> fanoutA));
+        nodeB.addInterceptor(new BrokerFanoutInterceptor(() -> fanoutB));
+        nodeA.subscribe(receivedOnA::add);
+        nodeB.subscribe(receivedOnB::add);
+    }
+
+    private Message<byte[]> message(String destination, SimpMessageType type) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setDestination(destination);
+        accessor.setLeaveMutable(false);
+        return MessageBuilder.createMessage("{\"queueId\":\"q1\"}".getBytes(StandardCharsets.UTF_8),
+                accessor.getMessageHeaders());
+    }
+
+    @Test
+    void topicMessageReachesOtherNodeOnce() {
+        nodeA.send(message("/topic/queues/q1/events", SimpMessageType.MESSAGE));
+
+        assertEquals(1, receivedOnA.size());
+        assertEquals(1, receivedOnB.size());
+        Message<?> relayed = receivedOnB.get(0);
+        assertEquals("/topic/queues/q1/events", SimpMessageHeaderAccessor.getDestination(relayed.getHeaders()));
+        assertEquals(Boolean.TRUE, relayed.getHeaders().get(BrokerFanout.RELAYED_HEADER));
+        assertArrayEquals((byte[]) receivedOnA.get(0).getPayload(), (byte[]) relayed.getPayload());
+    }
+
+    @Test
+    void resolvedUserDestinationsAndControlMessagesStayLocal() {
+        // Built like UserDestinationMessageHandler: the original destination is a native header
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setNativeHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION, "/user/queue/provider-updates");
+        accessor.setLeaveMutable(true);
+        Message<byte[]> resolved = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        SimpMessagingTemplate template = new SimpMessagingTemplate(nodeA);
+        template.send("/queue/provider-updates-usersess1", resolved);
+        nodeA.send(message("/topic/queues/q1", SimpMessageType.SUBSCRIBE));
+
+        assertEquals(2, receivedOnA.size());
+        assertTrue(receivedOnB.isEmpty());
+    }
+
+    @Test
+    void unresolvedUserDestinationIsFannedOut() {
+        nodeA.send(message("/user/provider1/queue/provider-updates", SimpMessageType.MESSAGE));
+
+        assertEquals(1, receivedOnB.size());
+    }
+}
@@ -0,0 +1,123 @@
+package com.queueless.backend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TwoTierCacheTest {
+
+    private final List<String> announced = new ArrayList<>();
+    private ConcurrentMapCache remote;
+    private com.github.benmanes.caffeine.cache.Cache<Object, Object> local;
+    private TwoTierCache cache;
+
+    @BeforeEach
+    void setUp() {
+        remote = new ConcurrentMapCache("queues", false);
+        local = Caffeine.newBuilder().maximumSize(100).build();
+        cache = new TwoTierCache("queues", local, remote, (name, key) -> announced.add(name + "::" + key));
+    }
+
+    @Test
+    void getFillsLocalTierFromRemote() {
+        remote.put("q1", "queue-1");
+
+        assertEquals("queue-1", cache.get("q1", String.class));
+        assertEquals("queue-1", local.getIfPresent("q1"));
+
+        remote.evict("q1");
+        // Served locally now
+        assertEquals("queue-1", cache.get("q1", String.class));
+    }
+
+    @Test
+    void putWritesBothTiersAndAnnouncesKey() {
+        cache.put("q1", "queue-1");
+
+        assertEquals("queue-1", remote.get("q1").get());
+        assertEquals("queue-1", local.getIfPresent("q1"));
+        assertEquals(List.of("queues::q1"), announced);
+    }
+
+    @Test
+    void evictOnlyDropsThatKey() {
+        cache.put("q1", "queue-1");
+        cache.put("q2", "queue-2");
+        announced.clear();
+
+        cache.evict("q1");
+
+        assertNull(cache.get("q1"));
+        assertEquals("queue-2", cache.get("q2", String.class));
+        assertEquals(List.of("queues::q1"), announced);
+    }
+
+    @Test
+    void clearAnnouncesWholeCache() {
+        cache.put("q1", "queue-1");
+        announced.clear();
+
+        cache.clear();
+
+        assertNull(cache.get("q1"));
+        assertEquals(List.of("queues::null"), announced);
+    }
+
+    @Test
+    void evictLocalKeepsRemoteEntry() {
+        cache.put("q1", "queue-1");
+
+        cache.evictLocal("q1");
+
+        assertNull(local.getIfPresent("q1"));
+        assertEquals("queue-1", remote.get("q1").get());
+    }
+
+    @Test
+    void managerAppliesInvalidationsFromOtherNodesOnly() throws Exception {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ObjectMapper objectMapper = new ObjectMapper();
+        TwoTierCacheManager manager = new TwoTierCacheManager(new ConcurrentMapCacheManager(),
+                name -> "maximumSize=100,expireAfterWrite=1m", redisTemplate, objectMapper,
+                "cache-invalidation", new SimpleMeterRegistry());
+
+        TwoTierCache queues = (TwoTierCache) manager.getCache("queues");
+        queues.put("q1", "queue-1");
+        queues.put("q2", "queue-2");
+        verify(redisTemplate, times(2)).convertAndSend(eq("cache-invalidation"), anyString());
+
+        // Our own announcement coming back is ignored
+        manager.onMessage(message(objectMapper, manager, "q1", true), null);
+        assertEquals("queue-1", queues.getLocalCache().getIfPresent("q1"));
+
+        manager.onMessage(message(objectMapper, manager, "q1", false), null);
+        assertNull(queues.getLocalCache().getIfPresent("q1"));
+        assertEquals("queue-2", queues.getLocalCache().getIfPresent("q2"));
+        Cache.ValueWrapper shared = queues.getRemoteCache().get("q1");
+        assertEquals("queue-1", shared.get());
+    }
+
+    private DefaultMessage message(ObjectMapper objectMapper, TwoTierCacheManager manager, String key, boolean own)
+            throws Exception {
+        String nodeId = own ? manager.getNodeId() : "other-node";
+        byte[] body = objectMapper.writeValueAsString(new TwoTierCacheManager.Invalidation(nodeId, "queues", key))
+                .getBytes(StandardCharsets.UTF_8);
+        return new DefaultMessage("cache-invalidation".getBytes(StandardCharsets.UTF_8), body);
+    }
+}
@@ -14,6 +14,7 @@ import com.queueless.backend.repository.QueueRepository;
 import com.queueless.backend.repository.UserRepository;
 import com.queueless.backend.service.AdminService;
 import com.queueless.backend.service.AlertConfigService;
+import com.queueless.backend.service.ExportJobService;
 import com.queueless.backend.service.ExportService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -73,6 +74,9 @@ class AdminControllerTest {
     @MockitoBean
     private AlertConfigService alertConfigService;
 
+    @MockitoBean
+    private ExportJobService exportJobService;
+
     private final String adminId = "admin123";
     private final String providerId = "provider123";
     private final String adminEmail = "admin@example.com";
@@ -343,6 +347,31 @@ class AdminControllerTest {
                 .andExpect(status().isInternalServerError());
     }
 
+    @Test
+    @WithMockUser(username = adminId, roles = {"ADMIN"})
+    void startAdminReportExport_Accepted() throws Exception {
+        ExportJob job = new ExportJob();
+        job.setId("job1");
+        when(exportJobService.submit(eq(adminId), eq("admin-report-" + LocalDate.now() + ".xlsx"), eq("excel"),
+                isNull(), eq("admin"), any(ExportJobService.ExportTask.class))).thenReturn(job);
+
+        mockMvc.perform(post("/api/admin/report/jobs").param("format", "excel"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value("job1"));
+
+        // The report is built by the job, not on the request thread
+        verify(adminService, never()).getAdminReport(anyString());
+    }
+
+    @Test
+    @WithMockUser(username = adminId, roles = {"ADMIN"})
+    void startAdminReportExport_InvalidFormat() throws Exception {
+        mockMvc.perform(post("/api/admin/report/jobs").param("format", "csv"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(exportJobService);
+    }
+
     // ==================== ALERT CONFIG ====================
 
     @Test
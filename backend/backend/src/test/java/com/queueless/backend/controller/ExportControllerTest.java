@@ -1,13 +1,14 @@
 package com.queueless.backend.controller;
 
-import com.itextpdf.text.DocumentException;
 import com.queueless.backend.config.RateLimitConfig;
 import com.queueless.backend.config.TestSecurityConfig;
 import com.queueless.backend.exception.ResourceNotFoundException;
+import com.queueless.backend.exception.ExportBusyException;
+import com.queueless.backend.model.ExportJob;
 import com.queueless.backend.model.Queue;
 import com.queueless.backend.service.ExportCacheService;
+import com.queueless.backend.service.ExportJobService;
 import com.queueless.backend.service.ExportService;
-import com.queueless.backend.service.QueueService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -19,17 +20,21 @@ import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
-import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = ExportController.class,
@@ -45,10 +50,10 @@ class ExportControllerTest {
     private ExportService exportService;
 
     @MockitoBean
-    private QueueService queueService;
+    private ExportCacheService exportCacheService;
 
     @MockitoBean
-    private ExportCacheService exportCacheService;
+    private ExportJobService exportJobService;
 
     private final String queueId = "queue123";
     private final String providerId = "provider123";
@@ -68,12 +73,19 @@ class ExportControllerTest {
     @WithMockUser(username = providerId, roles = {"PROVIDER"})
     void exportQueueToPdf_Success() throws Exception {
         Queue queue = createTestQueue();
-        when(queueService.getQueueById(queueId)).thenReturn(queue);
-        when(exportService.exportQueueToPdf(any(Queue.class), eq("tokens"), eq(false))).thenReturn(pdfBytes);
+        when(exportService.getQueueForExport(queueId)).thenReturn(queue);
+        doAnswer(inv -> {
+            inv.<OutputStream>getArgument(3).write(pdfBytes);
+            return null;
+        }).when(exportService).streamQueueToPdf(any(Queue.class), eq("tokens"), eq(false), any(OutputStream.class));
 
-        mockMvc.perform(get("/api/export/queue/{queueId}/pdf", queueId)
+        MvcResult result = mockMvc.perform(get("/api/export/queue/{queueId}/pdf", queueId)
                         .param("reportType", "tokens")
                         .param("includeUserDetails", "false"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, startsWith("attachment; filename=queue-report-Test-Service-")))
                 .andExpect(content().contentType(MediaType.APPLICATION_PDF))
@@ -83,44 +95,28 @@ class ExportControllerTest {
     @Test
     @WithMockUser(username = providerId, roles = {"PROVIDER"})
     void exportQueueToPdf_QueueNotFound() throws Exception {
-        when(queueService.getQueueById(queueId)).thenThrow(new ResourceNotFoundException("Queue not found"));
+        when(exportService.getQueueForExport(queueId)).thenThrow(new ResourceNotFoundException("Queue not found"));
 
         mockMvc.perform(get("/api/export/queue/{queueId}/pdf", queueId))
                 .andExpect(status().isNotFound());
     }
 
-    @Test
-    @WithMockUser(username = providerId, roles = {"PROVIDER"})
-    void exportQueueToPdf_DocumentException() throws Exception {
-        Queue queue = createTestQueue();
-        when(queueService.getQueueById(queueId)).thenReturn(queue);
-        when(exportService.exportQueueToPdf(eq(queue), eq("tokens"), eq(false)))
-                .thenThrow(new DocumentException("PDF error"));
-
-        mockMvc.perform(get("/api/export/queue/{queueId}/pdf", queueId))
-                .andExpect(status().isBadRequest());
-    }
-
     @Test
     @WithMockUser(username = providerId, roles = {"PROVIDER"})
     void exportQueueToPdf_IllegalArgumentException() throws Exception {
-        Queue queue = createTestQueue();
-        when(queueService.getQueueById(queueId)).thenReturn(queue);
-        when(exportService.exportQueueToPdf(eq(queue), eq("invalid"), eq(false)))
-                .thenThrow(new IllegalArgumentException("Invalid report type"));
+        doThrow(new IllegalArgumentException("Invalid report type")).when(exportService).validateReportType("invalid");
 
         mockMvc.perform(get("/api/export/queue/{queueId}/pdf", queueId)
                         .param("reportType", "invalid"))
                 .andExpect(status().isBadRequest());
+
+        verify(exportService, never()).getQueueForExport(anyString());
     }
 
     @Test
     @WithMockUser(username = providerId, roles = {"PROVIDER"})
     void exportQueueToPdf_UnexpectedException() throws Exception {
-        Queue queue = createTestQueue();
-        when(queueService.getQueueById(queueId)).thenReturn(queue);
-        when(exportService.exportQueueToPdf(eq(queue), eq("tokens"), eq(false)))
-                .thenThrow(new RuntimeException("Unexpected"));
+        when(exportService.getQueueForExport(queueId)).thenThrow(new RuntimeException("Unexpected"));
 
         mockMvc.perform(get("/api/export/queue/{queueId}/pdf", queueId))
                 .andExpect(status().isInternalServerError());
@@ -132,12 +128,19 @@ class ExportControllerTest {
     @WithMockUser(username = providerId, roles = {"PROVIDER"})
     void exportQueueToExcel_Success() throws Exception {
         Queue queue = createTestQueue();
-        when(queueService.getQueueById(queueId)).thenReturn(queue);
-        when(exportService.exportQueueToExcel(any(Queue.class), eq("tokens"), eq(false))).thenReturn(excelBytes);
+        when(exportService.getQueueForExport(queueId)).thenReturn(queue);
+        doAnswer(inv -> {
+            inv.<OutputStream>getArgument(3).write(excelBytes);
+            return null;
+        }).when(exportService).streamQueueToExcel(any(Queue.class), eq("tokens"), eq(false), any(OutputStream.class));
 
-        mockMvc.perform(get("/api/export/queue/{queueId}/excel", queueId)
+        MvcResult result = mockMvc.perform(get("/api/export/queue/{queueId}/excel", queueId)
                         .param("reportType", "tokens")
                         .param("includeUserDetails", "false"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, startsWith("attachment; filename=queue-report-Test-Service-")))
                 .andExpect(content().contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")))
@@ -146,44 +149,28 @@ class ExportControllerTest {
     @Test
     @WithMockUser(username = providerId, roles = {"PROVIDER"})
     void exportQueueToExcel_QueueNotFound() throws Exception {
-        when(queueService.getQueueById(queueId)).thenThrow(new ResourceNotFoundException("Queue not found"));
+        when(exportService.getQueueForExport(queueId)).thenThrow(new ResourceNotFoundException("Queue not found"));
 
         mockMvc.perform(get("/api/export/queue/{queueId}/excel", queueId))
                 .andExpect(status().isNotFound());
     }
 
-    @Test
-    @WithMockUser(username = providerId, roles = {"PROVIDER"})
-    void exportQueueToExcel_IOException() throws Exception {
-        Queue queue = createTestQueue();
-        when(queueService.getQueueById(queueId)).thenReturn(queue);
-        when(exportService.exportQueueToExcel(eq(queue), eq("tokens"), eq(false)))
-                .thenThrow(new IOException("Excel error"));
-
-        mockMvc.perform(get("/api/export/queue/{queueId}/excel", queueId))
-                .andExpect(status().isBadRequest());
-    }
-
     @Test
     @WithMockUser(username = providerId, roles = {"PROVIDER"})
     void exportQueueToExcel_IllegalArgumentException() throws Exception {
-        Queue queue = createTestQueue();
-        when(queueService.getQueueById(queueId)).thenReturn(queue);
-        when(exportService.exportQueueToExcel(eq(queue), eq("invalid"), eq(false)))
-                .thenThrow(new IllegalArgumentException("Invalid report type"));
+        doThrow(new IllegalArgumentException("Invalid report type")).when(exportService).validateReportType("invalid");
 
         mockMvc.perform(get("/api/export/queue/{queueId}/excel", queueId)
                         .param("reportType", "invalid"))
                 .andExpect(status().isBadRequest());
+
+        verify(exportService, never()).getQueueForExport(anyString());
     }
 
     @Test
     @WithMockUser(username = providerId, roles = {"PROVIDER"})
     void exportQueueToExcel_UnexpectedException() throws Exception {
-        Queue queue = createTestQueue();
-        when(queueService.getQueueById(queueId)).thenReturn(queue);
-        when(exportService.exportQueueToExcel(eq(queue), eq("tokens"), eq(false)))
-                .thenThrow(new RuntimeException("Unexpected"));
+        when(exportService.getQueueForExport(queueId)).thenThrow(new RuntimeException("Unexpected"));
 
         mockMvc.perform(get("/api/export/queue/{queueId}/excel", queueId))
                 .andExpect(status().isInternalServerError());
@@ -251,4 +238,69 @@ class ExportControllerTest {
                 .andExpect(jsonPath("$[?(@.exportId == 'exp1')].filename").value("report1.pdf"))
                 .andExpect(jsonPath("$[?(@.exportId == 'exp2')].filename").value("report2.xlsx"));
     }
+
+    // ==================== EXPORT JOBS ====================
+
+    @Test
+    @WithMockUser(username = providerId, roles = {"PROVIDER"})
+    void startQueueExport_Accepted() throws Exception {
+        Queue queue = createTestQueue();
+        when(exportService.getQueueForExport(queueId)).thenReturn(queue);
+        ExportJob job = new ExportJob();
+        job.setId("job1");
+        job.setDownloadUrl("/export/exports/" + exportId);
+        when(exportJobService.submit(eq(providerId), org.mockito.ArgumentMatchers.startsWith("queue-report-Test-Service-"), eq("excel"),
+                eq(queueId), eq("full"), any(ExportJobService.ExportTask.class))).thenReturn(job);
+
+        mockMvc.perform(post("/api/export/queue/{queueId}/jobs", queueId)
+                        .param("format", "excel")
+                        .param("reportType", "full"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value("job1"))
+                .andExpect(jsonPath("$.downloadUrl").value("/export/exports/" + exportId));
+
+        verify(exportService, never()).streamQueueToExcel(any(), anyString(), any(), any());
+    }
+
+    @Test
+    @WithMockUser(username = providerId, roles = {"PROVIDER"})
+    void startQueueExport_InvalidFormat() throws Exception {
+        mockMvc.perform(post("/api/export/queue/{queueId}/jobs", queueId)
+                        .param("format", "csv"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(exportJobService);
+    }
+
+    @Test
+    @WithMockUser(username = providerId, roles = {"PROVIDER"})
+    void startQueueExport_Busy() throws Exception {
+        when(exportService.getQueueForExport(queueId)).thenReturn(createTestQueue());
+        when(exportJobService.submit(anyString(), anyString(), anyString(), anyString(), anyString(), any()))
+                .thenThrow(new ExportBusyException("Too many exports in progress"));
+
+        mockMvc.perform(post("/api/export/queue/{queueId}/jobs", queueId))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    @WithMockUser(username = providerId, roles = {"PROVIDER"})
+    void getExportJob_NotOwner() throws Exception {
+        when(exportJobService.getJob("job1", providerId)).thenThrow(new ResourceNotFoundException("Export job not found: job1"));
+
+        mockMvc.perform(get("/api/export/jobs/{jobId}", "job1"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(username = providerId, roles = {"PROVIDER"})
+    void listExportJobs_Success() throws Exception {
+        ExportJob job = new ExportJob();
+        job.setId("job1");
+        when(exportJobService.getJobs(providerId)).thenReturn(List.of(job));
+
+        mockMvc.perform(get("/api/export/jobs"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("job1"));
+    }
 }
\ No newline at end of file
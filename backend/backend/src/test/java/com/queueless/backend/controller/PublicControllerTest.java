@@ -3,7 +3,6 @@ package com.queueless.backend.controller;
 import com.queueless.backend.config.RateLimitConfig;
 import com.queueless.backend.config.TestSecurityConfig;
 import com.queueless.backend.model.Queue;
-import com.queueless.backend.model.QueueToken;
 import com.queueless.backend.repository.PlaceRepository;
 import com.queueless.backend.repository.QueueRepository;
 import com.queueless.backend.repository.UserRepository;
@@ -16,7 +15,6 @@ import org.springframework.context.annotation.Import;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
-import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.mockito.Mockito.when;
@@ -47,12 +45,9 @@ class PublicControllerTest {
         when(placeRepository.count()).thenReturn(50L);
 
         Queue queue = new Queue("provider", "Service", "place", "service");
-        QueueToken token1 = new QueueToken("T1", "user1", "COMPLETED", LocalDateTime.now());
-        QueueToken token2 = new QueueToken("T2", "user2", "WAITING", LocalDateTime.now());
-        QueueToken token3 = new QueueToken("T3", "user3", "COMPLETED", LocalDateTime.now());
-        queue.setTokens(List.of(token1, token2, token3));
+        queue.setCounters(new Queue.TokenCounters(1, 0, 2, 0));
 
-        when(queueRepository.findAll()).thenReturn(List.of(queue));
+        when(queueRepository.findAllCounters()).thenReturn(List.of(queue));
 
         mockMvc.perform(get("/api/public/stats"))
                 .andExpect(status().isOk())
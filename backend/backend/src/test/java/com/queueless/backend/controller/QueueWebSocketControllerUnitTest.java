@@ -1,9 +1,12 @@
 package com.queueless.backend.controller;
 
 import com.queueless.backend.dto.ConnectRequest;
+import com.queueless.backend.dto.QueueEventDTO;
 import com.queueless.backend.dto.ServeNextRequest;
 import com.queueless.backend.model.Queue;
 import com.queueless.backend.model.QueueToken;
+import com.queueless.backend.enums.QueueEventType;
+import com.queueless.backend.service.QueueEventLog;
 import com.queueless.backend.service.QueueService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,6 +18,7 @@ import org.springframework.security.core.Authentication;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -28,6 +32,9 @@ class QueueWebSocketControllerUnitTest {
     @Mock
     private QueueService queueService;
 
+    @Mock
+    private QueueEventLog queueEventLog;
+
     @Mock
     private Authentication authentication;
 
@@ -79,8 +86,9 @@ class QueueWebSocketControllerUnitTest {
 
         controller.serveNext(request, authentication);
 
-        verify(messagingTemplate).convertAndSend(eq("/topic/queues/" + queueId), eq(queue));
         verify(messagingTemplate).convertAndSendToUser(eq("provider"), eq("/queue/provider-updates"), eq(queue));
+        // Queue topics are published by QueueService, not re-sent here
+        verify(messagingTemplate, never()).convertAndSend(eq("/topic/queues/" + queueId), any(Object.class));
     }
 
     @Test
@@ -88,16 +96,15 @@ class QueueWebSocketControllerUnitTest {
         String queueId = "queue123";
         ConnectRequest request = new ConnectRequest(queueId);
         QueueToken token = new QueueToken("T1", "user", "WAITING", LocalDateTime.now());
-        Queue updatedQueue = new Queue("provider", "Service", "place", "service");
-        updatedQueue.setId(queueId);
 
         when(authentication.getName()).thenReturn("user");
         when(queueService.addNewToken(queueId, "user")).thenReturn(token);
-        when(queueService.getQueueById(queueId)).thenReturn(updatedQueue);
 
         controller.addToken(request, authentication);
 
-        verify(messagingTemplate).convertAndSend(eq("/topic/queues/" + queueId), eq(updatedQueue));
+        verify(queueService).addNewToken(queueId, "user");
+        verify(queueService, never()).getQueueById(any());
+        verifyNoInteractions(messagingTemplate);
     }
 
     @Test
@@ -114,7 +121,50 @@ class QueueWebSocketControllerUnitTest {
 
         controller.toggleQueueStatus(payload, authentication);
 
-        verify(messagingTemplate).convertAndSend(eq("/topic/queues/" + queueId), eq(queue));
-        verify(messagingTemplate).convertAndSend(eq("/topic/places/" + queue.getPlaceId() + "/queues"), eq(queue));
+        verify(queueService).setQueueActiveStatus(queueId, false);
+        verifyNoInteractions(messagingTemplate);
+    }
+
+    @Test
+    void onConnect_WithLastSequence_ReplaysMissedEvents() {
+        String queueId = "queue123";
+        String sessionId = "sess123";
+        ConnectRequest request = new ConnectRequest(queueId, 4L, "epoch-1");
+        QueueEventDTO missed = new QueueEventDTO();
+        missed.setQueueId(queueId);
+        missed.setSequence(5L);
+        missed.setType(QueueEventType.TOKEN_ADDED);
+
+        when(authentication.getName()).thenReturn("user");
+        when(queueEventLog.eventsSince(queueId, "epoch-1", 4L)).thenReturn(Optional.of(List.of(missed)));
+
+        controller.onConnect(request, sessionId, authentication);
+
+        verify(messagingTemplate).convertAndSendToUser(eq(sessionId), eq("/topic/queues/" + queueId + "/events"), eq(missed));
+        verify(queueService, never()).getQueueById(any());
+    }
+
+    @Test
+    void onConnect_WithExpiredSequence_SendsSnapshot() {
+        String queueId = "queue123";
+        String sessionId = "sess123";
+        ConnectRequest request = new ConnectRequest(queueId, 1L, "epoch-1");
+        Queue queue = new Queue("provider", "Service", "place", "service");
+        queue.setId(queueId);
+
+        when(authentication.getName()).thenReturn("user");
+        when(queueEventLog.eventsSince(queueId, "epoch-1", 1L)).thenReturn(Optional.empty());
+        when(queueEventLog.epoch(queueId)).thenReturn("epoch-2");
+        when(queueEventLog.currentSequence(queueId)).thenReturn(300L);
+        when(queueService.getQueueById(queueId)).thenReturn(queue);
+
+        controller.onConnect(request, sessionId, authentication);
+
+        verify(messagingTemplate).convertAndSendToUser(eq(sessionId), eq("/topic/queues/" + queueId + "/events"),
+                argThat((Object payload) -> payload instanceof QueueEventDTO event
+                        && event.getType() == QueueEventType.SNAPSHOT
+                        && event.getSequence() == 300L
+                        && "epoch-2".equals(event.getEpoch())
+                        && event.getQueue() == queue));
     }
 }
\ No newline at end of file
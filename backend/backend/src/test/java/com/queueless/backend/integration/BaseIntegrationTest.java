@@ -42,6 +42,9 @@ public abstract class BaseIntegrationTest {
         registry.add("spring.data.redis.host", () -> "localhost");
         registry.add("spring.data.redis.port", () -> "6379");
         registry.add("spring.cache.type", () -> "none");
+        registry.add("audit.writer.async", () -> "false");
+        // No SMTP/FCM from tests; notifications stay in the outbox
+        registry.add("notifications.senders.enabled", () -> "false");
     }
 
 
@@ -0,0 +1,64 @@
+package com.queueless.backend.scheduler;
+
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.model.QueueToken;
+import com.queueless.backend.repository.QueueRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QueueCounterSchedulerTest {
+
+    @Mock
+    private QueueRepository queueRepository;
+
+    @InjectMocks
+    private QueueCounterScheduler scheduler;
+
+    private Queue queue(String id, Queue.TokenCounters counters, String... statuses) {
+        Queue queue = new Queue("provider1", "Service", "place1", "service1");
+        queue.setId(id);
+        for (int i = 0; i < statuses.length; i++) {
+            queue.getTokens().add(new QueueToken("T-" + i, "user" + i, statuses[i], LocalDateTime.now()));
+        }
+        queue.setCounters(counters);
+        return queue;
+    }
+
+    @Test
+    void repairsDriftedAndMissingCounters() {
+        Queue correct = queue("q1", new Queue.TokenCounters(1, 1, 0, 0), "WAITING", "IN_SERVICE");
+        Queue drifted = queue("q2", new Queue.TokenCounters(3, 0, 0, 0), "WAITING", "COMPLETED");
+        Queue legacy = queue("q3", null, "CANCELLED");
+        when(queueRepository.streamAllBy()).thenReturn(Stream.of(correct, drifted, legacy));
+        when(queueRepository.repairCounters(any(), any(), any())).thenReturn(true);
+
+        scheduler.verifyCounters();
+
+        verify(queueRepository).repairCounters(eq("q2"), eq(new Queue.TokenCounters(1, 0, 1, 0)),
+                eq(new Queue.TokenCounters(3, 0, 0, 0)));
+        verify(queueRepository).repairCounters(eq("q3"), eq(new Queue.TokenCounters(0, 0, 0, 1)), isNull());
+        verify(queueRepository, never()).repairCounters(eq("q1"), any(), any());
+    }
+
+    @Test
+    void countsIgnorePendingTokens() {
+        Queue queue = queue("q1", null, "PENDING");
+        when(queueRepository.streamAllBy()).thenReturn(Stream.of(queue));
+        when(queueRepository.repairCounters(any(), any(), any())).thenReturn(true);
+
+        scheduler.verifyCounters();
+
+        verify(queueRepository).repairCounters(eq("q1"), eq(new Queue.TokenCounters()), isNull());
+    }
+}
@@ -0,0 +1,105 @@
+package com.queueless.backend.scheduler;
+
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.model.QueueToken;
+import com.queueless.backend.repository.QueueRepository;
+import com.queueless.backend.service.QueueCacheEvictor;
+import com.queueless.backend.service.TokenHistoryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenArchiveSchedulerTest {
+
+    @Mock
+    private QueueRepository queueRepository;
+
+    @Mock
+    private TokenHistoryService tokenHistoryService;
+
+    @Mock
+    private QueueCacheEvictor queueCacheEvictor;
+
+    @InjectMocks
+    private TokenArchiveScheduler scheduler;
+
+    private Queue queue;
+    private QueueToken oldCompleted;
+    private QueueToken oldCancelled;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        queue = new Queue("provider1", "Service", "place1", "service1");
+        queue.setId("q1");
+        oldCompleted = token("T-001", "COMPLETED", now.minusHours(3));
+        oldCancelled = token("T-002", "CANCELLED", now.minusHours(2));
+        // Finished too recently, and still waiting
+        queue.setTokens(new ArrayList<>(List.of(oldCompleted, oldCancelled,
+                token("T-003", "COMPLETED", now.minusMinutes(5)), token("T-004", "WAITING", null))));
+    }
+
+    private static QueueToken token(String tokenId, String status, LocalDateTime completedAt) {
+        QueueToken token = new QueueToken(tokenId, "user-" + tokenId, status, LocalDateTime.now().minusHours(4));
+        token.setCompletedAt(completedAt);
+        return token;
+    }
+
+    @Test
+    void pullsTokensOnlyAfterTheyAreArchived() {
+        List<QueueToken> finished = List.of(oldCompleted, oldCancelled);
+        when(queueRepository.streamByTokensCompletedAtBefore(any(LocalDateTime.class))).thenReturn(Stream.of(queue));
+        when(tokenHistoryService.archive(queue, finished)).thenReturn(true);
+        when(queueRepository.pullTerminalTokens("q1", Set.of("T-001", "T-002"))).thenReturn(queue);
+
+        scheduler.archiveFinishedTokens();
+
+        InOrder order = inOrder(tokenHistoryService, queueRepository);
+        order.verify(tokenHistoryService).archive(queue, finished);
+        order.verify(queueRepository).pullTerminalTokens("q1", Set.of("T-001", "T-002"));
+        order.verify(queueRepository).addArchivedCounts("q1", 1, 1);
+        verify(queueCacheEvictor).evict(queue);
+    }
+
+    @Test
+    void keepsTokensInQueueWhenArchiveFails() {
+        when(queueRepository.streamByTokensCompletedAtBefore(any(LocalDateTime.class))).thenReturn(Stream.of(queue));
+        when(tokenHistoryService.archive(eq(queue), anyList())).thenReturn(false);
+
+        scheduler.archiveFinishedTokens();
+
+        verify(queueRepository, never()).pullTerminalTokens(any(), any());
+        verify(queueRepository, never()).addArchivedCounts(any(), anyInt(), anyInt());
+        verifyNoInteractions(queueCacheEvictor);
+    }
+
+    @Test
+    void countsOnlyTokensThePullRemoved() {
+        // T-002 was already gone from the document when the pull ran
+        Queue before = new Queue("provider1", "Service", "place1", "service1");
+        before.setId("q1");
+        before.setTokens(new ArrayList<>(List.of(oldCompleted)));
+        when(queueRepository.streamByTokensCompletedAtBefore(any(LocalDateTime.class))).thenReturn(Stream.of(queue));
+        when(tokenHistoryService.archive(eq(queue), anyList())).thenReturn(true);
+        when(queueRepository.pullTerminalTokens(eq("q1"), anySet())).thenReturn(before);
+
+        scheduler.archiveFinishedTokens();
+
+        verify(queueRepository).addArchivedCounts("q1", 1, 0);
+        verify(queueCacheEvictor).evict(queue);
+    }
+}
@@ -0,0 +1,98 @@
+package com.queueless.backend.security;
+
+import com.queueless.backend.enums.Role;
+import com.queueless.backend.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtTokenProviderTest {
+
+    private static final String SECRET = "test-secret-key-that-is-long-enough-for-hs256";
+
+    private JwtTokenProvider jwtTokenProvider;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenProvider = providerWithExpiration(3600000);
+
+        user = new User();
+        user.setId("user123");
+        user.setEmail("user@example.com");
+        user.setName("Test User");
+        user.setRole(Role.PROVIDER);
+    }
+
+    private JwtTokenProvider providerWithExpiration(long expiration) {
+        return provider(SECRET, expiration);
+    }
+
+    private JwtTokenProvider providerWithSecret(String secret) {
+        return provider(secret, 3600000);
+    }
+
+    private JwtTokenProvider provider(String secret, long expiration) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", secret);
+        ReflectionTestUtils.setField(provider, "jwtExpiration", expiration);
+        provider.init();
+        return provider;
+    }
+
+    @Test
+    void authenticateReturnsPrincipalFromClaims() {
+        String token = jwtTokenProvider.generateToken(user);
+
+        JwtPrincipal principal = jwtTokenProvider.authenticate(token);
+
+        assertEquals("user123", principal.userId());
+        assertEquals("user@example.com", principal.email());
+        assertEquals("PROVIDER", principal.role());
+        assertEquals("ROLE_PROVIDER", principal.authorities().get(0).getAuthority());
+        assertTrue(principal.expiresAt().isAfter(Instant.now()));
+    }
+
+    @Test
+    void authenticateServesRepeatedTokenFromCache() {
+        String token = jwtTokenProvider.generateToken(user);
+
+        JwtPrincipal first = jwtTokenProvider.authenticate(token);
+        JwtPrincipal second = jwtTokenProvider.authenticate(token);
+
+        assertSame(first, second);
+    }
+
+    @Test
+    void authenticateRejectsTamperedToken() {
+        String token = jwtTokenProvider.generateToken(user);
+        user.setRole(Role.ADMIN);
+        String admin = providerWithSecret(SECRET + "-other").generateToken(user);
+        // The cached token's signature over another token's claims
+        String tampered = admin.substring(0, admin.lastIndexOf('.')) + token.substring(token.lastIndexOf('.'));
+
+        jwtTokenProvider.authenticate(token);
+
+        assertNull(jwtTokenProvider.authenticate(tampered));
+        assertFalse(jwtTokenProvider.validateToken(tampered));
+    }
+
+    @Test
+    void authenticateRejectsTokenSignedWithOtherKey() {
+        String token = providerWithSecret(SECRET + "-other").generateToken(user);
+
+        assertNull(jwtTokenProvider.authenticate(token));
+    }
+
+    @Test
+    void authenticateThrowsForExpiredToken() {
+        String expired = providerWithExpiration(-1000).generateToken(user);
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> jwtTokenProvider.authenticate(expired));
+        assertEquals("JWT token is expired", ex.getMessage());
+    }
+}
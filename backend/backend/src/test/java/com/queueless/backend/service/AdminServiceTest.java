@@ -4,6 +4,9 @@ import com.queueless.backend.dto.AdminQueueDTO;
 import com.queueless.backend.dto.ForgotPasswordRequest;
 import com.queueless.backend.dto.ProviderDetailsDTO;
 import com.queueless.backend.dto.ProviderUpdateRequest;
+import com.queueless.backend.enums.Role;
+import com.queueless.backend.enums.RollupGranularity;
+import com.queueless.backend.enums.RollupScope;
 import com.queueless.backend.exception.AccessDeniedException;
 import com.queueless.backend.exception.ResourceNotFoundException;
 import com.queueless.backend.model.*;
@@ -41,7 +44,7 @@ class AdminServiceTest {
     private PaymentRepository paymentRepository;
 
     @Mock
-    private FeedbackRepository feedbackRepository;
+    private RatingAggregateService ratingAggregateService;
 
     @Mock
     private PlaceService placeService;
@@ -52,6 +55,12 @@ class AdminServiceTest {
     @Mock
     private PasswordResetTokenService passwordResetTokenService;
 
+    @Mock
+    private AnalyticsRollupService analyticsRollupService;
+
+    @Mock
+    private TokenHistoryService tokenHistoryService;
+
     @InjectMocks
     private AdminService adminService;
 
@@ -111,9 +120,8 @@ class AdminServiceTest {
         List<Queue> queues = List.of(testQueue);
         when(queueRepository.findByPlaceIdIn(placeIds)).thenReturn(queues);
 
-        // Mock users to include one provider under this admin
-        List<User> allUsers = List.of(testProvider);
-        when(userRepository.findAll()).thenReturn(allUsers);
+        // One provider under this admin
+        when(userRepository.countByAdminIdAndRole(adminId, Role.PROVIDER)).thenReturn(1L);
 
         Map<String, Object> stats = adminService.getDashboardStats(adminId);
 
@@ -127,19 +135,41 @@ class AdminServiceTest {
         assertNotNull(stats.get("recentActivity"));
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    void recentActivityIncludesArchivedTokensOnce() {
+        LocalDateTime now = LocalDateTime.now();
+        QueueToken live = new QueueToken("T-002", "user2", "COMPLETED", now.minusMinutes(30));
+        live.setCompletedAt(now.minusMinutes(5));
+        testQueue.getTokens().add(live);
+        QueueToken archived = new QueueToken("T-001", "user1", "COMPLETED", now.minusHours(3));
+        archived.setCompletedAt(now.minusHours(2));
+        when(placeRepository.findByAdminId(adminId)).thenReturn(List.of(testPlace));
+        when(queueRepository.findByPlaceIdIn(List.of(placeId))).thenReturn(List.of(testQueue));
+        // The live token was also recorded in the history when it completed
+        when(tokenHistoryService.findCompletedSince(eq(List.of(queueId)), any(LocalDateTime.class), eq(10)))
+                .thenReturn(List.of(TokenHistory.from(testQueue, archived), TokenHistory.from(testQueue, live)));
+
+        List<Map<String, Object>> activity =
+                (List<Map<String, Object>>) adminService.getDashboardStats(adminId).get("recentActivity");
+
+        assertEquals(List.of("T-002", "T-001"), activity.stream().map(a -> a.get("tokenId")).toList());
+        assertEquals(queueId, activity.get(1).get("queueId"));
+    }
+
     // ================= PROVIDERS WITH QUEUES =================
 
     @Test
     void getProvidersWithQueuesSuccess() {
         // 1. Setup Mock Data
         List<User> providers = List.of(testProvider);
-        when(userRepository.findAll()).thenReturn(providers);
+        when(userRepository.findByAdminIdAndRole(adminId, Role.PROVIDER)).thenReturn(providers);
 
-        // The service calls findByProviderId multiple times (once for main list, once for cancellation rate)
-        when(queueRepository.findByProviderId(providerId)).thenReturn(List.of(testQueue));
+        // Queues of all providers are loaded in one query
+        when(queueRepository.findCountersByProviderIdIn(List.of(providerId))).thenReturn(List.of(testQueue));
 
-        // Mock feedback to prevent NullPointerException during getAverageRatingForProvider
-        when(feedbackRepository.findByProviderId(providerId)).thenReturn(Collections.emptyList());
+        // No ratings yet
+        when(ratingAggregateService.forProviders(List.of(providerId))).thenReturn(Map.of());
 
         // 2. Call the Service
         List<com.queueless.backend.dto.ProviderPerformanceDTO> result = adminService.getProvidersWithQueues(adminId);
@@ -221,24 +251,28 @@ class AdminServiceTest {
                 .email("admin@test.com")
                 .build();
 
-        // Create a completed token to test wait time and served counts
-        QueueToken completedToken = new QueueToken();
-        completedToken.setStatus("COMPLETED");
-        completedToken.setIssuedAt(LocalDateTime.now().minusMinutes(30));
-        completedToken.setServedAt(LocalDateTime.now().minusMinutes(10)); // 20 min wait
-        completedToken.setCompletedAt(LocalDateTime.now().minusMinutes(5));
-
-        testQueue.setTokens(List.of(completedToken));
+        // Rollups for one completed token with a 20 minute wait, served today
+        AnalyticsRollup today = new AnalyticsRollup();
+        today.setServed(1);
+        AnalyticsRollup allTime = new AnalyticsRollup();
+        allTime.setServed(1);
+        allTime.setWaitMinutesSum(20);
+        allTime.setWaitCount(1);
 
-        // Create feedback
-        Feedback feedback = new Feedback();
-        feedback.setRating( 4);
+        // One rating of 4 for the place
+        RatingAggregate rating = new RatingAggregate(placeId);
+        rating.setRatingSum(4);
+        rating.setRatingCount(1);
 
         // 2. Mocking Repository Calls
         when(userRepository.findById(adminId)).thenReturn(Optional.of(admin));
         when(placeRepository.findByAdminId(adminId)).thenReturn(List.of(testPlace));
-        when(queueRepository.findByPlaceId(placeId)).thenReturn(List.of(testQueue));
-        when(feedbackRepository.findByPlaceId(placeId)).thenReturn(List.of(feedback));
+        when(queueRepository.findCountersByPlaceIdIn(List.of(placeId))).thenReturn(List.of(testQueue));
+        when(ratingAggregateService.forPlaces(List.of(placeId))).thenReturn(Map.of(placeId, rating));
+        when(analyticsRollupService.byScopeId(eq(RollupScope.PLACE), eq(List.of(placeId)), eq(RollupGranularity.DAY), any()))
+                .thenReturn(Map.of(placeId, today));
+        when(analyticsRollupService.byScopeId(eq(RollupScope.PLACE), eq(List.of(placeId)), eq(RollupGranularity.TOTAL), any()))
+                .thenReturn(Map.of(placeId, allTime));
 
         // 3. Execute
         com.queueless.backend.dto.AdminReportDTO report = adminService.getAdminReport(adminId);
@@ -277,10 +311,10 @@ class AdminServiceTest {
         when(userRepository.findById(providerId)).thenReturn(Optional.of(provider));
 
         List<Queue> queues = List.of(testQueue); // testQueue from @BeforeEach
-        when(queueRepository.findByProviderId(providerId)).thenReturn(queues);
+        when(queueRepository.findCountersByProviderIdIn(List.of(providerId))).thenReturn(queues);
 
         // Mock feedback for rating and cancellation rate
-        when(feedbackRepository.findByProviderId(providerId)).thenReturn(List.of());
+        when(ratingAggregateService.forProviders(List.of(providerId))).thenReturn(Map.of());
 
         // Mock places
         Place place1 = new Place(); place1.setId("place1"); place1.setName("Place 1");
@@ -364,14 +398,14 @@ class AdminServiceTest {
         // For unit test, we can mock getProviderById after save to return a dummy DTO.
 
         // Let's mock the repository calls and then use spy to partially mock? Simpler: we'll let getProviderById run with minimal mocks.
-        // We'll mock queueRepository, feedbackRepository, placeService as needed.
+        // We'll mock queueRepository, ratingAggregateService, placeService as needed.
 
         // For now, we'll just verify that the provider was saved with updated fields, and then expect getProviderById to be called.
         // We'll mock the subsequent call to return a dummy DTO.
 
         when(placeService.getPlacesByIds(anyList())).thenReturn(List.of());
-        when(queueRepository.findByProviderId(providerId)).thenReturn(List.of());
-        when(feedbackRepository.findByProviderId(providerId)).thenReturn(List.of());
+        when(queueRepository.findCountersByProviderIdIn(List.of(providerId))).thenReturn(List.of());
+        when(ratingAggregateService.forProviders(List.of(providerId))).thenReturn(Map.of());
 
         ProviderDetailsDTO result = adminService.updateProvider(providerId, request, adminId);
 
@@ -438,8 +472,8 @@ class AdminServiceTest {
 
         // Mock dependencies for getProviderById call
         when(placeService.getPlacesByIds(anyList())).thenReturn(List.of());
-        when(queueRepository.findByProviderId(providerId)).thenReturn(List.of());
-        when(feedbackRepository.findByProviderId(providerId)).thenReturn(List.of());
+        when(queueRepository.findCountersByProviderIdIn(List.of(providerId))).thenReturn(List.of());
+        when(ratingAggregateService.forProviders(List.of(providerId))).thenReturn(Map.of());
 
         ProviderDetailsDTO result = adminService.toggleProviderStatus(providerId, false, adminId);
 
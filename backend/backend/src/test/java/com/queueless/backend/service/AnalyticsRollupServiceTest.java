@@ -0,0 +1,172 @@
+package com.queueless.backend.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.queueless.backend.enums.RollupGranularity;
+import com.queueless.backend.enums.RollupScope;
+import com.queueless.backend.model.AnalyticsRollup;
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.model.QueueHourlyStats;
+import com.queueless.backend.model.QueueToken;
+import com.queueless.backend.model.TokenHistory;
+import com.queueless.backend.repository.QueueRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnalyticsRollupServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private TokenHistoryService tokenHistoryService;
+
+    @Mock
+    private QueueRepository queueRepository;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @InjectMocks
+    private AnalyticsRollupService rollupService;
+
+    @Test
+    void completedTokenUpdatesEveryScopeAndGranularity() {
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(AnalyticsRollup.class)))
+                .thenReturn(bulkOperations);
+        Queue queue = new Queue("provider1", "Service", "place1", "service1");
+        queue.setId("queue1");
+        LocalDateTime issuedAt = LocalDateTime.now().minusMinutes(30);
+        QueueToken token = new QueueToken("T-001", "user1", "COMPLETED", issuedAt);
+        token.setServedAt(issuedAt.plusMinutes(20));
+        token.setCompletedAt(issuedAt.plusMinutes(25));
+        token.setServiceDurationMinutes(5L);
+
+        rollupService.recordFinished(queue, token);
+
+        // queue, place and provider, each by hour, day and all time
+        verify(bulkOperations, times(9)).upsert(any(Query.class), any(Update.class));
+        verify(bulkOperations).execute();
+    }
+
+    @Test
+    void waitingTokenIsNotCounted() {
+        Queue queue = new Queue("provider1", "Service", "place1", "service1");
+        queue.setId("queue1");
+
+        rollupService.recordFinished(queue, new QueueToken("T-001", "user1", "WAITING", LocalDateTime.now()));
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void backfillCountsEmbeddedAndArchivedTokensOnceBeforeStoredCutoff() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(1);
+        when(mongoTemplate.getCollectionName(AnalyticsRollup.class)).thenReturn("analytics_rollups");
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq("analytics_rollups")))
+                .thenReturn(new Document("_id", "backfill")
+                        .append("cutoff", Date.from(cutoff.atZone(ZoneId.systemDefault()).toInstant())));
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(AnalyticsRollup.class)))
+                .thenReturn(bulkOperations);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq("analytics_rollups")))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongoTemplate.stream(any(Query.class), eq(QueueHourlyStats.class))).thenReturn(Stream.empty());
+        when(queueRepository.findAllCounters()).thenReturn(List.of());
+
+        Queue queue = new Queue("provider1", "Service", "place1", "service1");
+        queue.setId("queue1");
+        QueueToken embedded = new QueueToken("T-001", "user1", "COMPLETED", cutoff.minusHours(2));
+        embedded.setCompletedAt(cutoff.minusHours(1));
+        QueueToken afterCutoff = new QueueToken("T-002", "user2", "CANCELLED", cutoff.minusMinutes(5));
+        afterCutoff.setCompletedAt(cutoff.plusMinutes(5));
+        queue.getTokens().addAll(List.of(embedded, afterCutoff,
+                new QueueToken("T-003", "user3", "WAITING", cutoff.minusMinutes(1))));
+        when(queueRepository.streamAllBy()).thenReturn(Stream.of(queue));
+        QueueToken archived = new QueueToken("T-000", "user0", "COMPLETED", cutoff.minusDays(2));
+        archived.setCompletedAt(cutoff.minusDays(2).plusMinutes(30));
+        doAnswer(inv -> {
+            Consumer<TokenHistory> action = inv.getArgument(1);
+            // T-001 was also recorded in the history when it completed
+            action.accept(TokenHistory.from(queue, embedded));
+            action.accept(TokenHistory.from(queue, archived));
+            return null;
+        }).when(tokenHistoryService).forEachClosedBefore(eq(cutoff), any(Consumer.class));
+
+        rollupService.backfill();
+
+        // Earlier attempts are cleared first, then two tokens for three scopes and three granularities
+        verify(mongoTemplate).remove(any(Query.class), eq(AnalyticsRollup.class));
+        verify(bulkOperations, times(18)).upsert(any(Query.class), any(Update.class));
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).updateFirst(any(Query.class), updates.capture(), eq("analytics_rollups"));
+        assertEquals("DONE", ((Document) updates.getValue().getUpdateObject().get("$set")).get("state"));
+    }
+
+    @Test
+    void backfillSkipsWhenMarkerIsNotClaimed() {
+        when(mongoTemplate.getCollectionName(AnalyticsRollup.class)).thenReturn("analytics_rollups");
+
+        rollupService.backfill();
+
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(AnalyticsRollup.class));
+        verifyNoInteractions(queueRepository, tokenHistoryService);
+    }
+
+    @Test
+    void byBucketSumsAcrossScopeIds() {
+        LocalDateTime day = LocalDateTime.now().toLocalDate().atStartOfDay();
+        when(mongoTemplate.find(any(Query.class), eq(AnalyticsRollup.class)))
+                .thenReturn(List.of(rollup("place1", day, 2, 10, 1), rollup("place2", day, 3, 30, 1)));
+
+        Map<LocalDateTime, AnalyticsRollup> result = rollupService.byBucket(
+                RollupScope.PLACE, List.of("place1", "place2"), RollupGranularity.DAY, day);
+
+        assertEquals(1, result.size());
+        assertEquals(5, result.get(day).getServed());
+        assertEquals(20.0, result.get(day).averageWaitMinutes(), 0.001);
+    }
+
+    @Test
+    void noScopeIdsSkipsQuery() {
+        assertTrue(rollupService.byScopeId(RollupScope.PROVIDER, List.of(), RollupGranularity.TOTAL,
+                AnalyticsRollup.ALL_TIME).isEmpty());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    private AnalyticsRollup rollup(String placeId, LocalDateTime bucket, long served, long waitSum, long waitCount) {
+        AnalyticsRollup rollup = new AnalyticsRollup();
+        rollup.setScope(RollupScope.PLACE);
+        rollup.setScopeId(placeId);
+        rollup.setGranularity(RollupGranularity.DAY);
+        rollup.setBucket(bucket);
+        rollup.setServed(served);
+        rollup.setWaitMinutesSum(waitSum);
+        rollup.setWaitCount(waitCount);
+        return rollup;
+    }
+}
@@ -1,7 +1,6 @@
 package com.queueless.backend.service;
 
 import com.queueless.backend.model.AuditLog;
-import com.queueless.backend.repository.AuditLogRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -23,7 +22,7 @@ import static org.mockito.Mockito.*;
 class AuditLogServiceTest {
 
     @Mock
-    private AuditLogRepository auditLogRepository;
+    private AuditLogWriter auditLogWriter;
 
     @Mock
     private Authentication authentication;
@@ -60,7 +59,7 @@ class AuditLogServiceTest {
         auditLogService.logEvent(action, description, details);
 
         // Assert
-        verify(auditLogRepository).save(captor.capture());
+        verify(auditLogWriter).write(captor.capture());
         AuditLog saved = captor.getValue();
         assertEquals(userId, saved.getUserId());
         assertEquals(action, saved.getAction());
@@ -86,7 +85,7 @@ class AuditLogServiceTest {
         auditLogService.logEvent(action, description, details);
 
         // Assert
-        verify(auditLogRepository).save(captor.capture());
+        verify(auditLogWriter).write(captor.capture());
         AuditLog saved = captor.getValue();
         assertNull(saved.getUserId());
         assertEquals(action, saved.getAction());
@@ -110,7 +109,7 @@ class AuditLogServiceTest {
         auditLogService.logEvent(action, description, details);
 
         // Assert
-        verify(auditLogRepository).save(captor.capture());
+        verify(auditLogWriter).write(captor.capture());
         AuditLog saved = captor.getValue();
         assertNull(saved.getUserId());
         assertEquals(action, saved.getAction());
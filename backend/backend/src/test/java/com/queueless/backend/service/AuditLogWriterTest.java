@@ -0,0 +1,134 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.model.AuditLog;
+import com.queueless.backend.repository.AuditLogRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuditLogWriterTest {
+
+    @Mock
+    private AuditLogRepository auditLogRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AuditLogWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // The drainer thread is never started, so tests flush explicitly
+        writer = new AuditLogWriter(auditLogRepository, mongoTemplate, meterRegistry);
+        ReflectionTestUtils.setField(writer, "capacity", 4);
+        ReflectionTestUtils.setField(writer, "batchSize", 3);
+    }
+
+    private static AuditLog entry(String action) {
+        AuditLog entry = new AuditLog();
+        entry.setAction(action);
+        return entry;
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.get("audit.log.entries").tag("outcome", outcome).counter().count();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void flushInsertsBufferedEntriesInBatches() {
+        for (int i = 0; i < 4; i++) {
+            writer.write(entry("A" + i));
+        }
+        verifyNoInteractions(auditLogRepository);
+
+        assertEquals(4, writer.flush());
+
+        ArgumentCaptor<List<AuditLog>> batches = ArgumentCaptor.forClass(List.class);
+        verify(auditLogRepository, times(2)).insert(batches.capture());
+        assertEquals(3, batches.getAllValues().get(0).size());
+        assertEquals(1, batches.getAllValues().get(1).size());
+        assertEquals(0, writer.buffered());
+        assertEquals(4, count("written"));
+    }
+
+    @Test
+    void dropPolicyDiscardsEntriesWhenFull() {
+        for (int i = 0; i < 6; i++) {
+            writer.write(entry("A" + i));
+        }
+
+        assertEquals(4, writer.buffered());
+        assertEquals(4, count("buffered"));
+        assertEquals(2, count("dropped"));
+        assertEquals(4.0, meterRegistry.get("audit.log.buffer.size").gauge().value());
+    }
+
+    @Test
+    void samplePolicyKeepsOneInRateNearCapacity() {
+        ReflectionTestUtils.setField(writer, "overflowPolicy", AuditLogWriter.OverflowPolicy.SAMPLE);
+        ReflectionTestUtils.setField(writer, "sampleRate", 2);
+
+        // Three fill the buffer to three quarters, then every second entry is kept
+        for (int i = 0; i < 7; i++) {
+            writer.write(entry("A" + i));
+        }
+
+        assertEquals(4, writer.buffered());
+        assertEquals(2, count("sampled_out"));
+        assertEquals(1, count("dropped"));
+    }
+
+    @Test
+    void blockPolicyGivesUpAfterTimeout() {
+        ReflectionTestUtils.setField(writer, "overflowPolicy", AuditLogWriter.OverflowPolicy.BLOCK);
+        ReflectionTestUtils.setField(writer, "blockTimeoutMs", 5L);
+        for (int i = 0; i < 4; i++) {
+            writer.write(entry("A" + i));
+        }
+
+        writer.write(entry("late"));
+
+        assertEquals(1, count("blocked"));
+        assertEquals(1, count("dropped"));
+        assertEquals(4, writer.buffered());
+    }
+
+    @Test
+    void failedBatchIsCountedAndDiscarded() {
+        when(auditLogRepository.insert(anyList())).thenThrow(new RuntimeException("mongo down"));
+        writer.write(entry("A"));
+
+        assertEquals(0, writer.flush());
+
+        assertEquals(1, count("failed"));
+        assertEquals(0, writer.buffered());
+    }
+
+    @Test
+    void syncModeWritesOnCallerThread() {
+        ReflectionTestUtils.setField(writer, "async", false);
+
+        AuditLog entry = entry("A");
+
+        writer.write(entry);
+
+        verify(auditLogRepository).insert(List.of(entry));
+        assertEquals(0, writer.buffered());
+    }
+}
@@ -0,0 +1,81 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.repository.QueueRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DirtyQueueTrackerTest {
+
+    @Mock
+    private QueueRepository queueRepository;
+
+    @InjectMocks
+    private DirtyQueueTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(tracker, "enabled", true);
+        ReflectionTestUtils.setField(tracker, "fullScanMinutes", 10L);
+        ReflectionTestUtils.setField(tracker, "maxPending", 2);
+    }
+
+    @Test
+    void firstDrainRequiresFullScan() {
+        assertTrue(tracker.drain("job").isEmpty());
+        assertEquals(Set.of(), tracker.drain("job").orElseThrow());
+    }
+
+    @Test
+    void eachConsumerDrainsItsOwnChanges() {
+        tracker.drain("a");
+        tracker.drain("b");
+
+        tracker.markDirty("q1");
+        assertEquals(Set.of("q1"), tracker.drain("a").orElseThrow());
+        tracker.markDirty("q2");
+
+        assertEquals(Set.of("q2"), tracker.drain("a").orElseThrow());
+        assertEquals(Set.of("q1", "q2"), tracker.drain("b").orElseThrow());
+    }
+
+    @Test
+    void overflowFallsBackToFullScan() {
+        tracker.drain("job");
+        tracker.markDirty("q1");
+        tracker.markDirty("q2");
+        tracker.markDirty("q3");
+
+        assertTrue(tracker.drain("job").isEmpty());
+        assertEquals(Set.of(), tracker.drain("job").orElseThrow());
+    }
+
+    @Test
+    void loadsOnlyChangedQueues() {
+        Queue queue = new Queue();
+        queue.setId("q1");
+        when(queueRepository.findAll()).thenReturn(List.of(queue));
+        when(queueRepository.findAllById(Set.of("q1"))).thenReturn(List.of(queue));
+
+        assertEquals(1, tracker.loadChangedQueues("job").size());
+        assertTrue(tracker.loadChangedQueues("job").isEmpty());
+        tracker.markDirty("q1");
+        assertEquals(List.of(queue), tracker.loadChangedQueues("job"));
+
+        verify(queueRepository, times(1)).findAll();
+        verify(queueRepository, times(1)).findAllById(any());
+    }
+}
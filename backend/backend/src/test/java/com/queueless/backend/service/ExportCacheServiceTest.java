@@ -1,7 +1,14 @@
 package com.queueless.backend.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.Map;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -89,4 +96,110 @@ class ExportCacheServiceTest {
         assertEquals("new.pdf", entry.getFilename());
         assertArrayEquals(newData, entry.getData());
     }
+
+    // ================= BOUNDED STORE =================
+
+    @TempDir
+    Path exportDir;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ExportCacheService boundedCache(long memoryMax, long entryMax, long diskMax) {
+        meterRegistry = new SimpleMeterRegistry();
+        ExportCacheService cache = new ExportCacheService(meterRegistry, null);
+        ReflectionTestUtils.setField(cache, "directory", exportDir.toString());
+        ReflectionTestUtils.setField(cache, "memoryMaxBytes", memoryMax);
+        ReflectionTestUtils.setField(cache, "memoryEntryMaxBytes", entryMax);
+        ReflectionTestUtils.setField(cache, "diskMaxBytes", diskMax);
+        return cache;
+    }
+
+    @Test
+    void largeExportIsStoredOnDisk() throws Exception {
+        ExportCacheService cache = boundedCache(1000, 10, 1000);
+
+        cache.saveExport(exportId, testData, filename, queueId, reportType, format);
+        ExportCacheService.ExportEntry entry = cache.getExport(exportId);
+
+        assertNotNull(entry.getFile());
+        assertTrue(Files.exists(entry.getFile()));
+        assertArrayEquals(testData, entry.getData());
+        assertEquals(testData.length, entry.getSize());
+
+        cache.removeExport(exportId);
+        assertFalse(Files.exists(entry.getFile()));
+    }
+
+    @Test
+    void exportFileIsTakenOverWithoutReadingIt() throws Exception {
+        ExportCacheService cache = boundedCache(1000, 1000, 1000);
+        Path file = cache.newExportFile();
+        assertEquals(exportDir, file.getParent());
+        Files.write(file, testData);
+
+        cache.saveExportFile(exportId, file, filename, queueId, reportType, format);
+        ExportCacheService.ExportEntry entry = cache.getExport(exportId);
+
+        assertEquals(file, entry.getFile());
+        assertEquals(testData.length, entry.getSize());
+        assertArrayEquals(testData, entry.getData());
+
+        cache.removeExport(exportId);
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void leastRecentlyUsedExportSpillsToDiskWhenMemoryIsFull() {
+        ExportCacheService cache = boundedCache(testData.length * 2L, 1000, 1000);
+        cache.saveExport("id1", testData, "file1.pdf", "q1", "full", "pdf");
+        cache.saveExport("id2", testData, "file2.pdf", "q2", "full", "pdf");
+        cache.getExport("id1"); // id2 is now least recently used
+
+        cache.saveExport("id3", testData, "file3.pdf", "q3", "full", "pdf");
+
+        assertNotNull(cache.getExport("id2").getFile());
+        assertNull(cache.getExport("id1").getFile());
+        assertNull(cache.getExport("id3").getFile());
+        assertEquals(1.0, meterRegistry.get("export.cache.spills").counter().count());
+    }
+
+    @Test
+    void leastRecentlyUsedExportIsEvictedWhenDiskIsFull() {
+        ExportCacheService cache = boundedCache(0, 0, testData.length * 2L);
+        cache.saveExport("id1", testData, "file1.pdf", "q1", "full", "pdf");
+        cache.saveExport("id2", testData, "file2.pdf", "q2", "full", "pdf");
+
+        cache.saveExport("id3", testData, "file3.pdf", "q3", "full", "pdf");
+
+        assertNull(cache.getExport("id1"));
+        assertNotNull(cache.getExport("id2"));
+        assertNotNull(cache.getExport("id3"));
+        assertEquals(1.0, meterRegistry.get("export.cache.evictions").tag("reason", "size").counter().count());
+    }
+
+    @Test
+    void expiredExportsAreSwept() {
+        ExportCacheService cache = boundedCache(1000, 1000, 1000);
+        cache.saveExport("old", testData, "old.pdf", queueId, reportType, format);
+        cache.saveExport("new", testData, "new.pdf", queueId, reportType, format);
+        cache.getAllExports().get("old").setCreatedAt(LocalDateTime.now().minusDays(2));
+
+        cache.evictExpired();
+
+        assertEquals(1, cache.getAllExports().size());
+        assertNotNull(cache.getExport("new"));
+        assertNull(cache.getExport("old"));
+    }
+
+    @Test
+    void hitsAndMissesAreCounted() {
+        ExportCacheService cache = boundedCache(1000, 1000, 1000);
+        cache.saveExport(exportId, testData, filename, queueId, reportType, format);
+
+        cache.getExport(exportId);
+        cache.getExport("missing");
+
+        assertEquals(1.0, meterRegistry.get("export.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("export.cache.requests").tag("result", "miss").counter().count());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,223 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.enums.ExportJobStatus;
+import com.queueless.backend.exception.ExportBusyException;
+import com.queueless.backend.exception.ResourceNotFoundException;
+import com.queueless.backend.model.ExportJob;
+import com.queueless.backend.model.ExportSnapshotToken;
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.model.QueueToken;
+import com.queueless.backend.repository.ExportJobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExportJobServiceTest {
+
+    @Mock
+    private ExportCacheService exportCacheService;
+
+    @Mock
+    private ExportService exportService;
+
+    @Mock
+    private ExportJobRepository exportJobRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @InjectMocks
+    private ExportJobService exportJobService;
+
+    @TempDir
+    Path exportDir;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(exportJobService, "concurrency", 1);
+        ReflectionTestUtils.setField(exportJobService, "queueCapacity", 1);
+        exportJobService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        exportJobService.stop();
+    }
+
+    private Path stubExportFile() throws Exception {
+        Path file = exportDir.resolve("job.export");
+        when(exportCacheService.newExportFile()).thenReturn(file);
+        return file;
+    }
+
+    private static Queue snapshot(int tokens) {
+        Queue queue = new Queue("provider1", "Blood Test", "place1", "service1");
+        queue.setId("queue1");
+        List<QueueToken> list = new ArrayList<>();
+        for (int i = 0; i < tokens; i++) {
+            QueueToken token = new QueueToken();
+            token.setTokenId("T-00" + i);
+            list.add(token);
+        }
+        queue.setTokens(list);
+        return queue;
+    }
+
+    @Test
+    void completedJobIsStreamedToFileAndHandedToExportCache() throws Exception {
+        Path file = stubExportFile();
+        byte[] data = {1, 2, 3};
+
+        ExportJob job = exportJobService.submit("user1", "report.pdf", "pdf", "queue1", "full", out -> out.write(data));
+
+        verify(exportCacheService, timeout(2000)).saveExportFile(job.getExportId(), file, "report.pdf", "queue1", "full", "pdf");
+        assertArrayEquals(data, Files.readAllBytes(file));
+        // queued, started, storing, completed
+        verify(messagingTemplate, timeout(2000).times(4))
+                .convertAndSendToUser(eq("user1"), eq("/queue/export-jobs"), any(ExportJob.class));
+        verify(exportJobRepository, atLeast(4)).save(job);
+        assertEquals(ExportJobStatus.COMPLETED, job.getStatus());
+        assertEquals(100, job.getProgress());
+        assertNull(job.getLeaseUntil());
+        assertEquals("/export/exports/" + job.getExportId(), job.getDownloadUrl());
+    }
+
+    @Test
+    void failingTaskMarksJobFailed() throws Exception {
+        stubExportFile();
+
+        ExportJob job = exportJobService.submit("user1", "report.pdf", "pdf", "queue1", "full", out -> {
+            throw new IllegalStateException("render failed");
+        });
+
+        // queued, started, failed
+        verify(messagingTemplate, timeout(2000).times(3))
+                .convertAndSendToUser(eq("user1"), eq("/queue/export-jobs"), any(ExportJob.class));
+        assertEquals(ExportJobStatus.FAILED, job.getStatus());
+        assertEquals("render failed", job.getError());
+        verify(exportCacheService, never()).saveExportFile(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void submitBeyondBacklogIsRejected() throws Exception {
+        lenient().when(exportCacheService.newExportFile())
+                .thenAnswer(invocation -> exportDir.resolve(UUID.randomUUID() + ".export"));
+        CountDownLatch release = new CountDownLatch(1);
+        ExportJobService.ExportTask blocking = out -> release.await(2, TimeUnit.SECONDS);
+        exportJobService.submit("user1", "a.pdf", "pdf", "queue1", "full", blocking);
+        exportJobService.submit("user1", "b.pdf", "pdf", "queue1", "full", blocking);
+
+        assertThrows(ExportBusyException.class,
+                () -> exportJobService.submit("user1", "c.pdf", "pdf", "queue1", "full", blocking));
+        verify(exportJobRepository).deleteById(anyString());
+        release.countDown();
+    }
+
+    @Test
+    void jobsAreOnlyVisibleToTheirOwner() {
+        ExportJob job = new ExportJob();
+        job.setId("job1");
+        job.setOwnerId("user1");
+        when(exportJobRepository.findById("job1")).thenReturn(Optional.of(job));
+
+        assertSame(job, exportJobService.getJob("job1", "user1"));
+        assertThrows(ResourceNotFoundException.class, () -> exportJobService.getJob("job1", "user2"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void snapshotIsStoredBeforeSubmitReturnsAndRemovedOnceRendered() throws Exception {
+        Path file = stubExportFile();
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> release.await(2, TimeUnit.SECONDS)).when(exportService)
+                .streamQueueToPdf(any(Queue.class), eq("full"), eq(true), any(), any());
+
+        ExportJob job = exportJobService.submitQueueSnapshot("user1", "reset.pdf", snapshot(2), "full", true);
+
+        ArgumentCaptor<List<ExportSnapshotToken>> tokens = ArgumentCaptor.forClass(List.class);
+        verify(mongoTemplate).insert(tokens.capture(), eq(ExportSnapshotToken.class));
+        assertEquals(List.of(0, 1), tokens.getValue().stream().map(ExportSnapshotToken::getSeq).toList());
+        assertEquals("T-001", tokens.getValue().get(1).getToken().getTokenId());
+        assertTrue(tokens.getValue().stream().allMatch(token -> job.getId().equals(token.getJobId())));
+        verify(exportJobRepository, atLeastOnce()).save(job);
+        assertTrue(job.getSnapshot().getTokens().isEmpty());
+        assertEquals(Boolean.TRUE, job.getIncludeUserDetails());
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(ExportSnapshotToken.class));
+
+        release.countDown();
+        verify(exportCacheService, timeout(2000)).saveExportFile(job.getExportId(), file, "reset.pdf", "queue1", "full", "pdf");
+        verify(mongoTemplate, timeout(2000)).remove(any(Query.class), eq(ExportSnapshotToken.class));
+    }
+
+    @Test
+    void rejectedSnapshotIsRemoved() {
+        ExportJobService.ExportTask blocking = out -> new CountDownLatch(1).await(2, TimeUnit.SECONDS);
+        lenient().when(exportCacheService.newExportFile())
+                .thenAnswer(invocation -> exportDir.resolve(UUID.randomUUID() + ".export"));
+        exportJobService.submit("user1", "a.pdf", "pdf", "queue1", "full", blocking);
+        exportJobService.submit("user1", "b.pdf", "pdf", "queue1", "full", blocking);
+
+        assertThrows(ExportBusyException.class,
+                () -> exportJobService.submitQueueSnapshot("user1", "reset.pdf", snapshot(1), "full", false));
+        verify(mongoTemplate).remove(any(Query.class), eq(ExportSnapshotToken.class));
+    }
+
+    @Test
+    void interruptedSnapshotJobIsRenderedAgainAndOthersFail() throws Exception {
+        Path file = stubExportFile();
+        ExportJob reset = new ExportJob();
+        reset.setId("job1");
+        reset.setOwnerId("user1");
+        reset.setExportId("export-1-queue1");
+        reset.setFilename("reset.pdf");
+        reset.setFormat("pdf");
+        reset.setQueueId("queue1");
+        reset.setReportType("full");
+        reset.setStatus(ExportJobStatus.RUNNING);
+        reset.setSnapshot(snapshot(0));
+        ExportJob adhoc = new ExportJob();
+        adhoc.setId("job2");
+        adhoc.setOwnerId("user1");
+        adhoc.setStatus(ExportJobStatus.QUEUED);
+        when(exportJobRepository.findByFinishedAtBefore(any(LocalDateTime.class))).thenReturn(List.of());
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(ExportJob.class)))
+                .thenReturn(reset, adhoc, null);
+
+        exportJobService.recoverInterrupted();
+
+        assertEquals(ExportJobStatus.FAILED, adhoc.getStatus());
+        assertNotNull(adhoc.getFinishedAt());
+        verify(exportCacheService, timeout(2000)).saveExportFile("export-1-queue1", file, "reset.pdf", "queue1", "full", "pdf");
+        verify(exportService).streamQueueToPdf(eq(reset.getSnapshot()), eq("full"), isNull(), any(), any());
+    }
+}
@@ -2,25 +2,43 @@ package com.queueless.backend.service;
 
 import com.queueless.backend.model.Queue;
 import com.queueless.backend.model.QueueToken;
+import com.queueless.backend.model.TokenHistory;
 import com.queueless.backend.model.UserQueueDetails;
+import com.queueless.backend.repository.QueueRepository;
 import com.itextpdf.text.DocumentException;
+import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
+import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class ExportServiceTest {
 
+    @Mock
+    private QueueRepository queueRepository;
+
+    @Mock
+    private TokenHistoryService tokenHistoryService;
+
     @InjectMocks
     private ExportService exportService;
 
@@ -142,4 +160,84 @@ class ExportServiceTest {
         assertThrows(IllegalArgumentException.class, () ->
                 exportService.exportQueueToExcel(null, "tokens", false));
     }
+
+    // ================= STREAMING EXPORT TESTS =================
+
+    @Test
+    void streamQueueToExcelReadsTokensFromCursor() throws IOException {
+        testQueue.setCounters(Queue.TokenCounters.of(testQueue.getTokens()));
+        List<QueueToken> tokens = testQueue.getTokens();
+        testQueue.setTokens(new ArrayList<>()); // as loaded by getQueueForExport
+        when(queueRepository.streamTokens(queueId)).thenAnswer(inv -> tokens.stream());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.streamQueueToExcel(testQueue, "full", true, out);
+
+        try (Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(out.toByteArray()))) {
+            Sheet sheet = workbook.getSheet("Token Details");
+            assertEquals("T-001", sheet.getRow(4).getCell(0).getStringCellValue());
+            assertEquals("Consultation", sheet.getRow(4).getCell(6).getStringCellValue());
+            assertEquals("T-002", sheet.getRow(5).getCell(0).getStringCellValue());
+            assertEquals("2", workbook.getSheet("Statistics").getRow(3).getCell(1).getStringCellValue());
+        }
+        // the statistics are gathered while the token sheet is written
+        verify(queueRepository).streamTokens(queueId);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void streamQueueToExcelAppendsArchivedTokens() throws IOException {
+        List<QueueToken> tokens = testQueue.getTokens();
+        testQueue.setTokens(new ArrayList<>());
+        QueueToken archived = new QueueToken("T-000", "user789", "Archived User", "COMPLETED", LocalDateTime.now().minusHours(3));
+        archived.setCompletedAt(LocalDateTime.now().minusHours(2));
+        when(queueRepository.streamTokens(queueId)).thenAnswer(inv -> tokens.stream());
+        when(tokenHistoryService.streamArchivedTokens(eq(testQueue), anySet())).thenAnswer(inv -> {
+            // Called after the live tokens were read, with all of their ids
+            Set<String> liveIds = inv.getArgument(1);
+            assertEquals(Set.of(TokenHistory.idFor(tokens.get(0)), TokenHistory.idFor(tokens.get(1))), liveIds);
+            return Stream.of(archived);
+        });
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.streamQueueToExcel(testQueue, "tokens", false, out);
+
+        try (Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(out.toByteArray()))) {
+            Sheet sheet = workbook.getSheet("Token Details");
+            assertEquals("T-001", sheet.getRow(4).getCell(0).getStringCellValue());
+            assertEquals("T-002", sheet.getRow(5).getCell(0).getStringCellValue());
+            assertEquals("T-000", sheet.getRow(6).getCell(0).getStringCellValue());
+        }
+    }
+
+    @Test
+    void streamQueueToPdfWritesToOutputStream() throws DocumentException {
+        List<QueueToken> tokens = testQueue.getTokens();
+        when(queueRepository.streamTokens(queueId)).thenAnswer(inv -> tokens.stream());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.streamQueueToPdf(testQueue, "tokens", false, out);
+
+        assertTrue(out.size() > 0);
+        assertEquals("%PDF", new String(out.toByteArray(), 0, 4));
+    }
+
+    @Test
+    void streamQueueToPdfReadsTokensOnce() throws DocumentException {
+        List<QueueToken> tokens = testQueue.getTokens();
+        when(queueRepository.streamTokens(queueId)).thenAnswer(inv -> tokens.stream());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.streamQueueToPdf(testQueue, "full", true, out);
+
+        assertEquals("%PDF", new String(out.toByteArray(), 0, 4));
+        verify(queueRepository).streamTokens(queueId);
+    }
+
+    @Test
+    void validateReportTypeRejectsUnknownType() {
+        assertDoesNotThrow(() -> exportService.validateReportType("FULL"));
+        assertThrows(IllegalArgumentException.class, () -> exportService.validateReportType("invalid"));
+        assertThrows(IllegalArgumentException.class, () -> exportService.validateReportType(null));
+    }
 }
\ No newline at end of file
@@ -1,13 +1,10 @@
 package com.queueless.backend.service;
 
 import com.queueless.backend.model.Feedback;
-import com.queueless.backend.model.Place;
 import com.queueless.backend.model.Queue;
-import com.queueless.backend.model.User;
+import com.queueless.backend.model.RatingAggregate;
 import com.queueless.backend.repository.FeedbackRepository;
-import com.queueless.backend.repository.PlaceRepository;
 import com.queueless.backend.repository.QueueRepository;
-import com.queueless.backend.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,7 +13,6 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -32,13 +28,10 @@ class FeedbackServiceTest {
     private FeedbackRepository feedbackRepository;
 
     @Mock
-    private PlaceRepository placeRepository;
-
-    @Mock
-    private UserRepository userRepository;
+    private QueueRepository queueRepository;
 
     @Mock
-    private QueueRepository queueRepository;
+    private RatingAggregateService ratingAggregateService;
 
     @InjectMocks
     private FeedbackService feedbackService;
@@ -85,18 +78,6 @@ class FeedbackServiceTest {
         // Mock feedback save – return the input
         when(feedbackRepository.save(any(Feedback.class))).thenAnswer(inv -> inv.getArgument(0));
 
-        // Mock place lookup – return a place so updatePlaceRatings proceeds
-        Place place = new Place();
-        place.setId(placeId);
-        when(placeRepository.findById(placeId)).thenReturn(Optional.of(place));
-
-        // Mock feedbacks for this place – return at least one so updatePlaceRatings actually updates
-        List<Feedback> feedbacks = List.of(testFeedback);
-        when(feedbackRepository.findByPlaceId(placeId)).thenReturn(feedbacks);
-
-        // Mock place save
-        when(placeRepository.save(any(Place.class))).thenAnswer(inv -> inv.getArgument(0));
-
         Feedback saved = feedbackService.submitFeedback(testFeedback);
 
         assertNotNull(saved);
@@ -106,7 +87,7 @@ class FeedbackServiceTest {
 
         verify(queueRepository).findById(queueId);
         verify(feedbackRepository).save(testFeedback);
-        verify(placeRepository).save(any(Place.class)); // now invoked
+        verify(ratingAggregateService).add(testFeedback);
     }
 
 
@@ -119,6 +100,7 @@ class FeedbackServiceTest {
 
         // The service prepends "Failed to submit feedback: " to the original message
         assertEquals("Failed to submit feedback: Queue not found", exception.getMessage());
+        verifyNoInteractions(ratingAggregateService);
     }
 
 
@@ -173,42 +155,37 @@ class FeedbackServiceTest {
 
     @Test
     void getAverageRatingForPlaceWithFeedbacks() {
-        List<Feedback> feedbacks = List.of(
-                createFeedbackWithRating(5),
-                createFeedbackWithRating(4),
-                createFeedbackWithRating(3)
-        );
-        when(feedbackRepository.findByPlaceId(placeId)).thenReturn(feedbacks);
+        // ratings 5, 4 and 3
+        when(ratingAggregateService.forPlace(placeId)).thenReturn(aggregate(placeId, 12, 3));
 
         Double avg = feedbackService.getAverageRatingForPlace(placeId);
 
         assertEquals(4.0, avg, 0.01);
+        verifyNoInteractions(feedbackRepository);
     }
 
     @Test
     void getAverageRatingForPlaceNoFeedbacks() {
-        when(feedbackRepository.findByPlaceId(placeId)).thenReturn(List.of());
+        when(ratingAggregateService.forPlace(placeId)).thenReturn(new RatingAggregate(placeId));
 
         Double avg = feedbackService.getAverageRatingForPlace(placeId);
 
         assertEquals(0.0, avg);
     }
 
-    private Feedback createFeedbackWithRating(int rating) {
-        Feedback f = new Feedback();
-        f.setRating(rating);
-        return f;
+    private RatingAggregate aggregate(String id, long ratingSum, long ratingCount) {
+        RatingAggregate aggregate = new RatingAggregate(id);
+        aggregate.setRatingSum(ratingSum);
+        aggregate.setRatingCount(ratingCount);
+        return aggregate;
     }
 
     // ================= AVERAGE RATING FOR PROVIDER =================
 
     @Test
     void getAverageRatingForProviderWithFeedbacks() {
-        List<Feedback> feedbacks = List.of(
-                createFeedbackWithRating(5),
-                createFeedbackWithRating(4)
-        );
-        when(feedbackRepository.findByProviderId(providerId)).thenReturn(feedbacks);
+        // ratings 5 and 4
+        when(ratingAggregateService.forProvider(providerId)).thenReturn(aggregate(providerId, 9, 2));
 
         Double avg = feedbackService.getAverageRatingForProvider(providerId);
 
@@ -217,7 +194,7 @@ class FeedbackServiceTest {
 
     @Test
     void getAverageRatingForProviderNoFeedbacks() {
-        when(feedbackRepository.findByProviderId(providerId)).thenReturn(List.of());
+        when(ratingAggregateService.forProvider(providerId)).thenReturn(new RatingAggregate(providerId));
 
         Double avg = feedbackService.getAverageRatingForProvider(providerId);
 
@@ -257,24 +234,27 @@ class FeedbackServiceTest {
 
     @Test
     void getAllAverageRatingsForPlaceWithData() {
-        List<Feedback> feedbacks = List.of(
-                createFullFeedback(5, 4, 3, 2),
-                createFullFeedback(4, 5, 4, 3),
-                createFullFeedback(3, 4, 5, 4)
-        );
-        when(feedbackRepository.findByPlaceId(placeId)).thenReturn(feedbacks);
-
-        Map<String, Double> ratings = feedbackService.getAllAverageRatingsForPlace(placeId);
-
-        assertEquals(4.0, ratings.get("overall"), 0.01);   // (5+4+3)/3
-        assertEquals(4.33, ratings.get("staff"), 0.01);   // (4+5+4)/3
-        assertEquals(4.0, ratings.get("service"), 0.01);  // (3+4+5)/3
-        assertEquals(3.0, ratings.get("waitTime"), 0.01); // (2+3+4)/3
+        // (5,4,3,2), (4,5,4,3) and (3,4,5,4)
+        RatingAggregate ratings = aggregate(placeId, 12, 3);
+        ratings.setStaffRatingSum(13);
+        ratings.setStaffRatingCount(3);
+        ratings.setServiceRatingSum(12);
+        ratings.setServiceRatingCount(3);
+        ratings.setWaitTimeRatingSum(9);
+        ratings.setWaitTimeRatingCount(3);
+        when(ratingAggregateService.forPlace(placeId)).thenReturn(ratings);
+
+        Map<String, Double> result = feedbackService.getAllAverageRatingsForPlace(placeId);
+
+        assertEquals(4.0, result.get("overall"), 0.01);   // (5+4+3)/3
+        assertEquals(4.33, result.get("staff"), 0.01);   // (4+5+4)/3
+        assertEquals(4.0, result.get("service"), 0.01);  // (3+4+5)/3
+        assertEquals(3.0, result.get("waitTime"), 0.01); // (2+3+4)/3
     }
 
     @Test
     void getAllAverageRatingsForPlaceNoData() {
-        when(feedbackRepository.findByPlaceId(placeId)).thenReturn(List.of());
+        when(ratingAggregateService.forPlace(placeId)).thenReturn(new RatingAggregate(placeId));
 
         Map<String, Double> ratings = feedbackService.getAllAverageRatingsForPlace(placeId);
 
@@ -283,56 +263,4 @@ class FeedbackServiceTest {
         assertEquals(0.0, ratings.get("service"));
         assertEquals(0.0, ratings.get("waitTime"));
     }
-
-    private Feedback createFullFeedback(int overall, int staff, int service, int waitTime) {
-        Feedback f = new Feedback();
-        f.setRating(overall);
-        f.setStaffRating(staff);
-        f.setServiceRating(service);
-        f.setWaitTimeRating(waitTime);
-        return f;
-    }
-
-    // ================= UPDATE PLACE RATINGS (tested via submit) =================
-
-    @Test
-    void submitFeedbackTriggersPlaceRatingUpdate() {
-        Queue queue = new Queue();
-        queue.setProviderId(providerId);
-        queue.setPlaceId(placeId);
-        queue.setServiceId(serviceId);
-
-        Place place = new Place();
-        place.setId(placeId);
-
-        // Existing feedbacks: ratings 5 and 4
-        Feedback existing1 = createFullFeedback(5, 5, 5, 5);
-        Feedback existing2 = createFullFeedback(4, 4, 4, 4);
-        List<Feedback> existingFeedbacks = new ArrayList<>(List.of(existing1, existing2));
-
-        // The new feedback has rating 4 (testFeedback already has rating 4)
-        testFeedback.setRating(4);
-
-        when(queueRepository.findById(queueId)).thenReturn(Optional.of(queue));
-        when(feedbackRepository.save(any(Feedback.class))).thenAnswer(inv -> {
-            Feedback saved = inv.getArgument(0);
-            // When save is called, we need to update the list returned by findByPlaceId
-            // to include the new feedback. So we modify the existingFeedbacks list.
-            existingFeedbacks.add(saved);
-            return saved;
-        });
-
-        when(placeRepository.findById(placeId)).thenReturn(Optional.of(place));
-        // Stub findByPlaceId to return the dynamically updated list
-        when(feedbackRepository.findByPlaceId(placeId)).thenAnswer(inv -> existingFeedbacks);
-        when(placeRepository.save(any(Place.class))).thenAnswer(inv -> inv.getArgument(0));
-
-        feedbackService.submitFeedback(testFeedback);
-
-        verify(placeRepository).save(argThat(p -> {
-            assertEquals(4.33, p.getRating(), 0.01); // (5+4+4)/3 = 4.33
-            assertEquals(3, p.getTotalRatings());
-            return true;
-        }));
-    }
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.model.Place;
+import com.queueless.backend.repository.PlaceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NearbyPlaceCacheTest {
+
+    @Mock
+    private PlaceRepository placeRepository;
+
+    private NearbyPlaceCache nearbyPlaceCache;
+
+    private Place near;
+    private Place mid;
+    private Place far;
+
+    @BeforeEach
+    void setUp() {
+        nearbyPlaceCache = new NearbyPlaceCache(placeRepository, new SimpleMeterRegistry());
+        nearbyPlaceCache.init();
+
+        near = place("near", 10.0, 20.01);   // ~1.1 km north
+        mid = place("mid", 10.0, 20.03);     // ~3.3 km north
+        far = place("far", 10.0, 20.1);      // ~11 km north
+    }
+
+    private Place place(String id, double longitude, double latitude) {
+        Place place = new Place();
+        place.setId(id);
+        place.setLocation(new GeoJsonPoint(longitude, latitude));
+        return place;
+    }
+
+    @Test
+    void findNearbyFiltersByRadiusAndSortsByDistance() {
+        when(placeRepository.findByLocationNear(anyDouble(), anyDouble(), anyDouble()))
+                .thenReturn(List.of(far, mid, near));
+
+        List<Place> result = nearbyPlaceCache.findNearby(10.0, 20.0, 5.0);
+
+        assertEquals(List.of(near, mid), result);
+    }
+
+    @Test
+    void findNearbyServesQueriesInTheSameTileFromCache() {
+        when(placeRepository.findByLocationNear(anyDouble(), anyDouble(), anyDouble()))
+                .thenReturn(List.of(far, mid, near));
+
+        nearbyPlaceCache.findNearby(10.0, 20.0, 5.0);
+        List<Place> result = nearbyPlaceCache.findNearby(10.001, 20.001, 4.0);
+
+        assertEquals(List.of(near, mid), result);
+        verify(placeRepository, times(1)).findByLocationNear(anyDouble(), anyDouble(), anyDouble());
+    }
+
+    @Test
+    void invalidateAllReloadsTiles() {
+        when(placeRepository.findByLocationNear(anyDouble(), anyDouble(), anyDouble()))
+                .thenReturn(List.of(near));
+
+        nearbyPlaceCache.findNearby(10.0, 20.0, 5.0);
+        nearbyPlaceCache.invalidateAll();
+        nearbyPlaceCache.findNearby(10.0, 20.0, 5.0);
+
+        verify(placeRepository, times(2)).findByLocationNear(anyDouble(), anyDouble(), anyDouble());
+    }
+
+    @Test
+    void findNearbyQueriesLargeRadiusDirectly() {
+        when(placeRepository.findByLocationNear(10.0, 20.0, 100000.0)).thenReturn(List.of(far));
+
+        List<Place> result = nearbyPlaceCache.findNearby(10.0, 20.0, 100.0);
+
+        assertEquals(List.of(far), result);
+        verify(placeRepository).findByLocationNear(10.0, 20.0, 100000.0);
+    }
+
+    @Test
+    void tileCoversBucketRadiusFromAnyPointInTheCell() {
+        NearbyPlaceCache.Tile tile = NearbyPlaceCache.tileFor(10.0, 20.0, 5);
+        NearbyPlaceCache.Tile sameCell = NearbyPlaceCache.tileFor(10.001, 20.001, 5);
+
+        assertEquals(tile.key(), sameCell.key());
+        assertTrue(tile.key().startsWith("5:"));
+        assertTrue(tile.reachMeters() > 5000);
+        assertEquals(5, NearbyPlaceCache.bucketFor(3.2));
+        assertEquals(-1, NearbyPlaceCache.bucketFor(75));
+    }
+}
@@ -0,0 +1,193 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.enums.NotificationChannel;
+import com.queueless.backend.enums.NotificationStatus;
+import com.queueless.backend.model.NotificationOutbox;
+import com.queueless.backend.repository.NotificationOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationDispatcherTest {
+
+    @Mock
+    private NotificationOutboxRepository outboxRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private final StubSender emailSender = new StubSender();
+    private NotificationDispatcher dispatcher;
+
+    /**
+     * Records what it was asked to send instead of talking to SMTP.
+     */
+    private static class StubSender implements NotificationSender {
+        private final List<NotificationOutbox> sent = new ArrayList<>();
+        private RuntimeException failure;
+
+        @Override
+        public NotificationChannel channel() {
+            return NotificationChannel.EMAIL;
+        }
+
+        @Override
+        public void send(NotificationOutbox notification) {
+            if (failure != null) {
+                throw failure;
+            }
+            sent.add(notification);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("emailSender", emailSender));
+        dispatcher = new NotificationDispatcher(outboxRepository, mongoTemplate,
+                beans.getBeanProvider(NotificationSender.class));
+        // Deliver on the calling thread, two emails at a time
+        ReflectionTestUtils.setField(dispatcher, "executor", (Executor) Runnable::run);
+        @SuppressWarnings("unchecked")
+        Map<NotificationChannel, Semaphore> permits =
+                (Map<NotificationChannel, Semaphore>) ReflectionTestUtils.getField(dispatcher, "permits");
+        permits.put(NotificationChannel.EMAIL, new Semaphore(2));
+    }
+
+    private static final LocalDateTime LEASE = LocalDateTime.of(2024, 1, 1, 12, 2);
+
+    private static NotificationOutbox claimed(String key, int attempts) {
+        NotificationOutbox notification = NotificationOutbox.email(key, "user@example.com", "Subject", "<p>Hi</p>");
+        notification.setId(key);
+        notification.setStatus(NotificationStatus.SENDING);
+        notification.setAttempts(attempts);
+        notification.setLeaseUntil(LEASE);
+        return notification;
+    }
+
+    private Semaphore emailPermits() {
+        @SuppressWarnings("unchecked")
+        Map<NotificationChannel, Semaphore> permits =
+                (Map<NotificationChannel, Semaphore>) ReflectionTestUtils.getField(dispatcher, "permits");
+        return permits.get(NotificationChannel.EMAIL);
+    }
+
+    @Test
+    void enqueueStoresPendingEntry() {
+        NotificationOutbox notification = NotificationOutbox.email("upcoming:q1:T-001", "user@example.com", "Subject", "<p>Hi</p>");
+
+        assertTrue(dispatcher.enqueue(notification));
+
+        verify(outboxRepository).insert(notification);
+        assertEquals("email:upcoming:q1:T-001", notification.getDedupKey());
+        assertEquals(NotificationStatus.PENDING, notification.getStatus());
+        assertNotNull(notification.getNextAttemptAt());
+    }
+
+    @Test
+    void enqueueSkipsDuplicateKey() {
+        NotificationOutbox notification = NotificationOutbox.email("alert:c1:1", "admin@example.com", "Subject", "<p>Hi</p>");
+        when(outboxRepository.insert(notification)).thenThrow(new DuplicateKeyException("dedupKey"));
+
+        assertFalse(dispatcher.enqueue(notification));
+    }
+
+    @Test
+    void dispatchPendingSendsClaimedEntriesAndMarksThemSent() {
+        NotificationOutbox first = claimed("a", 1);
+        NotificationOutbox second = claimed("b", 1);
+        when(outboxRepository.claimNext(eq(NotificationChannel.EMAIL), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(first, second, null);
+        when(outboxRepository.completeClaim(any(NotificationOutbox.class), eq(LEASE))).thenReturn(true);
+
+        dispatcher.dispatchPending();
+
+        assertEquals(List.of(first, second), emailSender.sent);
+        assertEquals(NotificationStatus.SENT, first.getStatus());
+        assertNotNull(first.getFinishedAt());
+        assertNull(first.getLeaseUntil());
+        verify(outboxRepository, times(2)).completeClaim(any(NotificationOutbox.class), eq(LEASE));
+        verify(outboxRepository, never()).save(any(NotificationOutbox.class));
+        assertEquals(2, emailPermits().availablePermits());
+    }
+
+    @Test
+    void dispatchPendingReleasesPermitWhenExecutorIsShutDown() {
+        ReflectionTestUtils.setField(dispatcher, "executor", (Executor) task -> {
+            throw new RejectedExecutionException("shut down");
+        });
+        when(outboxRepository.claimNext(eq(NotificationChannel.EMAIL), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(claimed("a", 1));
+
+        dispatcher.dispatchPending();
+
+        assertTrue(emailSender.sent.isEmpty());
+        assertEquals(2, emailPermits().availablePermits());
+        verify(outboxRepository, times(1)).claimNext(any(), any(), any());
+    }
+
+    @Test
+    void outcomeIsDroppedWhenLeaseWasTakenOver() {
+        NotificationOutbox notification = claimed("a", 1);
+        when(outboxRepository.completeClaim(notification, LEASE)).thenReturn(false);
+
+        dispatcher.deliver(emailSender, notification);
+
+        assertEquals(List.of(notification), emailSender.sent);
+        verify(outboxRepository).completeClaim(notification, LEASE);
+        verify(outboxRepository, never()).save(any(NotificationOutbox.class));
+    }
+
+    @Test
+    void failedSendIsRescheduledWithBackoff() {
+        emailSender.failure = new RuntimeException("SMTP timeout");
+        NotificationOutbox notification = claimed("a", 2);
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.deliver(emailSender, notification);
+
+        assertEquals(NotificationStatus.PENDING, notification.getStatus());
+        assertEquals("SMTP timeout", notification.getLastError());
+        // Second attempt waits twice the initial 30 s
+        assertFalse(notification.getNextAttemptAt().isBefore(before.plusSeconds(60)));
+        assertNull(notification.getFinishedAt());
+        verify(outboxRepository).completeClaim(notification, LEASE);
+    }
+
+    @Test
+    void failedSendGivesUpAfterMaxAttempts() {
+        emailSender.failure = new RuntimeException("SMTP timeout");
+        NotificationOutbox notification = claimed("a", 5);
+
+        dispatcher.deliver(emailSender, notification);
+
+        assertEquals(NotificationStatus.FAILED, notification.getStatus());
+        assertNotNull(notification.getFinishedAt());
+    }
+
+    @Test
+    void backoffDoublesUpToMaximum() {
+        assertEquals(30000, dispatcher.backoffMs(1));
+        assertEquals(120000, dispatcher.backoffMs(3));
+        assertEquals(1800000, dispatcher.backoffMs(20));
+    }
+}
@@ -1,6 +1,7 @@
 package com.queueless.backend.service;
 
 import com.queueless.backend.dto.PlaceDTO;
+import com.queueless.backend.enums.SearchEntityType;
 import com.queueless.backend.model.Place;
 import com.queueless.backend.repository.PlaceRepository;
 import org.bson.types.ObjectId;
@@ -30,6 +31,12 @@ class PlaceServiceTest {
     @Mock
     private AuditLogService auditLogService;
 
+    @Mock
+    private SearchIndexService searchIndexService;
+
+    @Mock
+    private NearbyPlaceCache nearbyPlaceCache;
+
     @InjectMocks
     private PlaceService placeService;
 
@@ -192,13 +199,12 @@ class PlaceServiceTest {
     void getNearbyPlacesSuccess() {
         List<Place> places = List.of(testPlace);
         double lon = 10.0, lat = 20.0, radius = 5.0;
-        double maxDistance = radius * 1000;
-        when(placeRepository.findByLocationNear(lon, lat, maxDistance)).thenReturn(places);
+        when(nearbyPlaceCache.findNearby(lon, lat, radius)).thenReturn(places);
 
         List<Place> result = placeService.getNearbyPlaces(lon, lat, radius);
 
         assertEquals(1, result.size());
-        verify(placeRepository).findByLocationNear(lon, lat, maxDistance);
+        verify(nearbyPlaceCache).findNearby(lon, lat, radius);
     }
 
     // ================= UPDATE PLACE =================
@@ -226,6 +232,7 @@ class PlaceServiceTest {
 
         verify(placeRepository).findById(placeId);
         verify(placeRepository).save(testPlace);
+        verify(nearbyPlaceCache).invalidateAll();
     }
 
     @Test
@@ -250,6 +257,8 @@ class PlaceServiceTest {
 
         verify(placeRepository).findById(placeId);
         verify(placeRepository).delete(testPlace);
+        verify(searchIndexService).remove(SearchEntityType.PLACE, placeId);
+        verify(nearbyPlaceCache).invalidateAll();
     }
 
     @Test
@@ -0,0 +1,80 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.dto.QueueEventDTO;
+import com.queueless.backend.enums.QueueEventType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueueEventLogTest {
+
+    private QueueEventLog eventLog;
+    private final List<QueueEventDTO> sent = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        eventLog = new QueueEventLog();
+        ReflectionTestUtils.setField(eventLog, "historySize", 3);
+    }
+
+    private QueueEventDTO event(String queueId) {
+        QueueEventDTO event = new QueueEventDTO();
+        event.setQueueId(queueId);
+        event.setType(QueueEventType.TOKEN_ADDED);
+        return eventLog.append(event, sent::add);
+    }
+
+    @Test
+    void assignsIncreasingSequencePerQueue() {
+        assertEquals(1L, event("q1").getSequence());
+        assertEquals(2L, event("q1").getSequence());
+        assertEquals(1L, event("q2").getSequence());
+        assertEquals(3, sent.size());
+        assertEquals(2L, eventLog.currentSequence("q1"));
+    }
+
+    @Test
+    void replaysEventsAfterLastSequence() {
+        event("q1");
+        event("q1");
+        event("q1");
+
+        Optional<List<QueueEventDTO>> missed = eventLog.eventsSince("q1", eventLog.epoch("q1"), 1L);
+
+        assertTrue(missed.isPresent());
+        assertEquals(List.of(2L, 3L), missed.get().stream().map(QueueEventDTO::getSequence).toList());
+        assertEquals(List.of(), eventLog.eventsSince("q1", eventLog.epoch("q1"), 3L).orElseThrow());
+    }
+
+    @Test
+    void requiresSnapshotWhenHistoryNoLongerCoversGap() {
+        for (int i = 0; i < 5; i++) {
+            event("q1");
+        }
+
+        String epoch = eventLog.epoch("q1");
+        assertTrue(eventLog.eventsSince("q1", epoch, 1L).isEmpty());
+        assertTrue(eventLog.eventsSince("q1", epoch, 2L).isPresent());
+        assertTrue(eventLog.eventsSince("q1", epoch, 99L).isEmpty());
+    }
+
+    @Test
+    void requiresSnapshotForSequenceOfAnotherEpoch() {
+        String before = event("q1").getEpoch();
+        // After a restart the same sequence numbers are handed out again
+        eventLog = new QueueEventLog();
+        QueueEventDTO after = event("q1");
+
+        assertEquals(1L, after.getSequence());
+        assertNotEquals(before, after.getEpoch());
+        assertTrue(eventLog.eventsSince("q1", before, 1L).isEmpty());
+        assertTrue(eventLog.eventsSince("q1", null, 0L).isEmpty());
+        assertEquals(List.of(), eventLog.eventsSince("q1", after.getEpoch(), 1L).orElseThrow());
+    }
+}
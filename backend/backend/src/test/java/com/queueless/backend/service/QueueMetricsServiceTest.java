@@ -0,0 +1,81 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.model.QueueToken;
+import com.queueless.backend.repository.QueueRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class QueueMetricsServiceTest {
+
+    @Mock
+    private QueueRepository queueRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private QueueMetricsService metricsService;
+    private Queue queue;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        metricsService = new QueueMetricsService(queueRepository, meterRegistry);
+        queue = new Queue("provider1", "Service", "place1", "service1");
+        queue.setId("queue1");
+    }
+
+    @Test
+    void gaugesFollowStoredCounters() {
+        queue.setCounters(new Queue.TokenCounters(4, 1, 7, 2));
+
+        metricsService.updateQueue(queue);
+
+        assertEquals(4.0, meterRegistry.get("queue.waiting.tokens").tag("queueId", "queue1").gauge().value());
+        assertEquals(1.0, meterRegistry.get("queue.in.service.tokens").gauge().value());
+        assertEquals(7.0, meterRegistry.get("queue.total.served").gauge().value());
+
+        queue.setCounters(new Queue.TokenCounters(3, 1, 8, 2));
+        metricsService.updateQueue(queue);
+        assertEquals(3.0, meterRegistry.get("queue.waiting.tokens").gauge().value());
+    }
+
+    @Test
+    void recordsWaitAndServiceTimes() {
+        LocalDateTime issuedAt = LocalDateTime.now().minusMinutes(10);
+        QueueToken token = new QueueToken("T-001", "user1", "IN_SERVICE", issuedAt);
+        token.setServedAt(issuedAt.plusMinutes(6));
+
+        metricsService.recordServed(queue, token);
+        token.setCompletedAt(issuedAt.plusMinutes(9));
+        metricsService.recordCompleted(queue, token);
+
+        assertEquals(6.0, meterRegistry.get("queue.wait.time").timer().totalTime(TimeUnit.MINUTES), 0.001);
+        assertEquals(180.0, meterRegistry.get("queue.service.duration").summary().totalAmount(), 0.001);
+    }
+
+    @Test
+    void reconcileRemovesMetersOfDeletedQueues() {
+        metricsService.updateQueue(queue);
+        Queue other = new Queue("provider1", "Other", "place1", "service2");
+        other.setId("queue2");
+        other.setCounters(new Queue.TokenCounters(2, 0, 0, 0));
+        when(queueRepository.findAllCounters()).thenReturn(List.of(other));
+
+        metricsService.reconcile();
+
+        assertNull(meterRegistry.find("queue.waiting.tokens").tag("queueId", "queue1").gauge());
+        assertNull(meterRegistry.find("queue.wait.time").tag("queueId", "queue1").timer());
+        assertEquals(2.0, meterRegistry.get("queue.waiting.tokens").tag("queueId", "queue2").gauge().value());
+    }
+}
@@ -3,6 +3,7 @@ package com.queueless.backend.service;
 import com.queueless.backend.dto.*;
 import com.queueless.backend.enums.Role;
 import com.queueless.backend.enums.TokenStatus;
+import com.queueless.backend.exception.ExportBusyException;
 import com.queueless.backend.exception.QueueInactiveException;
 import com.queueless.backend.exception.ResourceNotFoundException;
 import com.queueless.backend.exception.UserAlreadyInQueueException;
@@ -12,10 +13,13 @@ import com.queueless.backend.repository.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -56,10 +60,7 @@ class QueueServiceTest {
     private QueueHourlyStatsRepository statsRepository;
 
     @Mock
-    private ExportService exportService;
-
-    @Mock
-    private ExportCacheService exportCacheService;
+    private ExportJobService exportJobService;
 
     @Mock
     private AuditLogService auditLogService;
@@ -67,6 +68,33 @@ class QueueServiceTest {
     @Mock
     private NotificationPreferenceRepository notificationPreferenceRepository;
 
+    @Spy
+    private QueueTokenIndex queueTokenIndex = new QueueTokenIndex();
+
+    @Spy
+    private QueueEventLog queueEventLog = new QueueEventLog();
+
+    @Mock
+    private QueueSummaryPublisher queueSummaryPublisher;
+
+    @Mock
+    private DirtyQueueTracker dirtyQueueTracker;
+
+    @Mock
+    private QueueMetricsService queueMetricsService;
+
+    @Mock
+    private TokenHistoryService tokenHistoryService;
+
+    @Mock
+    private AnalyticsRollupService analyticsRollupService;
+
+    @Mock
+    private SearchIndexService searchIndexService;
+
+    @Mock
+    private QueueCacheEvictor queueCacheEvictor;
+
     @InjectMocks
     private QueueService queueService;
 
@@ -111,7 +139,8 @@ class QueueServiceTest {
     @Test
     void addNewTokenSuccess() {
         when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
+        when(userRepository.claimActiveToken(eq(userId), eq("queue123-T-001"), any(LocalDateTime.class)))
+                .thenReturn(testUser);
         when(queueRepository.save(any(Queue.class))).thenAnswer(inv -> inv.getArgument(0));
 
         QueueToken token = queueService.addNewToken(queueId, userId);
@@ -120,9 +149,9 @@ class QueueServiceTest {
         assertEquals("queue123-T-001", token.getTokenId());
 
         verify(queueRepository).findById(queueId);
-        // Updated to times(2) because getUserOrThrow is called twice in the current logic
-        verify(userRepository, times(2)).findById(userId);
-        verify(userRepository).save(any(User.class));
+        // One conditional update instead of reading and saving the user
+        verify(userRepository, never()).findById(userId);
+        verify(userRepository, never()).save(any(User.class));
         verify(queueRepository).save(any(Queue.class));
     }
 
@@ -137,9 +166,9 @@ class QueueServiceTest {
 
     @Test
     void addNewTokenUserAlreadyHasActiveToken() {
-        testUser.setActiveTokenId("T-001");
         when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
+        when(userRepository.claimActiveToken(eq(userId), anyString(), any(LocalDateTime.class))).thenReturn(null);
+        when(userRepository.existsById(userId)).thenReturn(true);
 
         assertThrows(UserAlreadyInQueueException.class, () -> queueService.addNewToken(queueId, userId));
         verify(queueRepository, never()).save(any());
@@ -150,10 +179,10 @@ class QueueServiceTest {
         QueueToken existingToken = createTestToken("T-001", TokenStatus.WAITING.toString());
         testQueue.getTokens().add(existingToken);
         when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
 
         assertThrows(UserAlreadyInQueueException.class, () -> queueService.addNewToken(queueId, userId));
         verify(queueRepository, never()).save(any());
+        verifyNoInteractions(userRepository);
     }
 
     @Test
@@ -164,12 +193,12 @@ class QueueServiceTest {
         }
 
         when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
 
         assertThrows(com.queueless.backend.exception.QueueFullException.class,
                 () -> queueService.addNewToken(queueId, userId));
 
         verify(queueRepository, never()).save(any());
+        verifyNoInteractions(userRepository);
     }
 
     // ================= ADD NEW TOKEN WITH DETAILS =================
@@ -185,7 +214,8 @@ class QueueServiceTest {
         details.setVisibleToAdmin(true);
 
         when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
+        when(userRepository.claimActiveToken(eq(userId), eq("queue123-T-001"), any(LocalDateTime.class)))
+                .thenReturn(testUser);
         when(queueRepository.save(any(Queue.class))).thenAnswer(inv -> inv.getArgument(0));
 
         QueueToken token = queueService.addNewTokenWithDetails(queueId, userId, details);
@@ -199,7 +229,7 @@ class QueueServiceTest {
         assertEquals("Bring ID", token.getUserDetails().getNotes());
         assertFalse(token.getUserDetails().getIsPrivate());
 
-        verify(userRepository).save(argThat(user -> user.getActiveTokenId().equals(token.getTokenId())));
+        verify(userRepository).claimActiveToken(eq(userId), eq(token.getTokenId()), any(LocalDateTime.class));
     }
 
     // ================= ADD GROUP TOKEN =================
@@ -212,7 +242,8 @@ class QueueServiceTest {
         );
 
         when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
+        when(userRepository.claimActiveToken(eq(userId), eq("queue123-G-001"), any(LocalDateTime.class)))
+                .thenReturn(testUser);
         when(queueRepository.save(any(Queue.class))).thenAnswer(inv -> inv.getArgument(0));
 
         QueueToken token = queueService.addGroupToken(queueId, userId, members);
@@ -222,7 +253,7 @@ class QueueServiceTest {
         assertTrue(token.getIsGroup());
         assertEquals(2, token.getGroupSize());
         assertEquals(members, token.getGroupMembers());
-        verify(userRepository).save(argThat(user -> user.getActiveTokenId().equals(token.getTokenId())));
+        verify(userRepository, never()).save(any(User.class));
     }
 
     @Test
@@ -250,7 +281,8 @@ class QueueServiceTest {
         String emergencyDetails = "Severe pain";
 
         when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
+        when(userRepository.claimActiveToken(eq(userId), eq("queue123-E-001"), any(LocalDateTime.class)))
+                .thenReturn(testUser);
         when(queueRepository.save(any(Queue.class))).thenAnswer(inv -> inv.getArgument(0));
 
         QueueToken token = queueService.addEmergencyToken(queueId, userId, emergencyDetails);
@@ -261,7 +293,7 @@ class QueueServiceTest {
         assertEquals(emergencyDetails, token.getEmergencyDetails());
         assertEquals(10, token.getPriority());
         assertEquals(TokenStatus.WAITING.toString(), token.getStatus());
-        verify(userRepository).save(argThat(user -> user.getActiveTokenId().equals(token.getTokenId())));
+        verify(userRepository, never()).save(any(User.class));
     }
 
     @Test
@@ -279,6 +311,7 @@ class QueueServiceTest {
         assertEquals(TokenStatus.PENDING.toString(), token.getStatus());
         assertEquals(1, testQueue.getPendingEmergencyTokens().size());
         verify(userRepository, never()).save(any()); // user not activated yet
+        verify(userRepository, never()).claimActiveToken(anyString(), anyString(), any());
     }
 
     @Test
@@ -299,7 +332,7 @@ class QueueServiceTest {
         testQueue.getPendingEmergencyTokens().add(pending);
 
         when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
+        when(userRepository.claimActiveToken(eq(userId), eq("E-001"), any(LocalDateTime.class))).thenReturn(testUser);
         when(queueRepository.save(any(Queue.class))).thenAnswer(inv -> inv.getArgument(0));
 
         Queue updated = queueService.approveEmergencyToken(queueId, "E-001", true, null);
@@ -309,10 +342,27 @@ class QueueServiceTest {
                 .filter(t -> t.getTokenId().equals("E-001")).findFirst();
         assertTrue(approved.isPresent());
         assertEquals(TokenStatus.WAITING.toString(), approved.get().getStatus());
-        verify(userRepository).save(argThat(user -> user.getActiveTokenId().equals("E-001")));
+        verify(userRepository, never()).save(any(User.class));
         verify(messagingTemplate).convertAndSendToUser(eq(userId), eq("/queue/emergency-approved"), any(Map.class));
     }
 
+    @Test
+    void approveEmergencyTokenFailsWhenUserJoinedAnotherQueue() {
+        QueueToken pending = new QueueToken("E-001", userId, testUser.getName(), TokenStatus.PENDING.toString(),
+                LocalDateTime.now(), "Emergency", 10);
+        testQueue.getPendingEmergencyTokens().add(pending);
+
+        when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
+        when(userRepository.claimActiveToken(eq(userId), eq("E-001"), any(LocalDateTime.class))).thenReturn(null);
+        when(userRepository.existsById(userId)).thenReturn(true);
+
+        assertThrows(UserAlreadyInQueueException.class,
+                () -> queueService.approveEmergencyToken(queueId, "E-001", true, null));
+        assertEquals(List.of(pending), testQueue.getPendingEmergencyTokens());
+        verify(queueRepository, never()).save(any());
+        verify(userRepository, never()).releaseActiveToken(anyString(), anyString());
+    }
+
     @Test
     void approveEmergencyTokenReject() {
         QueueToken pending = new QueueToken("E-001", userId, testUser.getName(), TokenStatus.PENDING.toString(),
@@ -374,6 +424,7 @@ class QueueServiceTest {
         assertTrue(inService.isPresent());
         assertEquals("T-001", inService.get().getTokenId());
         verify(messagingTemplate).convertAndSend(eq("/topic/queues/" + queueId), any(Queue.class));
+        verify(queueCacheEvictor).evict(updated);
     }
 
     @Test
@@ -383,8 +434,6 @@ class QueueServiceTest {
         testQueue.setTokens(Arrays.asList(inService, waiting));
 
         when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
-        // The method will call getUserOrThrow for the user of the in-service token (userId)
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
         when(queueRepository.save(any(Queue.class))).thenAnswer(inv -> inv.getArgument(0));
 
         Queue updated = queueService.serveNextToken(queueId);
@@ -401,8 +450,9 @@ class QueueServiceTest {
                         t.getTokenId().equals("T-002")).findFirst();
         assertTrue(newInService.isPresent());
 
-        // Verify user's active token was cleared for the completed token
-        verify(userRepository).save(argThat(user -> user.getActiveTokenId() == null));
+        // Verify user's active token was cleared for the completed token, if still held
+        verify(userRepository).releaseActiveToken(userId, "T-001");
+        verify(userRepository, never()).save(any(User.class));
     }
 
     @Test
@@ -415,6 +465,184 @@ class QueueServiceTest {
         verify(queueRepository, never()).save(any());
     }
 
+    // ================= ATOMIC ENGINE =================
+
+    @Test
+    void addNewTokenAtomicUsesCounterIncrementAndPush() {
+        ReflectionTestUtils.setField(queueService, "engineMode", "atomic");
+        when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
+        when(userRepository.claimActiveToken(eq(userId), eq("queue123-T-007"), any(LocalDateTime.class)))
+                .thenReturn(testUser);
+        when(queueRepository.incrementTokenCounter(queueId)).thenReturn(7);
+        when(queueRepository.appendToken(eq(queueId), any(QueueToken.class))).thenAnswer(inv -> {
+            testQueue.getTokens().add(inv.getArgument(1));
+            return testQueue;
+        });
+
+        QueueToken token = queueService.addNewToken(queueId, userId);
+
+        assertEquals("queue123-T-007", token.getTokenId());
+        verify(queueRepository, never()).save(any());
+        verify(userRepository, never()).releaseActiveToken(anyString(), anyString());
+    }
+
+    @Test
+    void addNewTokenAtomicRejectsConcurrentDuplicate() {
+        ReflectionTestUtils.setField(queueService, "engineMode", "atomic");
+        when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
+        when(userRepository.claimActiveToken(eq(userId), eq("queue123-T-001"), any(LocalDateTime.class)))
+                .thenReturn(testUser);
+        when(queueRepository.incrementTokenCounter(queueId)).thenReturn(1);
+        when(queueRepository.appendToken(eq(queueId), any(QueueToken.class))).thenReturn(null);
+
+        assertThrows(UserAlreadyInQueueException.class, () -> queueService.addNewToken(queueId, userId));
+        // The claimed slot is given back
+        verify(userRepository).releaseActiveToken(userId, "queue123-T-001");
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void serveNextTokenAtomicRetriesOnConflict() {
+        ReflectionTestUtils.setField(queueService, "engineMode", "atomic");
+        testQueue.getTokens().add(createTestToken("T-001", TokenStatus.WAITING.toString()));
+        Queue served = new Queue(providerId, "Test Service", placeId, serviceId);
+        served.setId(queueId);
+        served.getTokens().add(createTestToken("T-001", TokenStatus.IN_SERVICE.toString()));
+
+        when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
+        when(queueRepository.serveNextToken(eq(queueId), isNull(), eq("T-001"), any(LocalDateTime.class)))
+                .thenReturn(null)
+                .thenReturn(served);
+
+        Queue updated = queueService.serveNextToken(queueId);
+
+        assertSame(served, updated);
+        verify(queueRepository, times(2)).findById(queueId);
+        verify(queueRepository, never()).save(any());
+        verify(messagingTemplate).convertAndSend(eq("/topic/queues/" + queueId), any(Queue.class));
+    }
+
+    @Test
+    void serveNextTokenAtomicGivesUpAfterMaxAttempts() {
+        ReflectionTestUtils.setField(queueService, "engineMode", "atomic");
+        ReflectionTestUtils.setField(queueService, "serveNextMaxAttempts", 2);
+        testQueue.getTokens().add(createTestToken("T-001", TokenStatus.WAITING.toString()));
+
+        when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
+        when(queueRepository.serveNextToken(eq(queueId), isNull(), eq("T-001"), any(LocalDateTime.class)))
+                .thenReturn(null);
+
+        assertThrows(IllegalStateException.class, () -> queueService.serveNextToken(queueId));
+        verify(queueRepository, times(2)).serveNextToken(eq(queueId), isNull(), eq("T-001"), any(LocalDateTime.class));
+    }
+
+    @Test
+    void approveEmergencyTokenAtomicMovesPendingTokenInOneUpdate() {
+        ReflectionTestUtils.setField(queueService, "engineMode", "atomic");
+        QueueToken pending = new QueueToken("E-001", userId, testUser.getName(), TokenStatus.PENDING.toString(),
+                LocalDateTime.now(), "Emergency", 10);
+        testQueue.getPendingEmergencyTokens().add(pending);
+        Queue approved = new Queue(providerId, "Test Service", placeId, serviceId);
+        approved.setId(queueId);
+        approved.getTokens().add(pending);
+
+        when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
+        when(queueRepository.approvePendingEmergencyToken(queueId, pending)).thenReturn(approved);
+        when(userRepository.claimActiveToken(eq(userId), eq("E-001"), any(LocalDateTime.class))).thenReturn(testUser);
+
+        Queue updated = queueService.approveEmergencyToken(queueId, "E-001", true, null);
+
+        assertSame(approved, updated);
+        assertEquals(TokenStatus.WAITING.toString(), pending.getStatus());
+        verify(queueRepository, never()).save(any());
+    }
+
+    @Test
+    void approveEmergencyTokenAtomicGivesSlotBackWhenNoLongerPending() {
+        ReflectionTestUtils.setField(queueService, "engineMode", "atomic");
+        QueueToken pending = new QueueToken("E-001", userId, testUser.getName(), TokenStatus.PENDING.toString(),
+                LocalDateTime.now(), "Emergency", 10);
+        testQueue.getPendingEmergencyTokens().add(pending);
+
+        when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
+        when(userRepository.claimActiveToken(eq(userId), eq("E-001"), any(LocalDateTime.class))).thenReturn(testUser);
+        when(queueRepository.approvePendingEmergencyToken(queueId, pending)).thenReturn(null);
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> queueService.approveEmergencyToken(queueId, "E-001", true, null));
+        verify(userRepository).releaseActiveToken(userId, "E-001");
+    }
+
+    @Test
+    void approveEmergencyTokenAtomicFailsWhenNoLongerPending() {
+        ReflectionTestUtils.setField(queueService, "engineMode", "atomic");
+        testQueue.getPendingEmergencyTokens().add(new QueueToken("E-001", userId, testUser.getName(),
+                TokenStatus.PENDING.toString(), LocalDateTime.now(), "Emergency", 10));
+        when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
+        when(queueRepository.removePendingEmergencyToken(queueId, "E-001")).thenReturn(null);
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> queueService.approveEmergencyToken(queueId, "E-001", false, null));
+        verify(messagingTemplate, never()).convertAndSendToUser(anyString(), anyString(), any());
+    }
+
+    @Test
+    void resetQueueAtomicReleasesTheTokensTheUpdateCleared() {
+        ReflectionTestUtils.setField(queueService, "engineMode", "atomic");
+        QueueResetRequestDTO request = new QueueResetRequestDTO();
+        request.setPreserveData(false);
+        testQueue.getTokens().add(createTestToken("T-001", TokenStatus.WAITING.toString()));
+        // T-002 joined after the queue was read
+        Queue before = new Queue(providerId, "Test Service", placeId, serviceId);
+        before.setId(queueId);
+        before.getTokens().add(createTestToken("T-001", TokenStatus.WAITING.toString()));
+        before.getTokens().add(createTestToken("T-002", TokenStatus.WAITING.toString()));
+
+        when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
+        when(userRepository.findById(providerId)).thenReturn(Optional.of(User.builder().id(providerId).role(Role.PROVIDER).build()));
+        when(queueRepository.resetTokens(eq(queueId), any(LocalDateTime.class))).thenReturn(before);
+
+        QueueResetResponseDTO response = queueService.resetQueueWithOptions(queueId, request, providerId);
+
+        assertEquals(2, response.getTokensReset());
+        assertTrue(before.getTokens().isEmpty());
+        verify(userRepository).releaseActiveTokens(List.of("T-001", "T-002"));
+        verify(queueRepository, never()).save(any());
+    }
+
+    @Test
+    void reorderQueueAtomicRejectsChangedTokens() {
+        ReflectionTestUtils.setField(queueService, "engineMode", "atomic");
+        List<QueueToken> oldTokens = List.of(
+                createTestToken("T-001", TokenStatus.WAITING.toString()),
+                createTestToken("T-002", TokenStatus.WAITING.toString()));
+        testQueue.setTokens(new ArrayList<>(oldTokens));
+        List<QueueToken> newOrder = List.of(oldTokens.get(1), oldTokens.get(0));
+
+        when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
+        when(queueRepository.replaceTokens(queueId, oldTokens, newOrder)).thenReturn(null);
+
+        assertThrows(IllegalStateException.class, () -> queueService.reorderQueue(queueId, newOrder));
+        verify(queueRepository, never()).save(any());
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void cleanupExpiredTokensAtomicSkipsQueueChangedSinceRead() {
+        ReflectionTestUtils.setField(queueService, "engineMode", "atomic");
+        QueueToken expired = createTestToken("T-001", TokenStatus.WAITING.toString());
+        expired.setIssuedAt(LocalDateTime.now().minusHours(25));
+        testQueue.getTokens().add(expired);
+
+        when(queueRepository.findByTokensIssuedAtBefore(any(LocalDateTime.class))).thenReturn(List.of(testQueue));
+        when(queueRepository.removeTokens(queueId, List.of(expired))).thenReturn(null);
+
+        queueService.cleanupExpiredTokens();
+
+        verify(queueRepository, never()).save(any());
+        verify(userRepository, never()).releaseActiveTokens(any());
+    }
+
     // ================= COMPLETE TOKEN =================
 
     @Test
@@ -424,7 +652,6 @@ class QueueServiceTest {
         testQueue.getTokens().add(token);
 
         when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
         when(queueRepository.save(any(Queue.class))).thenAnswer(inv -> inv.getArgument(0));
 
         Queue updated = queueService.completeToken(queueId, "T-001");
@@ -435,7 +662,8 @@ class QueueServiceTest {
         assertEquals(TokenStatus.COMPLETED.toString(), completed.get().getStatus());
         assertNotNull(completed.get().getCompletedAt());
         assertNotNull(completed.get().getServiceDurationMinutes());
-        verify(userRepository).save(argThat(user -> user.getActiveTokenId() == null));
+        verify(userRepository).releaseActiveToken(userId, "T-001");
+        verify(userRepository, never()).save(any(User.class));
     }
 
     @Test
@@ -446,6 +674,35 @@ class QueueServiceTest {
                 () -> queueService.completeToken(queueId, "T-001"));
     }
 
+    @Test
+    void completeTokenRecordsRollupOnlyOnce() {
+        QueueToken token = createTestToken("T-001", TokenStatus.IN_SERVICE.toString());
+        testQueue.getTokens().add(token);
+
+        when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
+        when(queueRepository.save(any(Queue.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        queueService.completeToken(queueId, "T-001");
+        queueService.completeToken(queueId, "T-001");
+
+        verify(analyticsRollupService).recordFinished(testQueue, token);
+        verify(tokenHistoryService).record(testQueue, token);
+    }
+
+    @Test
+    void cancellingFinishedTokenDoesNotRecordRollup() {
+        QueueToken token = createTestToken("T-001", TokenStatus.COMPLETED.toString());
+        testQueue.getTokens().add(token);
+
+        when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
+        when(queueRepository.save(any(Queue.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        queueService.cancelToken(queueId, "T-001", null);
+
+        verify(analyticsRollupService, never()).recordFinished(any(), any());
+        verify(tokenHistoryService, never()).record(any(), any());
+    }
+
     // ================= CANCEL TOKEN =================
 
 
@@ -482,6 +739,10 @@ class QueueServiceTest {
 
         testQueue.getTokens().add(createTestToken("T-001", TokenStatus.WAITING.toString()));
         testQueue.getTokens().add(createTestToken("T-002", TokenStatus.WAITING.toString()));
+        Queue.TokenCounters counters = Queue.TokenCounters.of(testQueue.getTokens());
+        counters.setArchivedCompleted(4);
+        counters.setArchivedCancelled(1);
+        testQueue.setCounters(counters);
 
         when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
         when(userRepository.findById(providerId)).thenReturn(Optional.of(User.builder().id(providerId).role(Role.PROVIDER).build()));
@@ -493,7 +754,37 @@ class QueueServiceTest {
         assertEquals(2, response.getTokensReset());
         assertNull(response.getExportFileUrl());
         verify(queueRepository).save(argThat(queue -> queue.getTokens().isEmpty()));
+        assertEquals(new Queue.TokenCounters(), testQueue.getCounters());
         verify(notificationPreferenceRepository).deleteByQueueId(queueId);
+        verify(userRepository).releaseActiveTokens(List.of("T-001", "T-002"));
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    // ================= CLEANUP EXPIRED TOKENS =================
+
+    @Test
+    void cleanupExpiredTokensReleasesUsersInOneUpdate() {
+        QueueToken expired = createTestToken("T-001", TokenStatus.WAITING.toString());
+        expired.setIssuedAt(LocalDateTime.now().minusHours(25));
+        testQueue.getTokens().add(expired);
+        testQueue.getTokens().add(createTestToken("T-002", TokenStatus.WAITING.toString()));
+
+        Queue otherQueue = new Queue(providerId, "Other Service", placeId, serviceId);
+        otherQueue.setId("queue456");
+        QueueToken otherExpired = createTestToken("T-009", TokenStatus.WAITING.toString());
+        otherExpired.setIssuedAt(LocalDateTime.now().minusHours(30));
+        otherQueue.getTokens().add(otherExpired);
+
+        when(queueRepository.findByTokensIssuedAtBefore(any(LocalDateTime.class)))
+                .thenReturn(List.of(testQueue, otherQueue));
+        when(userRepository.releaseActiveTokens(List.of("T-001", "T-009"))).thenReturn(2L);
+
+        queueService.cleanupExpiredTokens();
+
+        assertEquals(1, testQueue.getTokens().size());
+        assertTrue(otherQueue.getTokens().isEmpty());
+        verify(userRepository).releaseActiveTokens(List.of("T-001", "T-009"));
+        verify(userRepository, never()).findById(anyString());
     }
 
     // ================= CANCEL TOKEN =================
@@ -507,7 +798,6 @@ class QueueServiceTest {
         testQueue.getTokens().add(token);
 
         when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
         when(queueRepository.save(any(Queue.class))).thenAnswer(inv -> inv.getArgument(0));
 
         // Act
@@ -521,8 +811,9 @@ class QueueServiceTest {
         assertEquals(TokenStatus.CANCELLED.toString(), cancelledToken.get().getStatus());
         assertEquals(reason, cancelledToken.get().getCancellationReason());
 
-        // Verify User state was cleared
-        verify(userRepository).save(argThat(user -> user.getActiveTokenId() == null));
+        // Verify User state was cleared, conditionally on still holding this token
+        verify(userRepository).releaseActiveToken(userId, "T-001");
+        verify(userRepository, never()).save(any(User.class));
 
         // Verify WebSocket notification was sent
         verify(messagingTemplate).convertAndSendToUser(
@@ -587,7 +878,11 @@ class QueueServiceTest {
 
         when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
         when(userRepository.findById(providerId)).thenReturn(Optional.of(User.builder().id(providerId).role(Role.PROVIDER).build()));
-        when(exportService.exportQueueToPdf(eq(testQueue), eq("full"), eq(true))).thenReturn(new byte[]{1,2,3});
+        ExportJob job = new ExportJob();
+        job.setId("job1");
+        job.setDownloadUrl("/export/exports/export-1-" + queueId);
+        when(exportJobService.submitQueueSnapshot(eq(providerId), anyString(), any(Queue.class), eq("full"), eq(true)))
+                .thenReturn(job);
         when(queueRepository.save(any(Queue.class))).thenAnswer(inv -> inv.getArgument(0));
 
         QueueResetResponseDTO response = queueService.resetQueueWithOptions(queueId, request, providerId);
@@ -595,8 +890,32 @@ class QueueServiceTest {
 
         assertTrue(response.getSuccess());
         assertEquals(1, response.getTokensReset());
-        assertNotNull(response.getExportFileUrl());
-        verify(exportCacheService).saveExport(anyString(), any(byte[].class), anyString(), eq(queueId), eq("full"), eq("pdf"));
+        assertEquals("/export/exports/export-1-" + queueId, response.getExportFileUrl());
+        assertEquals("job1", response.getExportJobId());
+
+        // The job renders a copy taken before the tokens were cleared
+        ArgumentCaptor<Queue> exported = ArgumentCaptor.forClass(Queue.class);
+        verify(exportJobService).submitQueueSnapshot(eq(providerId), anyString(), exported.capture(), eq("full"), eq(true));
+        assertTrue(testQueue.getTokens().isEmpty());
+        assertEquals(1, exported.getValue().getTokens().size());
+        assertEquals(queueId, exported.getValue().getId());
+    }
+
+    @Test
+    void resetQueueWithOptionsAbortsWhenExportRejected() {
+        QueueResetRequestDTO request = new QueueResetRequestDTO();
+        request.setPreserveData(true);
+        testQueue.getTokens().add(createTestToken("T-001", TokenStatus.WAITING.toString()));
+
+        when(queueRepository.findById(queueId)).thenReturn(Optional.of(testQueue));
+        when(userRepository.findById(providerId)).thenReturn(Optional.of(User.builder().id(providerId).role(Role.PROVIDER).build()));
+        when(exportJobService.submitQueueSnapshot(anyString(), anyString(), any(Queue.class), any(), any()))
+                .thenThrow(new ExportBusyException("busy"));
+
+        assertThrows(ExportBusyException.class,
+                () -> queueService.resetQueueWithOptions(queueId, request, providerId));
+        assertEquals(1, testQueue.getTokens().size());
+        verify(queueRepository, never()).save(any(Queue.class));
     }
 
     @Test
@@ -611,6 +930,18 @@ class QueueServiceTest {
                 () -> queueService.resetQueueWithOptions(queueId, request, "otherUser"));
     }
 
+    // ================= GET QUEUES BY USER =================
+
+    @Test
+    void getQueuesByUserIdReadsEmbeddedTokens() {
+        testQueue.getTokens().add(createTestToken("T-001", TokenStatus.WAITING.toString()));
+        when(queueRepository.findByTokensUserId(userId)).thenReturn(List.of(testQueue));
+
+        List<Queue> queues = queueService.getQueuesByUserId(userId);
+
+        assertEquals(List.of(testQueue), queues);
+    }
+
 // ================= GET USER DETAILS FOR TOKEN =================
 
     @Test
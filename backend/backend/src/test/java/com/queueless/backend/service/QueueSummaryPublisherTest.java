@@ -0,0 +1,72 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.dto.QueueSummaryDTO;
+import com.queueless.backend.enums.TokenStatus;
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.model.QueueToken;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QueueSummaryPublisherTest {
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @InjectMocks
+    private QueueSummaryPublisher publisher;
+
+    private Queue queue(String id, String placeId) {
+        Queue queue = new Queue("provider", "Service", placeId, "service");
+        queue.setId(id);
+        return queue;
+    }
+
+    @Test
+    void coalescesChangesOfOneQueueWithinWindow() {
+        Queue queue = queue("q1", "p1");
+        publisher.submit(queue);
+        queue.getTokens().add(new QueueToken("T-001", "u1", TokenStatus.WAITING.toString(), LocalDateTime.now()));
+        publisher.submit(queue);
+
+        publisher.flush();
+
+        verify(messagingTemplate).convertAndSend(eq("/topic/queues"), argThat((Object payload) ->
+                payload instanceof List<?> list && list.size() == 1
+                        && ((QueueSummaryDTO) list.get(0)).getWaitingCount() == 1));
+        verify(messagingTemplate).convertAndSend(eq("/topic/places/p1/queues"), any(Object.class));
+    }
+
+    @Test
+    void flushWithoutChangesSendsNothing() {
+        publisher.flush();
+
+        verifyNoInteractions(messagingTemplate);
+    }
+
+    @Test
+    void groupsSummariesByPlace() {
+        publisher.submit(queue("q1", "p1"));
+        publisher.submit(queue("q2", "p1"));
+        publisher.submit(queue("q3", "p2"));
+
+        publisher.flush();
+        publisher.flush();
+
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/queues"), any(Object.class));
+        verify(messagingTemplate).convertAndSend(eq("/topic/places/p1/queues"),
+                argThat((Object payload) -> payload instanceof List<?> list && list.size() == 2));
+        verify(messagingTemplate).convertAndSend(eq("/topic/places/p2/queues"),
+                argThat((Object payload) -> payload instanceof List<?> list && list.size() == 1));
+    }
+}
@@ -0,0 +1,104 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.enums.TokenStatus;
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.model.QueueToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueueTokenIndexTest {
+
+    private QueueTokenIndex index;
+    private Queue queue;
+
+    @BeforeEach
+    void setUp() {
+        index = new QueueTokenIndex();
+        queue = new Queue("provider1", "Service", "place1", "service1");
+        queue.setId("queue1");
+    }
+
+    private QueueToken join(String tokenId, int priority) {
+        QueueToken token = new QueueToken(tokenId, "user-" + tokenId, TokenStatus.WAITING.toString(), LocalDateTime.now());
+        token.setPriority(priority);
+        queue.getTokens().add(token);
+        queue.setTokenCounter(queue.getTokenCounter() + 1);
+        return token;
+    }
+
+    @Test
+    void ordersByPriorityThenArrival() {
+        join("T-001", 0);
+        join("T-002", 0);
+        QueueToken emergency = join("E-003", 10);
+
+        assertEquals("E-003", index.nextWaiting(queue).orElseThrow().getTokenId());
+        assertEquals(List.of("E-003", "T-001", "T-002"),
+                index.waitingInOrder(queue).stream().map(QueueToken::getTokenId).toList());
+        assertEquals(1, index.positionOf(queue, emergency));
+    }
+
+    @Test
+    void incrementalUpdatesKeepPositions() {
+        QueueToken first = join("T-001", 0);
+        QueueToken second = join("T-002", 0);
+        index.nextWaiting(queue); // builds the index
+
+        QueueToken third = join("T-003", 0);
+        index.onTokenWaiting(queue, third);
+        assertEquals(3, index.positionOf(queue, third));
+
+        first.setStatus(TokenStatus.IN_SERVICE.toString());
+        index.onTokenLeftWaiting(queue.getId(), "T-001");
+
+        assertEquals(1, index.positionOf(queue, second));
+        assertEquals(2, index.positionOf(queue, third));
+        assertNull(index.positionOf(queue, first));
+    }
+
+    @Test
+    void rebuildsWhenDocumentChangedElsewhere() {
+        QueueToken first = join("T-001", 0);
+        join("T-002", 0);
+        index.nextWaiting(queue);
+
+        // Served by another instance: the index was never told
+        first.setStatus(TokenStatus.IN_SERVICE.toString());
+        assertEquals("T-002", index.nextWaiting(queue).orElseThrow().getTokenId());
+
+        // Joined elsewhere: the token counter no longer matches
+        QueueToken late = join("T-003", 5);
+        assertEquals(1, index.positionOf(queue, late));
+    }
+
+    @Test
+    void positionsFollowTransitionsMadeElsewhere() {
+        QueueToken first = join("T-001", 0);
+        join("T-002", 0);
+        QueueToken third = join("T-003", 0);
+        assertEquals(3, index.positionOf(queue, third));
+
+        // Served and cancelled by another instance; the token counter did not move
+        first.setStatus(TokenStatus.IN_SERVICE.toString());
+        queue.getTokens().get(1).setStatus(TokenStatus.CANCELLED.toString());
+        assertEquals(1, index.positionOf(queue, third));
+
+        // Emergency token approved elsewhere: it was counted when it was requested
+        QueueToken approved = new QueueToken("E-004", "user-E-004", TokenStatus.WAITING.toString(), LocalDateTime.now());
+        approved.setPriority(10);
+        queue.getTokens().add(approved);
+        assertEquals(2, index.positionOf(queue, third));
+        assertEquals("E-004", index.nextWaiting(queue).orElseThrow().getTokenId());
+    }
+
+    @Test
+    void emptyQueueHasNoNextToken() {
+        assertTrue(index.nextWaiting(queue).isEmpty());
+        assertTrue(index.waitingInOrder(queue).isEmpty());
+    }
+}
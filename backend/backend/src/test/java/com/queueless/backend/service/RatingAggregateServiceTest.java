@@ -0,0 +1,152 @@
+package com.queueless.backend.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.queueless.backend.model.Feedback;
+import com.queueless.backend.model.Place;
+import com.queueless.backend.model.RatingAggregate;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RatingAggregateServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private RatingAggregateService ratingAggregateService;
+
+    @Test
+    void addIncrementsPlaceAndProviderAndSyncsPlaceRating() {
+        RatingAggregate place = new RatingAggregate("place1");
+        place.setRatingSum(9);
+        place.setRatingCount(2);
+        place.setFeedbackCount(3);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(RatingAggregate.class), eq(RatingAggregateService.PLACE_RATINGS))).thenReturn(place);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(RatingAggregate.class), eq(RatingAggregateService.PROVIDER_RATINGS)))
+                .thenReturn(new RatingAggregate("provider1"));
+
+        Feedback feedback = new Feedback();
+        feedback.setPlaceId("place1");
+        feedback.setProviderId("provider1");
+        feedback.setRating(5);
+        ratingAggregateService.add(feedback);
+
+        verify(mongoTemplate).updateFirst(any(Query.class),
+                eq(new Update().set("rating", 4.5).set("totalRatings", 3)), eq(Place.class));
+        verify(mongoTemplate, never()).aggregate(any(Aggregation.class), eq(Feedback.class), eq(RatingAggregate.class));
+    }
+
+    @Test
+    void storedAggregatesAreReadWithoutRecomputing() {
+        RatingAggregate provider = new RatingAggregate("provider1");
+        provider.setRatingSum(12);
+        provider.setRatingCount(3);
+        when(mongoTemplate.find(any(Query.class), eq(RatingAggregate.class), eq(RatingAggregateService.PROVIDER_RATINGS)))
+                .thenReturn(List.of(provider));
+
+        Map<String, RatingAggregate> result = ratingAggregateService.forProviders(List.of("provider1"));
+
+        assertEquals(4.0, result.get("provider1").averageRating(), 0.001);
+        verify(mongoTemplate, never()).aggregate(any(Aggregation.class), eq(Feedback.class), eq(RatingAggregate.class));
+    }
+
+    @Test
+    void firstUseKeepsAggregateStoredMeanwhile() {
+        RatingAggregate computed = new RatingAggregate("place1");
+        computed.setRatingSum(4);
+        computed.setRatingCount(1);
+        RatingAggregate stored = new RatingAggregate("place1");
+        stored.setRatingSum(9);
+        stored.setRatingCount(2);
+        when(mongoTemplate.find(any(Query.class), eq(RatingAggregate.class), eq(RatingAggregateService.PLACE_RATINGS)))
+                .thenReturn(List.of());
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Feedback.class), eq(RatingAggregate.class)))
+                .thenReturn(new AggregationResults<>(List.of(computed), new Document()));
+        // Another request inserted the aggregate, and a feedback was added to it, after the $group
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(RatingAggregateService.PLACE_RATINGS)))
+                .thenReturn(UpdateResult.acknowledged(1, 0L, null));
+        when(mongoTemplate.findById("place1", RatingAggregate.class, RatingAggregateService.PLACE_RATINGS)).thenReturn(stored);
+
+        assertEquals(4.5, ratingAggregateService.forPlace("place1").averageRating(), 0.001);
+        verify(mongoTemplate, never()).save(any(), anyString());
+    }
+
+    @Test
+    void recomputeReplacesOnlyUnchangedAggregate() {
+        RatingAggregate computed = new RatingAggregate("place1");
+        computed.setRatingSum(8);
+        computed.setRatingCount(2);
+        computed.setFeedbackCount(3);
+        RatingAggregate current = new RatingAggregate("place1");
+        current.setFeedbackCount(3);
+        when(mongoTemplate.aggregateStream(any(Aggregation.class), eq(Feedback.class), eq(RatingAggregate.class)))
+                .thenReturn(Stream.of(computed), Stream.empty());
+        when(mongoTemplate.findById("place1", RatingAggregate.class, RatingAggregateService.PLACE_RATINGS)).thenReturn(current);
+        ArgumentCaptor<Query> unchanged = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.updateFirst(unchanged.capture(), any(Update.class), eq(RatingAggregateService.PLACE_RATINGS)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        ratingAggregateService.recomputeAll();
+
+        assertEquals(List.of(3L), unchanged.getValue().getQueryObject().get("feedbackCount", Document.class).get("$in"));
+        verify(mongoTemplate).updateFirst(any(Query.class),
+                eq(new Update().set("rating", 4.0).set("totalRatings", 3)), eq(Place.class));
+    }
+
+    @Test
+    void recomputeRegroupsWhenFeedbackLandsMeanwhile() {
+        RatingAggregate computed = new RatingAggregate("place1");
+        computed.setFeedbackCount(3);
+        RatingAggregate regrouped = new RatingAggregate("place1");
+        regrouped.setRatingSum(5);
+        regrouped.setRatingCount(1);
+        regrouped.setFeedbackCount(4);
+        RatingAggregate current = new RatingAggregate("place1");
+        current.setFeedbackCount(3);
+        RatingAggregate afterInc = new RatingAggregate("place1");
+        afterInc.setFeedbackCount(4);
+        when(mongoTemplate.aggregateStream(any(Aggregation.class), eq(Feedback.class), eq(RatingAggregate.class)))
+                .thenReturn(Stream.of(computed), Stream.empty());
+        when(mongoTemplate.findById("place1", RatingAggregate.class, RatingAggregateService.PLACE_RATINGS))
+                .thenReturn(current, afterInc);
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Feedback.class), eq(RatingAggregate.class)))
+                .thenReturn(new AggregationResults<>(List.of(regrouped), new Document()));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(RatingAggregateService.PLACE_RATINGS)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null), UpdateResult.acknowledged(1, 1L, null));
+
+        ratingAggregateService.recomputeAll();
+
+        verify(mongoTemplate).updateFirst(any(Query.class),
+                eq(new Update().set("rating", 5.0).set("totalRatings", 4)), eq(Place.class));
+    }
+
+    @Test
+    void noIdsSkipsQuery() {
+        assertTrue(ratingAggregateService.forPlaces(List.of()).isEmpty());
+        verifyNoInteractions(mongoTemplate);
+    }
+}
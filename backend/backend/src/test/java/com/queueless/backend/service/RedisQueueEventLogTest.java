@@ -0,0 +1,153 @@
+package com.queueless.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.queueless.backend.dto.QueueEventDTO;
+import com.queueless.backend.enums.QueueEventType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedisQueueEventLogTest {
+
+    private static final String SEQ_KEY = "queueless:queue-events:q1:seq";
+    private static final String EVENTS_KEY = "queueless:queue-events:q1:events";
+    private static final String EPOCH_KEY = "queueless:queue-events:q1:epoch";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOps;
+
+    @Mock
+    private ZSetOperations<String, String> zSetOps;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private RedisQueueEventLog eventLog;
+
+    @BeforeEach
+    void setUp() {
+        eventLog = new RedisQueueEventLog(redisTemplate, objectMapper);
+        ReflectionTestUtils.setField(eventLog, "historySize", 3);
+    }
+
+    private QueueEventDTO event(long sequence) {
+        QueueEventDTO event = new QueueEventDTO();
+        event.setQueueId("q1");
+        event.setType(QueueEventType.TOKEN_ADDED);
+        event.setSequence(sequence);
+        return event;
+    }
+
+    private Set<String> stored(long... sequences) throws Exception {
+        Set<String> json = new LinkedHashSet<>();
+        for (long sequence : sequences) {
+            json.add(objectMapper.writeValueAsString(event(sequence)));
+        }
+        return json;
+    }
+
+    @Test
+    void appendTakesSequenceFromRedisAndStoresEvent() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOps);
+        when(valueOps.increment(SEQ_KEY)).thenReturn(7L);
+        when(valueOps.get(EPOCH_KEY)).thenReturn("epoch-1");
+        List<QueueEventDTO> sent = new ArrayList<>();
+        QueueEventDTO event = new QueueEventDTO();
+        event.setQueueId("q1");
+        event.setType(QueueEventType.TOKEN_ADDED);
+
+        eventLog.append(event, sent::add);
+
+        assertEquals(7L, event.getSequence());
+        assertEquals("epoch-1", event.getEpoch());
+        assertEquals(List.of(event), sent);
+        verify(zSetOps).add(eq(EVENTS_KEY), anyString(), eq(7.0));
+        verify(zSetOps).removeRange(EVENTS_KEY, 0, -4);
+    }
+
+    @Test
+    void eventsSinceReplaysContiguousEvents() throws Exception {
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOps);
+        when(valueOps.get(EPOCH_KEY)).thenReturn("epoch-1");
+        when(valueOps.get(SEQ_KEY)).thenReturn("5");
+        when(zSetOps.rangeByScore(EVENTS_KEY, 4, 5)).thenReturn(stored(4, 5));
+
+        Optional<List<QueueEventDTO>> missed = eventLog.eventsSince("q1", "epoch-1", 3);
+
+        assertTrue(missed.isPresent());
+        assertEquals(List.of(4L, 5L), missed.get().stream().map(QueueEventDTO::getSequence).toList());
+    }
+
+    @Test
+    void eventsSinceRequiresSnapshotWhenHistoryHasHole() throws Exception {
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOps);
+        // Event 5 was numbered by another node but is not stored yet
+        when(valueOps.get(EPOCH_KEY)).thenReturn("epoch-1");
+        when(valueOps.get(SEQ_KEY)).thenReturn("6");
+        when(zSetOps.rangeByScore(EVENTS_KEY, 4, 6)).thenReturn(stored(4, 6));
+
+        assertTrue(eventLog.eventsSince("q1", "epoch-1", 3).isEmpty());
+    }
+
+    @Test
+    void eventsSinceRequiresSnapshotWhenHistoryWasTrimmed() throws Exception {
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOps);
+        when(valueOps.get(EPOCH_KEY)).thenReturn("epoch-1");
+        when(valueOps.get(SEQ_KEY)).thenReturn("9");
+        when(zSetOps.rangeByScore(EVENTS_KEY, 2, 9)).thenReturn(stored(7, 8, 9));
+
+        assertTrue(eventLog.eventsSince("q1", "epoch-1", 1).isEmpty());
+    }
+
+    @Test
+    void eventsSinceAheadOfRedisRequiresSnapshot() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.get(EPOCH_KEY)).thenReturn("epoch-1");
+        when(valueOps.get(SEQ_KEY)).thenReturn(null);
+
+        assertTrue(eventLog.eventsSince("q1", "epoch-1", 4).isEmpty());
+        assertEquals(0, eventLog.currentSequence("q1"));
+    }
+
+    @Test
+    void eventsSinceOfAnotherEpochRequiresSnapshot() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.get(EPOCH_KEY)).thenReturn("epoch-2");
+
+        assertTrue(eventLog.eventsSince("q1", "epoch-1", 3).isEmpty());
+        verify(valueOps, never()).get(SEQ_KEY);
+    }
+
+    @Test
+    void epochIsCreatedOnceWhenMissing() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        // Another node may create it first; whichever value was stored wins
+        when(valueOps.get(EPOCH_KEY)).thenReturn(null, "epoch-other");
+
+        assertEquals("epoch-other", eventLog.epoch("q1"));
+        verify(valueOps).setIfAbsent(eq(EPOCH_KEY), anyString());
+    }
+}
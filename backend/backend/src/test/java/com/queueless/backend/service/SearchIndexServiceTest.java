@@ -0,0 +1,120 @@
+package com.queueless.backend.service;
+
+import com.queueless.backend.enums.SearchEntityType;
+import com.queueless.backend.model.Place;
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.model.Service;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SearchIndexServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private SearchIndexService searchIndexService;
+
+    @Test
+    void prefixMatchesRankNameAboveDescription() {
+        searchIndexService.indexPlace(place("p1", "City Clinic", "Walk-in pharmacy"));
+        searchIndexService.indexPlace(place("p2", "Pharmacy Plus", "Open late"));
+        searchIndexService.indexPlace(place("p3", "Bakery", "Fresh bread"));
+
+        assertEquals(List.of("p2", "p1"), searchIndexService.search(SearchEntityType.PLACE, "phar", 10));
+        assertTrue(searchIndexService.search(SearchEntityType.PLACE, "clinic bread", 10).isEmpty());
+        assertEquals(List.of("p1"), searchIndexService.search(SearchEntityType.PLACE, "city cli", 10));
+    }
+
+    @Test
+    void exactTermRanksAbovePrefix() {
+        searchIndexService.indexPlace(place("p1", "Dental Care", null));
+        searchIndexService.indexPlace(place("p2", "Dent", null));
+
+        assertEquals(List.of("p2", "p1"), searchIndexService.search(SearchEntityType.PLACE, "dent", 10));
+        assertEquals(List.of("p2"), searchIndexService.search(SearchEntityType.PLACE, "dent", 1));
+    }
+
+    @Test
+    void queryIsCaseAccentAndRegexInsensitive() {
+        searchIndexService.indexPlace(place("p1", "Café Résumé", null));
+
+        assertEquals(List.of("p1"), searchIndexService.search(SearchEntityType.PLACE, "CAFE", 10));
+        assertEquals(List.of("p1"), searchIndexService.search(SearchEntityType.PLACE, "resu.*", 10));
+        assertTrue(searchIndexService.search(SearchEntityType.PLACE, ".*", 10).isEmpty());
+    }
+
+    @Test
+    void reindexingReplacesOldTermsAndRemoveDropsEntity() {
+        searchIndexService.indexPlace(place("p1", "Old Name", null));
+        searchIndexService.indexPlace(place("p1", "New Name", null));
+
+        assertTrue(searchIndexService.search(SearchEntityType.PLACE, "old", 10).isEmpty());
+        assertEquals(List.of("p1"), searchIndexService.search(SearchEntityType.PLACE, "new", 10));
+
+        searchIndexService.remove(SearchEntityType.PLACE, "p1");
+        assertTrue(searchIndexService.search(SearchEntityType.PLACE, "name", 10).isEmpty());
+        assertEquals(0, searchIndexService.size(SearchEntityType.PLACE));
+    }
+
+    @Test
+    void rebuildLoadsAllEntityTypes() {
+        Service service = Service.builder().id("s1").name("Blood Test").description("Lab work").build();
+        Queue queue = new Queue("provider1", "Blood Test Queue", "p1", "s1");
+        queue.setId("q1");
+        when(mongoTemplate.stream(any(Query.class), eq(Place.class))).thenReturn(Stream.of(place("p1", "Lab Center", null)));
+        when(mongoTemplate.stream(any(Query.class), eq(Service.class))).thenReturn(Stream.of(service));
+        when(mongoTemplate.stream(any(Query.class), eq(Queue.class))).thenReturn(Stream.of(queue));
+
+        searchIndexService.rebuild();
+
+        assertEquals(List.of("p1"), searchIndexService.search(SearchEntityType.PLACE, "lab", 10));
+        assertEquals(List.of("s1"), searchIndexService.search(SearchEntityType.SERVICE, "lab", 10));
+        assertEquals(List.of("q1"), searchIndexService.search(SearchEntityType.QUEUE, "blood", 10));
+    }
+
+    @Test
+    void writesDuringRebuildWinOverStreamedCopies() {
+        // Both places are streamed with their old names, but change while the rebuild runs
+        when(mongoTemplate.stream(any(Query.class), eq(Place.class))).thenAnswer(invocation -> {
+            Stream<Place> stale = Stream.of(place("p1", "Old Clinic", null), place("p2", "Old Bakery", null));
+            searchIndexService.indexPlace(place("p1", "New Clinic", null));
+            searchIndexService.remove(SearchEntityType.PLACE, "p2");
+            return stale;
+        });
+        when(mongoTemplate.stream(any(Query.class), eq(Service.class))).thenReturn(Stream.empty());
+        when(mongoTemplate.stream(any(Query.class), eq(Queue.class))).thenReturn(Stream.empty());
+
+        searchIndexService.rebuild();
+
+        assertEquals(List.of("p1"), searchIndexService.search(SearchEntityType.PLACE, "new", 10));
+        assertTrue(searchIndexService.search(SearchEntityType.PLACE, "old", 10).isEmpty());
+        assertEquals(1, searchIndexService.size(SearchEntityType.PLACE));
+
+        // Once swapped in, writes go straight to the new index
+        searchIndexService.remove(SearchEntityType.PLACE, "p1");
+        assertEquals(0, searchIndexService.size(SearchEntityType.PLACE));
+    }
+
+    private Place place(String id, String name, String description) {
+        Place place = new Place();
+        place.setId(id);
+        place.setName(name);
+        place.setDescription(description);
+        return place;
+    }
+}
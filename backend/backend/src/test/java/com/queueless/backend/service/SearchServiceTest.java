@@ -1,15 +1,18 @@
 package com.queueless.backend.service;
 
 import com.queueless.backend.dto.*;
+import com.queueless.backend.enums.SearchEntityType;
 import com.queueless.backend.model.Place;
 import com.queueless.backend.model.Queue;
 import com.queueless.backend.model.Service;
 import com.queueless.backend.repository.PlaceRepository;
 import com.queueless.backend.repository.QueueRepository;
 import com.queueless.backend.repository.ServiceRepository;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -17,7 +20,9 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
 
 import java.util.List;
 import java.util.Map;
@@ -41,13 +46,16 @@ class SearchServiceTest {
     private QueueRepository queueRepository;
 
     @Mock
-    private PlaceService placeService;
+    private MongoTemplate mongoTemplate;
 
     @Mock
-    private QueueService queueService;
+    private SearchIndexService searchIndexService;
 
     @Mock
-    private MongoTemplate mongoTemplate;
+    private NearbyPlaceCache nearbyPlaceCache;
+
+    @Mock
+    private MongoConverter converter;
 
     @InjectMocks
     private SearchService searchService;
@@ -102,18 +110,17 @@ class SearchServiceTest {
 
         Pageable pageable = PageRequest.of(0, 20, Sort.by("name").ascending());
 
-        List<Place> places = List.of(testPlace);
-        long totalPlaces = 1;
-
-        when(mongoTemplate.find(any(Query.class), eq(Place.class))).thenReturn(places);
-        when(mongoTemplate.count(any(Query.class), eq(Place.class))).thenReturn(totalPlaces);
+        Document placeDoc = new Document("_id", placeId);
+        when(searchIndexService.search(eq(SearchEntityType.PLACE), eq("test"), anyInt())).thenReturn(List.of(placeId));
+        stubFacet(Place.class, 1, placeDoc);
+        when(converter.read(Place.class, placeDoc)).thenReturn(testPlace);
 
         SearchResultDTO result = searchService.comprehensiveSearch(request, pageable);
 
         assertNotNull(result);
         assertEquals(1, result.getPlaces().size());
         assertEquals(placeId, result.getPlaces().get(0).getId());
-        assertEquals(totalPlaces, result.getTotalPlaces());
+        assertEquals(1, result.getTotalPlaces());
         assertNull(result.getServices());
         assertNull(result.getQueues());
     }
@@ -128,19 +135,22 @@ class SearchServiceTest {
 
         Pageable pageable = PageRequest.of(0, 20, Sort.by("name").ascending());
 
-        List<Place> places = List.of(testPlace);
-        when(mongoTemplate.find(any(Query.class), eq(Place.class))).thenReturn(places);
-        when(mongoTemplate.count(any(Query.class), eq(Place.class))).thenReturn(1L);
-
-        List<Service> services = List.of(testService);
-        when(mongoTemplate.find(any(Query.class), eq(Service.class))).thenReturn(services);
-        when(mongoTemplate.count(any(Query.class), eq(Service.class))).thenReturn(1L);
+        Document placeDoc = new Document("_id", placeId);
+        Document serviceDoc = new Document("_id", serviceId);
+        when(searchIndexService.search(eq(SearchEntityType.PLACE), eq("test"), anyInt())).thenReturn(List.of(placeId));
+        stubFacet(Place.class, 1, placeDoc);
+        when(converter.read(Place.class, placeDoc)).thenReturn(testPlace);
+        ArgumentCaptor<Aggregation> serviceAggregation = stubFacet(Service.class, 1, serviceDoc);
+        when(converter.read(Service.class, serviceDoc)).thenReturn(testService);
 
         SearchResultDTO result = searchService.comprehensiveSearch(request, pageable);
 
         assertEquals(1, result.getServices().size());
         assertEquals(serviceId, result.getServices().get(0).getId());
         assertEquals(1, result.getTotalServices());
+        assertTrue(serviceAggregation.getValue().toString().contains(placeId));
+        // Services of the matched places, not a second text search
+        verify(searchIndexService, never()).search(eq(SearchEntityType.SERVICE), anyString(), anyInt());
     }
 
     @Test
@@ -157,16 +167,19 @@ class SearchServiceTest {
 
         Pageable pageable = PageRequest.of(0, 20, Sort.by("name").ascending());
 
-        List<Place> places = List.of(testPlace);
-        when(mongoTemplate.find(any(Query.class), eq(Place.class))).thenReturn(places);
-        when(mongoTemplate.count(any(Query.class), eq(Place.class))).thenReturn(1L);
-
-        List<Queue> queues = List.of(testQueue);
-        when(mongoTemplate.find(any(Query.class), eq(Queue.class))).thenReturn(queues);
-        when(mongoTemplate.count(any(Query.class), eq(Queue.class))).thenReturn(1L);
-
-        when(placeService.getPlacesByIds(List.of(placeId))).thenReturn(List.of(testPlace));
-        when(queueService.calculateCurrentWaitTime(queueId)).thenReturn(8);
+        Document placeDoc = new Document("_id", placeId);
+        // The queue page comes back with the joined place and the computed wait
+        Document queueDoc = new Document("_id", queueId)
+                .append("waiting", 2)
+                .append("currentWaitTime", 8)
+                .append("place", new Document("name", testPlace.getName())
+                        .append("address", testPlace.getAddress())
+                        .append("rating", testPlace.getRating()));
+        when(searchIndexService.search(eq(SearchEntityType.PLACE), eq("test"), anyInt())).thenReturn(List.of(placeId));
+        stubFacet(Place.class, 1, placeDoc);
+        when(converter.read(Place.class, placeDoc)).thenReturn(testPlace);
+        ArgumentCaptor<Aggregation> queueAggregation = stubFacet(Queue.class, 1, queueDoc);
+        when(converter.read(Queue.class, queueDoc)).thenReturn(testQueue);
 
         SearchResultDTO result = searchService.comprehensiveSearch(request, pageable);
 
@@ -177,7 +190,62 @@ class SearchServiceTest {
         assertEquals(testPlace.getName(), dto.getPlaceName());
         assertEquals(testPlace.getAddress(), dto.getPlaceAddress());
         assertEquals(testPlace.getRating(), dto.getPlaceRating());
+        assertEquals(2, dto.getWaitingTokens());
         assertEquals(8, dto.getCurrentWaitTime());
+        String pipeline = queueAggregation.getValue().toString();
+        assertTrue(pipeline.contains("$lookup"));
+        assertTrue(pipeline.contains("$facet"));
+    }
+
+    @Test
+    void comprehensiveSearchKeepsRelevanceOrder() {
+        SearchRequestDTO request = new SearchRequestDTO();
+        request.setSearchPlaces(true);
+        request.setSearchServices(false);
+        request.setSearchQueues(false);
+        request.setQuery("test");
+
+        Document placeDoc = new Document("_id", placeId);
+        when(searchIndexService.search(eq(SearchEntityType.PLACE), eq("test"), anyInt()))
+                .thenReturn(List.of("place456", placeId));
+        ArgumentCaptor<Aggregation> aggregation = stubFacet(Place.class, 2, placeDoc);
+        when(converter.read(Place.class, placeDoc)).thenReturn(testPlace);
+
+        SearchResultDTO result = searchService.comprehensiveSearch(request, PageRequest.of(0, 5));
+
+        assertEquals(2, result.getTotalPlaces());
+        // Sorted by position in the index results inside the pipeline
+        String pipeline = aggregation.getValue().toString();
+        assertTrue(pipeline.contains("$indexOfArray"));
+        assertTrue(pipeline.contains("place456"));
+    }
+
+    @Test
+    void comprehensiveSearchWithoutIndexMatchesSkipsMongo() {
+        SearchRequestDTO request = new SearchRequestDTO();
+        request.setSearchPlaces(true);
+        request.setSearchServices(true);
+        request.setSearchQueues(false);
+        request.setQuery("zzz");
+
+        when(searchIndexService.search(any(SearchEntityType.class), eq("zzz"), anyInt())).thenReturn(List.of());
+
+        SearchResultDTO result = searchService.comprehensiveSearch(request, PageRequest.of(0, 5));
+
+        assertTrue(result.getPlaces().isEmpty());
+        assertTrue(result.getServices().isEmpty());
+        assertEquals(0, result.getTotalServices());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    private ArgumentCaptor<Aggregation> stubFacet(Class<?> collection, long total, Document... items) {
+        Document facets = new Document("items", List.of(items))
+                .append("total", List.of(new Document("count", total)));
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        when(mongoTemplate.aggregate(aggregation.capture(), eq(collection), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(facets), new Document()));
+        lenient().when(mongoTemplate.getConverter()).thenReturn(converter);
+        return aggregation;
     }
 
     // ================= SEARCH NEARBY WITH FILTERS =================
@@ -192,10 +260,23 @@ class SearchServiceTest {
         request.setLatitude(20.0);
         request.setRadius(5.0);
 
-        List<Place> places = List.of(testPlace);
-        when(placeRepository.searchNearbyWithFilters(
-                eq("test"), eq(List.of("SHOP")), eq(4.0), eq(10.0), eq(20.0), eq(5000.0)))
-                .thenReturn(places);
+        Place otherType = new Place();
+        otherType.setName("Test Cafe");
+        otherType.setType("CAFE");
+        otherType.setRating(4.8);
+        otherType.setIsActive(true);
+        Place lowRated = new Place();
+        lowRated.setName("Test Corner");
+        lowRated.setType("SHOP");
+        lowRated.setRating(3.0);
+        lowRated.setIsActive(true);
+        Place inactive = new Place();
+        inactive.setName("Test Closed");
+        inactive.setType("SHOP");
+        inactive.setRating(5.0);
+        inactive.setIsActive(false);
+        when(nearbyPlaceCache.findNearby(10.0, 20.0, 5.0))
+                .thenReturn(List.of(otherType, testPlace, lowRated, inactive));
 
         List<Place> result = searchService.searchNearbyWithFilters(10.0, 20.0, 5.0, request);
 
@@ -231,7 +312,7 @@ class SearchServiceTest {
         request.setMinRating(4.0);
         request.setIsActive(true);
 
-        when(placeRepository.countByFilters("test", "SHOP", 4.0, true)).thenReturn(5L);
+        when(placeRepository.countByFilters("\\Qtest\\E", "\\QSHOP\\E", 4.0, true)).thenReturn(5L);
 
         SearchStatisticsDTO stats = searchService.getSearchStatistics(request);
 
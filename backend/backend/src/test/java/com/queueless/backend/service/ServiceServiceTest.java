@@ -1,6 +1,7 @@
 package com.queueless.backend.service;
 
 import com.queueless.backend.dto.ServiceDTO;
+import com.queueless.backend.enums.SearchEntityType;
 import com.queueless.backend.model.Service;
 import com.queueless.backend.repository.ServiceRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -26,6 +27,9 @@ class ServiceServiceTest {
     @Mock
     private PlaceService placeService;
 
+    @Mock
+    private SearchIndexService searchIndexService;
+
     @InjectMocks
     private ServiceService serviceService;
 
@@ -176,6 +180,7 @@ class ServiceServiceTest {
         assertDoesNotThrow(() -> serviceService.deleteService(serviceId));
 
         verify(serviceRepository).delete(testService);
+        verify(searchIndexService).remove(SearchEntityType.SERVICE, serviceId);
     }
 
     @Test
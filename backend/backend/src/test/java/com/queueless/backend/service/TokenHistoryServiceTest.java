@@ -0,0 +1,134 @@
+package com.queueless.backend.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.queueless.backend.model.Queue;
+import com.queueless.backend.model.QueueToken;
+import com.queueless.backend.model.TokenHistory;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenHistoryServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private IndexOperations indexOperations;
+
+    @InjectMocks
+    private TokenHistoryService tokenHistoryService;
+
+    private Queue queue;
+
+    @BeforeEach
+    void setUp() {
+        queue = new Queue("provider1", "Service", "place1", "service1");
+        queue.setId("q1");
+    }
+
+    private static QueueToken completed(String tokenId, LocalDateTime completedAt) {
+        QueueToken token = new QueueToken(tokenId, "user1", "COMPLETED", completedAt.minusMinutes(20));
+        token.setCompletedAt(completedAt);
+        return token;
+    }
+
+    private void stubBulkInsert() {
+        when(mongoTemplate.getConverter())
+                .thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext()));
+        when(mongoTemplate.indexOps(anyString())).thenReturn(indexOperations);
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(TokenHistory.class), anyString()))
+                .thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void archiveRoutesTokensToTheMonthTheyClosed() {
+        stubBulkInsert();
+        QueueToken august = completed("T-001", LocalDateTime.of(2026, 8, 31, 23, 50));
+        QueueToken september = completed("T-002", LocalDateTime.of(2026, 9, 1, 0, 10));
+
+        assertTrue(tokenHistoryService.archive(queue, List.of(august, september)));
+
+        verify(mongoTemplate).bulkOps(BulkOperations.BulkMode.UNORDERED, TokenHistory.class, "token_history_202608");
+        verify(mongoTemplate).bulkOps(BulkOperations.BulkMode.UNORDERED, TokenHistory.class, "token_history_202609");
+        ArgumentCaptor<List<TokenHistory>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(bulkOperations, times(2)).insert(inserted.capture());
+        assertEquals(Set.of("T-001", "T-002"), inserted.getAllValues().stream()
+                .flatMap(List::stream).map(TokenHistory::getTokenId).collect(Collectors.toSet()));
+        // Indexes are ensured once per monthly collection
+        verify(mongoTemplate).indexOps("token_history_202608");
+        verify(mongoTemplate).indexOps("token_history_202609");
+    }
+
+    @Test
+    void archiveIgnoresRecordsAlreadyThere() {
+        stubBulkInsert();
+        BulkOperationException duplicate = mock(BulkOperationException.class);
+        when(duplicate.getErrors()).thenReturn(List.of(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 0)));
+        when(bulkOperations.execute()).thenThrow(duplicate);
+
+        assertTrue(tokenHistoryService.archive(queue, List.of(completed("T-001", LocalDateTime.now()))));
+    }
+
+    @Test
+    void archiveReportsOtherWriteErrors() {
+        stubBulkInsert();
+        BulkOperationException failure = mock(BulkOperationException.class);
+        when(failure.getErrors()).thenReturn(List.of(
+                new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 0),
+                new BulkWriteError(121, "Document failed validation", new BsonDocument(), 1)));
+        when(bulkOperations.execute()).thenThrow(failure);
+
+        assertFalse(tokenHistoryService.archive(queue,
+                List.of(completed("T-001", LocalDateTime.now()), completed("T-002", LocalDateTime.now()))));
+    }
+
+    @Test
+    void streamArchivedTokensSkipsTokensStillInTheQueue() {
+        queue.setStartTime(LocalDateTime.now().minusDays(1));
+        QueueToken live = completed("T-002", LocalDateTime.now().minusMinutes(5));
+        QueueToken archived = completed("T-001", LocalDateTime.now().minusHours(3));
+        String collection = tokenHistoryService.collectionFor(YearMonth.now());
+        when(mongoTemplate.getCollectionNames()).thenReturn(Set.of(collection, "queues"));
+        when(mongoTemplate.stream(any(Query.class), eq(TokenHistory.class), eq(collection)))
+                .thenReturn(Stream.of(TokenHistory.from(queue, archived), TokenHistory.from(queue, live)));
+
+        List<QueueToken> tokens;
+        try (Stream<QueueToken> stream = tokenHistoryService.streamArchivedTokens(queue, Set.of(TokenHistory.idFor(live)))) {
+            tokens = stream.toList();
+        }
+
+        assertEquals(List.of("T-001"), tokens.stream().map(QueueToken::getTokenId).toList());
+        assertEquals(archived.getCompletedAt(), tokens.get(0).getCompletedAt());
+    }
+}